@@ -0,0 +1,169 @@
+package com.emailclient.backend.email;
+
+import jakarta.activation.DataHandler;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Synthetic but realistically shaped MIME messages for the benchmarks. Content is generated from a fixed seed so
+ * every run parses the same bytes.
+ */
+public final class MimeCorpus {
+
+    public enum Shape {
+        /** A short single-part text/plain reply. */
+        PLAIN,
+        /** A newsletter-style text/html message with inline styling. */
+        HTML,
+        /** multipart/mixed holding a multipart/alternative body and a small attachment. */
+        NESTED_MULTIPART,
+        /** A short text body with a 4 MB base64 attachment. */
+        LARGE_ATTACHMENT,
+        /** Quoted-printable ISO-8859-1 text, as sent by older western European clients. */
+        ISO_8859_1,
+        /** Base64 Shift_JIS text with an encoded-word subject. */
+        SHIFT_JIS
+    }
+
+    private static final Session SESSION = Session.getInstance(new Properties());
+    private static final Date SENT = Date.from(Instant.parse("2024-05-01T12:00:00Z"));
+
+    private MimeCorpus() {
+    }
+
+    public static byte[] render(Shape shape) {
+        try {
+            MimeMessage message = new MimeMessage(SESSION);
+            message.setFrom(new InternetAddress("newsletter@example.com", "Example News"));
+            message.setRecipients(Message.RecipientType.TO, "alice@example.com, Bob <bob@example.org>");
+            message.setRecipients(Message.RecipientType.CC, "carol@example.net");
+            message.setSentDate(SENT);
+            message.setHeader("In-Reply-To", "<parent@bench.example.com>");
+            message.setHeader("References", "<root@bench.example.com> <parent@bench.example.com>");
+            switch (shape) {
+                case PLAIN -> {
+                    message.setSubject("Re: Quarterly planning");
+                    message.setText(prose(2_000), "UTF-8");
+                }
+                case HTML -> {
+                    message.setSubject("Your weekly digest");
+                    message.setContent(html(40_000), "text/html; charset=UTF-8");
+                }
+                case NESTED_MULTIPART -> {
+                    message.setSubject("Slides for Thursday");
+                    MimeMultipart alternative = new MimeMultipart("alternative");
+                    alternative.addBodyPart(textPart(prose(4_000), "UTF-8"));
+                    alternative.addBodyPart(htmlPart(html(12_000)));
+                    MimeBodyPart body = new MimeBodyPart();
+                    body.setContent(alternative);
+                    MimeMultipart mixed = new MimeMultipart("mixed");
+                    mixed.addBodyPart(body);
+                    mixed.addBodyPart(attachment("agenda.pdf", "application/pdf", 48 * 1024));
+                    message.setContent(mixed);
+                }
+                case LARGE_ATTACHMENT -> {
+                    message.setSubject("Raw footage");
+                    MimeMultipart mixed = new MimeMultipart("mixed");
+                    mixed.addBodyPart(textPart(prose(600), "UTF-8"));
+                    mixed.addBodyPart(attachment("footage.mov", "video/quicktime", 4 * 1024 * 1024));
+                    message.setContent(mixed);
+                }
+                case ISO_8859_1 -> {
+                    message.setSubject("Réunion de l'équipe", "ISO-8859-1");
+                    message.setText(repeat("Les élèves ont reçu leurs résultats à la fin de la journée. ", 3_000),
+                            "ISO-8859-1");
+                    message.setHeader("Content-Transfer-Encoding", "quoted-printable");
+                }
+                case SHIFT_JIS -> {
+                    message.setSubject("会議の議事録", "Shift_JIS");
+                    message.setText(repeat("本日の会議では来期の計画について話し合いました。", 4_000), "Shift_JIS");
+                    message.setHeader("Content-Transfer-Encoding", "base64");
+                }
+            }
+            message.saveChanges();
+            // saveChanges assigns a fresh Message-ID
+            message.setHeader("Message-ID", "<" + shape.name().toLowerCase() + "@bench.example.com>");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            message.writeTo(out);
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (MessagingException ex) {
+            throw new IllegalStateException("Cannot render " + shape, ex);
+        }
+    }
+
+    private static MimeBodyPart textPart(String text, String charset) throws MessagingException {
+        MimeBodyPart part = new MimeBodyPart();
+        part.setText(text, charset);
+        return part;
+    }
+
+    private static MimeBodyPart htmlPart(String html) throws MessagingException {
+        MimeBodyPart part = new MimeBodyPart();
+        part.setContent(html, "text/html; charset=UTF-8");
+        return part;
+    }
+
+    private static MimeBodyPart attachment(String fileName, String contentType, int size) throws MessagingException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        MimeBodyPart part = new MimeBodyPart();
+        part.setDataHandler(new DataHandler(new ByteArrayDataSource(content, contentType)));
+        part.setFileName(fileName);
+        part.setDisposition(Part.ATTACHMENT);
+        return part;
+    }
+
+    private static String html(int length) {
+        StringBuilder html = new StringBuilder("<html><body style=\"font-family:sans-serif\">");
+        Random random = new Random(length);
+        while (html.length() < length) {
+            html.append("<p style=\"margin:0 0 12px;color:#333\">")
+                    .append(sentence(random))
+                    .append(" <a href=\"https://example.com/articles/").append(random.nextInt(10_000))
+                    .append("\">Read more</a></p>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    private static String prose(int length) {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(length);
+        while (text.length() < length) {
+            text.append(sentence(random)).append(random.nextInt(5) == 0 ? "\r\n\r\n" : " ");
+        }
+        return text.toString();
+    }
+
+    private static String sentence(Random random) {
+        String[] words = {"the", "release", "schedule", "review", "team", "customer", "numbers", "before",
+                "meeting", "draft", "shipping", "updated", "budget", "follow", "up", "notes", "with", "next"};
+        StringBuilder sentence = new StringBuilder();
+        int count = 6 + random.nextInt(10);
+        for (int i = 0; i < count; i++) {
+            sentence.append(i == 0 ? "" : " ").append(words[random.nextInt(words.length)]);
+        }
+        sentence.setCharAt(0, Character.toUpperCase(sentence.charAt(0)));
+        return sentence.append('.').toString();
+    }
+
+    private static String repeat(String text, int length) {
+        return text.repeat(Math.max(1, length / text.length()));
+    }
+}
@@ -0,0 +1,74 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.MimeCorpus.Shape;
+import com.emailclient.backend.email.dto.EmailDetail;
+import com.emailclient.backend.email.storage.EmailOfflineStore.StoredEmail;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MIME work done per message: parsing a cached raw message for display, which includes the body walk in
+ * {@code extractTextBody}, and turning a message into a store row, which walks the structure for attachments
+ * and reads the threading headers. Each invocation parses the raw bytes afresh, since Jakarta Mail caches decoded
+ * multipart content on the message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MimeParsingBenchmark {
+
+    @Param
+    public Shape shape;
+
+    private final MessageConverter converter = new MessageConverter();
+    private final Session session = Session.getInstance(new Properties());
+    private byte[] raw;
+    private StoredEmail stored;
+
+    @Setup
+    public void render() {
+        raw = MimeCorpus.render(shape);
+        stored = new StoredEmail("42", "Example News <newsletter@example.com>", "Subject",
+                OffsetDateTime.of(2024, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC), true, raw, "INBOX", false, null, null, raw.length, false);
+    }
+
+    @Benchmark
+    public EmailDetail parseEmailDetail() throws Exception {
+        return converter.parseEmailDetail(stored);
+    }
+
+    @Benchmark
+    public StoredEmail toStoredEmail() throws Exception {
+        MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(raw));
+        return converter.toStoredEmail("42", "INBOX", message, raw);
+    }
+
+    @Benchmark
+    public void extractTextBody(Blackhole blackhole) throws Exception {
+        MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(raw));
+        MimeParseEvent event = new MimeParseEvent();
+        blackhole.consume(converter.extractTextBody(message, event));
+        blackhole.consume(event.partCount);
+    }
+}
@@ -0,0 +1,87 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.dto.EmailDetail;
+import com.emailclient.backend.email.dto.EmailPreview;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting store results to response messages and encoding them, as a listing or an opened email is sent to
+ * the client. Only the conversions are exercised, so the service is built without its collaborators.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtoConversionBenchmark {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.of(2024, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+    private static final EmailGrpcService SERVICE = new EmailGrpcService(null, null);
+
+    @State(Scope.Benchmark)
+    public static class Listing {
+
+        @Param({"50", "500"})
+        public int pageSize;
+
+        List<EmailPreview> previews;
+
+        @Setup
+        public void populate() {
+            previews = new ArrayList<>(pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                previews.add(new EmailPreview(Integer.toString(100_000 + i), "Sender " + i + " <sender" + i + "@example.com>",
+                        "Status update #" + i + " for the release train", BASE.plusMinutes(i), i % 3 == 0,
+                        "Numbers for the next release are in, the schedule holds and the draft notes follow", 2_048L + i, i % 20 == 0, i % 50 == 0));
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Detail {
+
+        @Param({"2048", "262144"})
+        public int bodyLength;
+
+        EmailDetail detail;
+
+        @Setup
+        public void populate() {
+            detail = new EmailDetail("100000", "Sender <sender@example.com>", "Status update", "x".repeat(bodyLength),
+                    BASE, false, List.of("alice@example.com", "bob@example.org"), List.of("carol@example.net"));
+        }
+    }
+
+    @Benchmark
+    public ListInboxResponse listInbox(Listing listing) {
+        return ListInboxResponse.newBuilder()
+                .addAllEmails(listing.previews.stream().map(SERVICE::toProto).toList())
+                .build();
+    }
+
+    @Benchmark
+    public byte[] listInboxEncoded(Listing listing) {
+        return listInbox(listing).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] emailDetailEncoded(Detail detail) {
+        return SERVICE.toDetailProto(detail.detail).toByteArray();
+    }
+}
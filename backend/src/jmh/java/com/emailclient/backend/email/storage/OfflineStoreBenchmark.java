@@ -0,0 +1,102 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.storage.EmailOfflineStore.StoredEmail;
+import com.emailclient.backend.email.storage.EmailOfflineStore.ThreadHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persisting a sync batch and listing the inbox against an embedded SQLite store seeded with {@code mailboxSize}
+ * messages. Every upserted batch flips the unread flag of the messages it rewrites, so each invocation takes the
+ * changed path that allocates and announces a new mailbox version, as a sync picking up new state does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OfflineStoreBenchmark {
+
+    private static final OffsetDateTime BASE = OffsetDateTime.of(2024, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"1000", "10000"})
+    public int mailboxSize;
+
+    private Path database;
+    private EmailOfflineStore store;
+    private List<List<StoredEmail>> batches;
+    private int nextBatch;
+
+    @Setup
+    public void seed() throws Exception {
+        database = Files.createTempFile("email-client-bench", ".db");
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + database.toAbsolutePath());
+        store = new EmailOfflineStore(dataSource, new EmailClientProperties(), new SimpleMeterRegistry(), Tracer.NOOP);
+        store.initialize();
+
+        List<StoredEmail> mailbox = new ArrayList<>(mailboxSize);
+        for (int i = 0; i < mailboxSize; i++) {
+            mailbox.add(email(i, i % 4 == 0));
+        }
+        batches = new ArrayList<>();
+        for (int from = 0; from < mailboxSize; from += BATCH_SIZE) {
+            List<StoredEmail> batch = mailbox.subList(from, Math.min(from + BATCH_SIZE, mailboxSize));
+            store.upsertMessages(batch);
+            batches.add(batch);
+        }
+    }
+
+    @TearDown
+    public void deleteDatabase() throws Exception {
+        Files.deleteIfExists(database);
+    }
+
+    @Benchmark
+    public void upsertMessages() {
+        int index = nextBatch++;
+        List<StoredEmail> batch = batches.get(index % batches.size());
+        boolean unread = (index / batches.size()) % 2 == 0;
+        store.upsertMessages(batch.stream().map(email -> email.withUnread(unread)).toList());
+    }
+
+    @Benchmark
+    public List<EmailPreview> loadPreviews() {
+        return store.loadPreviews();
+    }
+
+    private static StoredEmail email(int index, boolean hasAttachments) {
+        String id = Integer.toString(100_000 + index);
+        ThreadHeaders headers = new ThreadHeaders("<" + id + "@bench.example.com>",
+                index % 3 == 0 ? null : "<" + (100_000 + index - 1) + "@bench.example.com>", null);
+        return new StoredEmail(id, "Sender " + (index % 97) + " <sender" + (index % 97) + "@example.com>",
+                "Status update #" + (index / 3) + " for the release train", BASE.plusMinutes(index),
+                index % 5 == 0, null, "INBOX", hasAttachments, headers,
+                "Numbers for the next release are in, the schedule holds and the draft notes follow", 2_048L + index % 4_096, index % 50 == 0);
+    }
+}
@@ -0,0 +1,139 @@
+package com.emailclient.backend.load;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A TCP relay in front of the fake mail server that makes it behave more like a remote provider. Every chunk the
+ * client sends is held back for {@code latency}, which adds about one round trip per IMAP command; replies are
+ * throttled to {@code bytesPerSecond}; and connections beyond {@code maxConnections} are dropped on accept, the
+ * way Gmail refuses too many simultaneous IMAP sessions.
+ *
+ * <p>The relay runs on platform threads. The backend's IMAP calls run on virtual threads that stay pinned to
+ * their carriers while Jakarta Mail blocks inside synchronized code, and a relay sharing those carriers would
+ * stall behind the very reads it is meant to serve.</p>
+ */
+final class LatencyProxy implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyProxy.class);
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final String name;
+    private final int targetPort;
+    private final Duration latency;
+    private final long bytesPerSecond;
+    private final int maxConnections;
+    private final Semaphore connections;
+    private final LongAdder rejected = new LongAdder();
+    private ServerSocket serverSocket;
+
+    LatencyProxy(String name, int targetPort, Duration latency, long bytesPerSecond, int maxConnections) {
+        this.name = name;
+        this.targetPort = targetPort;
+        this.latency = latency;
+        this.bytesPerSecond = bytesPerSecond;
+        this.maxConnections = maxConnections;
+        this.connections = new Semaphore(maxConnections > 0 ? maxConnections : Integer.MAX_VALUE);
+    }
+
+    int start() throws IOException {
+        serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        Thread.ofPlatform().name(name + "-proxy-accept").daemon().start(this::accept);
+        log.info("{} proxy on port {} -> {} (latency {}, {} bytes/s, {} connections)", name,
+                serverSocket.getLocalPort(), targetPort, latency, bytesPerSecond > 0 ? bytesPerSecond : "unlimited",
+                maxConnections > 0 ? maxConnections : "unlimited");
+        return serverSocket.getLocalPort();
+    }
+
+    long rejectedConnections() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            Socket client;
+            try {
+                client = serverSocket.accept();
+            } catch (IOException ex) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("{} proxy stopped accepting", name, ex);
+                }
+                return;
+            }
+            if (!connections.tryAcquire()) {
+                rejected.increment();
+                closeQuietly(client);
+                continue;
+            }
+            Socket upstream;
+            try {
+                upstream = new Socket(InetAddress.getLoopbackAddress(), targetPort);
+            } catch (IOException ex) {
+                log.warn("{} proxy cannot reach port {}", name, targetPort, ex);
+                connections.release();
+                closeQuietly(client);
+                continue;
+            }
+            AtomicBoolean open = new AtomicBoolean(true);
+            Runnable closeBoth = () -> {
+                if (open.compareAndSet(true, false)) {
+                    closeQuietly(client);
+                    closeQuietly(upstream);
+                    connections.release();
+                }
+            };
+            Thread.ofPlatform().name(name + "-proxy-request").daemon().start(() -> pump(client, upstream, true, closeBoth));
+            Thread.ofPlatform().name(name + "-proxy-reply").daemon().start(() -> pump(upstream, client, false, closeBoth));
+        }
+    }
+
+    private void pump(Socket from, Socket to, boolean request, Runnable closeBoth) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            InputStream in = from.getInputStream();
+            OutputStream out = to.getOutputStream();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (request && !latency.isZero()) {
+                    Thread.sleep(latency);
+                } else if (!request && bytesPerSecond > 0) {
+                    Thread.sleep(Duration.ofNanos(read * 1_000_000_000L / bytesPerSecond));
+                }
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        } catch (IOException ex) {
+            // The other side closed the connection
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeBoth.run();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.emailclient.backend.load;
+
+import com.emailclient.backend.email.grpc.EmailPreviewMessage;
+import com.emailclient.backend.email.grpc.EmailServiceGrpc;
+import com.emailclient.backend.email.grpc.GetEmailRequest;
+import com.emailclient.backend.email.grpc.ListInboxRequest;
+import com.emailclient.backend.email.grpc.ListInboxResponse;
+import com.emailclient.backend.email.grpc.MoveToTrashRequest;
+import com.emailclient.backend.email.grpc.SendEmailRequestMessage;
+import io.grpc.Channel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a weighted mix of client calls against the backend from {@code concurrency} workers and records each
+ * call's latency per operation in HdrHistograms.
+ *
+ * <p>By default each worker issues its next call as soon as the previous one returns. With a target
+ * {@code rate}, calls are scheduled at fixed intervals instead and latency is measured from the scheduled start,
+ * so a stall that delays the following calls shows up in the tail rather than being hidden by the pause
+ * (coordinated omission).</p>
+ */
+final class LoadDriver {
+
+    enum Operation {
+        LIST_INBOX("ListInbox"),
+        GET_EMAIL("GetEmail"),
+        MOVE_TO_TRASH("MoveToTrash"),
+        SEND_EMAIL("SendEmail");
+
+        private final String method;
+
+        Operation(String method) {
+            this.method = method;
+        }
+
+        static Operation forMethod(String method) {
+            for (Operation operation : values()) {
+                if (operation.method.equalsIgnoreCase(method)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation " + method);
+        }
+    }
+
+    private static final Duration CALL_DEADLINE = Duration.ofSeconds(60);
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Channel channel;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+    private final int concurrency;
+    private final double rate;
+    private final String recipient;
+    private final long seed;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, Map<Status.Code, LongAdder>> errors = new EnumMap<>(Operation.class);
+    /** Ids from the most recent inbox listing; GetEmail and MoveToTrash pick from them. */
+    private volatile List<String> inboxIds = List.of();
+
+    LoadDriver(Channel channel, Map<Operation, Integer> mix, int concurrency, double rate, String recipient, long seed) {
+        this.channel = channel;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.concurrency = concurrency;
+        this.rate = rate;
+        this.recipient = recipient;
+        this.seed = seed;
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new ConcurrentHashMap<>());
+        }
+    }
+
+    Report run(Duration warmup, Duration duration) throws InterruptedException {
+        listInbox(EmailServiceGrpc.newBlockingStub(channel));
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + warmup.toNanos();
+        long endNanos = measureFromNanos + duration.toNanos();
+        List<Thread> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            SplittableRandom random = new SplittableRandom(seed + i);
+            workers.add(Thread.ofVirtual().name("load-worker-" + i).start(() -> work(random, startNanos, endNanos)));
+        }
+
+        Thread.sleep(Duration.ofNanos(Math.max(0, measureFromNanos - System.nanoTime())));
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(Map::clear);
+        long measuredFrom = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long measuredNanos = System.nanoTime() - measuredFrom;
+
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        Map<Operation, Map<Status.Code, Long>> failures = new EnumMap<>(Operation.class);
+        for (Operation operation : mix.keySet()) {
+            histograms.put(operation, recorders.get(operation).getIntervalHistogram());
+            Map<Status.Code, Long> counts = new TreeMap<>();
+            errors.get(operation).forEach((code, count) -> counts.put(code, count.sum()));
+            failures.put(operation, counts);
+        }
+        return new Report(Duration.ofNanos(measuredNanos), histograms, failures);
+    }
+
+    private void work(SplittableRandom random, long startNanos, long endNanos) {
+        EmailServiceGrpc.EmailServiceBlockingStub stub = EmailServiceGrpc.newBlockingStub(channel);
+        long intervalNanos = rate > 0 ? (long) (concurrency * 1_000_000_000L / rate) : 0;
+        // Stagger scheduled workers so they do not all fire at the same instant
+        long scheduledNanos = startNanos + (intervalNanos > 0 ? random.nextLong(intervalNanos) : 0);
+        while (true) {
+            long now = System.nanoTime();
+            if (intervalNanos > 0) {
+                if (scheduledNanos > now) {
+                    try {
+                        Thread.sleep(Duration.ofNanos(scheduledNanos - now));
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            } else {
+                scheduledNanos = now;
+            }
+            if (scheduledNanos >= endNanos) {
+                return;
+            }
+            Operation operation = pick(random);
+            try {
+                call(operation, stub, random);
+                recorders.get(operation).recordValue(
+                        Math.min(HIGHEST_TRACKABLE_MICROS, (System.nanoTime() - scheduledNanos) / 1_000));
+            } catch (StatusRuntimeException ex) {
+                errors.get(operation).computeIfAbsent(ex.getStatus().getCode(), code -> new LongAdder()).increment();
+            }
+            scheduledNanos += intervalNanos;
+        }
+    }
+
+    private Operation pick(SplittableRandom random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty operation mix");
+    }
+
+    private void call(Operation operation, EmailServiceGrpc.EmailServiceBlockingStub stub, SplittableRandom random) {
+        EmailServiceGrpc.EmailServiceBlockingStub call = stub.withDeadlineAfter(CALL_DEADLINE.toMillis(), TimeUnit.MILLISECONDS);
+        switch (operation) {
+            case LIST_INBOX -> listInbox(call);
+            case GET_EMAIL -> {
+                String id = randomId(random);
+                if (id != null) {
+                    call.getEmail(GetEmailRequest.newBuilder().setId(id).build());
+                }
+            }
+            case MOVE_TO_TRASH -> {
+                String id = randomId(random);
+                if (id != null) {
+                    call.moveToTrash(MoveToTrashRequest.newBuilder().setId(id).build());
+                }
+            }
+            case SEND_EMAIL -> call.sendEmail(SendEmailRequestMessage.newBuilder()
+                    .setTo(recipient)
+                    .setSubject("Load test " + random.nextInt(1_000_000))
+                    .setBody("Sent by the load harness.\r\n".repeat(1 + random.nextInt(40)))
+                    .build());
+        }
+    }
+
+    private void listInbox(EmailServiceGrpc.EmailServiceBlockingStub stub) {
+        ListInboxResponse response = stub.listInbox(ListInboxRequest.getDefaultInstance());
+        if (!response.getDelta() && !response.getNotModified()) {
+            inboxIds = response.getEmailsList().stream().map(EmailPreviewMessage::getId).toList();
+        }
+    }
+
+    private String randomId(SplittableRandom random) {
+        List<String> ids = inboxIds;
+        return ids.isEmpty() ? null : ids.get(random.nextInt(ids.size()));
+    }
+
+    record Report(Duration measured, Map<Operation, Histogram> histograms, Map<Operation, Map<Status.Code, Long>> errors) {
+
+        void print(PrintStream out) {
+            double seconds = measured.toNanos() / 1e9;
+            out.printf("%nMeasured %.1f s%n", seconds);
+            out.printf("%-12s %9s %8s %10s %10s %10s %10s %10s%n",
+                    "operation", "calls", "errors", "calls/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+            Histogram all = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+            long allErrors = 0;
+            for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+                long failed = errors.get(entry.getKey()).values().stream().mapToLong(Long::longValue).sum();
+                row(out, entry.getKey().method, entry.getValue(), failed, seconds);
+                all.add(entry.getValue());
+                allErrors += failed;
+            }
+            row(out, "all", all, allErrors, seconds);
+            errors.forEach((operation, codes) -> {
+                if (!codes.isEmpty()) {
+                    out.printf("%s errors: %s%n", operation.method, codes);
+                }
+            });
+        }
+
+        private static void row(PrintStream out, String name, Histogram histogram, long failed, double seconds) {
+            out.printf("%-12s %9d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(), failed,
+                    histogram.getTotalCount() / seconds,
+                    histogram.getValueAtPercentile(50) / 1e3,
+                    histogram.getValueAtPercentile(99) / 1e3,
+                    histogram.getValueAtPercentile(99.9) / 1e3,
+                    histogram.getMaxValue() / 1e3);
+        }
+    }
+}
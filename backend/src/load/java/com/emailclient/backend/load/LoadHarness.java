@@ -0,0 +1,208 @@
+package com.emailclient.backend.load;
+
+import com.emailclient.backend.EmailClientBackendApplication;
+import com.emailclient.backend.email.account.AccountContext;
+import com.emailclient.backend.email.account.ApiClients;
+import com.emailclient.backend.load.LoadDriver.Operation;
+import com.icegreen.greenmail.user.GreenMailUser;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import io.grpc.ClientInterceptors;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.stub.MetadataUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the backend against an in-process GreenMail IMAP/SMTP server holding a generated mailbox and drives it
+ * with a mix of gRPC calls, then prints throughput and latency percentiles per operation.
+ *
+ * <p>Run it with {@code mvn -Pload test-compile exec:exec -Dload.args="..."}. Options, all optional:</p>
+ * <ul>
+ *     <li>{@code --messages=10000} size of the generated inbox</li>
+ *     <li>{@code --attachment-ratio=0.05} share of messages carrying a 64-256 KB attachment</li>
+ *     <li>{@code --latency=0ms} delay added to every command sent to the mail server</li>
+ *     <li>{@code --bandwidth=0} mail server reply bandwidth in KB/s, 0 for unlimited</li>
+ *     <li>{@code --max-connections=15} simultaneous mail server connections before new ones are dropped</li>
+ *     <li>{@code --concurrency=16} load driver workers</li>
+ *     <li>{@code --rate=0} target calls per second across all workers, 0 to call back to back</li>
+ *     <li>{@code --warmup=15s} and {@code --duration=60s}</li>
+ *     <li>{@code --mix=ListInbox:60,GetEmail:30,MoveToTrash:5,SendEmail:5} operation weights</li>
+ *     <li>{@code --jdbc-url=...} database to use instead of a temporary SQLite file</li>
+ *     <li>{@code --seed=42} seed for the mailbox and the call mix</li>
+ * </ul>
+ * <p>Any other {@code --key=value} argument is passed to the backend as a Spring property, e.g.
+ * {@code --email-client.execution.imap-rate-per-second=50}.</p>
+ */
+public final class LoadHarness {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadHarness.class);
+    private static final String USER = "load@example.com";
+    private static final String PASSWORD = "load-password";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(Map.of(
+                "messages", "10000",
+                "attachment-ratio", "0.05",
+                "latency", "0ms",
+                "bandwidth", "0",
+                "max-connections", "15",
+                "concurrency", "16",
+                "rate", "0",
+                "warmup", "15s",
+                "duration", "60s",
+                "seed", "42"));
+        options.put("mix", "ListInbox:60,GetEmail:30,MoveToTrash:5,SendEmail:5");
+        options.put("jdbc-url", "");
+        List<String> backendArgs = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String key = arg.startsWith("--") && separator > 2 ? arg.substring(2, separator) : null;
+            if (key != null && options.containsKey(key)) {
+                options.put(key, arg.substring(separator + 1));
+            } else {
+                backendArgs.add(arg);
+            }
+        }
+
+        int messages = Integer.parseInt(options.get("messages"));
+        long seed = Long.parseLong(options.get("seed"));
+        Duration latency = DurationStyle.detectAndParse(options.get("latency"));
+        long bytesPerSecond = Long.parseLong(options.get("bandwidth")) * 1024;
+        int maxConnections = Integer.parseInt(options.get("max-connections"));
+
+        GreenMail greenMail = new GreenMail(ServerSetup.dynamicPort(ServerSetup.SMTP_IMAP));
+        greenMail.start();
+        Path database = null;
+        try (LatencyProxy imapProxy = new LatencyProxy("imap", greenMail.getImap().getPort(), latency, bytesPerSecond, maxConnections);
+             LatencyProxy smtpProxy = new LatencyProxy("smtp", greenMail.getSmtp().getPort(), latency, bytesPerSecond, 0)) {
+            GreenMailUser user = greenMail.setUser(USER, USER, PASSWORD);
+            var folders = greenMail.getManagers().getImapHostManager();
+            folders.createMailbox(user, "Trash");
+            folders.createMailbox(user, "Sent");
+            log.info("Generating {} messages", messages);
+            new MailboxGenerator(USER, Double.parseDouble(options.get("attachment-ratio")), seed)
+                    .fill(folders.getInbox(user), messages);
+
+            String jdbcUrl = options.get("jdbc-url");
+            if (jdbcUrl.isBlank()) {
+                database = Files.createTempFile("email-client-load", ".db");
+                jdbcUrl = "jdbc:sqlite:" + database.toAbsolutePath() + "?journal_mode=WAL&busy_timeout=10000";
+            }
+            int grpcPort = freePort();
+            String apiToken = HexFormat.of().formatHex(randomBytes(32));
+            // System properties outrank application.yml; backend arguments given on the command line still win
+            backendProperties(jdbcUrl, imapProxy.start(), smtpProxy.start(), grpcPort, apiToken).forEach(System::setProperty);
+            try (ConfigurableApplicationContext backend = new SpringApplicationBuilder(EmailClientBackendApplication.class)
+                    .run(backendArgs.toArray(String[]::new))) {
+                ManagedChannel channel = ManagedChannelBuilder.forAddress("127.0.0.1", grpcPort).usePlaintext().build();
+                try {
+                    Metadata credentials = new Metadata();
+                    credentials.put(Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER), "Bearer " + apiToken);
+                    LoadDriver driver = new LoadDriver(
+                            ClientInterceptors.intercept(channel, MetadataUtils.newAttachHeadersInterceptor(credentials)),
+                            mix(options.get("mix")),
+                            Integer.parseInt(options.get("concurrency")), Double.parseDouble(options.get("rate")),
+                            USER, seed);
+                    log.info("Driving load: {}", options);
+                    LoadDriver.Report report = driver.run(DurationStyle.detectAndParse(options.get("warmup")),
+                            DurationStyle.detectAndParse(options.get("duration")));
+                    report.print(System.out);
+                    System.out.printf("IMAP connections refused by the proxy: %d%n", imapProxy.rejectedConnections());
+                } finally {
+                    channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            greenMail.stop();
+            if (database != null) {
+                Files.deleteIfExists(database);
+                Files.deleteIfExists(Path.of(database + "-wal"));
+                Files.deleteIfExists(Path.of(database + "-shm"));
+            }
+        }
+    }
+
+    private static Map<String, String> backendProperties(String jdbcUrl, int imapPort, int smtpPort, int grpcPort,
+                                                         String apiToken) {
+        byte[] masterKey = randomBytes(32);
+        byte[] salt = randomBytes(16);
+
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", jdbcUrl);
+        properties.put("spring.datasource.driver-class-name",
+                jdbcUrl.startsWith("jdbc:sqlite:") ? "org.sqlite.JDBC" : "org.postgresql.Driver");
+        properties.put("spring.mail.host", "127.0.0.1");
+        properties.put("spring.mail.port", Integer.toString(smtpPort));
+        properties.put("spring.mail.username", USER);
+        properties.put("spring.mail.password", PASSWORD);
+        properties.put("spring.mail.properties.mail.smtp.starttls.enable", "false");
+        properties.put("email-client.imap.host", "127.0.0.1");
+        properties.put("email-client.imap.port", Integer.toString(imapPort));
+        properties.put("email-client.imap.ssl", "false");
+        properties.put("email-client.imap.username", USER);
+        properties.put("email-client.imap.password", PASSWORD);
+        properties.put("email-client.crypto.master-key", Base64.getEncoder().encodeToString(masterKey));
+        properties.put("email-client.crypto.salt", Base64.getEncoder().encodeToString(salt));
+        properties.put("email-client.metrics.prometheus-port", "0");
+        properties.put("email-client.auth.clients[0].name", "load");
+        properties.put("email-client.auth.clients[0].token-sha256", ApiClients.sha256(apiToken));
+        properties.put("email-client.auth.clients[0].accounts[0]", AccountContext.DEFAULT_ACCOUNT_ID);
+        properties.put("grpc.server.address", "127.0.0.1");
+        properties.put("grpc.server.port", Integer.toString(grpcPort));
+        properties.put("management.tracing.sampling.probability", "0.0");
+        properties.put("logging.level.com.emailclient.backend", "INFO");
+        return properties;
+    }
+
+    private static Map<Operation, Integer> mix(String spec) {
+        Map<Operation, Integer> mix = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.forMethod(parts[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The operation mix needs at least one positive weight: " + spec);
+        }
+        return mix;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+}
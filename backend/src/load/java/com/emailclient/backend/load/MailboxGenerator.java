@@ -0,0 +1,152 @@
+package com.emailclient.backend.load;
+
+import com.icegreen.greenmail.store.MailFolder;
+import jakarta.activation.DataHandler;
+import jakarta.mail.Flags;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.UnsupportedEncodingException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * Fills a GreenMail folder with a synthetic mailbox: mostly short plain-text mail, some HTML newsletters and a
+ * configurable share of messages with attachments, from a fixed pool of senders, with about a third of the
+ * messages replying to an earlier one and most of them already read. Messages are spread over the two years
+ * before now in index order, so the newest ones are the last appended, as on a real server.
+ *
+ * <p>GreenMail keeps every message in memory; budget roughly 5 KB of heap per message plus the attachments.</p>
+ */
+final class MailboxGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(MailboxGenerator.class);
+    private static final Duration SPAN = Duration.ofDays(730);
+    private static final String[] FIRST_NAMES = {"Ada", "Ben", "Chloe", "Dev", "Elena", "Farid", "Grace", "Hiro",
+            "Ines", "Jonas", "Kemi", "Luca", "Maya", "Nils", "Olga", "Priya", "Quinn", "Rosa", "Sam", "Tariq"};
+    private static final String[] LAST_NAMES = {"Adams", "Brandt", "Chen", "Diaz", "Evans", "Fischer", "Garcia",
+            "Haddad", "Ito", "Jensen", "Kowalski", "Larsen", "Moreau", "Nakamura", "Okafor", "Petrov"};
+    private static final String[] TOPICS = {"Quarterly planning", "Release checklist", "Invoice", "Team offsite",
+            "Design review", "Customer escalation", "Weekly digest", "Budget approval", "Hiring loop", "Incident report"};
+    private static final String[] WORDS = {"the", "release", "schedule", "review", "team", "customer", "numbers",
+            "before", "meeting", "draft", "shipping", "updated", "budget", "follow", "up", "notes", "with", "next"};
+    private static final int SENDERS = 2_000;
+
+    private final Session session = Session.getInstance(new Properties());
+    private final String owner;
+    private final double attachmentRatio;
+    private final long seed;
+
+    MailboxGenerator(String owner, double attachmentRatio, long seed) {
+        this.owner = owner;
+        this.attachmentRatio = attachmentRatio;
+        this.seed = seed;
+    }
+
+    void fill(MailFolder folder, int count) throws MessagingException, UnsupportedEncodingException {
+        SplittableRandom random = new SplittableRandom(seed);
+        Instant start = Instant.now().minus(SPAN);
+        long step = SPAN.toMillis() / Math.max(1, count);
+        int reported = 0;
+        for (int i = 0; i < count; i++) {
+            Date sent = Date.from(start.plusMillis(i * step));
+            MimeMessage message = message(i, sent, random);
+            Flags flags = random.nextInt(10) < 7 ? new Flags(Flags.Flag.SEEN) : new Flags();
+            folder.appendMessage(message, flags, sent);
+            int percent = (int) ((i + 1) * 100L / count);
+            if (percent >= reported + 10) {
+                reported = percent;
+                log.info("Generated {}/{} messages in {}", i + 1, count, folder.getFullName());
+            }
+        }
+    }
+
+    private MimeMessage message(int index, Date sent, SplittableRandom random)
+            throws MessagingException, UnsupportedEncodingException {
+        MimeMessage message = new MimeMessage(session);
+        int sender = random.nextInt(SENDERS);
+        message.setFrom(new InternetAddress("sender" + sender + "@corp" + (sender % 40) + ".example",
+                FIRST_NAMES[sender % FIRST_NAMES.length] + " " + LAST_NAMES[sender % LAST_NAMES.length]));
+        message.setRecipients(Message.RecipientType.TO, owner);
+        if (random.nextInt(4) == 0) {
+            message.setRecipients(Message.RecipientType.CC, "sender" + random.nextInt(SENDERS) + "@corp.example");
+        }
+        String topic = TOPICS[random.nextInt(TOPICS.length)];
+        boolean reply = index > 0 && random.nextInt(3) == 0;
+        message.setSubject(reply ? "Re: " + topic : topic);
+        message.setSentDate(sent);
+
+        int kind = random.nextInt(100);
+        if (random.nextDouble() < attachmentRatio) {
+            MimeMultipart mixed = new MimeMultipart("mixed");
+            mixed.addBodyPart(textPart(prose(random, 500 + random.nextInt(2_000))));
+            mixed.addBodyPart(attachment(random, 64 * 1024 + random.nextInt(192 * 1024)));
+            message.setContent(mixed);
+        } else if (kind < 20) {
+            MimeMultipart alternative = new MimeMultipart("alternative");
+            String text = prose(random, 4_000 + random.nextInt(8_000));
+            alternative.addBodyPart(textPart(text));
+            MimeBodyPart html = new MimeBodyPart();
+            html.setContent("<html><body><p>" + text.replace("\r\n\r\n", "</p><p>") + "</p></body></html>",
+                    "text/html; charset=UTF-8");
+            alternative.addBodyPart(html);
+            message.setContent(alternative);
+        } else {
+            message.setText(prose(random, 300 + random.nextInt(3_000)), "UTF-8");
+        }
+        message.saveChanges();
+        // saveChanges assigns a fresh Message-ID
+        message.setHeader("Message-ID", messageId(index));
+        if (reply) {
+            String parent = messageId(random.nextInt(index));
+            message.setHeader("In-Reply-To", parent);
+            message.setHeader("References", parent);
+        }
+        return message;
+    }
+
+    private static String messageId(int index) {
+        return "<" + index + "@load.example.com>";
+    }
+
+    private static MimeBodyPart textPart(String text) throws MessagingException {
+        MimeBodyPart part = new MimeBodyPart();
+        part.setText(text, "UTF-8");
+        return part;
+    }
+
+    private static MimeBodyPart attachment(SplittableRandom random, int size) throws MessagingException {
+        byte[] content = new byte[size];
+        random.nextBytes(content);
+        MimeBodyPart part = new MimeBodyPart();
+        part.setDataHandler(new DataHandler(new ByteArrayDataSource(content, "application/pdf")));
+        part.setFileName("attachment-" + random.nextInt(1_000) + ".pdf");
+        part.setDisposition(Part.ATTACHMENT);
+        return part;
+    }
+
+    private static String prose(SplittableRandom random, int length) {
+        StringBuilder text = new StringBuilder(length + 64);
+        while (text.length() < length) {
+            int count = 6 + random.nextInt(10);
+            for (int i = 0; i < count; i++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                text.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+            }
+            text.append(random.nextInt(5) == 0 ? ".\r\n\r\n" : ". ");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.EmailService.MoveToTrashResult;
+import com.emailclient.backend.email.EmailService.RestoreEmailResult;
+import com.emailclient.backend.email.dto.EmailDetail;
+import com.emailclient.backend.email.dto.EmailFilter;
+import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.dto.EmailThread;
+import com.emailclient.backend.email.dto.MailboxDelta;
+import com.emailclient.backend.email.dto.MailboxMutation;
+import com.emailclient.backend.email.dto.PreviewFields;
+import com.emailclient.backend.email.dto.RecipientSuggestion;
+import com.emailclient.backend.email.dto.SendEmailRequest;
+import com.emailclient.backend.email.dto.ThreadPage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link EmailService}. Every operation starts immediately and completes its future
+ * on the email task executor, so callers can overlap IMAP and database work or fan out across operations.
+ */
+public interface AsyncEmailService {
+
+    CompletableFuture<List<EmailPreview>> listInbox(EmailFilter filter);
+
+    CompletableFuture<Boolean> refreshInbox();
+
+    CompletableFuture<MailboxDelta> listInboxChanges(EmailFilter filter, long sinceVersion, PreviewFields fields);
+
+    /**
+     * Read from memory, so it is answered synchronously.
+     */
+    long mailboxVersion();
+
+    /**
+     * Read from memory, so it is answered synchronously.
+     */
+    boolean inboxStale();
+
+    /**
+     * Read from memory, so it is answered synchronously.
+     */
+    boolean imapAvailable();
+
+    CompletableFuture<List<EmailPreview>> listSent();
+
+    CompletableFuture<List<EmailPreview>> listTrash(EmailFilter filter, PreviewFields fields);
+
+    CompletableFuture<Void> sendEmail(SendEmailRequest request);
+
+    CompletableFuture<List<RecipientSuggestion>> suggestRecipients(String prefix, int limit);
+
+    CompletableFuture<Optional<EmailDetail>> getEmailDetail(String id, boolean includeContent);
+
+    CompletableFuture<ThreadPage> listThreads(int pageSize, String pageToken);
+
+    CompletableFuture<Optional<EmailThread>> getThread(String threadId);
+
+    CompletableFuture<Boolean> deleteEmail(String id);
+
+    CompletableFuture<MoveToTrashResult> moveToTrash(String id);
+
+    CompletableFuture<RestoreEmailResult> restoreEmail(String id);
+
+    CompletableFuture<Boolean> permanentlyDelete(String id);
+
+    CompletableFuture<List<MailboxMutation>> listMailboxMutations();
+
+    CompletableFuture<Optional<EmailPreview>> updateFlags(String id, Boolean read, Boolean starred);
+}
@@ -0,0 +1,15 @@
+package com.emailclient.backend.email;
+
+import jakarta.mail.MessagingException;
+
+/**
+ * Thrown when IMAP work stops early because the RPC it was done for was cancelled or ran out of time.
+ */
+final class CallAbandonedException extends MessagingException {
+
+    private static final long serialVersionUID = 1L;
+
+    CallAbandonedException(String operation) {
+        super(operation + " abandoned: " + CallDeadline.abandonReason());
+    }
+}
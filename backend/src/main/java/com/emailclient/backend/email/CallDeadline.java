@@ -0,0 +1,135 @@
+package com.emailclient.backend.email;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Deadline and cancellation of the RPC the current thread works for. gRPC keeps both in its {@link Context},
+ * which {@link com.emailclient.backend.email.account.AccountContext#propagating} already carries onto task
+ * threads; work started outside a call has neither and is never abandoned.
+ *
+ * <p>Blocking I/O learns about an abandoned call in two ways: timeouts derived from {@link #remaining()} bound
+ * how long any single read can outlive the deadline, and {@link #interruptOnAbandon()} or {@link #bind} cut a
+ * read short the moment the client goes away.</p>
+ */
+public final class CallDeadline {
+
+    // Cancel hooks may block (PostgreSQL opens a connection to cancel a query), so never on the transport thread
+    private static final Executor CANCEL_EXECUTOR = Thread::startVirtualThread;
+
+    private CallDeadline() {
+    }
+
+    /**
+     * Time left before the current call's deadline, or empty when it has none.
+     */
+    public static Optional<Duration> remaining() {
+        Deadline deadline = Context.current().getDeadline();
+        if (deadline == null) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofNanos(Math.max(0, deadline.timeRemaining(TimeUnit.NANOSECONDS))));
+    }
+
+    /**
+     * Whether the client cancelled the current call or its deadline has passed.
+     */
+    public static boolean isAbandoned() {
+        return Context.current().isCancelled();
+    }
+
+    /**
+     * {@code "deadline"} or {@code "cancelled"}, for tagging metrics about an abandoned call.
+     */
+    public static String abandonReason() {
+        return Context.current().cancellationCause() instanceof TimeoutException ? "deadline" : "cancelled";
+    }
+
+    /**
+     * Interrupts the calling thread if the current call is abandoned before the returned registration is
+     * closed. On a virtual thread that aborts a blocking socket read; on a platform thread the interrupt is only
+     * seen by the next interruptible wait. Closing the registration clears an interrupt it delivered.
+     */
+    public static Registration interruptOnAbandon() {
+        Thread worker = Thread.currentThread();
+        return register(worker::interrupt, true);
+    }
+
+    /**
+     * Caps {@code statement}'s query timeout at the current call's deadline and cancels it if the call is
+     * abandoned first, so the connection goes back to the pool instead of finishing a query nobody reads.
+     */
+    public static Registration bind(Statement statement) throws SQLException {
+        Optional<Duration> remaining = remaining();
+        if (remaining.isPresent()) {
+            long seconds = Math.max(1, (remaining.get().toMillis() + 999) / 1000);
+            statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, seconds));
+        }
+        return register(() -> {
+            try {
+                statement.cancel();
+            } catch (SQLException ignored) {
+                // Statement already finished or closed
+            }
+        }, false);
+    }
+
+    private static Registration register(Runnable abort, boolean interruptsCaller) {
+        Context context = Context.current();
+        Registration registration = new Registration(context, abort, interruptsCaller);
+        context.addListener(registration, interruptsCaller ? Runnable::run : CANCEL_EXECUTOR);
+        return registration;
+    }
+
+    /**
+     * An abort hook tied to the current call; close it once the guarded work is over.
+     */
+    public static final class Registration implements Context.CancellationListener, AutoCloseable {
+
+        private final Context context;
+        private final Runnable abort;
+        private final boolean interruptsCaller;
+        private boolean active = true;
+        private boolean fired;
+
+        private Registration(Context context, Runnable abort, boolean interruptsCaller) {
+            this.context = context;
+            this.abort = abort;
+            this.interruptsCaller = interruptsCaller;
+        }
+
+        /**
+         * Whether the call was abandoned while this registration was open and the abort ran.
+         */
+        public synchronized boolean fired() {
+            return fired;
+        }
+
+        @Override
+        public synchronized void cancelled(Context context) {
+            if (active) {
+                fired = true;
+                abort.run();
+            }
+        }
+
+        @Override
+        public void close() {
+            context.removeListener(this);
+            synchronized (this) {
+                active = false;
+                if (fired && interruptsCaller) {
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.EmailService.MoveToTrashResult;
+import com.emailclient.backend.email.EmailService.RestoreEmailResult;
+import com.emailclient.backend.email.account.AccountContext;
+import com.emailclient.backend.email.dto.EmailDetail;
+import com.emailclient.backend.email.dto.EmailFilter;
+import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.dto.EmailThread;
+import com.emailclient.backend.email.dto.MailboxDelta;
+import com.emailclient.backend.email.dto.MailboxMutation;
+import com.emailclient.backend.email.dto.PreviewFields;
+import com.emailclient.backend.email.dto.RecipientSuggestion;
+import com.emailclient.backend.email.dto.SendEmailRequest;
+import com.emailclient.backend.email.dto.ThreadPage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Runs each {@link EmailService} operation as its own task on the email task executor. The blocking
+ * implementation parallelises inside an operation; this adapter lets callers avoid waiting on one.
+ */
+@Service
+public class DefaultAsyncEmailService implements AsyncEmailService {
+
+    private final EmailService emailService;
+    private final Executor taskExecutor;
+
+    public DefaultAsyncEmailService(EmailService emailService,
+                                    @Qualifier("emailTaskExecutor") ExecutorService taskExecutor) {
+        this.emailService = Objects.requireNonNull(emailService, "emailService");
+        // Tasks run bound to the account of the call that submitted them
+        this.taskExecutor = AccountContext.propagating(Objects.requireNonNull(taskExecutor, "taskExecutor"));
+    }
+
+    @Override
+    public CompletableFuture<List<EmailPreview>> listInbox(EmailFilter filter) {
+        return submit(() -> emailService.listInbox(filter));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> refreshInbox() {
+        return submit(emailService::refreshInbox);
+    }
+
+    @Override
+    public CompletableFuture<MailboxDelta> listInboxChanges(EmailFilter filter, long sinceVersion, PreviewFields fields) {
+        return submit(() -> emailService.listInboxChanges(filter, sinceVersion, fields));
+    }
+
+    @Override
+    public long mailboxVersion() {
+        return emailService.mailboxVersion();
+    }
+
+    @Override
+    public boolean inboxStale() {
+        return emailService.inboxStale();
+    }
+
+    @Override
+    public boolean imapAvailable() {
+        return emailService.imapAvailable();
+    }
+
+    @Override
+    public CompletableFuture<List<EmailPreview>> listSent() {
+        return submit(emailService::listSent);
+    }
+
+    @Override
+    public CompletableFuture<List<EmailPreview>> listTrash(EmailFilter filter, PreviewFields fields) {
+        return submit(() -> emailService.listTrash(filter, fields));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendEmail(SendEmailRequest request) {
+        return CompletableFuture.runAsync(() -> emailService.sendEmail(request), taskExecutor);
+    }
+
+    @Override
+    public CompletableFuture<List<RecipientSuggestion>> suggestRecipients(String prefix, int limit) {
+        return submit(() -> emailService.suggestRecipients(prefix, limit));
+    }
+
+    @Override
+    public CompletableFuture<Optional<EmailDetail>> getEmailDetail(String id, boolean includeContent) {
+        return submit(() -> emailService.getEmailDetail(id, includeContent));
+    }
+
+    @Override
+    public CompletableFuture<ThreadPage> listThreads(int pageSize, String pageToken) {
+        return submit(() -> emailService.listThreads(pageSize, pageToken));
+    }
+
+    @Override
+    public CompletableFuture<Optional<EmailThread>> getThread(String threadId) {
+        return submit(() -> emailService.getThread(threadId));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteEmail(String id) {
+        return submit(() -> emailService.deleteEmail(id));
+    }
+
+    @Override
+    public CompletableFuture<MoveToTrashResult> moveToTrash(String id) {
+        return submit(() -> emailService.moveToTrash(id));
+    }
+
+    @Override
+    public CompletableFuture<RestoreEmailResult> restoreEmail(String id) {
+        return submit(() -> emailService.restoreEmail(id));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> permanentlyDelete(String id) {
+        return submit(() -> emailService.permanentlyDelete(id));
+    }
+
+    @Override
+    public CompletableFuture<List<MailboxMutation>> listMailboxMutations() {
+        return submit(emailService::listMailboxMutations);
+    }
+
+    @Override
+    public CompletableFuture<Optional<EmailPreview>> updateFlags(String id, Boolean read, Boolean starred) {
+        return submit(() -> emailService.updateFlags(id, read, starred));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, taskExecutor);
+    }
+}
@@ -1,40 +1,57 @@
 package com.emailclient.backend.email;
 
+import com.emailclient.backend.email.ImapMetrics.Phase;
+import com.emailclient.backend.email.account.AccountContext;
+import com.emailclient.backend.email.account.AccountRegistry;
+import com.emailclient.backend.email.account.AccountSessions;
+import com.emailclient.backend.email.account.EmailAccount;
+import com.emailclient.backend.email.contacts.RecipientIndex;
 import com.emailclient.backend.email.dto.EmailDetail;
+import com.emailclient.backend.email.dto.EmailFilter;
 import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.dto.EmailThread;
+import com.emailclient.backend.email.dto.MailboxDelta;
+import com.emailclient.backend.email.dto.MailboxMutation;
+import com.emailclient.backend.email.dto.PreviewFields;
+import com.emailclient.backend.email.dto.RecipientSuggestion;
 import com.emailclient.backend.email.dto.SendEmailRequest;
+import com.emailclient.backend.email.dto.ThreadPage;
 import com.emailclient.backend.email.smtp.SecureSmtpMailer;
+import com.emailclient.backend.email.storage.EmailContactStore.ContactRecord;
 import com.emailclient.backend.email.storage.EmailOfflineStore;
 import com.emailclient.backend.email.storage.EmailOfflineStore.StoredEmail;
-import jakarta.annotation.PostConstruct;
+import com.emailclient.backend.email.storage.SyncLeaseStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
+import jakarta.mail.Address;
 import jakarta.mail.FetchProfile;
 import jakarta.mail.Flags;
 import jakarta.mail.Folder;
 import jakarta.mail.Message;
-import jakarta.mail.MessageRemovedException;
 import jakarta.mail.MessagingException;
-import jakarta.mail.Session;
 import jakarta.mail.Store;
 import jakarta.mail.UIDFolder;
 import jakarta.mail.internet.InternetAddress;
-import jakarta.mail.internet.MimeMessage;
 import jakarta.mail.search.FlagTerm;
-import org.eclipse.angus.mail.imap.IMAPFolder;
-import org.eclipse.angus.mail.imap.AppendUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.time.OffsetDateTime;
-import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Service
@@ -52,122 +69,268 @@ public class DefaultEmailService implements EmailService {
             "[Gmail]/All Mail",
             "All Mail"
     );
+    private static final int MAX_LISTED_MUTATIONS = 500;
 
     private final EmailClientProperties properties;
     private final EmailOfflineStore offlineStore;
     private final SecureSmtpMailer smtpMailer;
-    private Session imapSession;
-
-    public DefaultEmailService(EmailClientProperties properties, EmailOfflineStore offlineStore, SecureSmtpMailer smtpMailer) {
+    private final RecipientIndex recipientIndex;
+    private final AccountRegistry accounts;
+    private final AccountSessions sessions;
+    private final ImapScheduler imapScheduler;
+    private final ImapCircuitBreaker circuitBreaker;
+    private final ImapMetrics imapMetrics;
+    private final SyncLeaseStore syncLeases;
+    private final ExecutorService taskExecutor;
+    private final SingleFlight<String, List<StoredEmail>> folderFetches;
+    private final SingleFlight<String, StoredEmail> messageFetches;
+    private final Map<String, Long> inboxSyncedAt = new ConcurrentHashMap<>();
+    private final MessageConverter converter;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+
+    public DefaultEmailService(EmailClientProperties properties,
+                               EmailOfflineStore offlineStore,
+                               SecureSmtpMailer smtpMailer,
+                               RecipientIndex recipientIndex,
+                               AccountRegistry accounts,
+                               AccountSessions sessions,
+                               ImapScheduler imapScheduler,
+                               ImapCircuitBreaker circuitBreaker,
+                               ImapMetrics imapMetrics,
+                               SyncLeaseStore syncLeases,
+                               @Qualifier("emailTaskExecutor") ExecutorService taskExecutor,
+                               MeterRegistry meterRegistry,
+                               Tracer tracer) {
         this.properties = Objects.requireNonNull(properties, "properties");
         this.offlineStore = Objects.requireNonNull(offlineStore, "offlineStore");
         this.smtpMailer = Objects.requireNonNull(smtpMailer, "smtpMailer");
-    }
-
-    @PostConstruct
-    void configureSession() {
-        Properties sessionProperties = new Properties();
-        String protocol = properties.getImap().isSsl() ? "imaps" : "imap";
-        sessionProperties.put("mail.store.protocol", protocol);
-        sessionProperties.put("mail." + protocol + ".host", properties.getImap().getHost());
-        sessionProperties.put("mail." + protocol + ".port", String.valueOf(properties.getImap().getPort()));
-        sessionProperties.put("mail." + protocol + ".ssl.enable", Boolean.toString(properties.getImap().isSsl()));
-        sessionProperties.put("mail." + protocol + ".auth", "true");
-        sessionProperties.put("mail.mime.address.strict", "false");
-        
-        // Connection pooling and optimization to reduce throttling impact
-        sessionProperties.put("mail." + protocol + ".connectionpool.debug", "false");
-        sessionProperties.put("mail." + protocol + ".connectionpoolsize", "1");
-        sessionProperties.put("mail." + protocol + ".connectionpooltimeout", "45000"); // 45 seconds
-        sessionProperties.put("mail." + protocol + ".timeout", "15000"); // 15 second read timeout
-        sessionProperties.put("mail." + protocol + ".connectiontimeout", "10000"); // 10 second connect timeout
-        sessionProperties.put("mail." + protocol + ".writetimeout", "10000"); // 10 second write timeout
-        
-        // Optimize fetching to reduce server load
-        sessionProperties.put("mail." + protocol + ".fetchsize", "32768"); // 32KB fetch size
-        sessionProperties.put("mail." + protocol + ".partialfetch", "false");
-        
-        this.imapSession = Session.getInstance(sessionProperties);
-        this.imapSession.setDebug(log.isDebugEnabled());
+        this.recipientIndex = Objects.requireNonNull(recipientIndex, "recipientIndex");
+        this.accounts = Objects.requireNonNull(accounts, "accounts");
+        this.sessions = Objects.requireNonNull(sessions, "sessions");
+        this.imapScheduler = Objects.requireNonNull(imapScheduler, "imapScheduler");
+        this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "circuitBreaker");
+        this.imapMetrics = Objects.requireNonNull(imapMetrics, "imapMetrics");
+        this.syncLeases = Objects.requireNonNull(syncLeases, "syncLeases");
+        this.taskExecutor = Objects.requireNonNull(taskExecutor, "taskExecutor");
+        this.folderFetches = new SingleFlight<>("folder_sync", meterRegistry);
+        this.messageFetches = new SingleFlight<>("message_fetch", meterRegistry);
+        this.meterRegistry = meterRegistry;
+        this.tracer = Objects.requireNonNull(tracer, "tracer");
+        this.converter = new MessageConverter();
     }
 
     @Override
-    public List<EmailPreview> listInbox() {
+    public List<EmailPreview> listInbox(EmailFilter filter) {
         log.debug("Refreshing inbox cache before responding");
-        boolean refreshed = refreshInboxCache();
+        refreshInbox();
 
-        List<EmailPreview> cachedPreviews = offlineStore.loadPreviews();
+        // Sent-by-me rows are excluded in SQL so the page is not short after filtering
+        return offlineStore.loadPreviews(filter, currentUsername());
+    }
 
-        if (cachedPreviews.isEmpty() && !refreshed) {
-            log.info("Cache empty after refresh attempt, performing fallback IMAP sync");
-            try {
-                List<StoredEmail> freshMessages = fetchAndCacheLatest();
-                if (!freshMessages.isEmpty()) {
-                    offlineStore.upsertMessages(freshMessages);
-                }
-                cachedPreviews = offlineStore.loadPreviews();
-            } catch (MessagingException | IOException ex) {
-                log.warn("Fallback IMAP sync failed: {}", ex.getMessage());
-                return List.of();
-            }
+    @Override
+    public boolean refreshInbox() {
+        if (refreshInboxCache()) {
+            return true;
+        }
+        if (offlineStore.currentVersion() > 0) {
+            return false;
         }
+        log.info("Cache empty after refresh attempt, performing fallback IMAP sync");
+        return refreshInboxCache();
+    }
 
-        // Filter out sent emails (from current user) from inbox view
-        String userEmail = properties.getImap().getUsername();
-        return cachedPreviews.stream()
-                .filter(preview -> !isSentByUser(preview.from(), userEmail))
-                .toList();
+    @Override
+    public MailboxDelta listInboxChanges(EmailFilter filter, long sinceVersion, PreviewFields fields) {
+        return offlineStore.loadInboxChanges(filter, currentUsername(), sinceVersion, fields);
+    }
+
+    @Override
+    public long mailboxVersion() {
+        return offlineStore.currentVersion();
+    }
+
+    @Override
+    public boolean inboxStale() {
+        Long syncedAt = inboxSyncedAt.get(AccountContext.currentAccountId());
+        return syncedAt == null
+                || System.nanoTime() - syncedAt >= properties.getImap().getInboxRefreshInterval().toNanos();
+    }
+
+    @Override
+    public boolean imapAvailable() {
+        return circuitBreaker.state(AccountContext.currentAccountId()) == ImapCircuitBreaker.State.CLOSED;
     }
     
+    /**
+     * Concurrent refreshes share one sync; only the caller that runs it writes the result to the cache. Across
+     * replicas only the holder of the inbox sync lease talks to IMAP; the others serve the shared store.
+     */
     private boolean refreshInboxCache() {
+        if (!circuitBreaker.allowsCalls(AccountContext.currentAccountId())) {
+            log.debug("IMAP unavailable, serving the inbox from the offline store");
+            return false;
+        }
         try {
-            List<StoredEmail> freshMessages = fetchAndCacheLatest();
-            if (!freshMessages.isEmpty()) {
-                offlineStore.upsertMessages(freshMessages);
-            }
+            folderFetches.execute(flightKey("INBOX"), () -> {
+                if (!syncLeases.tryAcquire(AccountContext.currentAccountId(), "INBOX")) {
+                    log.debug("Inbox is synced by another replica, serving the shared offline store");
+                    offlineStore.reloadVersion();
+                    return List.of();
+                }
+                List<StoredEmail> freshMessages = withImapPermit("inbox_sync", this::fetchAndCacheLatest);
+                if (!freshMessages.isEmpty()) {
+                    offlineStore.upsertMessages(freshMessages);
+                }
+                return freshMessages;
+            });
+            // Synced here or by the replica holding the lease, which keeps the shared store current
+            inboxSyncedAt.put(AccountContext.currentAccountId(), System.nanoTime());
             return true;
+        } catch (CallAbandonedException ex) {
+            log.debug("Inbox refresh stopped: {}", ex.getMessage());
+            return false;
         } catch (MessagingException | IOException ex) {
             log.warn("Unable to refresh inbox cache from IMAP: {}", ex.getMessage());
             return false;
         }
     }
-    
-    private boolean isSentByUser(String fromAddress, String userEmail) {
-        if (fromAddress == null || userEmail == null) {
-            return false;
+
+    /**
+     * Runs a bulk sync in the current account's background lane of the IMAP scheduler, abandoning it (queued or
+     * mid-transfer) if the RPC it serves is cancelled or runs out of time.
+     */
+    private <T> T withImapPermit(String operation, ImapCall<T> call) throws MessagingException, IOException {
+        return abortable(operation,
+                () -> imapScheduler.run(AccountContext.currentAccountId(), ImapScheduler.Lane.BACKGROUND, call));
+    }
+
+    /**
+     * Runs {@code call} so that abandoning the current RPC interrupts its socket reads, and turns the failure
+     * that causes into {@link CallAbandonedException} so callers do not mistake it for a server error. Work that
+     * completes anyway after the call was abandoned is counted too: it is load nobody was waiting for.
+     */
+    private <T> T abortable(String operation, ImapCall<T> call) throws MessagingException, IOException {
+        if (CallDeadline.isAbandoned()) {
+            countAbandoned(operation, "skipped");
+            throw new CallAbandonedException(operation);
         }
-        // Extract email from "Name <email@domain.com>" format
-        String extractedEmail = fromAddress;
-        if (fromAddress.contains("<") && fromAddress.contains(">")) {
-            int start = fromAddress.indexOf('<') + 1;
-            int end = fromAddress.indexOf('>');
-            if (start > 0 && end > start) {
-                extractedEmail = fromAddress.substring(start, end);
+        try (CallDeadline.Registration ignored = CallDeadline.interruptOnAbandon()) {
+            T result = call.run();
+            if (CallDeadline.isAbandoned()) {
+                countAbandoned(operation, "completed");
+            }
+            return result;
+        } catch (MessagingException | IOException ex) {
+            if (!CallDeadline.isAbandoned()) {
+                throw ex;
             }
+            countAbandoned(operation, "aborted");
+            throw ex instanceof CallAbandonedException abandoned ? abandoned : new CallAbandonedException(operation);
         }
-        return extractedEmail.trim().equalsIgnoreCase(userEmail.trim());
+    }
+
+    private static void checkActive(String operation) throws CallAbandonedException {
+        if (CallDeadline.isAbandoned()) {
+            throw new CallAbandonedException(operation);
+        }
+    }
+
+    private void countAbandoned(String operation, String outcome) {
+        Counter.builder("email.imap.abandoned")
+                .description("IMAP work whose RPC was cancelled or timed out, by whether it was skipped, cut short or finished anyway")
+                .tag("operation", operation)
+                .tag("reason", CallDeadline.abandonReason())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Account for a user-initiated IMAP operation, once the scheduler's interactive lane admits it. Such
+     * operations handle their own errors and pass them to {@link #reportImapFailure}.
+     */
+    private EmailAccount admitInteractive() throws MessagingException {
+        EmailAccount account = currentAccount();
+        if (!circuitBreaker.allowsCalls(account.id())) {
+            throw new ImapUnavailableException(account.id());
+        }
+        imapScheduler.admit(account.id(), ImapScheduler.Lane.INTERACTIVE);
+        return account;
+    }
+
+    /**
+     * Connects through the account's circuit breaker, which fails fast while the server is unreachable.
+     */
+    private void connect(Store store, EmailAccount account) throws MessagingException {
+        checkActive("connect");
+        circuitBreaker.acquirePermission(account.id());
+        try {
+            imapMetrics.run(Phase.CONNECT,
+                    () -> store.connect(account.imapHost(), account.imapPort(), account.username(), account.password()));
+        } catch (MessagingException | RuntimeException ex) {
+            // A connect cut short by the caller's deadline says nothing about the server
+            if (CallDeadline.isAbandoned()) {
+                circuitBreaker.onAbandoned(account.id());
+            } else {
+                circuitBreaker.onFailure(account.id(), ex);
+            }
+            throw ex;
+        }
+        circuitBreaker.onSuccess(account.id());
+    }
+
+    private void reportImapFailure(Exception failure) {
+        imapScheduler.reportFailure(AccountContext.currentAccountId(), failure);
+    }
+
+    private EmailAccount currentAccount() throws MessagingException {
+        String accountId = AccountContext.currentAccountId();
+        return accounts.find(accountId)
+                .orElseThrow(() -> new MessagingException("No IMAP account configured for '" + accountId + "'"));
+    }
+
+    private String currentUsername() {
+        return accounts.find(AccountContext.currentAccountId()).map(EmailAccount::username).orElse(null);
+    }
+
+    /**
+     * Single-flight keys are per account: two mailboxes share folder names and UIDs.
+     */
+    private static String flightKey(String key) {
+        return AccountContext.currentAccountId() + ":" + key;
     }
 
     @Override
-    public List<EmailPreview> listTrash() {
+    public List<EmailPreview> listTrash(EmailFilter filter, PreviewFields fields) {
         log.debug("Loading trash from cache");
-        return offlineStore.loadTrashPreviews();
+        return offlineStore.loadTrashPreviews(filter, fields);
     }
     
     @Override
     public List<EmailPreview> listSent() {
+        if (!circuitBreaker.allowsCalls(AccountContext.currentAccountId())) {
+            log.debug("IMAP unavailable, sent folder cannot be listed");
+            return List.of();
+        }
         log.debug("Fetching sent emails from IMAP");
         try {
-            List<StoredEmail> sentEmails = fetchSentFromFolder("[Gmail]/Sent Mail");
+            List<StoredEmail> sentEmails = folderFetches.execute(flightKey("[Gmail]/Sent Mail"),
+                    () -> withImapPermit("sent_sync", () -> fetchSentFromFolder("[Gmail]/Sent Mail")));
             return sentEmails.stream()
                     .map(StoredEmail::toPreview)
                     .toList();
+        } catch (CallAbandonedException ex) {
+            log.debug("Sent listing stopped: {}", ex.getMessage());
+            return List.of();
         } catch (MessagingException | IOException ex) {
             log.warn("Failed to fetch sent emails: {}", ex.getMessage());
             // Try alternative folder names
             try {
                 log.debug("Trying alternative sent folder name");
-                List<StoredEmail> sentEmails = fetchSentFromFolder("Sent");
+                List<StoredEmail> sentEmails = folderFetches.execute(flightKey("Sent"),
+                        () -> withImapPermit("sent_sync", () -> fetchSentFromFolder("Sent")));
                 return sentEmails.stream()
                         .map(StoredEmail::toPreview)
                         .toList();
@@ -185,565 +348,105 @@ public class DefaultEmailService implements EmailService {
     }
 
     @Override
-    public boolean deleteEmail(String id) {
-        log.info("Attempting to delete email with id={}", id);
-        Store store = null;
-        Folder sourceFolder = null;
-        Folder trash = null;
-        try {
-            String protocol = properties.getImap().isSsl() ? "imaps" : "imap";
-            store = imapSession.getStore(protocol);
-            
-            log.debug("Connecting to IMAP server for delete operation");
-            store.connect(
-                    properties.getImap().getHost(),
-                    properties.getImap().getPort(),
-                    properties.getImap().getUsername(),
-                    properties.getImap().getPassword()
-            );
-
-            // Try to find the email in multiple folders (INBOX, Sent, etc.)
-            long uid = Long.parseLong(id);
-            Message message = null;
-            
-            for (String folderName : MESSAGE_FOLDERS_TO_SEARCH) {
-                try {
-                    sourceFolder = store.getFolder(folderName);
-                    if (sourceFolder.exists() && sourceFolder instanceof UIDFolder uidFolder) {
-                        sourceFolder.open(Folder.READ_WRITE);
-                        message = uidFolder.getMessageByUID(uid);
-                        
-                        if (message != null) {
-                            log.debug("Email found in folder: {}", folderName);
-                            break;
-                        } else {
-                            sourceFolder.close(false);
-                            sourceFolder = null;
-                        }
-                    }
-                } catch (MessagingException e) {
-                    log.debug("Could not find email in folder '{}': {}", folderName, e.getMessage());
-                    if (sourceFolder != null && sourceFolder.isOpen()) {
-                        sourceFolder.close(false);
-                    }
-                    sourceFolder = null;
-                }
-            }
+    public List<RecipientSuggestion> suggestRecipients(String prefix, int limit) {
+        return recipientIndex.suggest(prefix, limit);
+    }
 
-            if (message == null) {
-                log.warn("Email not found with id={} in any folder", id);
-                return false;
-            }
+    @Override
+    public ThreadPage listThreads(int pageSize, String pageToken) {
+        return offlineStore.loadThreads(pageSize, pageToken);
+    }
 
-            // Try Gmail trash folder first, then standard Deleted Items
-            String[] trashFolderNames = {"[Gmail]/Trash", "Trash", "Deleted Items", "Deleted"};
-            trash = null;
-            
-            for (String trashName : trashFolderNames) {
+    @Override
+    public java.util.Optional<EmailThread> getThread(String threadId) {
+        return offlineStore.loadThreadSummary(threadId).map(summary -> {
+            // Messages come back in one query; rows without cached raw content fall back to their headers
+            List<EmailDetail> messages = new ArrayList<>();
+            for (StoredEmail storedEmail : offlineStore.loadThreadMessages(threadId)) {
                 try {
-                    Folder testFolder = store.getFolder(trashName);
-                    if (testFolder.exists()) {
-                        trash = testFolder;
-                        log.debug("Found trash folder: {}", trashName);
-                        break;
-                    }
-                } catch (MessagingException e) {
-                    log.debug("Trash folder '{}' not found, trying next", trashName);
+                    messages.add(converter.parseEmailDetail(storedEmail));
+                } catch (MessagingException | IOException ex) {
+                    log.warn("Failed to parse message {} of thread {}: {}", storedEmail.id(), threadId, ex.getMessage());
                 }
             }
+            return new EmailThread(summary, messages);
+        });
+    }
 
-            boolean alreadyInTrash = sourceFolder != null && trash != null
-                    && sourceFolder.getFullName().equalsIgnoreCase(trash.getFullName());
-            if (log.isDebugEnabled()) {
-                log.debug("Delete email {}: source folder='{}', trash folder='{}', alreadyInTrash={}",
-                        id,
-                        folderName(sourceFolder),
-                        folderName(trash),
-                        alreadyInTrash);
-            }
-
-            if (trash != null && trash.exists() && !alreadyInTrash) {
-                // Move to trash
-                trash.open(Folder.READ_WRITE);
-                if (sourceFolder != null) {
-                sourceFolder.copyMessages(new Message[]{message}, trash);
-                } else {
-                    log.warn("Source folder lost before copying message {} to trash", id);
-                }
-                trash.close(false);
-                log.info("Email moved to trash folder");
-            } else if (alreadyInTrash) {
-                log.debug("Email {} already in trash folder {}, skipping copy step", id, trash != null ? trash.getFullName() : "unknown");
-            }
-
-            // Mark for deletion and expunge
-            try {
-            message.setFlag(Flags.Flag.DELETED, true);
-                if (sourceFolder != null) {
-            sourceFolder.expunge();
-                }
-            } catch (MessageRemovedException removedEx) {
-                log.debug("Message {} was already removed from folder {} during delete", id, folderName(sourceFolder));
-            }
-
-            boolean removedLocally = offlineStore.permanentlyDelete(id);
-            if (!removedLocally) {
-                log.warn("Email {} could not be removed from offline cache after delete", id);
-            }
-            
-            log.info("Email successfully deleted: id={}", id);
-            return true;
-
-        } catch (Exception ex) {
-            log.error("Failed to delete email with id={}", id, ex);
-            return false;
-        } finally {
-            try {
-                if (trash != null && trash.isOpen()) {
-                    trash.close(false);
-                }
-                if (sourceFolder != null && sourceFolder.isOpen()) {
-                    sourceFolder.close(false);
-                }
-                if (store != null && store.isConnected()) {
-                    store.close();
-                }
-            } catch (MessagingException ex) {
-                log.warn("Error closing IMAP connection", ex);
-            }
+    /**
+     * Removes the message from the offline store at once, hydrating it first if it is not cached, so the journal
+     * knows its UID; {@link MailboxMutationReplayer} then moves it to the trash folder on the server, or removes
+     * it from there if it already is in the trash.
+     */
+    @Override
+    public boolean deleteEmail(String id) {
+        log.info("Deleting email: id={}", id);
+        boolean journaled = applyLocally(id, MailboxMutation.Operation.DELETE);
+        if (!journaled) {
+            log.warn("Failed to delete email from the offline store: id={}", id);
         }
+        return journaled;
     }
-    
+
+    /**
+     * Marks the message trashed in the offline store, hydrating it first if it is not cached, and leaves the move
+     * on the server to {@link MailboxMutationReplayer}. The message keeps its id until the move is replayed; the
+     * mailbox delta then reports it removed and re-added under its UID in the trash folder.
+     */
     @Override
     public MoveToTrashResult moveToTrash(String id) {
         log.info("Moving email to trash: id={}", id);
-        boolean localSuccess = offlineStore.markAsTrashed(id);
-        String effectiveId = id;
-
-        if (!localSuccess) {
-            log.info("Email {} missing from offline cache during trash operation, attempting to hydrate before proceeding", id);
-            EmailOfflineStore.StoredEmail cachedEmail = offlineStore.loadEmailById(id).orElse(null);
-            if (cachedEmail == null) {
-                EmailOfflineStore.StoredEmail fetchedEmail = fetchEmailFromImap(id);
-                if (fetchedEmail != null) {
-                    offlineStore.upsertMessages(List.of(fetchedEmail));
-                    cachedEmail = fetchedEmail;
-                } else {
-                    log.warn("Unable to fetch email {} from IMAP while preparing to trash", id);
-                }
-            }
-            if (cachedEmail != null) {
-                String cacheId = cachedEmail.id();
-                if (!Objects.equals(cacheId, id)) {
-                    log.debug("Hydrated email {} using cache id {} prior to trash operation", id, cacheId);
-                }
-                localSuccess = offlineStore.markAsTrashed(cacheId);
-                if (localSuccess) {
-                    effectiveId = cacheId;
-                }
-            }
-        }
-
+        boolean localSuccess = applyLocally(id, MailboxMutation.Operation.TRASH);
         if (!localSuccess) {
             log.warn("Failed to mark email as trashed locally after hydration attempt: id={}", id);
-            return new MoveToTrashResult(false, effectiveId);
         }
-        
-        Store store = null;
-        Folder sourceFolder = null;
-        Folder trash = null;
-        try {
-            String protocol = properties.getImap().isSsl() ? "imaps" : "imap";
-            store = imapSession.getStore(protocol);
-            
-            log.debug("Connecting to IMAP server for trash operation");
-            store.connect(
-                    properties.getImap().getHost(),
-                    properties.getImap().getPort(),
-                    properties.getImap().getUsername(),
-                    properties.getImap().getPassword()
-            );
-
-            long uid = Long.parseLong(effectiveId);
-            Message message = null;
-            String messageIdHeader = null;
-            
-            for (String folderName : MESSAGE_FOLDERS_TO_SEARCH) {
-                try {
-                    sourceFolder = store.getFolder(folderName);
-                    if (sourceFolder.exists() && sourceFolder instanceof UIDFolder uidFolder) {
-                        sourceFolder.open(Folder.READ_WRITE);
-                        message = uidFolder.getMessageByUID(uid);
-                        
-                        if (message != null) {
-                            log.debug("Email found in folder: {}", folderName);
-                            messageIdHeader = getMessageId(message);
-                            log.debug("Message {} message-id header: {}", effectiveId, messageIdHeader);
-                            break;
-                        } else {
-                            sourceFolder.close(false);
-                            sourceFolder = null;
-                        }
-                    }
-                } catch (MessagingException e) {
-                    log.debug("Could not find email in folder '{}': {}", folderName, e.getMessage());
-                    if (sourceFolder != null && sourceFolder.isOpen()) {
-                        sourceFolder.close(false);
-                    }
-                    sourceFolder = null;
-                }
-            }
-
-            if (message == null) {
-                log.warn("Email not found on server with id={}, but marked as trashed locally", effectiveId);
-                return new MoveToTrashResult(true, effectiveId);
-            }
-
-            String[] trashFolderNames = {"[Gmail]/Trash", "Trash", "Deleted Items", "Deleted"};
-            for (String trashName : trashFolderNames) {
-                try {
-                    Folder testFolder = store.getFolder(trashName);
-                    if (testFolder.exists()) {
-                        trash = testFolder;
-                        log.debug("Found trash folder: {}", trashName);
-                        break;
-                    }
-                } catch (MessagingException e) {
-                    log.debug("Trash folder '{}' not found, trying next", trashName);
-                }
-            }
-
-            if (trash != null && trash.exists()) {
-                trash.open(Folder.READ_WRITE);
-                UIDFolder trashUidFolder = trash instanceof UIDFolder t ? t : null;
-                IMAPFolder imapTrashFolder = trash instanceof IMAPFolder t ? t : null;
-                IMAPFolder imapSourceFolder = sourceFolder instanceof IMAPFolder s ? s : null;
-                long expectedUid = -1;
-                if (trashUidFolder != null) {
-                    try {
-                        expectedUid = trashUidFolder.getUIDNext();
-                    } catch (MessagingException ex) {
-                        log.debug("Unable to read UIDNEXT from trash folder: {}", ex.getMessage());
-                    }
-                }
-
-                Long newUidFromServer = null;
-                boolean copied = false;
-
-                if (sourceFolder != null) {
-                    if (imapSourceFolder != null && imapTrashFolder != null) {
-                        try {
-                            AppendUID[] appendUids = imapSourceFolder.copyUIDMessages(new Message[]{message}, imapTrashFolder);
-                            copied = true;
-                            if (appendUids != null && appendUids.length > 0) {
-                                newUidFromServer = appendUids[0].uid;
-                            }
-                        } catch (MessagingException ex) {
-                            log.debug("Unable to copy message {} with UID mapping support: {}", id, ex.getMessage());
-                        }
-                    }
-                    if (!copied) {
-                        sourceFolder.copyMessages(new Message[]{message}, trash);
-                        copied = true;
-                    }
-                } else {
-                    log.warn("Source folder lost before copying message {} to trash", id);
-                }
-
-                if (newUidFromServer != null && newUidFromServer > 0) {
-                    String newId = Long.toString(newUidFromServer);
-                    if (!Objects.equals(newId, id)) {
-                        if (offlineStore.updateMessageId(id, newId)) {
-                            log.debug("Updated cached UID for message {} to {}", id, newId);
-                            effectiveId = newId;
-                        } else {
-                            log.warn("Unable to update cached UID for message {} to {}", id, newId);
-                        }
-                    }
-                }
-
-                if (trashUidFolder != null && messageIdHeader != null && expectedUid > 0 && newUidFromServer == null) {
-                    try {
-                        long startUid = Math.max(1, expectedUid - 5);
-                        Message[] candidates = trashUidFolder.getMessagesByUID(startUid, Long.MAX_VALUE);
-                        if (candidates.length > 0) {
-                            FetchProfile profile = new FetchProfile();
-                            profile.add(FetchProfile.Item.ENVELOPE);
-                            profile.add(UIDFolder.FetchProfileItem.UID);
-                            trash.fetch(candidates, profile);
-                            for (Message candidate : candidates) {
-                                String candidateMessageId = getMessageId(candidate);
-                                if (candidateMessageId != null && candidateMessageId.equalsIgnoreCase(messageIdHeader)) {
-                                    long newUid = trashUidFolder.getUID(candidate);
-                                    if (newUid > 0) {
-                                        String newId = Long.toString(newUid);
-                                        if (!newId.equals(id)) {
-                                            if (offlineStore.updateMessageId(id, newId)) {
-                                                log.debug("Updated cached UID for message {} to {}", id, newId);
-                                                effectiveId = newId;
-                                            } else {
-                                                log.warn("Unable to update cached UID for message {} to {}", id, newId);
-                                            }
-                                        } else {
-                                            log.debug("UID for message {} unchanged after copy", id);
-                                        }
-                                    }
-                                    break;
-                                }
-                            }
-                        } else {
-                            log.debug("No new candidates found in trash for message {}", id);
-                        }
-                    } catch (MessagingException ex) {
-                        log.debug("Unable to resolve new UID after copying message {} to trash: {}", id, ex.getMessage());
-                    }
-                } else if (messageIdHeader == null) {
-                    log.debug("Message {} missing Message-ID header; unable to reconcile UID after copy", id);
-                }
+        return new MoveToTrashResult(localSuccess, id);
+    }
 
-                trash.close(false);
-                
-                try {
-                message.setFlag(Flags.Flag.DELETED, true);
-                    if (sourceFolder != null) {
-                sourceFolder.expunge();
-                    }
-                } catch (MessageRemovedException removedEx) {
-                    log.debug("Message {} already removed from folder {} while moving to trash", id, folderName(sourceFolder));
-                }
-                
-                log.info("Email moved to trash on server: id={}", id);
+    /**
+     * Applies {@code operation} to the cached message, fetching it from IMAP first if it is not cached yet.
+     */
+    private boolean applyLocally(String id, MailboxMutation.Operation operation) {
+        try (StepSpan ignored = StepSpan.start(tracer, "apply_mutation_locally").tag("email.id", id)) {
+            if (offlineStore.applyMutation(id, operation)) {
+                return true;
             }
-
-            return new MoveToTrashResult(true, effectiveId);
-
-        } catch (Exception ex) {
-            log.error("Failed to move email to trash on server: id={}", id, ex);
-            if (localSuccess) {
-                boolean reverted = offlineStore.unmarkAsTrashed(effectiveId);
-                if (!reverted && !Objects.equals(effectiveId, id)) {
-                    offlineStore.unmarkAsTrashed(id);
-                }
+            if (!EmailOfflineStore.isImapUid(id) || offlineStore.loadEmailById(id).isPresent()) {
+                return false;
             }
-            return new MoveToTrashResult(false, effectiveId);
-        } finally {
-            try {
-                if (trash != null && trash.isOpen()) {
-                    trash.close(false);
-                }
-                if (sourceFolder != null && sourceFolder.isOpen()) {
-                    sourceFolder.close(false);
-                }
-                if (store != null && store.isConnected()) {
-                    store.close();
-                }
-            } catch (MessagingException ex) {
-                log.warn("Error closing IMAP connection", ex);
+            log.info("Email {} missing from offline cache during {}, attempting to hydrate", id, operation);
+            StoredEmail fetchedEmail = fetchEmailFromImap(id);
+            if (fetchedEmail == null) {
+                log.warn("Unable to fetch email {} from IMAP while preparing {}", id, operation);
+                return false;
             }
+            offlineStore.upsertMessages(List.of(fetchedEmail));
+            // Cached and hydrated rows are keyed by the IMAP UID, so the retry targets the requested id
+            return offlineStore.applyMutation(fetchedEmail.id(), operation);
         }
     }
-    
+
+    /**
+     * Clears the trashed mark in the offline store and leaves the move back to the inbox on the server to
+     * {@link MailboxMutationReplayer}.
+     */
     @Override
     public RestoreEmailResult restoreEmail(String id) {
         log.info("Restoring email from trash: id={}", id);
-        boolean localSuccess = offlineStore.unmarkAsTrashed(id);
-        String effectiveId = id;
-
-        if (!localSuccess) {
-            log.info("Email {} missing from offline cache during restore, attempting to hydrate", id);
-            EmailOfflineStore.StoredEmail cachedEmail = offlineStore.loadEmailById(id).orElse(null);
-            if (cachedEmail == null) {
-                EmailOfflineStore.StoredEmail fetchedEmail = fetchEmailFromImap(id);
-                if (fetchedEmail != null) {
-                    offlineStore.upsertMessages(List.of(fetchedEmail));
-                    cachedEmail = fetchedEmail;
-                } else {
-                    log.warn("Unable to fetch email {} from IMAP while preparing restore", id);
-                }
-            }
-            if (cachedEmail != null) {
-                String cacheId = cachedEmail.id();
-                if (!Objects.equals(cacheId, id)) {
-                    log.debug("Hydrated email {} using cache id {} prior to restore", id, cacheId);
-                }
-                localSuccess = offlineStore.unmarkAsTrashed(cacheId);
-                if (localSuccess) {
-                    effectiveId = cacheId;
-                }
-            }
-        }
-
+        boolean localSuccess = applyLocally(id, MailboxMutation.Operation.RESTORE);
         if (!localSuccess) {
             log.warn("Failed to update local cache to restore email: id={}", id);
-            return new RestoreEmailResult(false, effectiveId);
-        }
-
-        Store store = null;
-        Folder trash = null;
-        Folder inbox = null;
-        try {
-            String protocol = properties.getImap().isSsl() ? "imaps" : "imap";
-            store = imapSession.getStore(protocol);
-
-            log.debug("Connecting to IMAP server for restore operation");
-            store.connect(
-                    properties.getImap().getHost(),
-                    properties.getImap().getPort(),
-                    properties.getImap().getUsername(),
-                    properties.getImap().getPassword()
-            );
-
-            long uid = Long.parseLong(effectiveId);
-            Message message = null;
-            String messageIdHeader = null;
-
-            String[] trashFolderNames = {"[Gmail]/Trash", "Trash", "Deleted Items", "Deleted"};
-            for (String trashName : trashFolderNames) {
-                try {
-                    trash = store.getFolder(trashName);
-                    if (trash.exists() && trash instanceof UIDFolder uidFolder) {
-                        trash.open(Folder.READ_WRITE);
-                        message = uidFolder.getMessageByUID(uid);
-                        if (message != null) {
-                            log.debug("Email found in trash folder: {}", trashName);
-                            messageIdHeader = getMessageId(message);
-                            break;
-                        } else {
-                            trash.close(false);
-                            trash = null;
-                        }
-                    }
-                } catch (MessagingException ex) {
-                    log.debug("Unable to find message {} in trash folder '{}': {}", id, trashName, ex.getMessage());
-                    if (trash != null && trash.isOpen()) {
-                        trash.close(false);
-                    }
-                    trash = null;
-                }
-            }
-
-            if (message == null) {
-                log.warn("Email not found in trash on server with id={}, but restored locally", effectiveId);
-                return new RestoreEmailResult(true, effectiveId);
-            }
-
-            inbox = store.getFolder("INBOX");
-            if (inbox == null || !inbox.exists()) {
-                log.warn("INBOX folder not available during restore operation");
-                return new RestoreEmailResult(true, effectiveId);
-            }
-
-            inbox.open(Folder.READ_WRITE);
-            UIDFolder inboxUidFolder = inbox instanceof UIDFolder u ? u : null;
-            IMAPFolder imapInbox = inbox instanceof IMAPFolder i ? i : null;
-            IMAPFolder imapTrash = (trash instanceof IMAPFolder) ? (IMAPFolder) trash : null;
-            long expectedUid = -1;
-            if (inboxUidFolder != null) {
-                try {
-                    expectedUid = inboxUidFolder.getUIDNext();
-                } catch (MessagingException ex) {
-                    log.debug("Unable to read UIDNEXT from inbox folder: {}", ex.getMessage());
-                }
-            }
-
-            Long newUidFromServer = null;
-            boolean copied = false;
-            if (imapTrash != null && imapInbox != null) {
-                try {
-                    AppendUID[] appendUids = imapTrash.copyUIDMessages(new Message[]{message}, imapInbox);
-                    copied = true;
-                    if (appendUids != null && appendUids.length > 0) {
-                        newUidFromServer = appendUids[0].uid;
-                    }
-                } catch (MessagingException ex) {
-                    log.debug("Unable to copy message {} with UID mapping support to inbox: {}", id, ex.getMessage());
-                }
-            }
-            if (!copied && trash != null) {
-                trash.copyMessages(new Message[]{message}, inbox);
-                copied = true;
-            }
-
-            if (!copied) {
-                log.warn("Unable to copy message {} from trash to inbox", id);
-                return new RestoreEmailResult(true, effectiveId);
-            }
-
-            if (newUidFromServer != null && newUidFromServer > 0) {
-                String newId = Long.toString(newUidFromServer);
-                if (!Objects.equals(newId, effectiveId)) {
-                    if (offlineStore.updateMessageId(effectiveId, newId)) {
-                        log.debug("Updated cached UID for restored message {} to {}", effectiveId, newId);
-                        effectiveId = newId;
-                    } else {
-                        log.warn("Unable to update cached UID for restored message {} to {}", effectiveId, newId);
-                    }
-                }
-            } else if (messageIdHeader != null && inboxUidFolder != null && expectedUid > 0) {
-                try {
-                    long startUid = Math.max(1, expectedUid - 10);
-                    Message[] candidates = inboxUidFolder.getMessagesByUID(startUid, Long.MAX_VALUE);
-                    if (candidates.length > 0) {
-                        FetchProfile profile = new FetchProfile();
-                        profile.add(FetchProfile.Item.ENVELOPE);
-                        profile.add(UIDFolder.FetchProfileItem.UID);
-                        inbox.fetch(candidates, profile);
-                        for (Message candidate : candidates) {
-                            String candidateMessageId = getMessageId(candidate);
-                            if (candidateMessageId != null && candidateMessageId.equalsIgnoreCase(messageIdHeader)) {
-                                long newUid = inboxUidFolder.getUID(candidate);
-                                if (newUid > 0) {
-                                    String newId = Long.toString(newUid);
-                                    if (!Objects.equals(newId, effectiveId)) {
-                                        if (offlineStore.updateMessageId(effectiveId, newId)) {
-                                            log.debug("Updated cached UID for restored message {} to {}", effectiveId, newId);
-                                            effectiveId = newId;
-                                        } else {
-                                            log.warn("Unable to update cached UID for restored message {} to {}", effectiveId, newId);
-                                        }
-                                    }
-                                }
-                                break;
-                            }
-                        }
-                    }
-                } catch (MessagingException ex) {
-                    log.debug("Unable to reconcile inbox UID after restore for message {}: {}", id, ex.getMessage());
-                }
-            }
-
-            try {
-                message.setFlag(Flags.Flag.DELETED, true);
-                if (trash != null) {
-                    trash.expunge();
-                }
-            } catch (MessageRemovedException removedEx) {
-                log.debug("Message {} already removed from trash while restoring", id);
-            }
-
-            log.info("Email restored from trash: id={}", effectiveId);
-            return new RestoreEmailResult(true, effectiveId);
-        } catch (Exception ex) {
-            log.error("Failed to restore email from trash: id={}", id, ex);
-            offlineStore.markAsTrashed(effectiveId);
-            return new RestoreEmailResult(false, effectiveId);
-        } finally {
-            try {
-                if (inbox != null && inbox.isOpen()) {
-                    inbox.close(false);
-                }
-                if (trash != null && trash.isOpen()) {
-                    trash.close(false);
-                }
-                if (store != null && store.isConnected()) {
-                    store.close();
-                }
-            } catch (MessagingException ex) {
-                log.warn("Error closing IMAP connection during restore", ex);
-            }
         }
+        return new RestoreEmailResult(localSuccess, id);
     }
     
+    @Override
+    public java.util.Optional<EmailPreview> updateFlags(String id, Boolean read, Boolean starred) {
+        // FlagWriteBehind sends the change to IMAP; until then syncs keep the local flags
+        offlineStore.updateFlags(id, read, starred);
+        return offlineStore.loadPreviewById(id);
+    }
+
     @Override
     public boolean permanentlyDelete(String id) {
         log.info("Permanently deleting email: id={}", id);
@@ -754,88 +457,32 @@ public class DefaultEmailService implements EmailService {
             return false;
         }
         
-        // Delete from local database
-        boolean localSuccess = offlineStore.permanentlyDelete(id);
-        
+        // Removed from the server's trash folder by MailboxMutationReplayer
+        boolean localSuccess = offlineStore.applyMutation(id, MailboxMutation.Operation.PURGE);
         if (!localSuccess) {
             log.warn("Failed to permanently delete email from database: id={}", id);
-            return false;
         }
-        
-        // Try to delete from trash folder on server
-        Store store = null;
-        Folder trashFolder = null;
-        try {
-            String protocol = properties.getImap().isSsl() ? "imaps" : "imap";
-            store = imapSession.getStore(protocol);
-            
-            log.debug("Connecting to IMAP server for permanent delete");
-            store.connect(
-                    properties.getImap().getHost(),
-                    properties.getImap().getPort(),
-                    properties.getImap().getUsername(),
-                    properties.getImap().getPassword()
-            );
-
-            long uid = Long.parseLong(id);
-            
-            // Try Gmail trash folder first, then standard trash folders
-            String[] trashFolderNames = {"[Gmail]/Trash", "Trash", "Deleted Items", "Deleted"};
-            
-            for (String folderName : trashFolderNames) {
-                try {
-                    trashFolder = store.getFolder(folderName);
-                    if (trashFolder.exists() && trashFolder instanceof UIDFolder uidFolder) {
-                        trashFolder.open(Folder.READ_WRITE);
-                        Message message = uidFolder.getMessageByUID(uid);
-                        
-                        if (message != null) {
-                            log.debug("Email found in trash folder: {}", folderName);
-                            message.setFlag(Flags.Flag.DELETED, true);
-                            trashFolder.expunge();
-                            log.info("Email permanently deleted from server trash: id={}", id);
-                            break;
-                        } else {
-                            trashFolder.close(false);
-                            trashFolder = null;
-                        }
-                    }
-                } catch (MessagingException e) {
-                    log.debug("Could not find email in trash folder '{}': {}", folderName, e.getMessage());
-                    if (trashFolder != null && trashFolder.isOpen()) {
-                        trashFolder.close(false);
-                    }
-                    trashFolder = null;
-                }
-            }
-
-            if (trashFolder == null) {
-                log.warn("Email not found in server trash with id={}, but deleted locally", id);
-            }
-
-            return true;
+        return localSuccess;
+    }
 
-        } catch (Exception ex) {
-            log.error("Failed to permanently delete email from server: id={}", id, ex);
-            // Still return true since local delete succeeded
-            return true;
-        } finally {
-            try {
-                if (trashFolder != null && trashFolder.isOpen()) {
-                    trashFolder.close(false);
-                }
-                if (store != null && store.isConnected()) {
-                    store.close();
-                }
-            } catch (MessagingException ex) {
-                log.warn("Error closing IMAP connection", ex);
-            }
-        }
+    @Override
+    public List<MailboxMutation> listMailboxMutations() {
+        return offlineStore.loadMutations(MAX_LISTED_MUTATIONS);
     }
 
     @Override
-    public java.util.Optional<EmailDetail> getEmailDetail(String id) {
+    public java.util.Optional<EmailDetail> getEmailDetail(String id, boolean includeContent) {
         log.debug("Fetching email detail for id={}", id);
+
+        if (!includeContent) {
+            java.util.Optional<EmailPreview> cachedPreview = offlineStore.loadPreviewById(id);
+            if (cachedPreview.isPresent()) {
+                EmailPreview preview = cachedPreview.get();
+                boolean unread = preview.unread() && !offlineStore.markAsRead(id);
+                return java.util.Optional.of(new EmailDetail(preview.id(), preview.from(), preview.subject(), null,
+                        preview.receivedAt(), unread, List.of(), List.of()));
+            }
+        }
         
         // Try to load from cache first
         java.util.Optional<StoredEmail> cachedEmail = offlineStore.loadEmailById(id);
@@ -843,13 +490,7 @@ public class DefaultEmailService implements EmailService {
         if (cachedEmail.isPresent()) {
             StoredEmail storedEmail = cachedEmail.get();
             if (storedEmail.unread() && offlineStore.markAsRead(id)) {
-                storedEmail = new StoredEmail(
-                        storedEmail.id(),
-                        storedEmail.from(),
-                        storedEmail.subject(),
-                        storedEmail.receivedAt(),
-                        false,
-                        storedEmail.rawMessage());
+                storedEmail = storedEmail.withUnread(false);
             }
             try {
                 if (storedEmail.rawMessage() == null || storedEmail.rawMessage().length == 0) {
@@ -858,18 +499,12 @@ public class DefaultEmailService implements EmailService {
                     if (fetchedEmail != null) {
                         offlineStore.upsertMessages(List.of(fetchedEmail));
                         if (fetchedEmail.unread() && offlineStore.markAsRead(id)) {
-                            fetchedEmail = new StoredEmail(
-                                    fetchedEmail.id(),
-                                    fetchedEmail.from(),
-                                    fetchedEmail.subject(),
-                                    fetchedEmail.receivedAt(),
-                                    false,
-                                    fetchedEmail.rawMessage());
+                            fetchedEmail = fetchedEmail.withUnread(false);
                         }
-                        return java.util.Optional.ofNullable(parseEmailDetail(fetchedEmail));
+                        return java.util.Optional.ofNullable(converter.parseEmailDetail(fetchedEmail));
                     }
                 }
-                return java.util.Optional.ofNullable(parseEmailDetail(storedEmail));
+                return java.util.Optional.ofNullable(converter.parseEmailDetail(storedEmail));
             } catch (Exception ex) {
                 log.error("Failed to parse email detail for id={}", id, ex);
                 return java.util.Optional.empty();
@@ -883,7 +518,7 @@ public class DefaultEmailService implements EmailService {
             if (fetchedEmail != null) {
                 // Cache it for future use
                 offlineStore.upsertMessages(List.of(fetchedEmail));
-                return java.util.Optional.ofNullable(parseEmailDetail(fetchedEmail));
+                return java.util.Optional.ofNullable(converter.parseEmailDetail(fetchedEmail));
             }
         } catch (Exception ex) {
             log.error("Failed to fetch email from IMAP for id={}", id, ex);
@@ -892,49 +527,41 @@ public class DefaultEmailService implements EmailService {
         return java.util.Optional.empty();
     }
 
+    /**
+     * Concurrent requests for the same uncached message share one download.
+     */
     private StoredEmail fetchEmailFromImap(String messageId) {
+        try (StepSpan ignored = StepSpan.start(tracer, "fetch_email_from_imap").tag("email.id", messageId)) {
+            return messageFetches.execute(flightKey(messageId),
+                    () -> abortable("message_fetch", () -> downloadEmailFromImap(messageId)));
+        } catch (CallAbandonedException ex) {
+            log.debug("Download of message {} stopped: {}", messageId, ex.getMessage());
+            return null;
+        } catch (MessagingException | IOException ex) {
+            log.error("Failed to fetch email from IMAP for id={}", messageId, ex);
+            return null;
+        }
+    }
+
+    private StoredEmail downloadEmailFromImap(String messageId) throws CallAbandonedException {
         Store store = null;
         Folder folder = null;
         try {
-            String protocol = properties.getImap().isSsl() ? "imaps" : "imap";
-            store = imapSession.getStore(protocol);
+            EmailAccount account = admitInteractive();
+            store = sessions.sessionFor(account).getStore(account.protocol());
             
             log.debug("Connecting to IMAP server for message id={}", messageId);
-            store.connect(
-                    properties.getImap().getHost(),
-                    properties.getImap().getPort(),
-                    properties.getImap().getUsername(),
-                    properties.getImap().getPassword()
-            );
+            connect(store, account);
 
             // Try to find the email in multiple folders (INBOX, Sent, etc.)
             long uid = Long.parseLong(messageId);
             Message message = null;
             UIDFolder uidFolder = null;
-            
-            for (String folderName : MESSAGE_FOLDERS_TO_SEARCH) {
-                try {
-                    folder = store.getFolder(folderName);
-                    if (folder.exists() && folder instanceof UIDFolder) {
-                        folder.open(Folder.READ_WRITE);
-                        uidFolder = (UIDFolder) folder;
-                        message = uidFolder.getMessageByUID(uid);
-                        
-                        if (message != null) {
-                            log.debug("Email found in folder: {}", folderName);
-                            break;
-                        } else {
-                            folder.close(false);
-                            folder = null;
-                        }
-                    }
-                } catch (MessagingException e) {
-                    log.debug("Could not find email in folder '{}': {}", folderName, e.getMessage());
-                    if (folder != null && folder.isOpen()) {
-                        folder.close(false);
-                    }
-                    folder = null;
-                }
+            LocatedMessage located = locateMessage(store, uid, MESSAGE_FOLDERS_TO_SEARCH);
+            if (located != null) {
+                folder = located.folder();
+                uidFolder = (UIDFolder) folder;
+                message = located.message();
             }
 
             if (message != null && uidFolder != null) {
@@ -947,10 +574,13 @@ public class DefaultEmailService implements EmailService {
                 profile.add(UIDFolder.FetchProfileItem.UID);
                 profile.add("X-mailer"); // Reduce extra round-trips
                 if (folder != null) {
-                folder.fetch(new Message[]{message}, profile);
+                imapMetrics.fetch(folder, new Message[]{message}, profile);
                 }
 
-                StoredEmail result = toStoredEmailWithContent(uidFolder, message);
+                StoredEmail result = toStoredEmail(uidFolder, message, extractRawBytes(message));
+                Map<String, List<ContactRecord>> sightings = new HashMap<>();
+                collectContacts(sightings, result, message);
+                recipientIndex.record(sightings);
                 
                 log.info("Successfully fetched email content for id={}", messageId);
                 return result;
@@ -958,7 +588,11 @@ public class DefaultEmailService implements EmailService {
 
             log.warn("Email not found in IMAP for id={}", messageId);
         } catch (Exception ex) {
+            if (CallDeadline.isAbandoned()) {
+                throw new CallAbandonedException("message_fetch");
+            }
             log.error("Failed to fetch email from IMAP for id={}", messageId, ex);
+            reportImapFailure(ex);
         } finally {
             // Ensure resources are properly closed
             try {
@@ -975,131 +609,80 @@ public class DefaultEmailService implements EmailService {
         return null;
     }
 
-    private String getMessageId(Message message) throws MessagingException {
-        if (message == null) {
-            return null;
-        }
-        if (message instanceof MimeMessage mimeMessage) {
-            String messageId = mimeMessage.getMessageID();
-            if (messageId != null && !messageId.isBlank()) {
-                return messageId;
+    /**
+     * Probes every candidate folder concurrently and returns the message from the first folder, in
+     * {@code folderNames} order, that holds {@code uid}; every other opened folder is closed again. Each probe
+     * opens its own folder connection, so the lookup costs one round trip instead of one per folder. Probes run
+     * in the caller's gRPC context and stop SELECTing once the call is abandoned; the lookup then fails rather
+     * than report the message missing.
+     */
+    private LocatedMessage locateMessage(Store store, long uid, List<String> folderNames) throws CallAbandonedException {
+        try (StepSpan ignored = StepSpan.start(tracer, "locate_message").tag("email.id", Long.toString(uid))) {
+            List<CompletableFuture<LocatedMessage>> probes = folderNames.stream()
+                    .map(folderName -> CompletableFuture.supplyAsync(() -> probeFolder(store, folderName, uid),
+                            AccountContext.propagating(taskExecutor)))
+                    .toList();
+
+            LocatedMessage located = null;
+            for (CompletableFuture<LocatedMessage> probe : probes) {
+                LocatedMessage candidate = probe.join();
+                if (candidate == null) {
+                    continue;
+                }
+                if (located == null) {
+                    located = candidate;
+                } else {
+                    closeQuietly(candidate.folder());
+                }
             }
-        }
-        String[] headers = message.getHeader("Message-ID");
-        if (headers != null) {
-            for (String header : headers) {
-                if (header != null && !header.isBlank()) {
-                    return header;
+            if (CallDeadline.isAbandoned()) {
+                if (located != null) {
+                    closeQuietly(located.folder());
                 }
+                throw new CallAbandonedException("locate_message");
             }
+            return located;
         }
-        return null;
-    }
-
-    private String folderName(Folder folder) {
-        return folder != null ? folder.getFullName() : "unknown";
     }
 
-    private StoredEmail toStoredEmailWithContent(UIDFolder folder, Message message) throws MessagingException, IOException {
-        long uid = folder.getUID(message);
-        String messageId = Long.toString(uid);
-        String fromAddress = Arrays.stream(message.getFrom() != null ? message.getFrom() : new InternetAddress[0])
-                .findFirst()
-                .map(address -> {
-                    if (address instanceof InternetAddress internetAddress) {
-                        return internetAddress.toUnicodeString();
-                    }
-                    return address.toString();
-                })
-                .orElse("unknown");
-
-        OffsetDateTime receivedAt = null;
-        if (message.getReceivedDate() != null) {
-            receivedAt = message.getReceivedDate().toInstant().atZone(ZoneId.systemDefault()).toOffsetDateTime();
-        } else if (message.getSentDate() != null) {
-            receivedAt = message.getSentDate().toInstant().atZone(ZoneId.systemDefault()).toOffsetDateTime();
+    private LocatedMessage probeFolder(Store store, String folderName, long uid) {
+        if (CallDeadline.isAbandoned()) {
+            return null;
         }
-
-        boolean unread = !message.isSet(Flags.Flag.SEEN);
-        byte[] raw = extractRawBytes(message);
-
-        return new StoredEmail(messageId, fromAddress, message.getSubject(), receivedAt, unread, raw);
-    }
-
-    private EmailDetail parseEmailDetail(StoredEmail storedEmail) throws MessagingException, IOException {
-        // If raw message is available, parse it for full details
-        if (storedEmail.rawMessage() != null && storedEmail.rawMessage().length > 0) {
-            Message message = new jakarta.mail.internet.MimeMessage(
-                    imapSession,
-                    storedEmail.rawMessageStream()
-            );
-            
-            String body = extractTextBody(message);
-            List<String> to = extractAddresses(message.getRecipients(Message.RecipientType.TO));
-            List<String> cc = extractAddresses(message.getRecipients(Message.RecipientType.CC));
-            
-            return new EmailDetail(
-                    storedEmail.id(),
-                    storedEmail.from(),
-                    storedEmail.subject(),
-                    body,
-                    storedEmail.receivedAt(),
-                    storedEmail.unread(),
-                    to,
-                    cc
-            );
-        } else {
-            // Fallback: return basic info without body if raw message not available
-            return new EmailDetail(
-                    storedEmail.id(),
-                    storedEmail.from(),
-                    storedEmail.subject(),
-                    "Email content not available (unable to fetch from server)",
-                    storedEmail.receivedAt(),
-                    storedEmail.unread(),
-                    List.of(),
-                    List.of()
-            );
+        Folder folder = null;
+        try (StepSpan step = StepSpan.start(tracer, "probe_folder").tag("folder", folderName);
+             CallDeadline.Registration ignored = CallDeadline.interruptOnAbandon()) {
+            folder = store.getFolder(folderName);
+            if (folder.exists() && folder instanceof UIDFolder uidFolder) {
+                imapMetrics.open(folder, Folder.READ_WRITE);
+                Message message = imapMetrics.call(Phase.FETCH, folder, () -> uidFolder.getMessageByUID(uid));
+                if (message != null) {
+                    log.debug("Email found in folder: {}", folderName);
+                    return new LocatedMessage(folder, message);
+                }
+            }
+        } catch (MessagingException e) {
+            log.debug("Could not find email in folder '{}': {}", folderName, e.getMessage());
         }
+        closeQuietly(folder);
+        return null;
     }
 
-    private String extractTextBody(jakarta.mail.Part part) throws MessagingException, IOException {
-        if (part.isMimeType("text/plain")) {
-            return part.getContent().toString();
-        } else if (part.isMimeType("text/html")) {
-            // Return HTML as-is for now, could be rendered in frontend
-            return part.getContent().toString();
-        } else if (part.isMimeType("multipart/*")) {
-            jakarta.mail.Multipart multipart = (jakarta.mail.Multipart) part.getContent();
-            StringBuilder result = new StringBuilder();
-            for (int i = 0; i < multipart.getCount(); i++) {
-                jakarta.mail.BodyPart bodyPart = multipart.getBodyPart(i);
-                String partText = extractTextBody(bodyPart);
-                if (partText != null && !partText.isEmpty()) {
-                    result.append(partText);
-                    // Prefer plain text, return early if found
-                    if (bodyPart.isMimeType("text/plain")) {
-                        return partText;
-                    }
-                }
+    private void closeQuietly(Folder folder) {
+        try {
+            if (folder != null && folder.isOpen()) {
+                folder.close(false);
             }
-            return result.toString();
+        } catch (MessagingException ex) {
+            log.debug("Error closing folder {}: {}", folderName(folder), ex.getMessage());
         }
-        return "";
     }
 
-    private List<String> extractAddresses(jakarta.mail.Address[] addresses) {
-        if (addresses == null) {
-            return List.of();
-        }
-        return Arrays.stream(addresses)
-                .map(address -> {
-                    if (address instanceof InternetAddress ia) {
-                        return ia.toUnicodeString();
-                    }
-                    return address.toString();
-                })
-                .toList();
+    private record LocatedMessage(Folder folder, Message message) {
+    }
+
+    private String folderName(Folder folder) {
+        return folder != null ? folder.getFullName() : "unknown";
     }
 
     private List<StoredEmail> fetchAndCacheLatest() throws MessagingException, IOException {
@@ -1107,23 +690,18 @@ public class DefaultEmailService implements EmailService {
     }
 
     private List<StoredEmail> fetchFromFolder(String folderName) throws MessagingException, IOException {
-        String protocol = properties.getImap().isSsl() ? "imaps" : "imap";
-        Store store = imapSession.getStore(protocol);
+        EmailAccount account = currentAccount();
+        Store store = sessions.sessionFor(account).getStore(account.protocol());
         try {
             log.debug("Connecting to IMAP for bulk sync from folder: {}", folderName);
-            store.connect(
-                    properties.getImap().getHost(),
-                    properties.getImap().getPort(),
-                    properties.getImap().getUsername(),
-                    properties.getImap().getPassword()
-            );
+            connect(store, account);
 
             Folder folder = store.getFolder(folderName);
             if (!(folder instanceof UIDFolder uidFolder)) {
                 throw new MessagingException("IMAP store does not provide UID support");
             }
 
-            folder.open(Folder.READ_ONLY);
+            imapMetrics.open(folder, Folder.READ_ONLY);
 
             int messageCount = folder.getMessageCount();
             if (messageCount == 0) {
@@ -1140,37 +718,53 @@ public class DefaultEmailService implements EmailService {
             FetchProfile profile = new FetchProfile();
             profile.add(FetchProfile.Item.ENVELOPE);
             profile.add(FetchProfile.Item.FLAGS);
+            profile.add(FetchProfile.Item.CONTENT_INFO); // BODYSTRUCTURE, for the has-attachments flag and snippets
+            profile.add(FetchProfile.Item.SIZE);
             profile.add(UIDFolder.FetchProfileItem.UID);
             profile.add("X-mailer"); // Prevent lazy loading
+            profile.add("Message-ID"); // Threading headers, fetched with the envelope batch
+            profile.add("In-Reply-To");
+            profile.add("References");
             
             log.debug("Fetching {} messages from folder: {}", messages.length, folderName);
-            folder.fetch(messages, profile);
+            imapMetrics.fetch(folder, messages, profile);
 
             List<StoredEmail> storedEmails = new ArrayList<>(messages.length);
+            Map<String, Message> messagesById = new HashMap<>();
+            Map<String, List<ContactRecord>> sightings = new HashMap<>();
             for (Message message : messages) {
-                StoredEmail storedEmail = toStoredEmail(uidFolder, message);
+                checkActive("inbox_sync");
+                StoredEmail storedEmail = toStoredEmail(uidFolder, message, null);
                 storedEmails.add(storedEmail);
+                messagesById.put(storedEmail.id(), message);
+                collectContacts(sightings, storedEmail, message);
             }
 
             // For inbox, also fetch unseen messages beyond batch
             if ("INBOX".equals(folderName)) {
-                Message[] unseenMessages = folder.search(new FlagTerm(new Flags(Flags.Flag.SEEN), false));
+                Message[] unseenMessages = imapMetrics.call(Phase.SEARCH, folder, () -> folder.search(new FlagTerm(new Flags(Flags.Flag.SEEN), false)));
                 if (unseenMessages.length > 0) {
-                    folder.fetch(unseenMessages, profile);
+                    imapMetrics.fetch(folder, unseenMessages, profile);
                     for (Message message : unseenMessages) {
-                        StoredEmail storedEmail = toStoredEmail(uidFolder, message);
+                        StoredEmail storedEmail = toStoredEmail(uidFolder, message, null);
                         storedEmails.add(storedEmail);
+                        messagesById.put(storedEmail.id(), message);
+                        collectContacts(sightings, storedEmail, message);
                     }
                 }
             }
 
-            folder.close(false);
-
-            return storedEmails.stream()
+            List<StoredEmail> newestFirst = storedEmails.stream()
                     .collect(Collectors.collectingAndThen(Collectors.toMap(StoredEmail::id, storedEmail -> storedEmail, (first, second) -> second),
                             map -> map.values().stream()
                                     .sorted(Comparator.comparing(StoredEmail::receivedAt, Comparator.nullsLast(Comparator.reverseOrder())))
                                     .toList()));
+            List<StoredEmail> synced = withSnippets(folder, newestFirst, messagesById, batchSize);
+
+            folder.close(false);
+            recipientIndex.record(sightings);
+
+            return synced;
         } finally {
             if (store.isConnected()) {
                 store.close();
@@ -1178,24 +772,51 @@ public class DefaultEmailService implements EmailService {
         }
     }
 
+    /**
+     * Adds snippets to synced rows the store has none for yet, newest first and at most {@code limit} per sync so
+     * a large unseen backlog does not turn one sync into thousands of fetches. Each snippet is a partial fetch of
+     * the first text part; a failed read leaves the row without one for a later sync or the first open to fill.
+     */
+    private List<StoredEmail> withSnippets(Folder folder, List<StoredEmail> newestFirst, Map<String, Message> messagesById,
+                                           int limit) throws CallAbandonedException {
+        Set<String> stored = offlineStore.loadIdsWithSnippet(messagesById.keySet());
+        List<StoredEmail> result = new ArrayList<>(newestFirst.size());
+        int remaining = limit;
+        for (StoredEmail storedEmail : newestFirst) {
+            if (remaining > 0 && !stored.contains(storedEmail.id())) {
+                checkActive("inbox_sync");
+                remaining--;
+                Message message = messagesById.get(storedEmail.id());
+                try {
+                    storedEmail = storedEmail.withSnippet(imapMetrics.call(Phase.FETCH, folder, () -> {
+                        try {
+                            return converter.snippet(message);
+                        } catch (IOException ex) {
+                            throw new MessagingException("Unable to read message text", ex);
+                        }
+                    }));
+                } catch (MessagingException ex) {
+                    log.debug("Could not read snippet for message {}: {}", storedEmail.id(), ex.getMessage());
+                }
+            }
+            result.add(storedEmail);
+        }
+        return result;
+    }
+
     /**
      * Fetch emails from a sent folder - uses TO address instead of FROM address for previews
      */
     private List<StoredEmail> fetchSentFromFolder(String folderName) throws MessagingException, IOException {
-        String protocol = properties.getImap().isSsl() ? "imaps" : "imap";
-        Store store = imapSession.getStore(protocol);
+        EmailAccount account = currentAccount();
+        Store store = sessions.sessionFor(account).getStore(account.protocol());
         if (!store.isConnected()) {
-            store.connect(
-                    properties.getImap().getHost(),
-                    properties.getImap().getPort(),
-                    properties.getImap().getUsername(),
-                    properties.getImap().getPassword()
-            );
+            connect(store, account);
         }
 
         try {
             Folder folder = store.getFolder(folderName);
-            folder.open(Folder.READ_ONLY);
+            imapMetrics.open(folder, Folder.READ_ONLY);
 
             if (!(folder instanceof UIDFolder uidFolder)) {
                 throw new MessagingException("Folder does not support UID operations");
@@ -1217,17 +838,20 @@ public class DefaultEmailService implements EmailService {
 
             Message[] messages = folder.getMessages(startIndex, endIndex);
             List<StoredEmail> storedEmails = new ArrayList<>();
+            Map<String, List<ContactRecord>> sightings = new HashMap<>();
 
             for (Message message : messages) {
                 try {
                     StoredEmail email = toStoredSentEmail(uidFolder, message);
                     storedEmails.add(email);
+                    collectContacts(sightings, email, message);
                 } catch (Exception ex) {
                     log.warn("Failed to parse message in sent folder: {}", ex.getMessage());
                 }
             }
 
             folder.close(false);
+            recipientIndex.record(sightings);
 
             return storedEmails.stream()
                     .collect(Collectors.collectingAndThen(Collectors.toMap(StoredEmail::id, storedEmail -> storedEmail, (first, second) -> second),
@@ -1241,70 +865,49 @@ public class DefaultEmailService implements EmailService {
         }
     }
 
-    private StoredEmail toStoredEmail(UIDFolder folder, Message message) throws MessagingException, IOException {
-        long uid = folder.getUID(message);
-        String messageId = Long.toString(uid);
-        String fromAddress = Arrays.stream(message.getFrom() != null ? message.getFrom() : new InternetAddress[0])
-                .findFirst()
-                .map(address -> {
-                    if (address instanceof InternetAddress internetAddress) {
-                        return internetAddress.toUnicodeString();
-                    }
-                    return address.toString();
-                })
-                .orElse("unknown");
-
-        OffsetDateTime receivedAt = null;
-        if (message.getReceivedDate() != null) {
-            receivedAt = message.getReceivedDate().toInstant().atZone(ZoneId.systemDefault()).toOffsetDateTime();
-        } else if (message.getSentDate() != null) {
-            receivedAt = message.getSentDate().toInstant().atZone(ZoneId.systemDefault()).toOffsetDateTime();
+    /**
+     * Adds the From/To/Cc contacts of {@code message} to {@code sightings}, keyed by folder and UID so the
+     * recipient index counts each message once no matter how often it is re-synced.
+     */
+    private void collectContacts(Map<String, List<ContactRecord>> sightings, StoredEmail storedEmail, Message message)
+            throws MessagingException {
+        String userEmail = EmailAddresses.normalize(currentUsername());
+        Map<String, ContactRecord> contacts = new LinkedHashMap<>();
+        List<Address> addresses = new ArrayList<>();
+        if (message.getFrom() != null) {
+            addresses.addAll(Arrays.asList(message.getFrom()));
         }
-
-        boolean unread = !message.isSet(Flags.Flag.SEEN);
-        
-        // Skip downloading raw bytes for faster sync - we only need them when opening individual emails
-        byte[] raw = null;
-
-        return new StoredEmail(messageId, fromAddress, message.getSubject(), receivedAt, unread, raw);
-    }
-
-    private StoredEmail toStoredSentEmail(UIDFolder folder, Message message) throws MessagingException, IOException {
-        long uid = folder.getUID(message);
-        String messageId = Long.toString(uid);
-        
-        // For sent emails, use the TO address instead of FROM address
-        String toAddress = Arrays.stream(message.getRecipients(Message.RecipientType.TO) != null 
-                ? message.getRecipients(Message.RecipientType.TO) : new InternetAddress[0])
-                .findFirst()
-                .map(address -> {
-                    if (address instanceof InternetAddress internetAddress) {
-                        return internetAddress.toUnicodeString();
-                    }
-                    return address.toString();
-                })
-                .orElse("unknown");
-
-        OffsetDateTime receivedAt = null;
-        if (message.getSentDate() != null) {
-            receivedAt = message.getSentDate().toInstant().atZone(ZoneId.systemDefault()).toOffsetDateTime();
-        } else if (message.getReceivedDate() != null) {
-            receivedAt = message.getReceivedDate().toInstant().atZone(ZoneId.systemDefault()).toOffsetDateTime();
+        for (Message.RecipientType type : List.of(Message.RecipientType.TO, Message.RecipientType.CC)) {
+            Address[] recipients = message.getRecipients(type);
+            if (recipients != null) {
+                addresses.addAll(Arrays.asList(recipients));
+            }
+        }
+        for (Address address : addresses) {
+            if (!(address instanceof InternetAddress internetAddress)) {
+                continue;
+            }
+            String email = EmailAddresses.normalize(internetAddress.getAddress());
+            if (email == null || email.equals(userEmail)) {
+                continue;
+            }
+            contacts.putIfAbsent(email, new ContactRecord(email, internetAddress.getPersonal(), 1, storedEmail.receivedAt()));
+        }
+        if (!contacts.isEmpty()) {
+            sightings.put(storedEmail.folder() + ":" + storedEmail.id(), List.copyOf(contacts.values()));
         }
+    }
 
-        boolean unread = !message.isSet(Flags.Flag.SEEN);
-        
-        // Skip downloading raw bytes for faster sync - we only need them when opening individual emails
-        byte[] raw = null;
+    private StoredEmail toStoredEmail(UIDFolder folder, Message message, byte[] raw) throws MessagingException, IOException {
+        return converter.toStoredEmail(Long.toString(folder.getUID(message)), message.getFolder().getFullName(), message, raw);
+    }
 
-        return new StoredEmail(messageId, toAddress, message.getSubject(), receivedAt, unread, raw);
+    private StoredEmail toStoredSentEmail(UIDFolder folder, Message message) throws MessagingException {
+        return converter.toStoredSentEmail(Long.toString(folder.getUID(message)), message.getFolder().getFullName(), message);
     }
 
     private byte[] extractRawBytes(Message message) throws IOException, MessagingException {
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            message.writeTo(outputStream);
-            return outputStream.toByteArray();
-        }
+        return imapMetrics.download(message);
     }
 }
 
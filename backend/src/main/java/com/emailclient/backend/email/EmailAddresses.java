@@ -0,0 +1,27 @@
+package com.emailclient.backend.email;
+
+import java.util.Locale;
+
+public final class EmailAddresses {
+
+    private EmailAddresses() {
+    }
+
+    /**
+     * Extracts the bare, lower-cased address from a header value such as {@code "Name <user@example.com>"}.
+     * Returns {@code null} for blank input so callers can store it as SQL NULL.
+     */
+    public static String normalize(String address) {
+        if (address == null) {
+            return null;
+        }
+        String extracted = address;
+        int start = address.indexOf('<');
+        int end = address.indexOf('>', start + 1);
+        if (start >= 0 && end > start + 1) {
+            extracted = address.substring(start + 1, end);
+        }
+        extracted = extracted.trim();
+        return extracted.isEmpty() ? null : extracted.toLowerCase(Locale.ROOT);
+    }
+}
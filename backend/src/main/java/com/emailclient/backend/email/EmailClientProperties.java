@@ -1,11 +1,22 @@
 package com.emailclient.backend.email;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Size;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Validated
 @ConfigurationProperties(prefix = "email-client")
 public class EmailClientProperties {
@@ -14,6 +25,11 @@ public class EmailClientProperties {
     private final Storage storage = new Storage();
     private final Crypto crypto = new Crypto();
     private final Smtp smtp = new Smtp();
+    private final Grpc grpc = new Grpc();
+    private final Execution execution = new Execution();
+    private final Cluster cluster = new Cluster();
+    private final Metrics metrics = new Metrics();
+    private final Auth auth = new Auth();
 
     public Imap getImap() {
         return imap;
@@ -31,6 +47,26 @@ public class EmailClientProperties {
         return smtp;
     }
 
+    public Grpc getGrpc() {
+        return grpc;
+    }
+
+    public Execution getExecution() {
+        return execution;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public Auth getAuth() {
+        return auth;
+    }
+
     public static class Imap {
 
         @NotBlank
@@ -50,6 +86,25 @@ public class EmailClientProperties {
         @Positive
         private int fetchBatchSize = 100;
 
+        private Duration inboxRefreshInterval = Duration.ofSeconds(30);
+
+        private Duration flagFlushInterval = Duration.ofSeconds(2);
+
+        @Positive
+        private int flagFlushBatchSize = 500;
+
+        private Duration flagChangeRetention = Duration.ofMinutes(5);
+
+        private Duration mutationReplayInterval = Duration.ofSeconds(1);
+
+        @Positive
+        private int mutationReplayBatchSize = 100;
+
+        @Positive
+        private int mutationMaxAttempts = 8;
+
+        private Duration settledMutationRetention = Duration.ofDays(1);
+
         public String getHost() {
             return host;
         }
@@ -97,6 +152,70 @@ public class EmailClientProperties {
         public void setFetchBatchSize(int fetchBatchSize) {
             this.fetchBatchSize = fetchBatchSize;
         }
+
+        public Duration getInboxRefreshInterval() {
+            return inboxRefreshInterval;
+        }
+
+        public void setInboxRefreshInterval(Duration inboxRefreshInterval) {
+            this.inboxRefreshInterval = inboxRefreshInterval;
+        }
+
+        public Duration getFlagFlushInterval() {
+            return flagFlushInterval;
+        }
+
+        public void setFlagFlushInterval(Duration flagFlushInterval) {
+            this.flagFlushInterval = flagFlushInterval;
+        }
+
+        public int getFlagFlushBatchSize() {
+            return flagFlushBatchSize;
+        }
+
+        public void setFlagFlushBatchSize(int flagFlushBatchSize) {
+            this.flagFlushBatchSize = flagFlushBatchSize;
+        }
+
+        public Duration getFlagChangeRetention() {
+            return flagChangeRetention;
+        }
+
+        public void setFlagChangeRetention(Duration flagChangeRetention) {
+            this.flagChangeRetention = flagChangeRetention;
+        }
+
+        public Duration getMutationReplayInterval() {
+            return mutationReplayInterval;
+        }
+
+        public void setMutationReplayInterval(Duration mutationReplayInterval) {
+            this.mutationReplayInterval = mutationReplayInterval;
+        }
+
+        public int getMutationReplayBatchSize() {
+            return mutationReplayBatchSize;
+        }
+
+        public void setMutationReplayBatchSize(int mutationReplayBatchSize) {
+            this.mutationReplayBatchSize = mutationReplayBatchSize;
+        }
+
+        public int getMutationMaxAttempts() {
+            return mutationMaxAttempts;
+        }
+
+        public void setMutationMaxAttempts(int mutationMaxAttempts) {
+            this.mutationMaxAttempts = mutationMaxAttempts;
+        }
+
+        public Duration getSettledMutationRetention() {
+            return settledMutationRetention;
+        }
+
+        public void setSettledMutationRetention(Duration settledMutationRetention) {
+            this.settledMutationRetention = settledMutationRetention;
+        }
     }
 
     public static class Storage {
@@ -104,6 +223,13 @@ public class EmailClientProperties {
         @Positive
         private int previewLimit = 50;
 
+        private DataSize bodyCacheBudget = DataSize.ofMegabytes(512);
+
+        private Duration bodyRetentionInterval = Duration.ofSeconds(30);
+
+        @Positive
+        private int bodyEvictionBatchSize = 50;
+
         public int getPreviewLimit() {
             return previewLimit;
         }
@@ -111,6 +237,30 @@ public class EmailClientProperties {
         public void setPreviewLimit(int previewLimit) {
             this.previewLimit = previewLimit;
         }
+
+        public DataSize getBodyCacheBudget() {
+            return bodyCacheBudget;
+        }
+
+        public void setBodyCacheBudget(DataSize bodyCacheBudget) {
+            this.bodyCacheBudget = bodyCacheBudget;
+        }
+
+        public Duration getBodyRetentionInterval() {
+            return bodyRetentionInterval;
+        }
+
+        public void setBodyRetentionInterval(Duration bodyRetentionInterval) {
+            this.bodyRetentionInterval = bodyRetentionInterval;
+        }
+
+        public int getBodyEvictionBatchSize() {
+            return bodyEvictionBatchSize;
+        }
+
+        public void setBodyEvictionBatchSize(int bodyEvictionBatchSize) {
+            this.bodyEvictionBatchSize = bodyEvictionBatchSize;
+        }
     }
 
     public static class Crypto {
@@ -142,5 +292,276 @@ public class EmailClientProperties {
     public static class Smtp {
         // Legacy fields removed - using plain password from spring.mail.password instead
     }
-}
 
+    public static class Grpc {
+
+        private boolean responseCacheEnabled = true;
+
+        @Positive
+        private int responseCacheMaxEntries = 256;
+
+        @Positive
+        private int cachedReadConcurrencyLimit = 256;
+
+        @Positive
+        private int remoteConcurrencyLimit = 32;
+
+        private Map<String, @Positive Integer> methodConcurrencyLimits = new HashMap<>();
+
+        private boolean responseCompressionEnabled = true;
+
+        @PositiveOrZero
+        private int compressionMinMessageBytes = 1024;
+
+        @Min(1)
+        @Max(9)
+        private int compressionLevel = 1;
+
+        public boolean isResponseCacheEnabled() {
+            return responseCacheEnabled;
+        }
+
+        public void setResponseCacheEnabled(boolean responseCacheEnabled) {
+            this.responseCacheEnabled = responseCacheEnabled;
+        }
+
+        public int getResponseCacheMaxEntries() {
+            return responseCacheMaxEntries;
+        }
+
+        public void setResponseCacheMaxEntries(int responseCacheMaxEntries) {
+            this.responseCacheMaxEntries = responseCacheMaxEntries;
+        }
+
+        public int getCachedReadConcurrencyLimit() {
+            return cachedReadConcurrencyLimit;
+        }
+
+        public void setCachedReadConcurrencyLimit(int cachedReadConcurrencyLimit) {
+            this.cachedReadConcurrencyLimit = cachedReadConcurrencyLimit;
+        }
+
+        public int getRemoteConcurrencyLimit() {
+            return remoteConcurrencyLimit;
+        }
+
+        public void setRemoteConcurrencyLimit(int remoteConcurrencyLimit) {
+            this.remoteConcurrencyLimit = remoteConcurrencyLimit;
+        }
+
+        public Map<String, Integer> getMethodConcurrencyLimits() {
+            return methodConcurrencyLimits;
+        }
+
+        public void setMethodConcurrencyLimits(Map<String, Integer> methodConcurrencyLimits) {
+            this.methodConcurrencyLimits = methodConcurrencyLimits;
+        }
+
+        public boolean isResponseCompressionEnabled() {
+            return responseCompressionEnabled;
+        }
+
+        public void setResponseCompressionEnabled(boolean responseCompressionEnabled) {
+            this.responseCompressionEnabled = responseCompressionEnabled;
+        }
+
+        public int getCompressionMinMessageBytes() {
+            return compressionMinMessageBytes;
+        }
+
+        public void setCompressionMinMessageBytes(int compressionMinMessageBytes) {
+            this.compressionMinMessageBytes = compressionMinMessageBytes;
+        }
+
+        public int getCompressionLevel() {
+            return compressionLevel;
+        }
+
+        public void setCompressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+        }
+    }
+
+    public static class Execution {
+
+        private boolean virtualThreads = true;
+
+        @Positive
+        private int maxConcurrentImapSyncs = 4;
+
+        @Positive
+        private int maxConcurrentSyncsPerAccount = 1;
+
+        @Positive
+        private double imapRatePerSecond = 5.0;
+
+        @Positive
+        private int imapBurst = 10;
+
+        @PositiveOrZero
+        private int imapInteractiveReserve = 2;
+
+        private Duration imapSlowCallThreshold = Duration.ofSeconds(20);
+
+        @Positive
+        private int imapCircuitFailureThreshold = 3;
+
+        private Duration imapCircuitProbeInterval = Duration.ofSeconds(30);
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+
+        public int getMaxConcurrentImapSyncs() {
+            return maxConcurrentImapSyncs;
+        }
+
+        public void setMaxConcurrentImapSyncs(int maxConcurrentImapSyncs) {
+            this.maxConcurrentImapSyncs = maxConcurrentImapSyncs;
+        }
+
+        public int getMaxConcurrentSyncsPerAccount() {
+            return maxConcurrentSyncsPerAccount;
+        }
+
+        public void setMaxConcurrentSyncsPerAccount(int maxConcurrentSyncsPerAccount) {
+            this.maxConcurrentSyncsPerAccount = maxConcurrentSyncsPerAccount;
+        }
+
+        public double getImapRatePerSecond() {
+            return imapRatePerSecond;
+        }
+
+        public void setImapRatePerSecond(double imapRatePerSecond) {
+            this.imapRatePerSecond = imapRatePerSecond;
+        }
+
+        public int getImapBurst() {
+            return imapBurst;
+        }
+
+        public void setImapBurst(int imapBurst) {
+            this.imapBurst = imapBurst;
+        }
+
+        public int getImapInteractiveReserve() {
+            return imapInteractiveReserve;
+        }
+
+        public void setImapInteractiveReserve(int imapInteractiveReserve) {
+            this.imapInteractiveReserve = imapInteractiveReserve;
+        }
+
+        public Duration getImapSlowCallThreshold() {
+            return imapSlowCallThreshold;
+        }
+
+        public void setImapSlowCallThreshold(Duration imapSlowCallThreshold) {
+            this.imapSlowCallThreshold = imapSlowCallThreshold;
+        }
+
+        public int getImapCircuitFailureThreshold() {
+            return imapCircuitFailureThreshold;
+        }
+
+        public void setImapCircuitFailureThreshold(int imapCircuitFailureThreshold) {
+            this.imapCircuitFailureThreshold = imapCircuitFailureThreshold;
+        }
+
+        public Duration getImapCircuitProbeInterval() {
+            return imapCircuitProbeInterval;
+        }
+
+        public void setImapCircuitProbeInterval(Duration imapCircuitProbeInterval) {
+            this.imapCircuitProbeInterval = imapCircuitProbeInterval;
+        }
+    }
+
+    public static class Cluster {
+
+        private String nodeId;
+
+        private Duration syncLeaseTtl = Duration.ofSeconds(30);
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public Duration getSyncLeaseTtl() {
+            return syncLeaseTtl;
+        }
+
+        public void setSyncLeaseTtl(Duration syncLeaseTtl) {
+            this.syncLeaseTtl = syncLeaseTtl;
+        }
+    }
+
+    public static class Metrics {
+
+        @PositiveOrZero
+        private int prometheusPort;
+
+        public int getPrometheusPort() {
+            return prometheusPort;
+        }
+
+        public void setPrometheusPort(int prometheusPort) {
+            this.prometheusPort = prometheusPort;
+        }
+    }
+
+    public static class Auth {
+
+        private List<@Valid Client> clients = new ArrayList<>();
+
+        public List<Client> getClients() {
+            return clients;
+        }
+
+        public void setClients(List<Client> clients) {
+            this.clients = clients;
+        }
+
+        public static class Client {
+
+            @NotBlank
+            private String name;
+
+            private String tokenSha256;
+
+            private List<String> accounts = new ArrayList<>();
+
+            public String getName() {
+                return name;
+            }
+
+            public void setName(String name) {
+                this.name = name;
+            }
+
+            public String getTokenSha256() {
+                return tokenSha256;
+            }
+
+            public void setTokenSha256(String tokenSha256) {
+                this.tokenSha256 = tokenSha256;
+            }
+
+            public List<String> getAccounts() {
+                return accounts;
+            }
+
+            public void setAccounts(List<String> accounts) {
+                this.accounts = accounts;
+            }
+        }
+    }
+}
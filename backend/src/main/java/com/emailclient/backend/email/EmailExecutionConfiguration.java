@@ -0,0 +1,34 @@
+package com.emailclient.backend.email;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class EmailExecutionConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailExecutionConfiguration.class);
+
+    /**
+     * Runs {@link AsyncEmailService} operations and the parallel folder probes inside {@link DefaultEmailService}.
+     * Tasks submitted here may wait on further tasks submitted here, so the executor must stay unbounded.
+     * Tasks inherit the submitter's tracing context, so their spans join the request that started them.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService emailTaskExecutor(EmailClientProperties properties) {
+        ExecutorService executor;
+        if (properties.getExecution().isVirtualThreads()) {
+            log.info("Running email tasks on virtual threads");
+            executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("email-task-", 0).factory());
+        } else {
+            executor = Executors.newCachedThreadPool(Thread.ofPlatform().name("email-task-", 0).daemon().factory());
+        }
+        return ContextExecutorService.wrap(executor, ContextSnapshotFactory.builder().build());
+    }
+}
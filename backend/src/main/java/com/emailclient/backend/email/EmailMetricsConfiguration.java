@@ -0,0 +1,30 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.account.AccountSessions;
+import com.emailclient.backend.email.contacts.RecipientIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class EmailMetricsConfiguration {
+
+    /**
+     * Sizes of the in-memory caches that are not already metered where they live, as
+     * {@code email.cache.size{cache}}. The listing response cache reports its own entries.
+     */
+    @Bean
+    public MeterBinder emailCacheMetrics(AccountSessions accountSessions, RecipientIndex recipientIndex) {
+        return registry -> {
+            Gauge.builder("email.cache.size", accountSessions, AccountSessions::size)
+                    .description("Entries held in an in-memory cache")
+                    .tag("cache", "imap_sessions")
+                    .register(registry);
+            Gauge.builder("email.cache.size", recipientIndex, RecipientIndex::loadedContacts)
+                    .description("Entries held in an in-memory cache")
+                    .tag("cache", "recipients")
+                    .register(registry);
+        };
+    }
+}
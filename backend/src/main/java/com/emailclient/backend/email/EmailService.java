@@ -1,24 +1,70 @@
 package com.emailclient.backend.email;
 
 import com.emailclient.backend.email.dto.EmailDetail;
+import com.emailclient.backend.email.dto.EmailFilter;
 import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.dto.EmailThread;
+import com.emailclient.backend.email.dto.MailboxDelta;
+import com.emailclient.backend.email.dto.MailboxMutation;
+import com.emailclient.backend.email.dto.PreviewFields;
+import com.emailclient.backend.email.dto.RecipientSuggestion;
 import com.emailclient.backend.email.dto.SendEmailRequest;
+import com.emailclient.backend.email.dto.ThreadPage;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface EmailService {
 
-    List<EmailPreview> listInbox();
+    List<EmailPreview> listInbox(EmailFilter filter);
+
+    /**
+     * Syncs the latest inbox messages from IMAP into the offline cache; {@code false} if the server was unreachable.
+     */
+    boolean refreshInbox();
+
+    /**
+     * Reads inbox changes from the offline cache only; call {@link #refreshInbox()} first for fresh data.
+     * Previews carry only {@code fields}.
+     */
+    MailboxDelta listInboxChanges(EmailFilter filter, long sinceVersion, PreviewFields fields);
+
+    long mailboxVersion();
+
+    /**
+     * Whether the current account's inbox was last synced longer than {@code email-client.imap.inbox-refresh-interval}
+     * ago, or never, and should be refreshed before it is listed.
+     */
+    boolean inboxStale();
+
+    /**
+     * {@code false} while the current account's IMAP server is considered unreachable and reads are served from
+     * the offline store only.
+     */
+    boolean imapAvailable();
 
     List<EmailPreview> listSent();
 
-    List<EmailPreview> listTrash();
+    List<EmailPreview> listTrash(EmailFilter filter, PreviewFields fields);
 
     void sendEmail(SendEmailRequest request);
 
-    Optional<EmailDetail> getEmailDetail(String id);
+    List<RecipientSuggestion> suggestRecipients(String prefix, int limit);
 
+    /**
+     * Without {@code includeContent} the body and recipients are left empty and a cached message is answered
+     * from its stored columns, without parsing or downloading it.
+     */
+    Optional<EmailDetail> getEmailDetail(String id, boolean includeContent);
+
+    ThreadPage listThreads(int pageSize, String pageToken);
+
+    Optional<EmailThread> getThread(String threadId);
+
+    /**
+     * Deletes, trashes, restores and permanently deletes apply to the offline store and return at once; they are
+     * replayed to IMAP in the background, and until then the message keeps the id it was called with.
+     */
     boolean deleteEmail(String id);
 
     MoveToTrashResult moveToTrash(String id);
@@ -27,6 +73,18 @@ public interface EmailService {
 
     boolean permanentlyDelete(String id);
 
+    /**
+     * Mailbox actions of the current account not yet replayed to IMAP, or that could not be, oldest first.
+     */
+    List<MailboxMutation> listMailboxMutations();
+
+    /**
+     * Sets the read and starred state of a cached message, either left {@code null} to keep it. The change is
+     * applied to the offline store at once and written to IMAP in the background; empty if the message is not
+     * cached.
+     */
+    Optional<EmailPreview> updateFlags(String id, Boolean read, Boolean starred);
+
     record MoveToTrashResult(boolean success, String newId) {}
 
     record RestoreEmailResult(boolean success, String newId) {}
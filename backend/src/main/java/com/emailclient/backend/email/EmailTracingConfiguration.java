@@ -0,0 +1,23 @@
+package com.emailclient.backend.email;
+
+import io.micrometer.context.ContextRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.contextpropagation.ObservationAwareSpanThreadLocalAccessor;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Request tracing. The gRPC starter already opens a server span per call, continuing the trace the client sent
+ * in its metadata; {@link StepSpan}s for service steps, IMAP commands and store operations nest under it, and
+ * spans are exported over OTLP as configured under {@code management.otlp.tracing}.
+ */
+@Configuration
+public class EmailTracingConfiguration {
+
+    public EmailTracingConfiguration(ObservationRegistry observationRegistry, Tracer tracer) {
+        // Carry the current span, not just the gRPC observation, onto emailTaskExecutor threads, so folder probes
+        // and other fan-out show up under the step that started them
+        ContextRegistry.getInstance()
+                .registerThreadLocalAccessor(new ObservationAwareSpanThreadLocalAccessor(observationRegistry, tracer));
+    }
+}
@@ -0,0 +1,255 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.ImapMetrics.Phase;
+import com.emailclient.backend.email.account.AccountContext;
+import com.emailclient.backend.email.account.AccountRegistry;
+import com.emailclient.backend.email.account.AccountSessions;
+import com.emailclient.backend.email.account.EmailAccount;
+import com.emailclient.backend.email.storage.EmailOfflineStore;
+import com.emailclient.backend.email.storage.EmailOfflineStore.FlagChange;
+import com.emailclient.backend.email.storage.SyncLeaseStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+import org.eclipse.angus.mail.iap.Response;
+import org.eclipse.angus.mail.imap.IMAPFolder;
+import org.eclipse.angus.mail.imap.protocol.UIDSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes flag changes made locally (read, unread, starred) back to IMAP. Every {@code flagFlushInterval} it takes
+ * each account's oldest pending changes, up to {@code flagFlushBatchSize}, and sends them over one connection in
+ * the account's background lane: per folder one SELECT, then one {@code UID STORE} per flag and value covering
+ * every message it applies to. Repeated changes to a message have already been folded into one by the store, so
+ * toggling a message back and forth between flushes costs nothing on the server.
+ *
+ * <p>Changes are marked flushed only after their STORE succeeded, so a failed flush is retried on the next
+ * round; setting a flag that is already set is harmless. A message that has left the folder since is skipped by
+ * the server and its change dropped. Accounts whose IMAP circuit is open wait for it to close.</p>
+ *
+ * <p>Pending changes live in the shared database, so only the replica holding an account's
+ * {@link SyncLeaseStore#WRITE_BACK_LEASE} flushes them.</p>
+ */
+@Component
+public class FlagWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(FlagWriteBehind.class);
+
+    private final EmailOfflineStore offlineStore;
+    private final AccountRegistry accounts;
+    private final AccountSessions sessions;
+    private final ImapScheduler imapScheduler;
+    private final ImapCircuitBreaker circuitBreaker;
+    private final ImapMetrics imapMetrics;
+    private final SyncLeaseStore syncLeases;
+    private final Duration interval;
+    private final int batchSize;
+    private final Duration retention;
+    private final Counter flushed;
+    private final Counter failed;
+    private final Timer flushTimer;
+    private volatile boolean running;
+    private Thread worker;
+
+    public FlagWriteBehind(EmailOfflineStore offlineStore,
+                           AccountRegistry accounts,
+                           AccountSessions sessions,
+                           ImapScheduler imapScheduler,
+                           ImapCircuitBreaker circuitBreaker,
+                           ImapMetrics imapMetrics,
+                           SyncLeaseStore syncLeases,
+                           EmailClientProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.offlineStore = Objects.requireNonNull(offlineStore, "offlineStore");
+        this.accounts = Objects.requireNonNull(accounts, "accounts");
+        this.sessions = Objects.requireNonNull(sessions, "sessions");
+        this.imapScheduler = Objects.requireNonNull(imapScheduler, "imapScheduler");
+        this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "circuitBreaker");
+        this.imapMetrics = Objects.requireNonNull(imapMetrics, "imapMetrics");
+        this.syncLeases = Objects.requireNonNull(syncLeases, "syncLeases");
+        EmailClientProperties.Imap imap = Objects.requireNonNull(properties, "properties").getImap();
+        this.interval = imap.getFlagFlushInterval();
+        this.batchSize = imap.getFlagFlushBatchSize();
+        this.retention = imap.getFlagChangeRetention();
+        this.flushed = Counter.builder("email.flags.flushed")
+                .description("Local flag changes written to IMAP")
+                .register(meterRegistry);
+        this.failed = Counter.builder("email.flags.failed")
+                .description("Flag flushes that failed and will be retried")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("email.flags.flush")
+                .description("Time to write one account's pending flag changes to IMAP")
+                .register(meterRegistry);
+        Gauge.builder("email.flags.pending", offlineStore, EmailOfflineStore::countPendingFlagChanges)
+                .description("Local flag changes not yet written to IMAP")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (interval.isZero() || interval.isNegative()) {
+            log.info("Flag write-behind disabled: flag changes stay local");
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().name("flag-write-behind").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(Duration.ofSeconds(5).toMillis());
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                flushAll();
+            } catch (RuntimeException ex) {
+                log.warn("Flag flush round failed", ex);
+            }
+        }
+    }
+
+    /**
+     * One flush round over every account with pending changes.
+     */
+    void flushAll() {
+        int pruned = offlineStore.pruneFlushedFlagChanges(retention);
+        if (pruned > 0) {
+            log.debug("Forgot {} flushed flag changes", pruned);
+        }
+        for (String accountId : offlineStore.accountsWithPendingFlagChanges()) {
+            if (circuitBreaker.allowsCalls(accountId) && syncLeases.tryAcquire(accountId, SyncLeaseStore.WRITE_BACK_LEASE)) {
+                AccountContext.runAs(accountId, this::flushCurrentAccount);
+            }
+        }
+    }
+
+    private void flushCurrentAccount() {
+        String accountId = AccountContext.currentAccountId();
+        List<FlagChange> changes = offlineStore.loadPendingFlagChanges(batchSize);
+        if (changes.isEmpty()) {
+            return;
+        }
+        Map<String, List<FlagChange>> byFolder = new LinkedHashMap<>();
+        for (FlagChange change : changes) {
+            byFolder.computeIfAbsent(change.folder(), folder -> new ArrayList<>()).add(change);
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            List<FlagChange> written = imapScheduler.run(accountId, ImapScheduler.Lane.BACKGROUND, () -> write(byFolder));
+            flushed.increment(offlineStore.markFlagChangesFlushed(written));
+            if (written.size() < changes.size()) {
+                failed.increment();
+            }
+            log.debug("Flushed {} of {} flag changes for account {}", written.size(), changes.size(), accountId);
+        } catch (MessagingException | IOException ex) {
+            failed.increment();
+            log.warn("Unable to flush {} flag changes for account {}: {}", changes.size(), accountId, ex.getMessage());
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    /**
+     * Writes {@code byFolder} over one connection and returns the changes the server accepted. A folder that
+     * fails is left for the next round without holding up the others.
+     */
+    private List<FlagChange> write(Map<String, List<FlagChange>> byFolder) throws MessagingException {
+        EmailAccount account = accounts.find(AccountContext.currentAccountId())
+                .orElseThrow(() -> new MessagingException("No IMAP account configured for '" + AccountContext.currentAccountId() + "'"));
+        Store store = sessions.sessionFor(account).getStore(account.protocol());
+        circuitBreaker.acquirePermission(account.id());
+        try {
+            imapMetrics.run(Phase.CONNECT,
+                    () -> store.connect(account.imapHost(), account.imapPort(), account.username(), account.password()));
+        } catch (MessagingException | RuntimeException ex) {
+            circuitBreaker.onFailure(account.id(), ex);
+            throw ex;
+        }
+        circuitBreaker.onSuccess(account.id());
+
+        List<FlagChange> written = new ArrayList<>();
+        try {
+            for (Map.Entry<String, List<FlagChange>> folder : byFolder.entrySet()) {
+                try {
+                    writeFolder(store, folder.getKey(), folder.getValue());
+                    written.addAll(folder.getValue());
+                } catch (MessagingException | RuntimeException ex) {
+                    log.warn("Unable to store {} flag changes in folder {}: {}", folder.getValue().size(),
+                            folder.getKey(), ex.getMessage());
+                }
+            }
+        } finally {
+            if (store.isConnected()) {
+                store.close();
+            }
+        }
+        return written;
+    }
+
+    private void writeFolder(Store store, String folderName, List<FlagChange> changes) throws MessagingException {
+        Folder folder = store.getFolder(folderName);
+        if (!(folder instanceof IMAPFolder imapFolder) || !folder.exists()) {
+            log.debug("Folder {} no longer exists, dropping {} flag changes", folderName, changes.size());
+            return;
+        }
+        imapMetrics.open(folder, Folder.READ_WRITE);
+        try {
+            storeFlag(imapFolder, "\\Seen", true, changes.stream().filter(change -> Boolean.TRUE.equals(change.seen())).toList());
+            storeFlag(imapFolder, "\\Seen", false, changes.stream().filter(change -> Boolean.FALSE.equals(change.seen())).toList());
+            storeFlag(imapFolder, "\\Flagged", true, changes.stream().filter(change -> Boolean.TRUE.equals(change.flagged())).toList());
+            storeFlag(imapFolder, "\\Flagged", false, changes.stream().filter(change -> Boolean.FALSE.equals(change.flagged())).toList());
+        } finally {
+            if (folder.isOpen()) {
+                folder.close(false);
+            }
+        }
+    }
+
+    /**
+     * Sets or clears {@code flag} on every message of {@code changes} with a single {@code UID STORE}. JavaMail's
+     * own {@code setFlags} addresses messages by sequence number, which would need a UID FETCH first to map them.
+     */
+    private void storeFlag(IMAPFolder folder, String flag, boolean value, List<FlagChange> changes)
+            throws MessagingException {
+        if (changes.isEmpty()) {
+            return;
+        }
+        long[] uids = changes.stream().mapToLong(change -> Long.parseLong(change.id())).sorted().toArray();
+        String command = "UID STORE " + UIDSet.toString(UIDSet.createUIDSets(uids))
+                + (value ? " +FLAGS.SILENT (" : " -FLAGS.SILENT (") + flag + ")";
+        imapMetrics.run(Phase.STORE, folder, () -> folder.doCommand(protocol -> {
+            Response[] responses = protocol.command(command, null);
+            protocol.notifyResponseHandlers(responses);
+            protocol.handleResult(responses[responses.length - 1]);
+            return null;
+        }));
+    }
+}
@@ -0,0 +1,10 @@
+package com.emailclient.backend.email;
+
+import jakarta.mail.MessagingException;
+
+import java.io.IOException;
+
+@FunctionalInterface
+interface ImapCall<T> {
+    T run() throws MessagingException, IOException;
+}
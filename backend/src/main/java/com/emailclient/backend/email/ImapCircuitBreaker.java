@@ -0,0 +1,195 @@
+package com.emailclient.backend.email;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.angus.mail.util.MailConnectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-account circuit breaker around IMAP connects, so an unreachable server costs one connect timeout per probe
+ * interval instead of one per request.
+ *
+ * <p>{@code imapCircuitFailureThreshold} consecutive connectivity failures open the circuit. While open, connects
+ * fail immediately with {@link ImapUnavailableException} and callers answer from the offline store. Once
+ * {@code imapCircuitProbeInterval} has passed, the next connect is let through as a probe (half-open): success
+ * closes the circuit, another connectivity failure opens it for a further interval. Errors from a server that did
+ * answer, such as a rejected login, count as reachable.</p>
+ */
+@Component
+public class ImapCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(ImapCircuitBreaker.class);
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long probeIntervalNanos;
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+
+    public ImapCircuitBreaker(EmailClientProperties properties, MeterRegistry meterRegistry) {
+        this.failureThreshold = properties.getExecution().getImapCircuitFailureThreshold();
+        this.probeIntervalNanos = properties.getExecution().getImapCircuitProbeInterval().toNanos();
+
+        for (State state : State.values()) {
+            transitions.put(state, Counter.builder("email.imap.circuit.transitions")
+                    .description("IMAP circuit breaker state changes, by the state entered")
+                    .tag("state", state.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        Gauge.builder("email.imap.circuit.open", circuits,
+                        all -> all.values().stream().filter(circuit -> circuit.state() != State.CLOSED).count())
+                .description("Accounts whose IMAP circuit is open or half-open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether a call for {@code accountId} could connect right now; lets callers skip queueing for IMAP work
+     * that would only be refused.
+     */
+    public boolean allowsCalls(String accountId) {
+        return circuitFor(accountId).allowsCalls();
+    }
+
+    /**
+     * Admits one connect for {@code accountId}, claiming the probe if one is due.
+     *
+     * @throws ImapUnavailableException while the circuit is open or another probe is in flight
+     */
+    void acquirePermission(String accountId) throws ImapUnavailableException {
+        if (!circuitFor(accountId).tryAcquire()) {
+            throw new ImapUnavailableException(accountId);
+        }
+    }
+
+    void onSuccess(String accountId) {
+        circuitFor(accountId).succeeded();
+    }
+
+    /**
+     * Settles a connect that failed, including with an unchecked exception; only connectivity failures count
+     * towards opening the circuit.
+     */
+    void onFailure(String accountId, Exception failure) {
+        if (isConnectivityFailure(failure)) {
+            circuitFor(accountId).failed();
+        } else {
+            circuitFor(accountId).succeeded();
+        }
+    }
+
+    /**
+     * Settles a connect given up by its caller before the server answered. It says nothing about the server, so
+     * an abandoned probe reopens the circuit with the next probe already due.
+     */
+    void onAbandoned(String accountId) {
+        circuitFor(accountId).abandoned();
+    }
+
+    State state(String accountId) {
+        return circuitFor(accountId).state();
+    }
+
+    private Circuit circuitFor(String accountId) {
+        return circuits.computeIfAbsent(accountId, Circuit::new);
+    }
+
+    static boolean isConnectivityFailure(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MailConnectException
+                    || cause instanceof ConnectException
+                    || cause instanceof NoRouteToHostException
+                    || cause instanceof SocketTimeoutException
+                    || cause instanceof UnknownHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class Circuit {
+
+        private final String accountId;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+
+        private Circuit(String accountId) {
+            this.accountId = accountId;
+        }
+
+        private synchronized State state() {
+            return state;
+        }
+
+        private synchronized boolean allowsCalls() {
+            return state == State.CLOSED || (state == State.OPEN && probeDue());
+        }
+
+        private synchronized boolean tryAcquire() {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN && probeDue()) {
+                transition(State.HALF_OPEN);
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized void succeeded() {
+            consecutiveFailures = 0;
+            if (state != State.CLOSED) {
+                transition(State.CLOSED);
+            }
+        }
+
+        private synchronized void failed() {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                openedAt = System.nanoTime();
+                transition(State.OPEN);
+            }
+        }
+
+        private synchronized void abandoned() {
+            if (state == State.HALF_OPEN) {
+                log.info("IMAP circuit probe of account {} abandoned by its caller; {} -> {}", accountId, state, State.OPEN);
+                state = State.OPEN;
+                transitions.get(State.OPEN).increment();
+            }
+        }
+
+        private boolean probeDue() {
+            return System.nanoTime() - openedAt >= probeIntervalNanos;
+        }
+
+        private void transition(State next) {
+            if (next == State.OPEN) {
+                log.warn("IMAP server of account {} unreachable after {} connect failures, failing fast for {} s",
+                        accountId, consecutiveFailures, TimeUnit.NANOSECONDS.toSeconds(probeIntervalNanos));
+            } else {
+                log.info("IMAP circuit of account {} {} -> {}", accountId, state, next);
+            }
+            state = next;
+            transitions.get(next).increment();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.emailclient.backend.email;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One IMAP round trip, recorded by {@link ImapMetrics} alongside its timer so a recording lines the command up
+ * with GC pauses and thread states.
+ */
+@Name("com.emailclient.ImapCommand")
+@Label("IMAP Command")
+@Category({"Email Client", "IMAP"})
+@Description("One IMAP command sent to the mail server")
+@StackTrace(false)
+final class ImapCommandEvent extends jdk.jfr.Event {
+
+    @Label("Command")
+    String command;
+
+    @Label("Folder")
+    String folder;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,173 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.account.AccountContext;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Tracer;
+import jakarta.mail.FetchProfile;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-phase IMAP timings, so a slow listing can be pinned on the connect, the SELECT, the FETCH or the work
+ * around them. Each phase is a timer {@code email.imap.phase{phase, outcome}}; downloaded message bodies feed
+ * {@code email.imap.downloaded.bytes}. Within a traced request every command is also a {@code imap <phase>}
+ * span, and each one is an {@link ImapCommandEvent} for Flight Recorder. Every command's duration is also reported to
+ * the {@link ImapScheduler}, which adapts the current account's rate to it.
+ */
+@Component
+public class ImapMetrics {
+
+    enum Phase {
+        CONNECT,
+        SELECT,
+        FETCH,
+        SEARCH,
+        COPY,
+        STORE,
+        EXPUNGE
+    }
+
+    @FunctionalInterface
+    interface ImapQuery<T> {
+        T run() throws MessagingException;
+    }
+
+    @FunctionalInterface
+    interface ImapAction {
+        void run() throws MessagingException;
+    }
+
+    private final Map<Phase, Timer> succeeded = new EnumMap<>(Phase.class);
+    private final Map<Phase, Timer> failed = new EnumMap<>(Phase.class);
+    private final DistributionSummary downloadedBytes;
+    private final Tracer tracer;
+    private final ImapScheduler imapScheduler;
+
+    public ImapMetrics(MeterRegistry meterRegistry, Tracer tracer, ImapScheduler imapScheduler) {
+        this.tracer = Objects.requireNonNull(tracer, "tracer");
+        this.imapScheduler = Objects.requireNonNull(imapScheduler, "imapScheduler");
+        for (Phase phase : Phase.values()) {
+            succeeded.put(phase, timer(meterRegistry, phase, "success"));
+            failed.put(phase, timer(meterRegistry, phase, "failure"));
+        }
+        this.downloadedBytes = DistributionSummary.builder("email.imap.downloaded.bytes")
+                .description("Size of raw messages downloaded from IMAP")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    <T> T call(Phase phase, ImapQuery<T> query) throws MessagingException {
+        return call(phase, null, query);
+    }
+
+    <T> T call(Phase phase, Folder folder, ImapQuery<T> query) throws MessagingException {
+        ImapCommandEvent event = new ImapCommandEvent();
+        event.begin();
+        long started = System.nanoTime();
+        boolean success = false;
+        try (StepSpan span = span(phase)) {
+            try {
+                T result = query.run();
+                success = true;
+                return result;
+            } catch (MessagingException | RuntimeException ex) {
+                span.fail(ex);
+                throw ex;
+            }
+        } finally {
+            record(phase, success, started);
+            commit(event, phase, folder, 0, success);
+        }
+    }
+
+    void run(Phase phase, ImapAction action) throws MessagingException {
+        run(phase, null, action);
+    }
+
+    void run(Phase phase, Folder folder, ImapAction action) throws MessagingException {
+        call(phase, folder, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    void open(Folder folder, int mode) throws MessagingException {
+        run(Phase.SELECT, folder, () -> folder.open(mode));
+    }
+
+    void fetch(Folder folder, Message[] messages, FetchProfile profile) throws MessagingException {
+        run(Phase.FETCH, folder, () -> folder.fetch(messages, profile));
+    }
+
+    void copy(Folder source, Message[] messages, Folder target) throws MessagingException {
+        run(Phase.COPY, source, () -> source.copyMessages(messages, target));
+    }
+
+    void expunge(Folder folder) throws MessagingException {
+        run(Phase.EXPUNGE, folder, () -> folder.expunge());
+    }
+
+    /**
+     * Reads a message's raw bytes. JavaMail fetches the body lazily on this first read, so it counts as a FETCH
+     * of its own and its size feeds {@code email.imap.downloaded.bytes}.
+     */
+    byte[] download(Message message) throws MessagingException, IOException {
+        ImapCommandEvent event = new ImapCommandEvent();
+        event.begin();
+        long started = System.nanoTime();
+        boolean success = false;
+        long bytes = 0;
+        try (StepSpan span = span(Phase.FETCH);
+             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            message.writeTo(outputStream);
+            bytes = outputStream.size();
+            success = true;
+            downloadedBytes.record(bytes);
+            return outputStream.toByteArray();
+        } finally {
+            record(Phase.FETCH, success, started);
+            commit(event, Phase.FETCH, message.getFolder(), bytes, success);
+        }
+    }
+
+    private StepSpan span(Phase phase) {
+        return StepSpan.start(tracer, "imap " + phase.name().toLowerCase(Locale.ROOT));
+    }
+
+    private void record(Phase phase, boolean success, long startedNanos) {
+        long elapsedNanos = System.nanoTime() - startedNanos;
+        (success ? succeeded : failed).get(phase).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        imapScheduler.commandCompleted(AccountContext.currentAccountId(), elapsedNanos, success);
+    }
+
+    private static void commit(ImapCommandEvent event, Phase phase, Folder folder, long bytes, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.command = phase.name();
+            event.folder = folder != null ? folder.getFullName() : null;
+            event.bytes = bytes;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, Phase phase, String outcome) {
+        return Timer.builder("email.imap.phase")
+                .description("Time spent in one IMAP protocol phase")
+                .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
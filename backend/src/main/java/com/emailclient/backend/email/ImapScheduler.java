@@ -0,0 +1,245 @@
+package com.emailclient.backend.email;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import org.eclipse.angus.mail.iap.BadCommandException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission for every IMAP connection, shared by every account, in two lanes.
+ *
+ * <p>{@link Lane#BACKGROUND} syncs first take one of their account's permits and only then queue for a node
+ * permit, so the fair node-wide queue never holds more than {@code maxConcurrentSyncsPerAccount} entries per
+ * account and a busy mailbox cannot starve the others. JavaMail holds monitors across socket reads, which pins a
+ * virtual thread to its carrier; bounding syncs keeps them from occupying every carrier, and waiting on a
+ * semaphore parks without pinning. {@link Lane#INTERACTIVE} calls skip those queues entirely, so a click never
+ * waits behind a bulk sync.</p>
+ *
+ * <p>Both lanes draw from a per-account token bucket, one token per connection. Background calls leave
+ * {@code imapInteractiveReserve} tokens untouched for interactive ones. The refill rate adapts to the server:
+ * it halves whenever a call is throttled ({@code [THROTTLED]}, a {@code BAD} response, too many connections) or a
+ * single IMAP command takes longer than {@code imapSlowCallThreshold}, and climbs back additively with each normal
+ * command. Commands are timed one by one by {@link ImapMetrics}, so a bulk sync that is long only because it
+ * fetches many messages does not read as a slow server.</p>
+ */
+@Component
+public class ImapScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ImapScheduler.class);
+    private static final double MIN_RATE_FRACTION = 1.0 / 16;
+    private static final double RECOVERY_FRACTION = 1.0 / 20;
+
+    enum Lane {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private final Semaphore nodePermits;
+    private final int perAccountLimit;
+    private final double maxRate;
+    private final double burst;
+    private final double interactiveReserve;
+    private final long slowCallNanos;
+    private final Map<String, AccountLimits> accounts = new ConcurrentHashMap<>();
+    private final Map<Lane, Timer> tokenWaits = new ConcurrentHashMap<>();
+    private final Counter throttleSignals;
+
+    public ImapScheduler(EmailClientProperties properties, MeterRegistry meterRegistry) {
+        EmailClientProperties.Execution execution = properties.getExecution();
+        int nodeLimit = execution.getMaxConcurrentImapSyncs();
+        this.nodePermits = new Semaphore(nodeLimit, true);
+        this.perAccountLimit = Math.min(execution.getMaxConcurrentSyncsPerAccount(), nodeLimit);
+        this.maxRate = execution.getImapRatePerSecond();
+        this.burst = Math.max(1, execution.getImapBurst());
+        this.interactiveReserve = Math.min(execution.getImapInteractiveReserve(), burst - 1);
+        this.slowCallNanos = execution.getImapSlowCallThreshold().toNanos();
+
+        Gauge.builder("email.imap.syncs.active", nodePermits, permits -> nodeLimit - permits.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("email.imap.syncs.queued", nodePermits, Semaphore::getQueueLength)
+                .register(meterRegistry);
+        for (Lane lane : Lane.values()) {
+            tokenWaits.put(lane, Timer.builder("email.imap.token.wait")
+                    .description("Time IMAP calls waited for their account's rate limit")
+                    .tag("lane", lane.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        this.throttleSignals = Counter.builder("email.imap.throttle.signals")
+                .description("IMAP calls that were throttled or slow and lowered their account's rate")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} in {@code lane} for {@code accountId} and adapts the account's rate to how it went.
+     */
+    <T> T run(String accountId, Lane lane, ImapCall<T> call) throws MessagingException, IOException {
+        AccountLimits limits = limitsFor(accountId);
+        boolean background = lane == Lane.BACKGROUND;
+        if (background) {
+            acquire(limits.syncs);
+        }
+        try {
+            if (background) {
+                acquire(nodePermits);
+            }
+            try {
+                awaitToken(accountId, limits, lane);
+                return call.run();
+            } catch (MessagingException | IOException | RuntimeException ex) {
+                reportFailure(accountId, ex);
+                throw ex;
+            } finally {
+                if (background) {
+                    nodePermits.release();
+                }
+            }
+        } finally {
+            if (background) {
+                limits.syncs.release();
+            }
+        }
+    }
+
+    /**
+     * Waits for one of the account's tokens in {@code lane}, for calls that manage their own connection and
+     * error handling; they report failures through {@link #reportFailure}.
+     */
+    void admit(String accountId, Lane lane) throws MessagingException {
+        awaitToken(accountId, limitsFor(accountId), lane);
+    }
+
+    /**
+     * Lowers the account's rate if {@code failure} shows the server throttling us.
+     */
+    void reportFailure(String accountId, Throwable failure) {
+        if (isThrottled(failure)) {
+            throttled(accountId, limitsFor(accountId), String.valueOf(failure.getMessage()));
+        }
+    }
+
+    /**
+     * Adapts the account's rate to one IMAP command: lowers it if the command was slower than
+     * {@code imapSlowCallThreshold}, whatever its outcome, and raises it back after a normal successful one.
+     */
+    void commandCompleted(String accountId, long elapsedNanos, boolean success) {
+        AccountLimits limits = limitsFor(accountId);
+        if (elapsedNanos > slowCallNanos) {
+            throttled(accountId, limits, "slow command (" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms)");
+        } else if (success) {
+            limits.recover();
+        }
+    }
+
+    double currentRate(String accountId) {
+        return limitsFor(accountId).rate();
+    }
+
+    private AccountLimits limitsFor(String accountId) {
+        return accounts.computeIfAbsent(accountId, id -> new AccountLimits(new Semaphore(perAccountLimit, true)));
+    }
+
+    private void awaitToken(String accountId, AccountLimits limits, Lane lane) throws MessagingException {
+        double floor = lane == Lane.BACKGROUND ? interactiveReserve : 0;
+        long started = System.nanoTime();
+        long waitNanos;
+        while ((waitNanos = limits.tryTake(floor)) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new MessagingException("Interrupted while waiting for the IMAP rate limit of " + accountId, ex);
+            }
+        }
+        tokenWaits.get(lane).record(Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    private void throttled(String accountId, AccountLimits limits, String reason) {
+        throttleSignals.increment();
+        double rate = limits.backOff();
+        log.warn("IMAP server throttling account {} ({}); rate lowered to {} calls/s", accountId, reason,
+                String.format(Locale.ROOT, "%.2f", rate));
+    }
+
+    static boolean isThrottled(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BadCommandException) {
+                return true;
+            }
+            String message = cause.getMessage();
+            if (message != null) {
+                String normalized = message.toUpperCase(Locale.ROOT);
+                if (normalized.contains("THROTTLED") || normalized.contains("TOO MANY SIMULTANEOUS CONNECTIONS")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void acquire(Semaphore permits) throws MessagingException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an IMAP sync slot", ex);
+        }
+    }
+
+    private final class AccountLimits {
+
+        private final Semaphore syncs;
+        private double rate = maxRate;
+        private double tokens = burst;
+        private long refilledAt = System.nanoTime();
+
+        private AccountLimits(Semaphore syncs) {
+            this.syncs = syncs;
+        }
+
+        /**
+         * Takes a token if more than {@code floor} are available; otherwise returns how long until one is.
+         */
+        private synchronized long tryTake(double floor) {
+            refill();
+            if (tokens >= floor + 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) ((floor + 1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1)));
+        }
+
+        private synchronized double backOff() {
+            refill();
+            rate = Math.max(maxRate * MIN_RATE_FRACTION, rate / 2);
+            tokens = Math.min(tokens, 0);
+            return rate;
+        }
+
+        private synchronized void recover() {
+            rate = Math.min(maxRate, rate + maxRate * RECOVERY_FRACTION);
+        }
+
+        private synchronized double rate() {
+            return rate;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) * rate / TimeUnit.SECONDS.toNanos(1));
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.emailclient.backend.email;
+
+import jakarta.mail.MessagingException;
+
+/**
+ * Thrown instead of connecting while an account's IMAP circuit is open.
+ */
+final class ImapUnavailableException extends MessagingException {
+
+    private static final long serialVersionUID = 1L;
+
+    ImapUnavailableException(String accountId) {
+        super("IMAP server of account " + accountId + " is unavailable; not retrying until the next probe");
+    }
+}
@@ -0,0 +1,537 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.ImapMetrics.Phase;
+import com.emailclient.backend.email.account.AccountContext;
+import com.emailclient.backend.email.account.AccountRegistry;
+import com.emailclient.backend.email.account.AccountSessions;
+import com.emailclient.backend.email.account.EmailAccount;
+import com.emailclient.backend.email.dto.MailboxMutation;
+import com.emailclient.backend.email.dto.MailboxMutation.Status;
+import com.emailclient.backend.email.storage.EmailOfflineStore;
+import com.emailclient.backend.email.storage.SyncLeaseStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Flags;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessageRemovedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+import jakarta.mail.UIDFolder;
+import jakarta.mail.search.MessageIDTerm;
+import org.eclipse.angus.mail.imap.AppendUID;
+import org.eclipse.angus.mail.imap.IMAPFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Replays the mailbox actions the offline store journaled (trash, restore, delete) to IMAP. Every
+ * {@code mutationReplayInterval} it takes each account's oldest pending entries, up to
+ * {@code mutationReplayBatchSize}, and replays them over one connection in the account's background lane, at
+ * most one entry per message per round so a message's actions reach the server in the order they were made.
+ *
+ * <p>Replay is idempotent: before acting it checks where the server holds the message, and an action the server
+ * already reflects, from an earlier attempt that failed half way or from another client, completes without
+ * repeating it. UIDs are only unique within a folder, so a message is looked up by its UID in the folder the entry
+ * recorded and confirmed by its exact Message-ID header; a message under the same UID in another folder is never
+ * touched, and an entry without a header to confirm by is settled as a conflict. When the server no longer holds
+ * the message where the action expects it, the entry is settled as a conflict instead of being applied elsewhere. Errors are retried
+ * with exponential backoff, holding back the message's later entries, until {@code mutationMaxAttempts}; the local
+ * change is never reverted, the entry just shows up as failed.</p>
+ *
+ * <p>The journal is shared by every replica, so an account is only replayed by the replica holding its
+ * {@link SyncLeaseStore#WRITE_BACK_LEASE}; two replicas moving the same message would race each other and settle
+ * the loser's entry as a conflict.</p>
+ */
+@Component
+public class MailboxMutationReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(MailboxMutationReplayer.class);
+    private static final List<String> TRASH_FOLDER_NAMES = List.of("[Gmail]/Trash", "Trash", "Deleted Items", "Deleted");
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final EmailOfflineStore offlineStore;
+    private final AccountRegistry accounts;
+    private final AccountSessions sessions;
+    private final ImapScheduler imapScheduler;
+    private final ImapCircuitBreaker circuitBreaker;
+    private final ImapMetrics imapMetrics;
+    private final SyncLeaseStore syncLeases;
+    private final MeterRegistry meterRegistry;
+    private final Duration interval;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retention;
+    private final Timer replayTimer;
+    private volatile boolean running;
+    private Thread worker;
+
+    public MailboxMutationReplayer(EmailOfflineStore offlineStore,
+                                   AccountRegistry accounts,
+                                   AccountSessions sessions,
+                                   ImapScheduler imapScheduler,
+                                   ImapCircuitBreaker circuitBreaker,
+                                   ImapMetrics imapMetrics,
+                                   SyncLeaseStore syncLeases,
+                                   EmailClientProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.offlineStore = Objects.requireNonNull(offlineStore, "offlineStore");
+        this.accounts = Objects.requireNonNull(accounts, "accounts");
+        this.sessions = Objects.requireNonNull(sessions, "sessions");
+        this.imapScheduler = Objects.requireNonNull(imapScheduler, "imapScheduler");
+        this.circuitBreaker = Objects.requireNonNull(circuitBreaker, "circuitBreaker");
+        this.imapMetrics = Objects.requireNonNull(imapMetrics, "imapMetrics");
+        this.syncLeases = Objects.requireNonNull(syncLeases, "syncLeases");
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry");
+        EmailClientProperties.Imap imap = Objects.requireNonNull(properties, "properties").getImap();
+        this.interval = imap.getMutationReplayInterval();
+        this.batchSize = imap.getMutationReplayBatchSize();
+        this.maxAttempts = imap.getMutationMaxAttempts();
+        this.retention = imap.getSettledMutationRetention();
+        this.replayTimer = Timer.builder("email.mutations.replay")
+                .description("Time to replay one account's due mailbox mutations to IMAP")
+                .register(meterRegistry);
+        Gauge.builder("email.mutations.pending", offlineStore, EmailOfflineStore::countPendingMutations)
+                .description("Mailbox actions applied locally and not yet replayed to IMAP")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (interval.isZero() || interval.isNegative()) {
+            log.info("Mailbox mutation replay disabled: trash, restore and delete stay local");
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().name("mailbox-mutation-replay").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(Duration.ofSeconds(5).toMillis());
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                replayAll();
+            } catch (RuntimeException ex) {
+                log.warn("Mailbox mutation replay round failed", ex);
+            }
+        }
+    }
+
+    /**
+     * One replay round over every account with due entries.
+     */
+    void replayAll() {
+        int pruned = offlineStore.pruneSettledMutations(retention);
+        if (pruned > 0) {
+            log.debug("Forgot {} failed or conflicting mailbox mutations", pruned);
+        }
+        for (String accountId : offlineStore.accountsWithDueMutations()) {
+            if (circuitBreaker.allowsCalls(accountId) && syncLeases.tryAcquire(accountId, SyncLeaseStore.WRITE_BACK_LEASE)) {
+                AccountContext.runAs(accountId, this::replayCurrentAccount);
+            }
+        }
+    }
+
+    private void replayCurrentAccount() {
+        String accountId = AccountContext.currentAccountId();
+        Instant now = Instant.now();
+        // The first pending entry of each message, if it is due; the message's later entries wait their turn
+        Set<String> messages = new HashSet<>();
+        List<MailboxMutation> due = new ArrayList<>();
+        for (MailboxMutation mutation : offlineStore.loadPendingMutations(batchSize)) {
+            if (messages.add(mutation.emailId()) && !mutation.nextAttemptAt().toInstant().isAfter(now)) {
+                due.add(mutation);
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            imapScheduler.run(accountId, ImapScheduler.Lane.BACKGROUND, () -> replay(due));
+        } catch (MessagingException | IOException ex) {
+            log.warn("Unable to replay {} mailbox mutations for account {}: {}", due.size(), accountId, ex.getMessage());
+        } finally {
+            sample.stop(replayTimer);
+        }
+    }
+
+    /**
+     * Replays {@code due} over one connection. The first entry that fails ends the round: the rest would most
+     * likely run into the same trouble, and are left without spending one of their attempts.
+     */
+    private Void replay(List<MailboxMutation> due) throws MessagingException {
+        EmailAccount account = accounts.find(AccountContext.currentAccountId())
+                .orElseThrow(() -> new MessagingException("No IMAP account configured for '" + AccountContext.currentAccountId() + "'"));
+        Store store = sessions.sessionFor(account).getStore(account.protocol());
+        circuitBreaker.acquirePermission(account.id());
+        try {
+            imapMetrics.run(Phase.CONNECT,
+                    () -> store.connect(account.imapHost(), account.imapPort(), account.username(), account.password()));
+        } catch (MessagingException | RuntimeException ex) {
+            circuitBreaker.onFailure(account.id(), ex);
+            throw ex;
+        }
+        circuitBreaker.onSuccess(account.id());
+
+        try {
+            for (MailboxMutation mutation : due) {
+                try {
+                    String conflict = apply(store, mutation);
+                    if (conflict == null) {
+                        offlineStore.completeMutation(mutation);
+                        count(mutation, "replayed");
+                        log.debug("Replayed {} of email {}", mutation.operation(), mutation.emailId());
+                    } else {
+                        offlineStore.recordMutationAttempt(mutation, Status.CONFLICT, conflict, Instant.now());
+                        count(mutation, "conflict");
+                        log.warn("{} of email {} conflicts with the server: {}", mutation.operation(), mutation.emailId(), conflict);
+                    }
+                } catch (MessagingException | RuntimeException ex) {
+                    retryLater(mutation, ex);
+                    break;
+                }
+            }
+        } finally {
+            if (store.isConnected()) {
+                store.close();
+            }
+        }
+        return null;
+    }
+
+    private void retryLater(MailboxMutation mutation, Exception failure) {
+        int attempts = mutation.attempts() + 1;
+        String error = failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName();
+        if (attempts >= maxAttempts) {
+            offlineStore.recordMutationAttempt(mutation, Status.FAILED, error, Instant.now());
+            count(mutation, "failed");
+            log.warn("Giving up on {} of email {} after {} attempts: {}", mutation.operation(), mutation.emailId(),
+                    attempts, error);
+            return;
+        }
+        Duration backoff = Duration.ofSeconds(1L << Math.min(attempts, 20));
+        Duration delay = backoff.compareTo(MAX_BACKOFF) < 0 ? backoff : MAX_BACKOFF;
+        offlineStore.recordMutationAttempt(mutation, Status.PENDING, error, Instant.now().plus(delay));
+        count(mutation, "retried");
+        log.info("Replaying {} of email {} failed, retrying in {}: {}", mutation.operation(), mutation.emailId(),
+                delay, error);
+    }
+
+    private void count(MailboxMutation mutation, String outcome) {
+        Counter.builder("email.mutations.replayed")
+                .description("Mailbox mutation replay attempts, by operation and whether they were applied, retried, failed or conflicted")
+                .tag("operation", mutation.operation().name().toLowerCase(Locale.ROOT))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Brings the server in line with {@code mutation}. Returns why that is impossible, or {@code null} once the
+     * server reflects it.
+     */
+    private String apply(Store store, MailboxMutation mutation) throws MessagingException {
+        if (!EmailOfflineStore.isImapUid(mutation.emailId())) {
+            return "Not an IMAP UID: " + mutation.emailId();
+        }
+        if (mutation.messageIdHeader() == null) {
+            return "The message has no Message-ID header to confirm it by";
+        }
+        if (mutation.folder() == null) {
+            return "The folder of the message was not recorded";
+        }
+        long uid = Long.parseLong(mutation.emailId());
+        return switch (mutation.operation()) {
+            case TRASH -> trash(store, mutation, uid);
+            case RESTORE -> restore(store, mutation, uid);
+            case DELETE -> delete(store, mutation, uid);
+            case PURGE -> purge(store, mutation, uid);
+        };
+    }
+
+    private String trash(Store store, MailboxMutation mutation, long uid) throws MessagingException {
+        Folder trash = trashFolder(store);
+        if (trash == null) {
+            return "The server has no trash folder";
+        }
+        Located source = find(store, mutation, uid, List.of(mutation.folder()));
+        if (source == null || isTrash(source.folder())) {
+            Located trashed = source != null ? source : findByHeader(store, mutation, TRASH_FOLDER_NAMES);
+            if (trashed == null) {
+                return "The message is no longer on the server";
+            }
+            // Moved by an earlier attempt or another client
+            try {
+                adopt(mutation, uidOf(trashed), trashed.folder());
+            } finally {
+                closeQuietly(trashed.folder());
+            }
+            return null;
+        }
+        try {
+            adopt(mutation, move(source, trash, mutation.messageIdHeader()), trash);
+        } finally {
+            closeQuietly(source.folder());
+            closeQuietly(trash);
+        }
+        return null;
+    }
+
+    private String restore(Store store, MailboxMutation mutation, long uid) throws MessagingException {
+        Located trashed = find(store, mutation, uid, List.of(mutation.folder()));
+        if (trashed == null || !isTrash(trashed.folder())) {
+            Located restored = trashed != null ? trashed : findByHeader(store, mutation, List.of("INBOX"));
+            if (restored == null) {
+                return "The message is no longer in the trash";
+            }
+            try {
+                adopt(mutation, uidOf(restored), restored.folder());
+            } finally {
+                closeQuietly(restored.folder());
+            }
+            return null;
+        }
+        Folder inbox = store.getFolder("INBOX");
+        try {
+            adopt(mutation, move(trashed, inbox, mutation.messageIdHeader()), inbox);
+        } finally {
+            closeQuietly(trashed.folder());
+            closeQuietly(inbox);
+        }
+        return null;
+    }
+
+    /**
+     * Moves the message to the trash folder, or removes it for good if it is there already. A message that is
+     * gone needs nothing more. A trash replayed after this delete was made re-pointed the entry at the trash
+     * folder, where the message is then removed. Outside the recorded folder only the UID counts in the trash: a
+     * copy found there by its header is the one an earlier attempt of this delete left, and must stay.
+     */
+    private String delete(Store store, MailboxMutation mutation, long uid) throws MessagingException {
+        Located source = find(store, mutation, uid, List.of(mutation.folder()));
+        if (source == null) {
+            Located trashed = findByUid(store, mutation, uid, TRASH_FOLDER_NAMES);
+            if (trashed != null) {
+                try {
+                    remove(trashed);
+                } finally {
+                    closeQuietly(trashed.folder());
+                }
+            }
+            return null;
+        }
+        Folder trash = isTrash(source.folder()) ? null : trashFolder(store);
+        try {
+            if (trash != null) {
+                move(source, trash, mutation.messageIdHeader());
+            } else {
+                remove(source);
+            }
+        } finally {
+            closeQuietly(source.folder());
+            closeQuietly(trash);
+        }
+        return null;
+    }
+
+    private String purge(Store store, MailboxMutation mutation, long uid) throws MessagingException {
+        Located trashed = find(store, mutation, uid, List.of(mutation.folder()));
+        if (trashed != null) {
+            try {
+                remove(trashed);
+            } finally {
+                closeQuietly(trashed.folder());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies the message to {@code target} unless a copy is already there, then removes it from its folder.
+     * Returns the UID of the copy, or {@code null} if the server did not report it and there is no Message-ID
+     * header to look it up by.
+     */
+    private String move(Located source, Folder target, String messageIdHeader) throws MessagingException {
+        imapMetrics.open(target, Folder.READ_ONLY);
+        Message copy = search(target, messageIdHeader);
+        String uid = copy != null ? uidOf(target, copy) : null;
+        if (copy == null) {
+            IMAPFolder imapSource = (IMAPFolder) source.folder();
+            AppendUID[] appendUids = imapMetrics.call(Phase.COPY, imapSource,
+                    () -> imapSource.copyUIDMessages(new Message[]{source.message()}, target));
+            if (appendUids != null && appendUids.length > 0 && appendUids[0] != null) {
+                uid = Long.toString(appendUids[0].uid);
+            } else {
+                // No UIDPLUS: the copy is found by its header instead
+                copy = search(target, messageIdHeader);
+                uid = copy != null ? uidOf(target, copy) : null;
+            }
+        }
+        remove(source);
+        return uid;
+    }
+
+    private void remove(Located located) throws MessagingException {
+        try {
+            located.message().setFlag(Flags.Flag.DELETED, true);
+            imapMetrics.expunge(located.folder());
+        } catch (MessageRemovedException ex) {
+            log.debug("Message already removed from folder {}", located.folder().getFullName());
+        }
+    }
+
+    /**
+     * Re-keys the cached message to its UID in {@code folder}, where the server now holds it.
+     */
+    private void adopt(MailboxMutation mutation, String newUid, Folder folder) {
+        if (newUid == null) {
+            log.warn("Unable to learn the UID of email {} in {}; keeping its old id", mutation.emailId(), folder.getFullName());
+        }
+        String newId = newUid != null ? newUid : mutation.emailId();
+        if (!offlineStore.updateMessageId(mutation.emailId(), newId, folder.getFullName())) {
+            log.debug("Email {} was not re-keyed to {} in {}", mutation.emailId(), newId, folder.getFullName());
+        }
+    }
+
+    /**
+     * Finds the message in {@code folderNames} by {@code uid}, or by its Message-ID header if the cached UID is out
+     * of date: a move whose new UID was taken by another cached message leaves the cached row under its old one.
+     */
+    private Located find(Store store, MailboxMutation mutation, long uid, List<String> folderNames)
+            throws MessagingException {
+        Located located = findByUid(store, mutation, uid, folderNames);
+        return located != null ? located : findByHeader(store, mutation, folderNames);
+    }
+
+    /**
+     * The first of {@code folderNames} holding the message under {@code uid}, opened read-write. A message under
+     * that UID without exactly the mutation's Message-ID header is another message and does not count.
+     */
+    private Located findByUid(Store store, MailboxMutation mutation, long uid, List<String> folderNames)
+            throws MessagingException {
+        for (String folderName : folderNames) {
+            Folder folder = store.getFolder(folderName);
+            if (!(folder instanceof IMAPFolder imapFolder) || !folder.exists()) {
+                continue;
+            }
+            imapMetrics.open(folder, Folder.READ_WRITE);
+            Message message = imapMetrics.call(Phase.FETCH, folder, () -> imapFolder.getMessageByUID(uid));
+            if (message != null && hasMessageId(message, mutation.messageIdHeader())) {
+                return new Located(folder, message);
+            }
+            closeQuietly(folder);
+        }
+        return null;
+    }
+
+    /**
+     * The first of {@code folderNames} holding a message with the mutation's Message-ID header, opened read-write;
+     * {@code null} if the message has no such header.
+     */
+    private Located findByHeader(Store store, MailboxMutation mutation, List<String> folderNames)
+            throws MessagingException {
+        if (mutation.messageIdHeader() == null) {
+            return null;
+        }
+        for (String folderName : folderNames) {
+            Folder folder = store.getFolder(folderName);
+            if (!(folder instanceof UIDFolder) || !folder.exists()) {
+                continue;
+            }
+            imapMetrics.open(folder, Folder.READ_WRITE);
+            Message message = search(folder, mutation.messageIdHeader());
+            if (message != null) {
+                return new Located(folder, message);
+            }
+            closeQuietly(folder);
+        }
+        return null;
+    }
+
+    /**
+     * The latest message in {@code folder} whose Message-ID header is exactly {@code messageIdHeader}. IMAP
+     * {@code SEARCH HEADER} matches substrings, so every hit is checked.
+     */
+    private Message search(Folder folder, String messageIdHeader) throws MessagingException {
+        if (messageIdHeader == null) {
+            return null;
+        }
+        Message[] found = imapMetrics.call(Phase.SEARCH, folder, () -> folder.search(new MessageIDTerm(messageIdHeader)));
+        for (int i = found.length - 1; i >= 0; i--) {
+            if (hasMessageId(found[i], messageIdHeader)) {
+                return found[i];
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasMessageId(Message message, String messageIdHeader) throws MessagingException {
+        String messageId = MessageConverter.getMessageId(message);
+        return messageIdHeader != null && messageId != null && messageId.trim().equals(messageIdHeader.trim());
+    }
+
+    private static boolean isTrash(Folder folder) {
+        return TRASH_FOLDER_NAMES.contains(folder.getFullName());
+    }
+
+    private static String uidOf(Located located) throws MessagingException {
+        return uidOf(located.folder(), located.message());
+    }
+
+    private static String uidOf(Folder folder, Message message) throws MessagingException {
+        return Long.toString(((UIDFolder) folder).getUID(message));
+    }
+
+    private static void closeQuietly(Folder folder) {
+        try {
+            if (folder != null && folder.isOpen()) {
+                folder.close(false);
+            }
+        } catch (MessagingException ex) {
+            log.debug("Error closing folder {}: {}", folder.getFullName(), ex.getMessage());
+        }
+    }
+
+    private static Folder trashFolder(Store store) throws MessagingException {
+        for (String folderName : TRASH_FOLDER_NAMES) {
+            Folder folder = store.getFolder(folderName);
+            if (folder.exists()) {
+                return folder;
+            }
+        }
+        return null;
+    }
+
+    private record Located(Folder folder, Message message) {
+    }
+}
@@ -0,0 +1,324 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.dto.EmailDetail;
+import com.emailclient.backend.email.storage.EmailOfflineStore.StoredEmail;
+import com.emailclient.backend.email.storage.EmailOfflineStore.ThreadHeaders;
+import jakarta.mail.Address;
+import jakarta.mail.BodyPart;
+import jakarta.mail.Flags;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeUtility;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Converts between IMAP messages, the rows the offline store keeps and the details shown to the client. Kept
+ * apart from {@link DefaultEmailService} so the MIME hot paths can be exercised without a server connection.
+ */
+final class MessageConverter {
+
+    static final int SNIPPET_LENGTH = 200;
+    static final int SNIPPET_SOURCE_BYTES = 16 * 1024;
+
+    // Also matches a block left open where the snippet source was cut off
+    private static final Pattern HTML_HIDDEN = Pattern.compile("(?is)<(head|style|script)\\b.*?(?:</\\1\\s*>|\\z)|<!--.*?(?:-->|\\z)");
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern HTML_ENTITY = Pattern.compile("&(#?\\w+);");
+    private static final Pattern WHITESPACE = Pattern.compile("[\\s\\u00a0]+");
+
+    private final Session parsingSession;
+
+    MessageConverter() {
+        // Cached raw messages are parsed without a server connection, so they need no account session
+        Properties parsingProperties = new Properties();
+        parsingProperties.put("mail.mime.address.strict", "false");
+        this.parsingSession = Session.getInstance(parsingProperties);
+    }
+
+    /**
+     * Builds the store row for a received message. {@code raw} is null during folder syncs, which skip
+     * downloading raw bytes and only fetch them when an individual email is opened; the snippet is then left
+     * for the caller to add with {@link #snippet(Part)}, and the size must have been prefetched.
+     */
+    StoredEmail toStoredEmail(String id, String folder, Message message, byte[] raw)
+            throws MessagingException, IOException {
+        String fromAddress = firstAddress(message.getFrom());
+        OffsetDateTime receivedAt = toOffsetDateTime(message.getReceivedDate() != null
+                ? message.getReceivedDate() : message.getSentDate());
+        boolean unread = !message.isSet(Flags.Flag.SEEN);
+        String snippet = null;
+        long size;
+        if (raw != null) {
+            snippet = snippet(new MimeMessage(parsingSession, new ByteArrayInputStream(raw)));
+            size = raw.length;
+        } else {
+            size = Math.max(0, message.getSize());
+        }
+
+        // Attachment detection only walks the prefetched BODYSTRUCTURE, no part content is downloaded
+        return new StoredEmail(id, fromAddress, message.getSubject(), receivedAt, unread, raw,
+                folder, hasAttachments(message), threadHeaders(message), snippet, size, message.isSet(Flags.Flag.FLAGGED));
+    }
+
+    /**
+     * Builds the store row for a sent message, which lists the first TO address instead of the sender and is
+     * dated by when it was sent.
+     */
+    StoredEmail toStoredSentEmail(String id, String folder, Message message) throws MessagingException {
+        String toAddress = firstAddress(message.getRecipients(Message.RecipientType.TO));
+        OffsetDateTime receivedAt = toOffsetDateTime(message.getSentDate() != null
+                ? message.getSentDate() : message.getReceivedDate());
+        boolean unread = !message.isSet(Flags.Flag.SEEN);
+
+        return new StoredEmail(id, toAddress, message.getSubject(), receivedAt, unread, null,
+                folder, false, threadHeaders(message), null, 0L, message.isSet(Flags.Flag.FLAGGED));
+    }
+
+    /**
+     * Start of the message text for list views: the first plain text part, or the first HTML part with markup
+     * removed, with whitespace collapsed and cut at a word boundary near {@value #SNIPPET_LENGTH} characters.
+     * Reads at most {@value #SNIPPET_SOURCE_BYTES} bytes of the part, which on an IMAP message is a single
+     * partial fetch. Returns an empty string when the message has no text.
+     */
+    String snippet(Part message) throws MessagingException, IOException {
+        Part text = firstPart(message, "text/plain");
+        boolean html = false;
+        if (text == null) {
+            text = firstPart(message, "text/html");
+            html = text != null;
+        }
+        if (text == null) {
+            return "";
+        }
+
+        byte[] head;
+        try (InputStream in = text.getInputStream()) {
+            head = in.readNBytes(SNIPPET_SOURCE_BYTES);
+        }
+        String content = new String(head, charsetOf(text));
+        if (html) {
+            String visible = HTML_TAG.matcher(HTML_HIDDEN.matcher(content).replaceAll(" ")).replaceAll(" ");
+            content = HTML_ENTITY.matcher(visible).replaceAll(match -> Matcher.quoteReplacement(decodeEntity(match.group(1))));
+        }
+        String collapsed = WHITESPACE.matcher(content).replaceAll(" ").strip();
+        if (collapsed.length() <= SNIPPET_LENGTH) {
+            return collapsed;
+        }
+        int cut = collapsed.lastIndexOf(' ', SNIPPET_LENGTH);
+        return collapsed.substring(0, cut > SNIPPET_LENGTH / 2 ? cut : SNIPPET_LENGTH);
+    }
+
+    private static String decodeEntity(String entity) {
+        if (entity.startsWith("#")) {
+            try {
+                int codePoint = entity.startsWith("#x") || entity.startsWith("#X")
+                        ? Integer.parseInt(entity.substring(2), 16)
+                        : Integer.parseInt(entity.substring(1));
+                return Character.isValidCodePoint(codePoint) ? Character.toString(codePoint) : " ";
+            } catch (NumberFormatException ex) {
+                return " ";
+            }
+        }
+        return switch (entity.toLowerCase(Locale.ROOT)) {
+            case "amp" -> "&";
+            case "lt" -> "<";
+            case "gt" -> ">";
+            case "quot" -> "\"";
+            case "apos" -> "'";
+            default -> " ";
+        };
+    }
+
+    /**
+     * Depth-first search for a non-attachment part of {@code mimeType}; on an IMAP message this walks the
+     * prefetched BODYSTRUCTURE without downloading any content.
+     */
+    private static Part firstPart(Part part, String mimeType) throws MessagingException, IOException {
+        if (part.isMimeType("multipart/*")) {
+            if (part.getContent() instanceof Multipart multipart) {
+                for (int i = 0; i < multipart.getCount(); i++) {
+                    Part found = firstPart(multipart.getBodyPart(i), mimeType);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            }
+            return null;
+        }
+        return part.isMimeType(mimeType) && !Part.ATTACHMENT.equalsIgnoreCase(part.getDisposition()) ? part : null;
+    }
+
+    private static Charset charsetOf(Part part) {
+        try {
+            String charset = new ContentType(part.getContentType()).getParameter("charset");
+            // Unlabelled text is meant to be ASCII, which UTF-8 decodes the same; it is usually UTF-8 in practice
+            return charset != null ? Charset.forName(MimeUtility.javaCharset(charset)) : StandardCharsets.UTF_8;
+        } catch (MessagingException | IllegalArgumentException ex) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    EmailDetail parseEmailDetail(StoredEmail storedEmail) throws MessagingException, IOException {
+        // If raw message is available, parse it for full details
+        if (storedEmail.rawMessage() != null && storedEmail.rawMessage().length > 0) {
+            MimeParseEvent event = new MimeParseEvent();
+            event.begin();
+            try {
+                Message message = new MimeMessage(parsingSession, storedEmail.rawMessageStream());
+
+                String body = extractTextBody(message, event);
+                List<String> to = extractAddresses(message.getRecipients(Message.RecipientType.TO));
+                List<String> cc = extractAddresses(message.getRecipients(Message.RecipientType.CC));
+
+                return new EmailDetail(
+                        storedEmail.id(),
+                        storedEmail.from(),
+                        storedEmail.subject(),
+                        body,
+                        storedEmail.receivedAt(),
+                        storedEmail.unread(),
+                        to,
+                        cc
+                );
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.messageSize = storedEmail.rawMessage().length;
+                    event.commit();
+                }
+            }
+        } else {
+            // Fallback: return basic info without body if raw message not available
+            return new EmailDetail(
+                    storedEmail.id(),
+                    storedEmail.from(),
+                    storedEmail.subject(),
+                    "Email content not available (unable to fetch from server)",
+                    storedEmail.receivedAt(),
+                    storedEmail.unread(),
+                    List.of(),
+                    List.of()
+            );
+        }
+    }
+
+    String extractTextBody(Part part, MimeParseEvent event) throws MessagingException, IOException {
+        event.partCount++;
+        if (part.isMimeType("text/plain")) {
+            return part.getContent().toString();
+        } else if (part.isMimeType("text/html")) {
+            // Return HTML as-is for now, could be rendered in frontend
+            return part.getContent().toString();
+        } else if (part.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            StringBuilder result = new StringBuilder();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                BodyPart bodyPart = multipart.getBodyPart(i);
+                String partText = extractTextBody(bodyPart, event);
+                if (partText != null && !partText.isEmpty()) {
+                    result.append(partText);
+                    // Prefer plain text, return early if found
+                    if (bodyPart.isMimeType("text/plain")) {
+                        return partText;
+                    }
+                }
+            }
+            return result.toString();
+        }
+        return "";
+    }
+
+    boolean hasAttachments(Part part) throws MessagingException, IOException {
+        if (part.isMimeType("multipart/*")) {
+            if (part.getContent() instanceof Multipart multipart) {
+                for (int i = 0; i < multipart.getCount(); i++) {
+                    if (hasAttachments(multipart.getBodyPart(i))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        String disposition = part.getDisposition();
+        if (Part.ATTACHMENT.equalsIgnoreCase(disposition)) {
+            return true;
+        }
+        return !(part instanceof Message) && part.getFileName() != null && !Part.INLINE.equalsIgnoreCase(disposition);
+    }
+
+    static String getMessageId(Message message) throws MessagingException {
+        if (message == null) {
+            return null;
+        }
+        if (message instanceof MimeMessage mimeMessage) {
+            String messageId = mimeMessage.getMessageID();
+            if (messageId != null && !messageId.isBlank()) {
+                return messageId;
+            }
+        }
+        String[] headers = message.getHeader("Message-ID");
+        if (headers != null) {
+            for (String header : headers) {
+                if (header != null && !header.isBlank()) {
+                    return header;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static ThreadHeaders threadHeaders(Message message) throws MessagingException {
+        return new ThreadHeaders(getMessageId(message),
+                firstHeader(message, "In-Reply-To"),
+                firstHeader(message, "References"));
+    }
+
+    private static String firstHeader(Message message, String name) throws MessagingException {
+        String[] values = message.getHeader(name);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    private static List<String> extractAddresses(Address[] addresses) {
+        if (addresses == null) {
+            return List.of();
+        }
+        return Arrays.stream(addresses)
+                .map(MessageConverter::displayAddress)
+                .toList();
+    }
+
+    private static String firstAddress(Address[] addresses) {
+        return addresses != null && addresses.length > 0 ? displayAddress(addresses[0]) : "unknown";
+    }
+
+    private static String displayAddress(Address address) {
+        if (address instanceof InternetAddress internetAddress) {
+            return internetAddress.toUnicodeString();
+        }
+        return address.toString();
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Date date) {
+        return date != null ? date.toInstant().atZone(ZoneId.systemDefault()).toOffsetDateTime() : null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.emailclient.backend.email;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Parsing a cached raw message into an {@code EmailDetail}, including the walk over its parts for the body.
+ */
+@Name("com.emailclient.MimeParse")
+@Label("MIME Parse")
+@Category({"Email Client", "MIME"})
+@Description("Parsing of a stored message and extraction of its text body")
+@StackTrace(false)
+final class MimeParseEvent extends jdk.jfr.Event {
+
+    @Label("Message Size")
+    @DataAmount
+    long messageSize;
+
+    @Label("Part Count")
+    int partCount;
+}
@@ -0,0 +1,82 @@
+package com.emailclient.backend.email;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Serves {@code /metrics} in the Prometheus text format on {@code email-client.metrics.prometheus-port}. The
+ * backend runs no web server of its own, so the actuator endpoint is not reachable; this small listener gives
+ * scrapers the same registry without pulling in a servlet container. A port of zero disables it.
+ */
+@Component
+public class PrometheusScrapeServer {
+
+    private static final Logger log = LoggerFactory.getLogger(PrometheusScrapeServer.class);
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final int port;
+    private final ObjectProvider<PrometheusMeterRegistry> registryProvider;
+    private HttpServer server;
+
+    public PrometheusScrapeServer(EmailClientProperties properties,
+                                  ObjectProvider<PrometheusMeterRegistry> registryProvider) {
+        this.port = properties.getMetrics().getPrometheusPort();
+        this.registryProvider = Objects.requireNonNull(registryProvider, "registryProvider");
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (port == 0) {
+            log.info("Prometheus scrape endpoint disabled");
+            return;
+        }
+        PrometheusMeterRegistry registry = registryProvider.getIfAvailable();
+        if (registry == null) {
+            log.warn("Prometheus scrape endpoint not started: Prometheus metrics export is disabled");
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> scrape(exchange, registry));
+        server.start();
+        log.info("Serving Prometheus metrics on port {}", server.getAddress().getPort());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    int boundPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    private static void scrape(HttpExchange exchange, PrometheusMeterRegistry registry) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
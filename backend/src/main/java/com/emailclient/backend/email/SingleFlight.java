@@ -0,0 +1,89 @@
+package com.emailclient.backend.email;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Collapses concurrent calls for the same key into one in-flight IMAP operation. The first caller runs it and
+ * every caller that arrives before it finishes waits for and shares its result or failure. Nothing is cached
+ * afterwards: the next call for the key starts a new operation.
+ *
+ * <p>The one exception is a leader whose own RPC was abandoned: its {@link CallAbandonedException} says nothing
+ * about the operation, so waiting callers that are still live start over instead of sharing it.</p>
+ */
+final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    SingleFlight(String operation, MeterRegistry meterRegistry) {
+        this.executed = Counter.builder("email.imap.singleflight.calls")
+                .tag("operation", operation)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("email.imap.singleflight.calls")
+                .description("Calls that joined an identical in-flight IMAP operation instead of starting their own")
+                .tag("operation", operation)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+    }
+
+    V execute(K key, ImapCall<V> call) throws MessagingException, IOException {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing;
+        while ((existing = inFlight.putIfAbsent(key, flight)) != null) {
+            coalesced.increment();
+            try {
+                return await(existing);
+            } catch (CallAbandonedException ex) {
+                if (CallDeadline.isAbandoned()) {
+                    throw ex;
+                }
+            }
+        }
+
+        executed.increment();
+        try {
+            V result = call.run();
+            flight.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private V await(CompletableFuture<V> flight) throws MessagingException, IOException {
+        try {
+            return flight.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an in-flight IMAP operation", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof MessagingException messagingException) {
+                throw messagingException;
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new MessagingException("In-flight IMAP operation failed", (Exception) cause);
+        }
+    }
+}
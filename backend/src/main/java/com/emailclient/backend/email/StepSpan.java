@@ -0,0 +1,54 @@
+package com.emailclient.backend.email;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+
+/**
+ * A tracing span around one step of a request, opened as the current span so nested steps and IMAP or SQL
+ * commands become its children. Use it as a try-with-resources resource; {@link #close()} ends the span.
+ *
+ * <p>Steps only join a trace that is already in progress, normally the one the gRPC call started from the
+ * client's metadata. Background syncs and other work outside a call get a no-op step, so every scheduled
+ * refresh does not turn into a trace of its own.</p>
+ */
+public final class StepSpan implements AutoCloseable {
+
+    private static final StepSpan NONE = new StepSpan(null, null);
+
+    private final Span span;
+    private final Tracer.SpanInScope scope;
+
+    private StepSpan(Span span, Tracer.SpanInScope scope) {
+        this.span = span;
+        this.scope = scope;
+    }
+
+    public static StepSpan start(Tracer tracer, String name) {
+        if (tracer.currentSpan() == null) {
+            return NONE;
+        }
+        Span span = tracer.nextSpan().name(name).start();
+        return new StepSpan(span, tracer.withSpan(span));
+    }
+
+    public StepSpan tag(String key, String value) {
+        if (span != null && value != null) {
+            span.tag(key, value);
+        }
+        return this;
+    }
+
+    public void fail(Throwable error) {
+        if (span != null) {
+            span.error(error);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (span != null) {
+            scope.close();
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.emailclient.backend.email.account;
+
+import io.grpc.Context;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Carries the account a call operates on. The gRPC layer binds it per call; everything below reads it from here
+ * instead of threading an account id through every signature. Without a binding the configured default
+ * account is used, which keeps single-mailbox deployments working unchanged.
+ *
+ * <p>The binding lives in the gRPC {@link Context}, so work handed to another thread only sees it when submitted
+ * through {@link #propagating(Executor)}.</p>
+ */
+public final class AccountContext {
+
+    public static final String DEFAULT_ACCOUNT_ID = "default";
+
+    private static final Context.Key<String> ACCOUNT_ID = Context.key("email-account-id");
+
+    private AccountContext() {
+    }
+
+    public static String currentAccountId() {
+        String accountId = ACCOUNT_ID.get();
+        return accountId != null ? accountId : DEFAULT_ACCOUNT_ID;
+    }
+
+    public static Context withAccount(String accountId) {
+        return Context.current().withValue(ACCOUNT_ID, accountId);
+    }
+
+    public static <T> T callAs(String accountId, Callable<T> task) throws Exception {
+        return withAccount(accountId).call(task);
+    }
+
+    public static void runAs(String accountId, Runnable task) {
+        withAccount(accountId).run(task);
+    }
+
+    /**
+     * Wraps {@code executor} so tasks run bound to the account of the thread that submitted them.
+     */
+    public static Executor propagating(Executor executor) {
+        return Context.currentContextExecutor(executor);
+    }
+}
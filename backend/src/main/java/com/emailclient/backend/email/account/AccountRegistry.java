@@ -0,0 +1,178 @@
+package com.emailclient.backend.email.account;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.crypto.SecretCrypto;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mailboxes served by this backend. The {@code email-client.imap} settings define the
+ * {@value AccountContext#DEFAULT_ACCOUNT_ID} account; every other account is a row in {@code email_accounts}
+ * whose password is stored encrypted with the crypto master key (see {@code SecretCryptoTool}).
+ */
+@Component
+public class AccountRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountRegistry.class);
+
+    private final DataSource dataSource;
+    private final EmailClientProperties properties;
+    private final SecretCrypto secretCrypto;
+    private final Map<String, EmailAccount> accounts = new ConcurrentHashMap<>();
+
+    public AccountRegistry(DataSource dataSource, EmailClientProperties properties, SecretCrypto secretCrypto) {
+        this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
+        this.properties = Objects.requireNonNull(properties, "properties");
+        this.secretCrypto = Objects.requireNonNull(secretCrypto, "secretCrypto");
+    }
+
+    @PostConstruct
+    public void initialize() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS email_accounts (
+                        account_id VARCHAR(64) PRIMARY KEY,
+                        imap_host TEXT NOT NULL,
+                        imap_port INTEGER NOT NULL,
+                        imap_ssl BOOLEAN NOT NULL DEFAULT TRUE,
+                        username TEXT NOT NULL,
+                        encrypted_password TEXT NOT NULL,
+                        password_iv TEXT NOT NULL,
+                        enabled BOOLEAN NOT NULL DEFAULT TRUE,
+                        created_at TIMESTAMP WITH TIME ZONE NOT NULL
+                    )
+                    """);
+            log.info("Email accounts table initialized");
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to initialize email accounts table", ex);
+        }
+    }
+
+    public Optional<EmailAccount> find(String accountId) {
+        if (accountId == null || accountId.isBlank()) {
+            return Optional.empty();
+        }
+        if (AccountContext.DEFAULT_ACCOUNT_ID.equals(accountId)) {
+            return Optional.ofNullable(defaultAccount());
+        }
+        EmailAccount cached = accounts.get(accountId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<EmailAccount> loaded = load(accountId);
+        loaded.ifPresent(account -> accounts.put(accountId, account));
+        return loaded;
+    }
+
+    /**
+     * Ids of the default account (when configured) and every enabled registered account.
+     */
+    public List<String> accountIds() {
+        List<String> ids = new ArrayList<>();
+        if (defaultAccount() != null) {
+            ids.add(AccountContext.DEFAULT_ACCOUNT_ID);
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT account_id FROM email_accounts WHERE enabled = TRUE ORDER BY account_id");
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getString("account_id"));
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to list email accounts", ex);
+        }
+        return ids;
+    }
+
+    /**
+     * Adds or replaces a registered account. The password must already be encrypted with the master key.
+     */
+    public void register(String accountId, String imapHost, int imapPort, boolean imapSsl, String username,
+                         String encryptedPassword, String passwordIv) {
+        if (AccountContext.DEFAULT_ACCOUNT_ID.equals(accountId)) {
+            throw new IllegalArgumentException("The default account is defined by the email-client.imap settings");
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement upsert = connection.prepareStatement("""
+                     INSERT INTO email_accounts (account_id, imap_host, imap_port, imap_ssl, username,
+                                                 encrypted_password, password_iv, enabled, created_at)
+                     VALUES (?, ?, ?, ?, ?, ?, ?, TRUE, ?)
+                     ON CONFLICT(account_id) DO UPDATE SET
+                         imap_host = EXCLUDED.imap_host,
+                         imap_port = EXCLUDED.imap_port,
+                         imap_ssl = EXCLUDED.imap_ssl,
+                         username = EXCLUDED.username,
+                         encrypted_password = EXCLUDED.encrypted_password,
+                         password_iv = EXCLUDED.password_iv,
+                         enabled = TRUE
+                     """)) {
+            upsert.setString(1, accountId);
+            upsert.setString(2, imapHost);
+            upsert.setInt(3, imapPort);
+            upsert.setBoolean(4, imapSsl);
+            upsert.setString(5, username);
+            upsert.setString(6, encryptedPassword);
+            upsert.setString(7, passwordIv);
+            upsert.setTimestamp(8, Timestamp.from(Instant.now()));
+            upsert.executeUpdate();
+            log.info("Registered email account {}", accountId);
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to register email account " + accountId, ex);
+        } finally {
+            accounts.remove(accountId);
+        }
+    }
+
+    private EmailAccount defaultAccount() {
+        EmailClientProperties.Imap imap = properties.getImap();
+        if (imap.getHost() == null || imap.getUsername() == null) {
+            return null;
+        }
+        return new EmailAccount(AccountContext.DEFAULT_ACCOUNT_ID, imap.getHost(), imap.getPort(), imap.isSsl(),
+                imap.getUsername(), imap.getPassword());
+    }
+
+    private Optional<EmailAccount> load(String accountId) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("""
+                     SELECT account_id, imap_host, imap_port, imap_ssl, username, encrypted_password, password_iv
+                     FROM email_accounts WHERE account_id = ? AND enabled = TRUE
+                     """)) {
+            statement.setString(1, accountId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new EmailAccount(
+                        resultSet.getString("account_id"),
+                        resultSet.getString("imap_host"),
+                        resultSet.getInt("imap_port"),
+                        resultSet.getBoolean("imap_ssl"),
+                        resultSet.getString("username"),
+                        secretCrypto.decrypt(resultSet.getString("encrypted_password"), resultSet.getString("password_iv"))));
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to load email account {}", accountId, ex);
+            return Optional.empty();
+        }
+    }
+}
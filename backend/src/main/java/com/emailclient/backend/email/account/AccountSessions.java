@@ -0,0 +1,89 @@
+package com.emailclient.backend.email.account;
+
+import com.emailclient.backend.email.CallDeadline;
+import jakarta.mail.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One JavaMail {@link Session}, and with it one IMAP connection pool configuration, per account. A session is
+ * rebuilt when the account's server settings change.
+ *
+ * <p>Calls with a deadline get a variant whose socket timeouts are cut down to the time the call has left,
+ * rounded up to whole seconds, so a read on a stalled connection gives up around when the client does. The
+ * variants are cached per account and second, which bounds them by the default read timeout.</p>
+ */
+@Component
+public class AccountSessions {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountSessions.class);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 15_000;
+    private static final int WRITE_TIMEOUT_MILLIS = 10_000;
+
+    private final Map<String, AccountSession> sessions = new ConcurrentHashMap<>();
+
+    public Session sessionFor(EmailAccount account) {
+        AccountSession accountSession = sessions.compute(account.id(), (id, existing) ->
+                existing != null && existing.servesSameServer(account)
+                        ? existing
+                        : new AccountSession(account, createSession(account, READ_TIMEOUT_MILLIS), new ConcurrentHashMap<>()));
+        return CallDeadline.remaining()
+                .map(remaining -> Math.clamp((remaining.toMillis() + 999) / 1000, 1, READ_TIMEOUT_MILLIS / 1000))
+                .filter(seconds -> seconds < READ_TIMEOUT_MILLIS / 1000)
+                .map(seconds -> accountSession.bounded().computeIfAbsent(seconds,
+                        bound -> createSession(account, bound * 1000)))
+                .orElse(accountSession.session());
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private static Session createSession(EmailAccount account, int timeoutCapMillis) {
+        Properties sessionProperties = new Properties();
+        String protocol = account.protocol();
+        sessionProperties.put("mail.store.protocol", protocol);
+        sessionProperties.put("mail." + protocol + ".host", account.imapHost());
+        sessionProperties.put("mail." + protocol + ".port", String.valueOf(account.imapPort()));
+        sessionProperties.put("mail." + protocol + ".ssl.enable", Boolean.toString(account.imapSsl()));
+        sessionProperties.put("mail." + protocol + ".auth", "true");
+        sessionProperties.put("mail.mime.address.strict", "false");
+
+        // Connection pooling and optimization to reduce throttling impact
+        sessionProperties.put("mail." + protocol + ".connectionpool.debug", "false");
+        sessionProperties.put("mail." + protocol + ".connectionpoolsize", "1");
+        sessionProperties.put("mail." + protocol + ".connectionpooltimeout", "45000"); // 45 seconds
+        sessionProperties.put("mail." + protocol + ".timeout", timeout(READ_TIMEOUT_MILLIS, timeoutCapMillis));
+        sessionProperties.put("mail." + protocol + ".connectiontimeout", timeout(CONNECT_TIMEOUT_MILLIS, timeoutCapMillis));
+        sessionProperties.put("mail." + protocol + ".writetimeout", timeout(WRITE_TIMEOUT_MILLIS, timeoutCapMillis));
+
+        // Optimize fetching to reduce server load
+        sessionProperties.put("mail." + protocol + ".fetchsize", "32768"); // 32KB fetch size
+        sessionProperties.put("mail." + protocol + ".partialfetch", "false");
+
+        Session session = Session.getInstance(sessionProperties);
+        session.setDebug(log.isDebugEnabled());
+        log.debug("Created IMAP session for account {} (timeouts capped at {}ms)", account.id(), timeoutCapMillis);
+        return session;
+    }
+
+    private static String timeout(int defaultMillis, int capMillis) {
+        return Integer.toString(Math.min(defaultMillis, capMillis));
+    }
+
+    private record AccountSession(EmailAccount account, Session session, Map<Integer, Session> bounded) {
+
+        boolean servesSameServer(EmailAccount other) {
+            return account.imapHost().equals(other.imapHost())
+                    && account.imapPort() == other.imapPort()
+                    && account.imapSsl() == other.imapSsl();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.emailclient.backend.email.account;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A caller authenticated by its bearer token, with the mailboxes it may use; {@value #ALL_ACCOUNTS} grants every
+ * account.
+ */
+public record ApiClient(String name, Set<String> accounts) {
+
+    public static final String ALL_ACCOUNTS = "*";
+
+    public ApiClient {
+        Objects.requireNonNull(name, "name");
+        accounts = Set.copyOf(accounts);
+    }
+
+    public boolean mayUse(String accountId) {
+        return accounts.contains(ALL_ACCOUNTS) || accounts.contains(accountId);
+    }
+
+    /**
+     * The account used when a call names none: the client's only account, if it is granted exactly one.
+     */
+    public String defaultAccount() {
+        if (accounts.size() == 1 && !accounts.contains(ALL_ACCOUNTS)) {
+            return accounts.iterator().next();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.emailclient.backend.email.account;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Callers allowed to use the API, configured under {@code email-client.auth.clients}. Each client is known by the
+ * SHA-256 of its bearer token, hex encoded, so the configuration holds no usable secret; a client without a token
+ * hash is ignored. Startup fails when no client is left, since every call would be refused.
+ */
+@Component
+public class ApiClients {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiClients.class);
+
+    private final Map<String, ApiClient> byTokenHash = new HashMap<>();
+
+    public ApiClients(EmailClientProperties properties) {
+        for (EmailClientProperties.Auth.Client client : Objects.requireNonNull(properties, "properties").getAuth().getClients()) {
+            if (client.getTokenSha256() == null || client.getTokenSha256().isBlank()) {
+                log.warn("API client {} has no token hash and cannot authenticate", client.getName());
+                continue;
+            }
+            byTokenHash.put(client.getTokenSha256().trim().toLowerCase(Locale.ROOT),
+                    new ApiClient(client.getName(), Set.copyOf(client.getAccounts())));
+        }
+        if (byTokenHash.isEmpty()) {
+            throw new IllegalStateException("No API client has a token hash, so every call would be rejected: set "
+                    + "email-client.auth.clients[].token-sha256 (EMAIL_CLIENT_WEB_TOKEN_SHA256 for the web client)");
+        }
+    }
+
+    public Optional<ApiClient> authenticate(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byTokenHash.get(sha256(token)));
+    }
+
+    /**
+     * Hex-encoded SHA-256 of {@code token}, the form configured as a client's {@code token-sha256}.
+     */
+    public static String sha256(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.emailclient.backend.email.account;
+
+import java.util.Objects;
+
+/**
+ * IMAP connection settings of one mailbox. The password is held decrypted, so {@link #toString()} leaves it out.
+ */
+public record EmailAccount(String id,
+                           String imapHost,
+                           int imapPort,
+                           boolean imapSsl,
+                           String username,
+                           String password) {
+
+    public EmailAccount {
+        Objects.requireNonNull(id, "id");
+        Objects.requireNonNull(imapHost, "imapHost");
+        Objects.requireNonNull(username, "username");
+    }
+
+    public String protocol() {
+        return imapSsl ? "imaps" : "imap";
+    }
+
+    @Override
+    public String toString() {
+        return "EmailAccount[id=%s, imapHost=%s, imapPort=%d, imapSsl=%s, username=%s]"
+                .formatted(id, imapHost, imapPort, imapSsl, username);
+    }
+}
@@ -0,0 +1,296 @@
+package com.emailclient.backend.email.contacts;
+
+import com.emailclient.backend.email.account.AccountContext;
+import com.emailclient.backend.email.dto.RecipientSuggestion;
+import com.emailclient.backend.email.storage.EmailContactStore;
+import com.emailclient.backend.email.storage.EmailContactStore.ContactRecord;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory prefix index over every address and display name seen during ingest.
+ *
+ * <p>Lookups binary-search both ends of the matching range in a sorted token array and then scan a parallel
+ * primitive score array, so a keystroke touches contact objects only for candidates that make the top list.
+ * The token array is only re-sorted when a new address or display name shows up; other updates just refresh
+ * the score array.</p>
+ *
+ * <p>Each account has its own index, loaded from the contact store the first time the account is used.</p>
+ */
+@Component
+public class RecipientIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(RecipientIndex.class);
+    private static final double RECENCY_HALF_LIFE_DAYS = 30.0;
+    private static final int MAX_SUGGESTIONS = 50;
+
+    private final EmailContactStore contactStore;
+    private final Map<String, AccountIndex> accounts = new ConcurrentHashMap<>();
+
+    public RecipientIndex(EmailContactStore contactStore) {
+        this.contactStore = Objects.requireNonNull(contactStore, "contactStore");
+    }
+
+    /**
+     * Drops every loaded account and reloads the default one; other accounts reload on their next use.
+     */
+    @PostConstruct
+    public void rebuild() {
+        accounts.clear();
+        indexFor(AccountContext.DEFAULT_ACCOUNT_ID);
+    }
+
+    /**
+     * Persists the sightings of messages not recorded before and folds the applied deltas into the index.
+     */
+    public void record(Map<String, List<ContactRecord>> sightingsByMessageKey) {
+        String accountId = AccountContext.currentAccountId();
+        AccountIndex index = indexFor(accountId);
+        List<ContactRecord> deltas = contactStore.recordSightings(accountId, sightingsByMessageKey);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        boolean structural = false;
+        for (ContactRecord delta : deltas) {
+            Contact existing = index.contacts.putIfAbsent(delta.address(), new Contact(delta));
+            if (existing == null) {
+                structural = true;
+            } else {
+                structural |= existing.apply(delta);
+            }
+        }
+
+        index.rebuildLock.lock();
+        try {
+            index.snapshot = structural ? Snapshot.build(index.contacts.values()) : index.snapshot.rescored();
+        } finally {
+            index.rebuildLock.unlock();
+        }
+    }
+
+    public List<RecipientSuggestion> suggest(String prefix, int limit) {
+        String normalized = prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        int effectiveLimit = limit <= 0 ? 10 : Math.min(limit, MAX_SUGGESTIONS);
+
+        return indexFor(AccountContext.currentAccountId()).snapshot.rank(normalized, effectiveLimit).stream()
+                .map(contact -> new RecipientSuggestion(contact.address, contact.displayName))
+                .toList();
+    }
+
+    public int size() {
+        return indexFor(AccountContext.currentAccountId()).contacts.size();
+    }
+
+    /**
+     * Contacts held in memory across every loaded account, without loading any account that is not.
+     */
+    public int loadedContacts() {
+        int total = 0;
+        for (AccountIndex index : accounts.values()) {
+            total += index.contacts.size();
+        }
+        return total;
+    }
+
+    private AccountIndex indexFor(String accountId) {
+        return accounts.computeIfAbsent(accountId, this::load);
+    }
+
+    private AccountIndex load(String accountId) {
+        AccountIndex index = new AccountIndex();
+        for (ContactRecord record : contactStore.loadAll(accountId)) {
+            index.contacts.put(record.address(), new Contact(record));
+        }
+        index.snapshot = Snapshot.build(index.contacts.values());
+        log.info("Recipient index for account {} rebuilt with {} contacts", accountId, index.contacts.size());
+        return index;
+    }
+
+    private static final class AccountIndex {
+
+        private final Map<String, Contact> contacts = new ConcurrentHashMap<>();
+        private final ReentrantLock rebuildLock = new ReentrantLock();
+        private volatile Snapshot snapshot = Snapshot.EMPTY;
+    }
+
+    private static final class Contact {
+
+        private final String address;
+        private final AtomicLong frequency;
+        private final AtomicLong lastSeenEpochSecond;
+        private volatile String displayName;
+        private volatile double score;
+
+        private Contact(ContactRecord record) {
+            this.address = record.address();
+            this.displayName = record.displayName();
+            this.frequency = new AtomicLong(record.frequency());
+            this.lastSeenEpochSecond = new AtomicLong(epochSecond(record.lastSeenAt()));
+            rescore();
+        }
+
+        /**
+         * Returns {@code true} when the display name changed, which changes the token set.
+         */
+        private boolean apply(ContactRecord delta) {
+            frequency.addAndGet(delta.frequency());
+            lastSeenEpochSecond.accumulateAndGet(epochSecond(delta.lastSeenAt()), Math::max);
+            rescore();
+            if (delta.displayName() != null && !delta.displayName().equals(displayName)) {
+                displayName = delta.displayName();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Frequency with exponential recency decay, kept in log space: ranking by
+         * {@code ln(1 + frequency) - age * ln2 / halfLife} is independent of the current time,
+         * so the score can be cached instead of recomputed per keystroke.
+         */
+        private void rescore() {
+            double lastSeenDays = lastSeenEpochSecond.get() / 86_400.0;
+            score = Math.log1p(frequency.get()) + lastSeenDays * Math.log(2) / RECENCY_HALF_LIFE_DAYS;
+        }
+
+        private double score() {
+            return score;
+        }
+
+        private Set<String> tokens() {
+            Set<String> tokens = new LinkedHashSet<>();
+            tokens.add(address);
+            int at = address.indexOf('@');
+            if (at >= 0 && at + 1 < address.length()) {
+                tokens.add(address.substring(at + 1));
+            }
+            String name = displayName;
+            if (name != null && !name.isBlank()) {
+                String lowerName = name.trim().toLowerCase(Locale.ROOT);
+                tokens.add(lowerName);
+                for (String word : lowerName.split("[\\s,.'\"()]+")) {
+                    if (!word.isEmpty()) {
+                        tokens.add(word);
+                    }
+                }
+            }
+            return tokens;
+        }
+
+        private static long epochSecond(OffsetDateTime dateTime) {
+            return dateTime == null ? 0L : dateTime.toEpochSecond();
+        }
+    }
+
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(new String[0], new Contact[0]);
+
+        private final String[] tokens;
+        private final Contact[] owners;
+        private final double[] scores;
+
+        private Snapshot(String[] tokens, Contact[] owners) {
+            this.tokens = tokens;
+            this.owners = owners;
+            this.scores = new double[owners.length];
+            for (int i = 0; i < owners.length; i++) {
+                scores[i] = owners[i].score();
+            }
+        }
+
+        private static Snapshot build(Collection<Contact> contacts) {
+            List<Map.Entry<String, Contact>> entries = new ArrayList<>(contacts.size() * 3);
+            for (Contact contact : contacts) {
+                for (String token : contact.tokens()) {
+                    entries.add(Map.entry(token, contact));
+                }
+            }
+            entries.sort(Map.Entry.comparingByKey());
+
+            String[] tokens = new String[entries.size()];
+            Contact[] owners = new Contact[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                tokens[i] = entries.get(i).getKey();
+                owners[i] = entries.get(i).getValue();
+            }
+            return new Snapshot(tokens, owners);
+        }
+
+        /**
+         * Same token order, fresh scores; linear instead of a full re-sort.
+         */
+        private Snapshot rescored() {
+            return new Snapshot(tokens, owners);
+        }
+
+        /**
+         * Keeps the best {@code limit} contacts of the matching range in a min-heap. Only candidates that beat
+         * the heap minimum are dereferenced and checked for duplicates (a contact owns several tokens).
+         */
+        private List<Contact> rank(String prefix, int limit) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+
+            PriorityQueue<Contact> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Contact::score));
+            Set<Contact> members = new HashSet<>();
+            double threshold = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                if (scores[i] <= threshold) {
+                    continue;
+                }
+                Contact candidate = owners[i];
+                if (!members.add(candidate)) {
+                    continue;
+                }
+                best.add(candidate);
+                if (best.size() > limit) {
+                    members.remove(best.poll());
+                }
+                if (best.size() == limit) {
+                    threshold = best.peek().score();
+                }
+            }
+
+            List<Contact> ranked = new ArrayList<>(best);
+            ranked.sort(Comparator.comparingDouble(Contact::score).reversed());
+            return ranked;
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = tokens.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (tokens[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.emailclient.backend.email.dto;
+
+import com.emailclient.backend.email.EmailAddresses;
+
+import java.time.OffsetDateTime;
+
+public record EmailFilter(
+        String senderEmail,
+        OffsetDateTime receivedAfter,
+        OffsetDateTime receivedBefore,
+        boolean unreadOnly,
+        boolean hasAttachments,
+        String folder
+) {
+
+    private static final EmailFilter NONE = new EmailFilter(null, null, null, false, false, null);
+
+    public EmailFilter {
+        senderEmail = EmailAddresses.normalize(senderEmail);
+        folder = folder == null || folder.isBlank() ? null : folder.trim();
+    }
+
+    public static EmailFilter none() {
+        return NONE;
+    }
+}
@@ -2,12 +2,19 @@ package com.emailclient.backend.email.dto;
 
 import java.time.OffsetDateTime;
 
+/**
+ * One row of a listing. {@code snippet} is the start of the message text, or {@code null} until the message
+ * has been synced or opened since snippets were introduced; {@code sizeBytes} is 0 when unknown.
+ */
 public record EmailPreview(
         String id,
         String from,
         String subject,
         OffsetDateTime receivedAt,
-        boolean unread
+        boolean unread,
+        String snippet,
+        long sizeBytes,
+        boolean hasAttachments,
+        boolean starred
 ) {
 }
-
@@ -0,0 +1,13 @@
+package com.emailclient.backend.email.dto;
+
+import java.util.List;
+
+public record EmailThread(
+        EmailThreadSummary summary,
+        List<EmailDetail> messages
+) {
+
+    public EmailThread {
+        messages = messages == null ? List.of() : List.copyOf(messages);
+    }
+}
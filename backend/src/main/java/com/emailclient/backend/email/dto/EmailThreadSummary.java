@@ -0,0 +1,18 @@
+package com.emailclient.backend.email.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public record EmailThreadSummary(
+        String threadId,
+        String subject,
+        OffsetDateTime latestAt,
+        List<String> participants,
+        int messageCount,
+        int unreadCount
+) {
+
+    public EmailThreadSummary {
+        participants = participants == null ? List.of() : List.copyOf(participants);
+    }
+}
@@ -0,0 +1,32 @@
+package com.emailclient.backend.email.dto;
+
+import java.util.List;
+
+/**
+ * Inbox listing relative to a client's last seen mailbox version. A full result replaces the client's list;
+ * otherwise {@code changed} is merged in and {@code removedIds} dropped.
+ */
+public record MailboxDelta(
+        long version,
+        boolean full,
+        List<EmailPreview> changed,
+        List<String> removedIds
+) {
+
+    public MailboxDelta {
+        changed = changed == null ? List.of() : List.copyOf(changed);
+        removedIds = removedIds == null ? List.of() : List.copyOf(removedIds);
+    }
+
+    public static MailboxDelta full(long version, List<EmailPreview> previews) {
+        return new MailboxDelta(version, true, previews, List.of());
+    }
+
+    public static MailboxDelta notModified(long version) {
+        return new MailboxDelta(version, false, List.of(), List.of());
+    }
+
+    public boolean notModified() {
+        return !full && changed.isEmpty() && removedIds.isEmpty();
+    }
+}
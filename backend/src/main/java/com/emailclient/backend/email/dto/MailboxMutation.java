@@ -0,0 +1,56 @@
+package com.emailclient.backend.email.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A mailbox action already applied to the offline store and journaled for replay to IMAP. Entries of a message
+ * replay in {@code seq} order; a replayed entry leaves the journal, so whatever is listed is still pending or
+ * needs the user's attention.
+ */
+public record MailboxMutation(
+        long seq,
+        String emailId,
+        Operation operation,
+        String messageIdHeader,
+        String folder,
+        Status status,
+        int attempts,
+        String lastError,
+        OffsetDateTime createdAt,
+        OffsetDateTime nextAttemptAt
+) {
+
+    public enum Operation {
+        /**
+         * Move from its folder to the trash folder.
+         */
+        TRASH,
+        /**
+         * Move from the trash folder back to the inbox.
+         */
+        RESTORE,
+        /**
+         * Move to the trash folder if it is elsewhere, then remove it from its folder.
+         */
+        DELETE,
+        /**
+         * Remove from the trash folder for good.
+         */
+        PURGE
+    }
+
+    public enum Status {
+        /**
+         * Waiting for its first or next attempt.
+         */
+        PENDING,
+        /**
+         * Gave up after repeated errors; the local change stays.
+         */
+        FAILED,
+        /**
+         * The server no longer holds the message where the action expects it.
+         */
+        CONFLICT
+    }
+}
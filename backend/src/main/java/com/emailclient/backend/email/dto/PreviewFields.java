@@ -0,0 +1,23 @@
+package com.emailclient.backend.email.dto;
+
+/**
+ * The {@link EmailPreview} fields a caller will read. Fields left out are not loaded and come back as
+ * {@code null}, {@code false} or 0; the id is always loaded.
+ */
+public record PreviewFields(
+        boolean from,
+        boolean subject,
+        boolean receivedAt,
+        boolean unread,
+        boolean snippet,
+        boolean sizeBytes,
+        boolean hasAttachments,
+        boolean starred
+) {
+
+    private static final PreviewFields ALL = new PreviewFields(true, true, true, true, true, true, true, true);
+
+    public static PreviewFields all() {
+        return ALL;
+    }
+}
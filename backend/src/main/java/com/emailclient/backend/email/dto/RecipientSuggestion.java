@@ -0,0 +1,7 @@
+package com.emailclient.backend.email.dto;
+
+public record RecipientSuggestion(
+        String address,
+        String displayName
+) {
+}
@@ -0,0 +1,13 @@
+package com.emailclient.backend.email.dto;
+
+import java.util.List;
+
+public record ThreadPage(
+        List<EmailThreadSummary> threads,
+        String nextPageToken
+) {
+
+    public ThreadPage {
+        threads = threads == null ? List.of() : List.copyOf(threads);
+    }
+}
@@ -0,0 +1,47 @@
+package com.emailclient.backend.email.grpc;
+
+import io.grpc.Context;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Counts calls that ended before their handler answered, because the client cancelled or the deadline passed.
+ * The handler's own work is cut short through {@link com.emailclient.backend.email.CallDeadline}; this is the
+ * per-method view of how often that happens.
+ */
+public class AbandonedCallInterceptor implements ServerInterceptor {
+
+    private final MeterRegistry meterRegistry;
+
+    public AbandonedCallInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry");
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        Context context = Context.current();
+        String method = call.getMethodDescriptor().getBareMethodName();
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(next.startCall(call, headers)) {
+            @Override
+            public void onCancel() {
+                Counter.builder("email.grpc.calls.abandoned")
+                        .description("Calls cancelled by the client or by their deadline before a response was sent")
+                        .tag("method", method)
+                        .tag("reason", context.cancellationCause() instanceof TimeoutException ? "deadline" : "cancelled")
+                        .register(meterRegistry)
+                        .increment();
+                super.onCancel();
+            }
+        };
+    }
+}
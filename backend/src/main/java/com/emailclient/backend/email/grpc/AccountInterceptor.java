@@ -0,0 +1,76 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.account.AccountContext;
+import com.emailclient.backend.email.account.AccountRegistry;
+import com.emailclient.backend.email.account.ApiClient;
+import com.emailclient.backend.email.account.ApiClients;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Authenticates each call by the bearer token in its {@code authorization} header and binds it to the account
+ * named in its {@value #ACCOUNT_HEADER} header, or to the caller's only account when it names none. Calls are
+ * rejected before reaching a handler when the token is missing or unknown ({@code UNAUTHENTICATED}), when the
+ * caller may not use the account ({@code PERMISSION_DENIED}) and when the account is unknown or disabled
+ * ({@code NOT_FOUND}); the account's existence is only revealed to callers allowed to use it.
+ */
+public class AccountInterceptor implements ServerInterceptor {
+
+    static final String ACCOUNT_HEADER = "x-account-id";
+    static final Metadata.Key<String> ACCOUNT_ID = Metadata.Key.of(ACCOUNT_HEADER, Metadata.ASCII_STRING_MARSHALLER);
+    static final Metadata.Key<String> AUTHORIZATION = Metadata.Key.of("authorization", Metadata.ASCII_STRING_MARSHALLER);
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final ApiClients apiClients;
+    private final AccountRegistry accountRegistry;
+
+    public AccountInterceptor(ApiClients apiClients, AccountRegistry accountRegistry) {
+        this.apiClients = Objects.requireNonNull(apiClients, "apiClients");
+        this.accountRegistry = Objects.requireNonNull(accountRegistry, "accountRegistry");
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        Optional<ApiClient> client = apiClients.authenticate(bearerToken(headers.get(AUTHORIZATION)));
+        if (client.isEmpty()) {
+            return reject(call, Status.UNAUTHENTICATED.withDescription("Missing or invalid bearer token"));
+        }
+
+        String accountId = headers.get(ACCOUNT_ID);
+        if (accountId == null || accountId.isBlank()) {
+            accountId = client.get().defaultAccount();
+            if (accountId == null) {
+                return reject(call, Status.INVALID_ARGUMENT.withDescription(ACCOUNT_HEADER + " header is required"));
+            }
+        }
+        if (!client.get().mayUse(accountId)) {
+            return reject(call, Status.PERMISSION_DENIED.withDescription("Account not permitted"));
+        }
+        if (accountRegistry.find(accountId).isEmpty()) {
+            return reject(call, Status.NOT_FOUND.withDescription("Unknown account"));
+        }
+        return Contexts.interceptCall(AccountContext.withAccount(accountId), call, headers, next);
+    }
+
+    private static String bearerToken(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        return authorization.substring(BEARER_PREFIX.length()).trim();
+    }
+
+    private static <ReqT, RespT> ServerCall.Listener<ReqT> reject(ServerCall<ReqT, RespT> call, Status status) {
+        call.close(status, new Metadata());
+        return new ServerCall.Listener<>() {
+        };
+    }
+}
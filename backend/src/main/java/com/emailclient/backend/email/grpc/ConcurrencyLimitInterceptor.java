@@ -0,0 +1,195 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sheds load before it reaches a handler. Calls are split into two tiers with their own {@link GradientLimit}:
+ * calls answered from the offline store, and calls that may open an IMAP or SMTP connection, so a backlog of
+ * slow mailbox work cannot crowd out listings that would return in milliseconds. Methods can additionally be
+ * given a fixed in-flight budget through {@code email-client.grpc.method-concurrency-limits}.
+ *
+ * <p>Calls over either limit are closed at once with {@code RESOURCE_EXHAUSTED} and a
+ * {@value #RETRY_PUSHBACK_HEADER} trailer set to the tier's average latency, which gRPC retry policies honour as
+ * the delay before trying again.</p>
+ */
+public class ConcurrencyLimitInterceptor implements ServerInterceptor {
+
+    static final String RETRY_PUSHBACK_HEADER = "grpc-retry-pushback-ms";
+    static final Metadata.Key<String> RETRY_PUSHBACK = Metadata.Key.of(RETRY_PUSHBACK_HEADER, Metadata.ASCII_STRING_MARSHALLER);
+    private static final Duration MIN_PUSHBACK = Duration.ofMillis(50);
+    private static final Duration MAX_PUSHBACK = Duration.ofSeconds(5);
+
+    enum Tier {
+        CACHED_READ,
+        REMOTE
+    }
+
+    private static final Set<String> CACHED_READ_METHODS = Set.of(
+            EmailServiceGrpc.getListTrashMethod().getFullMethodName(),
+            EmailServiceGrpc.getListThreadsMethod().getFullMethodName(),
+            EmailServiceGrpc.getGetThreadMethod().getFullMethodName(),
+            EmailServiceGrpc.getSuggestRecipientsMethod().getFullMethodName(),
+            EmailServiceGrpc.getUpdateFlagsMethod().getFullMethodName(),
+            EmailServiceGrpc.getDeleteEmailMethod().getFullMethodName(),
+            EmailServiceGrpc.getPermanentlyDeleteMethod().getFullMethodName(),
+            EmailServiceGrpc.getListMailboxMutationsMethod().getFullMethodName());
+
+    private final Map<Tier, GradientLimit> limits = new EnumMap<>(Tier.class);
+    private final Map<String, Semaphore> methodBudgets = new HashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitInterceptor(EmailClientProperties properties, MeterRegistry meterRegistry) {
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry");
+        EmailClientProperties.Grpc grpc = properties.getGrpc();
+        limits.put(Tier.CACHED_READ, limitUpTo(grpc.getCachedReadConcurrencyLimit()));
+        limits.put(Tier.REMOTE, limitUpTo(grpc.getRemoteConcurrencyLimit()));
+        grpc.getMethodConcurrencyLimits().forEach((method, budget) -> methodBudgets.put(method, new Semaphore(budget)));
+
+        limits.forEach((tier, limit) -> {
+            String tag = tier.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("email.grpc.concurrency.limit", limit, GradientLimit::limit)
+                    .tag("tier", tag)
+                    .register(meterRegistry);
+            Gauge.builder("email.grpc.concurrency.in.flight", limit, GradientLimit::inFlight)
+                    .tag("tier", tag)
+                    .register(meterRegistry);
+        });
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        Tier tier = tierOf(call.getMethodDescriptor().getFullMethodName());
+        String method = call.getMethodDescriptor().getBareMethodName();
+        GradientLimit limit = limits.get(tier);
+        Semaphore budget = methodBudgets.get(method);
+
+        if (!limit.tryAcquire()) {
+            return reject(call, tier, method, limit);
+        }
+        if (budget != null && !budget.tryAcquire()) {
+            limit.release(-1, false);
+            return reject(call, tier, method, limit);
+        }
+
+        Permit permit = new Permit(limit, budget, System.nanoTime());
+        ServerCall<ReqT, RespT> tracked = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                permit.complete(status);
+                super.close(status, trailers);
+            }
+        };
+        ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(tracked, headers);
+        } catch (RuntimeException ex) {
+            permit.abandon();
+            throw ex;
+        }
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(listener) {
+            @Override
+            public void onCancel() {
+                permit.abandon();
+                super.onCancel();
+            }
+
+            @Override
+            public void onComplete() {
+                permit.abandon();
+                super.onComplete();
+            }
+        };
+    }
+
+    static Tier tierOf(String fullMethodName) {
+        return CACHED_READ_METHODS.contains(fullMethodName) ? Tier.CACHED_READ : Tier.REMOTE;
+    }
+
+    int currentLimit(Tier tier) {
+        return limits.get(tier).limit();
+    }
+
+    private <ReqT, RespT> ServerCall.Listener<ReqT> reject(ServerCall<ReqT, RespT> call, Tier tier, String method,
+                                                           GradientLimit limit) {
+        rejections.computeIfAbsent(tier + "/" + method, key -> Counter.builder("email.grpc.rejected")
+                        .description("Calls shed because their tier or method was at its concurrency limit")
+                        .tag("tier", tier.name().toLowerCase(Locale.ROOT))
+                        .tag("method", method)
+                        .register(meterRegistry))
+                .increment();
+
+        long pushbackMillis = Math.clamp(Duration.ofNanos(limit.averageRttNanos()).toMillis(),
+                MIN_PUSHBACK.toMillis(), MAX_PUSHBACK.toMillis());
+        Metadata trailers = new Metadata();
+        trailers.put(RETRY_PUSHBACK, Long.toString(pushbackMillis));
+        call.close(Status.RESOURCE_EXHAUSTED.withDescription("Server is busy, retry later"), trailers);
+        return new ServerCall.Listener<>() {
+        };
+    }
+
+    private static GradientLimit limitUpTo(int maxLimit) {
+        return new GradientLimit(Math.max(1, maxLimit / 2), Math.max(1, maxLimit / 8), maxLimit);
+    }
+
+    /**
+     * One admitted call's slots. The call can end through {@code close}, a client cancel, or a handler that
+     * threw, in any combination, so the first of them releases and the rest are no-ops.
+     */
+    private static final class Permit {
+
+        private final GradientLimit limit;
+        private final Semaphore budget;
+        private final long startedNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(GradientLimit limit, Semaphore budget, long startedNanos) {
+            this.limit = limit;
+            this.budget = budget;
+            this.startedNanos = startedNanos;
+        }
+
+        void complete(Status status) {
+            Status.Code code = status.getCode();
+            boolean dropped = code == Status.Code.RESOURCE_EXHAUSTED || code == Status.Code.DEADLINE_EXCEEDED;
+            release(code == Status.Code.CANCELLED ? -1 : System.nanoTime() - startedNanos, dropped);
+        }
+
+        void abandon() {
+            release(-1, false);
+        }
+
+        private void release(long rttNanos, boolean dropped) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            if (budget != null) {
+                budget.release();
+            }
+            limit.release(rttNanos, dropped);
+        }
+    }
+}
@@ -1,210 +1,368 @@
 package com.emailclient.backend.email.grpc;
 
+import com.emailclient.backend.email.AsyncEmailService;
 import com.emailclient.backend.email.dto.EmailDetail;
+import com.emailclient.backend.email.dto.EmailFilter;
 import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.dto.EmailThread;
+import com.emailclient.backend.email.dto.EmailThreadSummary;
+import com.emailclient.backend.email.dto.MailboxMutation;
+import com.emailclient.backend.email.dto.RecipientSuggestion;
 import com.emailclient.backend.email.dto.SendEmailRequest;
+import com.google.protobuf.FieldMask;
 import com.google.protobuf.Timestamp;
 import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
-import net.devh.boot.grpc.server.service.GrpcService;
+import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-@GrpcService
+/**
+ * Registered with the gRPC server through {@link GrpcServerConfiguration}, which installs the listing
+ * response cache on the bound service definition. Handlers hand their work to {@link AsyncEmailService} and
+ * complete the response observer from its callbacks, so no call thread waits on IMAP or the database.
+ */
+@Component
 public class EmailGrpcService extends EmailServiceGrpc.EmailServiceImplBase {
 
-    private final com.emailclient.backend.email.EmailService emailService;
+    private final AsyncEmailService emailService;
+    private final ListingResponseCache responseCache;
 
-    public EmailGrpcService(com.emailclient.backend.email.EmailService emailService) {
+    public EmailGrpcService(AsyncEmailService emailService, ListingResponseCache responseCache) {
         this.emailService = emailService;
+        this.responseCache = responseCache;
     }
 
     @Override
     public void listInbox(ListInboxRequest request, StreamObserver<ListInboxResponse> responseObserver) {
-        try {
-            List<EmailPreview> previews = emailService.listInbox();
-            ListInboxResponse response = ListInboxResponse.newBuilder()
-                    .addAllEmails(previews.stream().map(this::toProto).toList())
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-        } catch (Exception ex) {
-            responseObserver.onError(Status.INTERNAL
-                    .withDescription("Unable to fetch inbox")
-                    .withCause(ex)
-                    .asRuntimeException());
-        }
+        // A recently synced inbox is listed from the cache or the store without waiting on IMAP
+        respond(() -> (emailService.inboxStale()
+                        ? emailService.refreshInbox()
+                        : CompletableFuture.completedFuture(emailService.imapAvailable()))
+                        .thenCompose(refreshed -> responseCache.getAsync("ListInbox", request, emailService.mailboxVersion(),
+                                        () -> buildInboxResponse(request))
+                                // Flagged on a copy so the cached instance keeps its pre-encoded bytes
+                                .thenApply(response -> refreshed ? response : response.toBuilder().setDegraded(true).build())),
+                response -> response, responseObserver, "Unable to fetch inbox");
+    }
+
+    private CompletableFuture<ListInboxResponse> buildInboxResponse(ListInboxRequest request) {
+        ReadMask mask = previewMask(request.getReadMask());
+        EmailFilter filter = toFilter(request.getFilter());
+        return emailService.listInboxChanges(filter, request.getSinceVersion(), mask.previewFields()).thenApply(delta -> {
+            ListInboxResponse.Builder response = ListInboxResponse.newBuilder()
+                    .setVersion(delta.version());
+            if (delta.notModified()) {
+                response.setNotModified(true);
+            } else {
+                response.setDelta(!delta.full())
+                        .addAllEmails(delta.changed().stream().map(preview -> toProto(preview, mask)).toList())
+                        .addAllRemovedIds(delta.removedIds());
+            }
+            return response.build();
+        });
     }
 
     @Override
     public void listSent(ListSentRequest request, StreamObserver<ListSentResponse> responseObserver) {
-        try {
-            List<EmailPreview> previews = emailService.listSent();
-            ListSentResponse response = ListSentResponse.newBuilder()
-                    .addAllEmails(previews.stream().map(this::toProto).toList())
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-        } catch (Exception ex) {
-            responseObserver.onError(Status.INTERNAL
-                    .withDescription("Unable to fetch sent emails")
-                    .withCause(ex)
-                    .asRuntimeException());
-        }
+        // Sent mail is read from IMAP whole, so the mask only trims the response
+        respond(() -> {
+                    ReadMask mask = previewMask(request.getReadMask());
+                    return emailService.listSent().thenApply(previews -> previews.stream()
+                            .map(preview -> toProto(preview, mask))
+                            .toList());
+                },
+                previews -> ListSentResponse.newBuilder()
+                        .addAllEmails(previews)
+                        .setDegraded(!emailService.imapAvailable())
+                        .build(),
+                responseObserver, "Unable to fetch sent emails");
     }
 
     @Override
     public void sendEmail(SendEmailRequestMessage request, StreamObserver<SendEmailResponse> responseObserver) {
-        try {
-            SendEmailRequest domainRequest = new SendEmailRequest(
-                    request.getTo(),
-                    List.copyOf(request.getCcList()),
-                    List.copyOf(request.getBccList()),
-                    request.getSubject(),
-                    request.getBody(),
-                    List.copyOf(request.getAttachmentsList())
-            );
-            emailService.sendEmail(domainRequest);
-            responseObserver.onNext(SendEmailResponse.getDefaultInstance());
-            responseObserver.onCompleted();
-        } catch (IllegalArgumentException ex) {
-            responseObserver.onError(Status.INVALID_ARGUMENT
-                    .withDescription(ex.getMessage())
-                    .asRuntimeException());
-        } catch (Exception ex) {
-            responseObserver.onError(Status.INTERNAL
-                    .withDescription("Unable to send email")
-                    .withCause(ex)
-                    .asRuntimeException());
-        }
+        respond(() -> emailService.sendEmail(new SendEmailRequest(
+                        request.getTo(),
+                        List.copyOf(request.getCcList()),
+                        List.copyOf(request.getBccList()),
+                        request.getSubject(),
+                        request.getBody(),
+                        List.copyOf(request.getAttachmentsList())
+                )),
+                sent -> SendEmailResponse.getDefaultInstance(), responseObserver, "Unable to send email");
     }
 
     @Override
     public void getEmail(GetEmailRequest request, StreamObserver<GetEmailResponse> responseObserver) {
-        try {
-            emailService.getEmailDetail(request.getId())
-                    .ifPresentOrElse(
-                            detail -> {
-                                GetEmailResponse response = GetEmailResponse.newBuilder()
-                                        .setEmail(toDetailProto(detail))
-                                        .build();
-                                responseObserver.onNext(response);
-                                responseObserver.onCompleted();
-                            },
-                            () -> responseObserver.onError(Status.NOT_FOUND
-                                    .withDescription("Email not found")
-                                    .asRuntimeException())
-                    );
-        } catch (Exception ex) {
-            responseObserver.onError(Status.INTERNAL
-                    .withDescription("Unable to fetch email details")
-                    .withCause(ex)
-                    .asRuntimeException());
-        }
+        respond(() -> {
+                    ReadMask mask = ReadMask.of(request.getReadMask(), EmailDetailMessage.getDescriptor());
+                    boolean includeContent = mask.includes("body") || mask.includes("to") || mask.includes("cc");
+                    return emailService.getEmailDetail(request.getId(), includeContent)
+                            .thenApply(detail -> detail.map(email -> toDetailProto(email, mask)));
+                },
+                detail -> {
+                    boolean imapAvailable = emailService.imapAvailable();
+                    return GetEmailResponse.newBuilder()
+                            .setEmail(detail.orElseThrow(() -> imapAvailable
+                                    ? Status.NOT_FOUND.withDescription("Email not found").asRuntimeException()
+                                    : Status.UNAVAILABLE.withDescription("Email not cached and IMAP is unavailable").asRuntimeException()))
+                            .setDegraded(!imapAvailable)
+                            .build();
+                },
+                responseObserver, "Unable to fetch email details");
     }
 
     @Override
     public void listTrash(ListTrashRequest request, StreamObserver<ListTrashResponse> responseObserver) {
-        try {
-            List<EmailPreview> previews = emailService.listTrash();
-            ListTrashResponse response = ListTrashResponse.newBuilder()
-                    .addAllEmails(previews.stream().map(this::toProto).toList())
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-        } catch (Exception ex) {
-            responseObserver.onError(Status.INTERNAL
-                    .withDescription("Unable to fetch trash")
-                    .withCause(ex)
-                    .asRuntimeException());
-        }
+        respond(() -> responseCache.getAsync("ListTrash", request, emailService.mailboxVersion(), () -> {
+                    ReadMask mask = previewMask(request.getReadMask());
+                    return emailService.listTrash(toFilter(request.getFilter()), mask.previewFields())
+                            .thenApply(previews -> ListTrashResponse.newBuilder()
+                                    .addAllEmails(previews.stream().map(preview -> toProto(preview, mask)).toList())
+                                    .build());
+                }),
+                response -> response, responseObserver, "Unable to fetch trash");
     }
 
     @Override
     public void deleteEmail(DeleteEmailRequest request, StreamObserver<DeleteEmailResponse> responseObserver) {
-        try {
-            boolean success = emailService.deleteEmail(request.getId());
-            DeleteEmailResponse response = DeleteEmailResponse.newBuilder()
-                    .setSuccess(success)
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-        } catch (Exception ex) {
-            responseObserver.onError(Status.INTERNAL
-                    .withDescription("Unable to delete email")
-                    .withCause(ex)
-                    .asRuntimeException());
-        }
+        respond(() -> emailService.deleteEmail(request.getId()),
+                success -> DeleteEmailResponse.newBuilder()
+                        .setSuccess(success)
+                        .build(),
+                responseObserver, "Unable to delete email");
     }
 
     @Override
     public void moveToTrash(MoveToTrashRequest request, StreamObserver<MoveToTrashResponse> responseObserver) {
-        try {
-            com.emailclient.backend.email.EmailService.MoveToTrashResult result = emailService.moveToTrash(request.getId());
-            MoveToTrashResponse response = MoveToTrashResponse.newBuilder()
-                    .setSuccess(result.success())
-                    .setNewId(nullToEmpty(result.newId()))
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-        } catch (Exception ex) {
-            responseObserver.onError(Status.INTERNAL
-                    .withDescription("Unable to move email to trash")
-                    .withCause(ex)
-                    .asRuntimeException());
-        }
+        respond(() -> emailService.moveToTrash(request.getId()),
+                result -> MoveToTrashResponse.newBuilder()
+                        .setSuccess(result.success())
+                        .setNewId(nullToEmpty(result.newId()))
+                        .build(),
+                responseObserver, "Unable to move email to trash");
     }
 
     @Override
     public void restoreEmail(RestoreEmailRequest request, StreamObserver<RestoreEmailResponse> responseObserver) {
-        try {
-            com.emailclient.backend.email.EmailService.RestoreEmailResult result = emailService.restoreEmail(request.getId());
-            RestoreEmailResponse response = RestoreEmailResponse.newBuilder()
-                    .setSuccess(result.success())
-                    .setNewId(nullToEmpty(result.newId()))
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-        } catch (Exception ex) {
-            responseObserver.onError(Status.INTERNAL
-                    .withDescription("Unable to restore email")
-                    .withCause(ex)
-                    .asRuntimeException());
-        }
+        respond(() -> emailService.restoreEmail(request.getId()),
+                result -> RestoreEmailResponse.newBuilder()
+                        .setSuccess(result.success())
+                        .setNewId(nullToEmpty(result.newId()))
+                        .build(),
+                responseObserver, "Unable to restore email");
     }
 
     @Override
     public void permanentlyDelete(PermanentlyDeleteRequest request, StreamObserver<PermanentlyDeleteResponse> responseObserver) {
+        respond(() -> emailService.permanentlyDelete(request.getId()),
+                success -> PermanentlyDeleteResponse.newBuilder()
+                        .setSuccess(success)
+                        .build(),
+                responseObserver, "Unable to permanently delete email");
+    }
+
+    @Override
+    public void updateFlags(UpdateFlagsRequest request, StreamObserver<UpdateFlagsResponse> responseObserver) {
+        respond(() -> emailService.updateFlags(request.getId(),
+                        request.hasRead() ? request.getRead() : null,
+                        request.hasStarred() ? request.getStarred() : null),
+                preview -> UpdateFlagsResponse.newBuilder()
+                        .setEmail(toProto(preview.orElseThrow(() -> Status.NOT_FOUND
+                                .withDescription("Email not found")
+                                .asRuntimeException())))
+                        .build(),
+                responseObserver, "Unable to update email flags");
+    }
+
+    @Override
+    public void listMailboxMutations(ListMailboxMutationsRequest request,
+                                     StreamObserver<ListMailboxMutationsResponse> responseObserver) {
+        respond(emailService::listMailboxMutations,
+                mutations -> ListMailboxMutationsResponse.newBuilder()
+                        .addAllMutations(mutations.stream().map(this::toProto).toList())
+                        .build(),
+                responseObserver, "Unable to list mailbox mutations");
+    }
+
+    @Override
+    public void suggestRecipients(SuggestRecipientsRequest request, StreamObserver<SuggestRecipientsResponse> responseObserver) {
+        respond(() -> emailService.suggestRecipients(request.getPrefix(), request.getLimit()),
+                suggestions -> SuggestRecipientsResponse.newBuilder()
+                        .addAllSuggestions(suggestions.stream().map(this::toProto).toList())
+                        .build(),
+                responseObserver, "Unable to suggest recipients");
+    }
+
+    @Override
+    public void listThreads(ListThreadsRequest request, StreamObserver<ListThreadsResponse> responseObserver) {
+        respond(() -> emailService.listThreads(request.getPageSize(), request.getPageToken()),
+                page -> ListThreadsResponse.newBuilder()
+                        .addAllThreads(page.threads().stream().map(this::toProto).toList())
+                        .setNextPageToken(nullToEmpty(page.nextPageToken()))
+                        .build(),
+                responseObserver, "Unable to list threads");
+    }
+
+    @Override
+    public void getThread(GetThreadRequest request, StreamObserver<GetThreadResponse> responseObserver) {
+        respond(() -> emailService.getThread(request.getThreadId()),
+                thread -> toProto(thread.orElseThrow(() -> Status.NOT_FOUND
+                        .withDescription("Thread not found")
+                        .asRuntimeException())),
+                responseObserver, "Unable to fetch thread");
+    }
+
+    /**
+     * Starts {@code operation} and completes {@code responseObserver} when it finishes. Status exceptions are
+     * passed through, {@link IllegalArgumentException}s become INVALID_ARGUMENT and anything else INTERNAL.
+     */
+    private <T, R> void respond(Supplier<CompletableFuture<T>> operation, Function<T, R> toResponse,
+                                StreamObserver<R> responseObserver, String failureDescription) {
+        CompletableFuture<T> pending;
         try {
-            boolean success = emailService.permanentlyDelete(request.getId());
-            PermanentlyDeleteResponse response = PermanentlyDeleteResponse.newBuilder()
-                    .setSuccess(success)
-                    .build();
-            responseObserver.onNext(response);
-            responseObserver.onCompleted();
-        } catch (Exception ex) {
-            responseObserver.onError(Status.INTERNAL
-                    .withDescription("Unable to permanently delete email")
-                    .withCause(ex)
-                    .asRuntimeException());
+            pending = operation.get();
+        } catch (RuntimeException ex) {
+            pending = CompletableFuture.failedFuture(ex);
         }
+        pending.thenApply(toResponse).whenComplete((response, failure) -> {
+            if (responseObserver instanceof ServerCallStreamObserver<R> call && call.isCancelled()) {
+                // The client is gone; the service already stopped whatever work it could
+                return;
+            }
+            if (failure == null) {
+                responseObserver.onNext(response);
+                responseObserver.onCompleted();
+            } else {
+                responseObserver.onError(toStatusException(failure, failureDescription));
+            }
+        });
     }
 
-    private EmailPreviewMessage toProto(EmailPreview preview) {
-        EmailPreviewMessage.Builder builder = EmailPreviewMessage.newBuilder()
-                .setId(nullToEmpty(preview.id()))
-                .setFrom(nullToEmpty(preview.from()))
-                .setSubject(nullToEmpty(preview.subject()))
-                .setUnread(preview.unread());
+    private StatusRuntimeException toStatusException(Throwable failure, String failureDescription) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof StatusRuntimeException statusException) {
+            return statusException;
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return Status.INVALID_ARGUMENT
+                    .withDescription(cause.getMessage())
+                    .asRuntimeException();
+        }
+        return Status.INTERNAL
+                .withDescription(failureDescription)
+                .withCause(cause)
+                .asRuntimeException();
+    }
+
+    private GetThreadResponse toProto(EmailThread thread) {
+        return GetThreadResponse.newBuilder()
+                .setThread(toProto(thread.summary()))
+                .addAllEmails(thread.messages().stream().map(this::toDetailProto).toList())
+                .build();
+    }
+
+    private ThreadSummaryMessage toProto(EmailThreadSummary summary) {
+        ThreadSummaryMessage.Builder builder = ThreadSummaryMessage.newBuilder()
+                .setThreadId(nullToEmpty(summary.threadId()))
+                .setSubject(nullToEmpty(summary.subject()))
+                .addAllParticipants(summary.participants())
+                .setMessageCount(summary.messageCount())
+                .setUnreadCount(summary.unreadCount());
+
+        if (summary.latestAt() != null) {
+            builder.setLatestAt(toTimestamp(summary.latestAt()));
+        }
 
-        if (preview.receivedAt() != null) {
+        return builder.build();
+    }
+
+    private MailboxMutationMessage toProto(MailboxMutation mutation) {
+        return MailboxMutationMessage.newBuilder()
+                .setSeq(mutation.seq())
+                .setEmailId(nullToEmpty(mutation.emailId()))
+                .setOperation(MailboxMutationMessage.Operation.valueOf(mutation.operation().name()))
+                .setStatus(MailboxMutationMessage.Status.valueOf(mutation.status().name()))
+                .setAttempts(mutation.attempts())
+                .setLastError(nullToEmpty(mutation.lastError()))
+                .setCreatedAt(toTimestamp(mutation.createdAt()))
+                .setNextAttemptAt(toTimestamp(mutation.nextAttemptAt()))
+                .build();
+    }
+
+    private RecipientSuggestionMessage toProto(RecipientSuggestion suggestion) {
+        return RecipientSuggestionMessage.newBuilder()
+                .setAddress(nullToEmpty(suggestion.address()))
+                .setDisplayName(nullToEmpty(suggestion.displayName()))
+                .build();
+    }
+
+    EmailPreviewMessage toProto(EmailPreview preview) {
+        return toProto(preview, previewMask(FieldMask.getDefaultInstance()));
+    }
+
+    private static ReadMask previewMask(FieldMask mask) {
+        return ReadMask.of(mask, EmailPreviewMessage.getDescriptor());
+    }
+
+    /**
+     * Sets only the fields in {@code mask}; the store left the others unloaded anyway.
+     */
+    EmailPreviewMessage toProto(EmailPreview preview, ReadMask mask) {
+        EmailPreviewMessage.Builder builder = EmailPreviewMessage.newBuilder()
+                .setId(nullToEmpty(preview.id()));
+        if (mask.includes("from")) {
+            builder.setFrom(nullToEmpty(preview.from()));
+        }
+        if (mask.includes("subject")) {
+            builder.setSubject(nullToEmpty(preview.subject()));
+        }
+        if (mask.includes("unread")) {
+            builder.setUnread(preview.unread());
+        }
+        if (mask.includes("received_at") && preview.receivedAt() != null) {
             builder.setReceivedAt(toTimestamp(preview.receivedAt()));
         }
+        if (mask.includes("snippet")) {
+            builder.setSnippet(nullToEmpty(preview.snippet()));
+        }
+        if (mask.includes("size_bytes")) {
+            builder.setSizeBytes(preview.sizeBytes());
+        }
+        if (mask.includes("has_attachments")) {
+            builder.setHasAttachments(preview.hasAttachments());
+        }
+        if (mask.includes("starred")) {
+            builder.setStarred(preview.starred());
+        }
 
         return builder.build();
     }
 
+    private EmailFilter toFilter(EmailFilterMessage filter) {
+        return new EmailFilter(
+                filter.getSenderEmail(),
+                filter.hasReceivedAfter() ? toDateTime(filter.getReceivedAfter()) : null,
+                filter.hasReceivedBefore() ? toDateTime(filter.getReceivedBefore()) : null,
+                filter.getUnreadOnly(),
+                filter.getHasAttachments(),
+                filter.getFolder()
+        );
+    }
+
+    private OffsetDateTime toDateTime(Timestamp timestamp) {
+        return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos()).atOffset(ZoneOffset.UTC);
+    }
+
     private Timestamp toTimestamp(OffsetDateTime dateTime) {
         long seconds = dateTime.toInstant().getEpochSecond();
         int nanos = dateTime.getNano();
@@ -215,17 +373,32 @@ public class EmailGrpcService extends EmailServiceGrpc.EmailServiceImplBase {
         return value == null ? "" : value;
     }
 
-    private EmailDetailMessage toDetailProto(EmailDetail detail) {
+    EmailDetailMessage toDetailProto(EmailDetail detail) {
+        return toDetailProto(detail, ReadMask.of(FieldMask.getDefaultInstance(), EmailDetailMessage.getDescriptor()));
+    }
+
+    private EmailDetailMessage toDetailProto(EmailDetail detail, ReadMask mask) {
         EmailDetailMessage.Builder builder = EmailDetailMessage.newBuilder()
-                .setId(nullToEmpty(detail.id()))
-                .setFrom(nullToEmpty(detail.from()))
-                .setSubject(nullToEmpty(detail.subject()))
-                .setBody(nullToEmpty(detail.body()))
-                .setUnread(detail.unread())
-                .addAllTo(detail.to())
-                .addAllCc(detail.cc());
-
-        if (detail.receivedAt() != null) {
+                .setId(nullToEmpty(detail.id()));
+        if (mask.includes("from")) {
+            builder.setFrom(nullToEmpty(detail.from()));
+        }
+        if (mask.includes("subject")) {
+            builder.setSubject(nullToEmpty(detail.subject()));
+        }
+        if (mask.includes("body")) {
+            builder.setBody(nullToEmpty(detail.body()));
+        }
+        if (mask.includes("unread")) {
+            builder.setUnread(detail.unread());
+        }
+        if (mask.includes("to")) {
+            builder.addAllTo(detail.to());
+        }
+        if (mask.includes("cc")) {
+            builder.addAllCc(detail.cc());
+        }
+        if (mask.includes("received_at") && detail.receivedAt() != null) {
             builder.setReceivedAt(toTimestamp(detail.receivedAt()));
         }
 
@@ -0,0 +1,104 @@
+package com.emailclient.backend.email.grpc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows observed latency, in the style of Netflix's gradient limiter.
+ *
+ * <p>Each completed call compares its latency with a slow-moving average. While calls finish about as fast as
+ * usual the limit grows by roughly its square root, which leaves a small queue to absorb bursts; once latency
+ * climbs above {@value #TOLERANCE} times the average the limit shrinks in proportion, down to half per sample.
+ * The limit only grows while at least half of it is in use, so an idle server does not talk itself into a limit
+ * it has never tested. Calls rejected downstream or timed out count as drops and cut the limit by a tenth.</p>
+ */
+final class GradientLimit {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double DROP_BACKOFF = 0.9;
+    private static final int LONG_WINDOW = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double longRttNanos;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit bounds " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * Claims a slot if fewer than {@link #limit()} calls are in flight. Every successful claim must be followed
+     * by exactly one {@link #release}.
+     */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees a slot and feeds the call's outcome back into the limit. {@code rttNanos} below zero releases without
+     * a sample, for calls whose latency says nothing about load (cancelled by the client, failed before running).
+     */
+    void release(long rttNanos, boolean dropped) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (dropped) {
+            onDrop();
+        } else if (rttNanos >= 0) {
+            onSample(rttNanos, inFlightBefore);
+        }
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Long-run average latency, or zero before the first sample; a fair guess at when a slot frees up.
+     */
+    synchronized long averageRttNanos() {
+        return (long) longRttNanos;
+    }
+
+    private synchronized void onDrop() {
+        limit = Math.max(minLimit, limit * DROP_BACKOFF);
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtCompletion) {
+        double shortRtt = Math.max(1, rttNanos);
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+        } else {
+            longRttNanos += (shortRtt - longRttNanos) / LONG_WINDOW;
+            if (longRttNanos > shortRtt * 2) {
+                // Recovering from a slow spell: let the baseline come down quickly instead of over 100 samples
+                longRttNanos *= 0.95;
+            }
+        }
+
+        double gradient = Math.clamp(TOLERANCE * longRttNanos / shortRtt, 0.5, 1.0);
+        double target = limit * gradient + Math.sqrt(limit);
+        if (target > limit && inFlightAtCompletion < limit / 2) {
+            return;
+        }
+        double next = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.clamp(next, minLimit, maxLimit);
+    }
+}
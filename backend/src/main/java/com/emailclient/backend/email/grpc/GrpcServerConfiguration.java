@@ -0,0 +1,80 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.account.AccountRegistry;
+import com.emailclient.backend.email.account.ApiClients;
+import io.grpc.BindableService;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import net.devh.boot.grpc.server.service.GrpcService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class GrpcServerConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcServerConfiguration.class);
+
+    /**
+     * One virtual thread per call, so handlers blocked on IMAP or JDBC park instead of holding a pool thread.
+     * With the flag off calls run on a cached platform-thread pool, like gRPC's default executor.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService grpcCallExecutor(EmailClientProperties properties) {
+        if (properties.getExecution().isVirtualThreads()) {
+            log.info("Running gRPC calls on virtual threads");
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("grpc-call-", 0).factory());
+        }
+        return Executors.newCachedThreadPool(Thread.ofPlatform().name("grpc-call-", 0).daemon().factory());
+    }
+
+    @Bean
+    public GrpcServerConfigurer grpcExecutorConfigurer(@Qualifier("grpcCallExecutor") ExecutorService grpcCallExecutor) {
+        return serverBuilder -> serverBuilder.executor(grpcCallExecutor);
+    }
+
+    @Bean
+    public GrpcServerConfigurer grpcCompressionConfigurer(EmailClientProperties properties) {
+        return serverBuilder -> serverBuilder.compressorRegistry(
+                ResponseCompressionInterceptor.compressorRegistry(properties.getGrpc().getCompressionLevel()));
+    }
+
+    @GrpcGlobalServerInterceptor
+    public AccountInterceptor accountInterceptor(ApiClients apiClients, AccountRegistry accountRegistry) {
+        return new AccountInterceptor(apiClients, accountRegistry);
+    }
+
+    @GrpcGlobalServerInterceptor
+    public AbandonedCallInterceptor abandonedCallInterceptor(MeterRegistry meterRegistry) {
+        return new AbandonedCallInterceptor(meterRegistry);
+    }
+
+    @GrpcGlobalServerInterceptor
+    public ConcurrencyLimitInterceptor concurrencyLimitInterceptor(EmailClientProperties properties,
+                                                                   MeterRegistry meterRegistry) {
+        return new ConcurrencyLimitInterceptor(properties, meterRegistry);
+    }
+
+    @GrpcGlobalServerInterceptor
+    public ResponseCompressionInterceptor responseCompressionInterceptor(EmailClientProperties properties) {
+        return new ResponseCompressionInterceptor(properties);
+    }
+
+    /**
+     * The generated {@code bindService()} is final, so the cached listing methods are rebound here instead.
+     */
+    @Bean
+    @GrpcService
+    public BindableService emailServiceBinding(EmailGrpcService emailGrpcService, ListingResponseCache responseCache) {
+        return () -> responseCache.bind(emailGrpcService.bindService(),
+                EmailServiceGrpc.getListInboxMethod(),
+                EmailServiceGrpc.getListTrashMethod());
+    }
+}
@@ -0,0 +1,245 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.account.AccountContext;
+import com.emailclient.backend.email.storage.EmailOfflineStore;
+import com.emailclient.backend.email.storage.MailboxChangeListener;
+import com.google.protobuf.Message;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Caches encoded listing responses per request for the current mailbox version.
+ *
+ * <p>A hit returns the previously built response instance, and the response marshaller installed by
+ * {@link #bind} recognises that instance and writes its stored bytes straight to the wire, so neither the
+ * query, the proto mapping nor the protobuf encoding is repeated. Entries are tagged with the version they were
+ * loaded at and are scoped to the calling account; an account's entries are dropped whenever the offline store
+ * commits a new version of its mailbox.</p>
+ */
+@Component
+public class ListingResponseCache implements MailboxChangeListener {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final EmailOfflineStore offlineStore;
+    private final MeterRegistry meterRegistry;
+    private final Map<CacheKey, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Object, byte[]> encodedByResponse = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bytesSaved;
+
+    public ListingResponseCache(EmailClientProperties properties, EmailOfflineStore offlineStore, MeterRegistry meterRegistry) {
+        Objects.requireNonNull(properties, "properties");
+        this.enabled = properties.getGrpc().isResponseCacheEnabled();
+        this.maxEntries = properties.getGrpc().getResponseCacheMaxEntries();
+        this.offlineStore = Objects.requireNonNull(offlineStore, "offlineStore");
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry");
+
+        this.hits = Counter.builder("email.grpc.response.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("email.grpc.response.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.bytesSaved = Counter.builder("email.grpc.response.cache.bytes.saved")
+                .description("Encoded response bytes served from the cache instead of being rebuilt")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to the store's version changes and publishes the gauges, once construction has finished.
+     */
+    @PostConstruct
+    public void initialize() {
+        Gauge.builder("email.grpc.response.cache.hit.ratio", this, ListingResponseCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("email.grpc.response.cache.entries", entries, Map::size)
+                .register(meterRegistry);
+        offlineStore.addChangeListener(this);
+    }
+
+    /**
+     * Returns the cached response for {@code request} if it was built at {@code version}, otherwise loads,
+     * encodes and caches a fresh one. Callers must read {@code version} before any data the loader reads.
+     */
+    public <T extends Message> T get(String method, Message request, long version, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        CacheKey key = new CacheKey(AccountContext.currentAccountId(), method, request);
+        T cached = lookup(key, version);
+        return cached != null ? cached : store(key, version, loader.get());
+    }
+
+    /**
+     * Same as {@link #get} for a loader that completes asynchronously; a hit completes immediately.
+     */
+    public <T extends Message> CompletableFuture<T> getAsync(String method, Message request, long version,
+                                                             Supplier<CompletableFuture<T>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        CacheKey key = new CacheKey(AccountContext.currentAccountId(), method, request);
+        T cached = lookup(key, version);
+        return cached != null
+                ? CompletableFuture.completedFuture(cached)
+                : loader.get().thenApply(response -> store(key, version, response));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Message> T lookup(CacheKey key, long version) {
+        Entry cached = entries.get(key);
+        if (cached != null && cached.version() == version) {
+            hits.increment();
+            bytesSaved.increment(cached.encoded().length);
+            return (T) cached.response();
+        }
+        misses.increment();
+        return null;
+    }
+
+    private <T extends Message> T store(CacheKey key, long version, T response) {
+        byte[] encoded = response.toByteArray();
+        if (entries.size() >= maxEntries) {
+            invalidate();
+        }
+        encodedByResponse.put(response, encoded);
+        Entry previous = entries.put(key, new Entry(version, response, encoded));
+        if (previous != null) {
+            encodedByResponse.remove(previous.response());
+        }
+        return response;
+    }
+
+    @Override
+    public void onMailboxChanged(String accountId, long version) {
+        entries.entrySet().removeIf(entry -> {
+            if (entry.getKey().accountId().equals(accountId)) {
+                encodedByResponse.remove(entry.getValue().response());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public void invalidate() {
+        entries.clear();
+        encodedByResponse.clear();
+    }
+
+    double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    /**
+     * Rebinds {@code definition} so the responses of {@code cachedMethods} are written from their cached
+     * encoding when available. Method descriptors have to be swapped in the service descriptor as well,
+     * since gRPC requires both to reference the same instances.
+     */
+    public ServerServiceDefinition bind(ServerServiceDefinition definition, MethodDescriptor<?, ?>... cachedMethods) {
+        Set<String> cachedNames = Arrays.stream(cachedMethods)
+                .map(MethodDescriptor::getFullMethodName)
+                .collect(Collectors.toSet());
+
+        ServiceDescriptor original = definition.getServiceDescriptor();
+        ServiceDescriptor.Builder descriptor = ServiceDescriptor.newBuilder(original.getName())
+                .setSchemaDescriptor(original.getSchemaDescriptor());
+        List<ServerMethodDefinition<?, ?>> methods = new ArrayList<>();
+        for (ServerMethodDefinition<?, ?> method : definition.getMethods()) {
+            ServerMethodDefinition<?, ?> bound = cachedNames.contains(method.getMethodDescriptor().getFullMethodName())
+                    ? withPreEncodedResponses(method)
+                    : method;
+            descriptor.addMethod(bound.getMethodDescriptor());
+            methods.add(bound);
+        }
+
+        ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(descriptor.build());
+        methods.forEach(builder::addMethod);
+        return builder.build();
+    }
+
+    private <ReqT, RespT> ServerMethodDefinition<ReqT, RespT> withPreEncodedResponses(ServerMethodDefinition<ReqT, RespT> method) {
+        MethodDescriptor<ReqT, RespT> original = method.getMethodDescriptor();
+        MethodDescriptor<ReqT, RespT> descriptor = original.toBuilder(
+                        original.getRequestMarshaller(),
+                        new PreEncodedMarshaller<>(original.getResponseMarshaller()))
+                .build();
+        return ServerMethodDefinition.create(descriptor, method.getServerCallHandler());
+    }
+
+    private record CacheKey(String accountId, String method, Message request) {
+    }
+
+    private record Entry(long version, Message response, byte[] encoded) {
+    }
+
+    private final class PreEncodedMarshaller<T> implements MethodDescriptor.Marshaller<T> {
+
+        private final MethodDescriptor.Marshaller<T> delegate;
+
+        private PreEncodedMarshaller(MethodDescriptor.Marshaller<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public InputStream stream(T value) {
+            byte[] encoded = encodedByResponse.get(value);
+            return encoded != null ? new EncodedStream(encoded) : delegate.stream(value);
+        }
+
+        @Override
+        public T parse(InputStream stream) {
+            return delegate.parse(stream);
+        }
+    }
+
+    /**
+     * Known-length, drainable stream so the framer copies the bytes in one write instead of buffering them.
+     */
+    private static final class EncodedStream extends ByteArrayInputStream implements KnownLength, Drainable {
+
+        private EncodedStream(byte[] encoded) {
+            super(encoded);
+        }
+
+        @Override
+        public int drainTo(OutputStream target) throws IOException {
+            int remaining = count - pos;
+            target.write(buf, pos, remaining);
+            pos = count;
+            return remaining;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.dto.PreviewFields;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.FieldMask;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The top-level fields a request's {@code read_mask} selects from a response message. An empty mask selects
+ * every field, and the id is always selected so clients can key what they receive.
+ */
+final class ReadMask {
+
+    private static final ReadMask ALL = new ReadMask(null);
+
+    private final Set<String> fields;
+
+    private ReadMask(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a path does not name a top-level field of {@code message}
+     */
+    static ReadMask of(FieldMask mask, Descriptor message) {
+        if (mask.getPathsCount() == 0) {
+            return ALL;
+        }
+        Set<String> fields = new HashSet<>();
+        for (String path : mask.getPathsList()) {
+            if (message.findFieldByName(path) == null) {
+                throw new IllegalArgumentException("Unknown read_mask path '" + path + "' for " + message.getName());
+            }
+            fields.add(path);
+        }
+        return new ReadMask(fields);
+    }
+
+    boolean includes(String field) {
+        return fields == null || field.equals("id") || fields.contains(field);
+    }
+
+    PreviewFields previewFields() {
+        return new PreviewFields(includes("from"), includes("subject"), includes("received_at"), includes("unread"),
+                includes("snippet"), includes("size_bytes"), includes("has_attachments"), includes("starred"));
+    }
+}
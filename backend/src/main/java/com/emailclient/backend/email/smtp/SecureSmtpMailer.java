@@ -1,6 +1,8 @@
 package com.emailclient.backend.email.smtp;
 
 import com.emailclient.backend.email.dto.SendEmailRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.mail.MailAuthenticationException;
@@ -21,8 +23,11 @@ public class SecureSmtpMailer {
     private static final Logger log = LoggerFactory.getLogger(SecureSmtpMailer.class);
 
     private final JavaMailSenderImpl mailSenderTemplate;
-    public SecureSmtpMailer(JavaMailSender mailSender) {
+    private final MeterRegistry meterRegistry;
+
+    public SecureSmtpMailer(JavaMailSender mailSender, MeterRegistry meterRegistry) {
         Objects.requireNonNull(mailSender, "mailSender");
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry");
         if (!(mailSender instanceof JavaMailSenderImpl javaMailSender)) {
             throw new IllegalStateException("Expected JavaMailSenderImpl but got %s".formatted(mailSender.getClass()));
         }
@@ -36,6 +41,8 @@ public class SecureSmtpMailer {
         // Use the password from the mail sender template (from spring.mail.password)
         mailSender.setPassword(mailSenderTemplate.getPassword());
 
+        String phase = "compose";
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             MimeMessage mimeMessage = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, false, StandardCharsets.UTF_8.name());
@@ -54,14 +61,30 @@ public class SecureSmtpMailer {
                 log.warn("Attachments are not yet supported; ignoring {} attachments", request.attachments().size());
             }
 
+            sample.stop(phaseTimer(phase, "success"));
+
+            // Connect, authenticate and transfer happen inside one JavaMail call
+            phase = "send";
+            sample = Timer.start(meterRegistry);
             mailSender.send(mimeMessage);
+            sample.stop(phaseTimer(phase, "success"));
         } catch (MailAuthenticationException | MailSendException ex) {
+            sample.stop(phaseTimer(phase, "failure"));
             throw ex;
         } catch (Exception ex) {
+            sample.stop(phaseTimer(phase, "failure"));
             throw new MailSendException("Unable to send email", ex);
         }
     }
 
+    private Timer phaseTimer(String phase, String outcome) {
+        return Timer.builder("email.smtp.phase")
+                .description("Time spent composing or transmitting an outgoing message")
+                .tag("phase", phase)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
     private void validate(SendEmailRequest request) {
         Objects.requireNonNull(request, "sendEmailRequest");
         if (request.attachments() != null && !request.attachments().isEmpty()) {
@@ -0,0 +1,155 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.storage.EmailOfflineStore.BodyEviction;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bookkeeping for the raw bodies cached in {@code email_messages.raw}: how many bytes each one holds and when it was
+ * last read, which is what {@link BodyCacheRetention} evicts by, least recently read first. Reads are noted in
+ * memory and written in batches by {@link #flushAccesses}, so opening a message never costs a write on the request
+ * path; a read not yet flushed still protects its body from eviction.
+ *
+ * <p>An evicted body leaves its metadata row in place with {@code raw} cleared, and is fetched again from IMAP the
+ * next time the message is opened. Evicting does not move the mailbox version: previews do not carry the body.</p>
+ */
+final class BodyCache {
+
+    /**
+     * Reads noted beyond this many distinct bodies between two flushes are dropped; they only refine the eviction
+     * order, and with retention disabled nothing flushes them.
+     */
+    private static final int MAX_PENDING_ACCESSES = 10_000;
+
+    private final Map<Key, Long> accesses = new ConcurrentHashMap<>();
+
+    void initialize(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_raw_accessed ON email_messages(raw_accessed_at) WHERE raw_bytes > 0");
+        }
+    }
+
+    /**
+     * Sizes the bodies cached before their size was tracked, counting them as read now.
+     */
+    int backfill(Connection connection, long now) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE email_messages SET raw_bytes = LENGTH(raw), raw_accessed_at = ? WHERE raw IS NOT NULL AND raw_bytes = 0")) {
+            statement.setLong(1, now);
+            return statement.executeUpdate();
+        }
+    }
+
+    void recordAccess(String accountId, String id, long now) {
+        Key key = new Key(accountId, id);
+        if (accesses.size() < MAX_PENDING_ACCESSES || accesses.containsKey(key)) {
+            accesses.put(key, now);
+        }
+    }
+
+    /**
+     * Writes the reads noted since the last flush. A body evicted or replaced in the meantime is left alone.
+     */
+    int flushAccesses(Connection connection) throws SQLException {
+        if (accesses.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<Key, Long>> pending = new ArrayList<>(accesses.entrySet());
+        try (PreparedStatement statement = connection.prepareStatement("""
+                UPDATE email_messages SET raw_accessed_at = ?
+                WHERE account_id = ? AND id = ? AND raw_bytes > 0 AND raw_accessed_at < ?
+                """)) {
+            for (Map.Entry<Key, Long> access : pending) {
+                statement.setLong(1, access.getValue());
+                statement.setString(2, access.getKey().accountId());
+                statement.setString(3, access.getKey().id());
+                statement.setLong(4, access.getValue());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        // A read noted while flushing keeps its entry for the next flush
+        pending.forEach(access -> accesses.remove(access.getKey(), access.getValue()));
+        return pending.size();
+    }
+
+    long cachedBytes(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT COALESCE(SUM(raw_bytes), 0) FROM email_messages WHERE raw_bytes > 0")) {
+            return resultSet.next() ? resultSet.getLong(1) : 0L;
+        }
+    }
+
+    /**
+     * Clears the {@code limit} least recently read bodies of every account, skipping those read since the last
+     * flush and paging past them, so a batch is only short once nothing older is left to evict. A body read or
+     * replaced between the selection and the update keeps its content.
+     */
+    BodyEviction evictOldest(Connection connection, int limit) throws SQLException {
+        List<Candidate> candidates = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement("""
+                SELECT account_id, id, raw_bytes, raw_accessed_at FROM email_messages
+                WHERE raw_bytes > 0 ORDER BY raw_accessed_at, account_id, id LIMIT ? OFFSET ?
+                """)) {
+            int offset = 0;
+            int rows = limit;
+            while (candidates.size() < limit && rows == limit) {
+                select.setInt(1, limit);
+                select.setInt(2, offset);
+                rows = 0;
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        rows++;
+                        Key key = new Key(resultSet.getString("account_id"), resultSet.getString("id"));
+                        if (candidates.size() < limit && !accesses.containsKey(key)) {
+                            candidates.add(new Candidate(key, resultSet.getLong("raw_bytes"), resultSet.getLong("raw_accessed_at")));
+                        }
+                    }
+                }
+                offset += rows;
+            }
+        }
+        if (candidates.isEmpty()) {
+            return new BodyEviction(0, 0L);
+        }
+
+        int bodies = 0;
+        long bytes = 0L;
+        try (PreparedStatement update = connection.prepareStatement("""
+                UPDATE email_messages SET raw = NULL, raw_bytes = 0, raw_accessed_at = NULL
+                WHERE account_id = ? AND id = ? AND raw_bytes = ? AND raw_accessed_at = ?
+                """)) {
+            for (Candidate candidate : candidates) {
+                update.setString(1, candidate.key().accountId());
+                update.setString(2, candidate.key().id());
+                update.setLong(3, candidate.bytes());
+                update.setLong(4, candidate.accessedAt());
+                update.addBatch();
+            }
+            int[] results = update.executeBatch();
+            for (int i = 0; i < results.length; i++) {
+                // Drivers that cannot count batched rows report SUCCESS_NO_INFO
+                if (results[i] > 0 || results[i] == Statement.SUCCESS_NO_INFO) {
+                    bodies++;
+                    bytes += candidates.get(i).bytes();
+                }
+            }
+        }
+        return new BodyEviction(bodies, bytes);
+    }
+
+    private record Key(String accountId, String id) {
+    }
+
+    private record Candidate(Key key, long bytes, long accessedAt) {
+    }
+}
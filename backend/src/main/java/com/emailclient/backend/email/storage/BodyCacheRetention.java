@@ -0,0 +1,141 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.storage.EmailOfflineStore.BodyEviction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the raw message bodies cached by {@link EmailOfflineStore} within {@code bodyCacheBudget}. Every
+ * {@code bodyRetentionInterval} it writes the reads noted since the last round, measures the cache and, when it is
+ * over budget, evicts the least recently read bodies of any account until it is back under 90% of the budget, so
+ * a few new downloads do not trigger the next round straight away. Each batch of {@code bodyEvictionBatchSize}
+ * bodies is its own short transaction, leaving the database free for requests in between.
+ *
+ * <p>Eviction keeps each message's metadata row; its body is fetched again from IMAP when the message is next
+ * opened.</p>
+ */
+@Component
+public class BodyCacheRetention {
+
+    private static final Logger log = LoggerFactory.getLogger(BodyCacheRetention.class);
+
+    private final EmailOfflineStore offlineStore;
+    private final Duration interval;
+    private final long budgetBytes;
+    private final int batchSize;
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final Counter evicted;
+    private final Counter reclaimed;
+    private final Timer roundTimer;
+    private volatile boolean running;
+    private Thread worker;
+
+    public BodyCacheRetention(EmailOfflineStore offlineStore, EmailClientProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.offlineStore = Objects.requireNonNull(offlineStore, "offlineStore");
+        EmailClientProperties.Storage storage = Objects.requireNonNull(properties, "properties").getStorage();
+        this.interval = storage.getBodyRetentionInterval();
+        this.budgetBytes = storage.getBodyCacheBudget().toBytes();
+        this.batchSize = storage.getBodyEvictionBatchSize();
+        this.evicted = Counter.builder("email.storage.bodies.evicted")
+                .description("Cached message bodies evicted to stay within the budget")
+                .register(meterRegistry);
+        this.reclaimed = Counter.builder("email.storage.bodies.reclaimed")
+                .description("Bytes of cached message content evicted")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.roundTimer = Timer.builder("email.storage.bodies.retention")
+                .description("Time to enforce the body cache budget once")
+                .register(meterRegistry);
+        Gauge.builder("email.storage.bodies.cached", cachedBytes, AtomicLong::get)
+                .description("Bytes of raw message content cached, as of the last retention round")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("email.storage.bodies.budget", () -> budgetBytes)
+                .description("Bytes of raw message content the cache may hold")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (interval.isZero() || interval.isNegative()) {
+            log.info("Body cache retention disabled: cached message bodies are kept");
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().name("body-cache-retention").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(Duration.ofSeconds(5).toMillis());
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                enforce();
+            } catch (RuntimeException ex) {
+                log.warn("Body cache retention round failed", ex);
+            }
+        }
+    }
+
+    /**
+     * One retention round; returns the bytes it reclaimed.
+     */
+    long enforce() {
+        Timer.Sample sample = Timer.start();
+        try {
+            offlineStore.flushBodyAccesses();
+            long cached = offlineStore.cachedBodyBytes();
+            cachedBytes.set(cached);
+            if (cached <= budgetBytes) {
+                return 0L;
+            }
+
+            long target = budgetBytes - budgetBytes / 10;
+            int bodies = 0;
+            long bytes = 0L;
+            while (cached - bytes > target && !Thread.currentThread().isInterrupted()) {
+                BodyEviction eviction = offlineStore.evictLeastRecentlyUsedBodies(batchSize);
+                if (eviction.bodies() == 0) {
+                    break;
+                }
+                bodies += eviction.bodies();
+                bytes += eviction.bytes();
+                evicted.increment(eviction.bodies());
+                reclaimed.increment(eviction.bytes());
+            }
+            cachedBytes.set(cached - bytes);
+            log.info("Evicted {} cached message bodies, reclaiming {} of {} bytes (budget {})",
+                    bodies, bytes, cached, budgetBytes);
+            return bytes;
+        } finally {
+            sample.stop(roundTimer);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.emailclient.backend.email.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Persists every address seen in From/To/Cc headers together with how often and how recently it was seen.
+ * Sightings are keyed by folder and UID so re-syncing the same message never inflates the frequency. Both are
+ * kept per account.
+ */
+@Component
+public class EmailContactStore {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailContactStore.class);
+
+    private final DataSource dataSource;
+
+    public EmailContactStore(DataSource dataSource) {
+        this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
+    }
+
+    @PostConstruct
+    public void initialize() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS email_contacts (
+                        account_id VARCHAR(64) NOT NULL DEFAULT 'default',
+                        address VARCHAR(320) NOT NULL,
+                        display_name TEXT,
+                        frequency BIGINT NOT NULL DEFAULT 0,
+                        last_seen_at TIMESTAMP WITH TIME ZONE,
+                        PRIMARY KEY (account_id, address)
+                    )
+                    """);
+
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS email_contact_sources (
+                        account_id VARCHAR(64) NOT NULL DEFAULT 'default',
+                        message_key VARCHAR(512) NOT NULL,
+                        PRIMARY KEY (account_id, message_key)
+                    )
+                    """);
+
+            for (String table : List.of("email_contacts", "email_contact_sources")) {
+                if (!SchemaSupport.columnExists(connection, table, "account_id")) {
+                    statement.execute("ALTER TABLE " + table + " ADD COLUMN account_id VARCHAR(64) NOT NULL DEFAULT 'default'");
+                    log.info("Added column 'account_id' to table '{}'", table);
+                }
+            }
+            SchemaSupport.ensurePrimaryKey(connection, "email_contacts", "account_id", "address");
+            SchemaSupport.ensurePrimaryKey(connection, "email_contact_sources", "account_id", "message_key");
+
+            log.info("Email contacts tables initialized");
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to initialize email contacts tables", ex);
+        }
+    }
+
+    public List<ContactRecord> loadAll(String accountId) {
+        List<ContactRecord> results = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT address, display_name, frequency, last_seen_at FROM email_contacts WHERE account_id = ?")) {
+
+            statement.setString(1, accountId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    results.add(new ContactRecord(
+                            resultSet.getString("address"),
+                            resultSet.getString("display_name"),
+                            resultSet.getLong("frequency"),
+                            toDateTime(resultSet.getTimestamp("last_seen_at"))));
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to load email contacts for account {}", accountId, ex);
+        }
+
+        return results;
+    }
+
+    /**
+     * Records the contacts of every message whose key has not been recorded before and returns the per-address
+     * deltas that were applied, so callers can fold exactly the same changes into an in-memory index.
+     */
+    public List<ContactRecord> recordSightings(String accountId, Map<String, List<ContactRecord>> sightingsByMessageKey) {
+        if (sightingsByMessageKey == null || sightingsByMessageKey.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> messageKeys = new ArrayList<>(sightingsByMessageKey.keySet());
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Map<String, ContactRecord> deltas = new LinkedHashMap<>();
+                try (PreparedStatement claim = connection.prepareStatement(
+                        "INSERT INTO email_contact_sources (account_id, message_key) VALUES (?, ?) ON CONFLICT(account_id, message_key) DO NOTHING")) {
+                    for (String messageKey : messageKeys) {
+                        claim.setString(1, accountId);
+                        claim.setString(2, messageKey);
+                        claim.addBatch();
+                    }
+                    int[] counts = claim.executeBatch();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == 0) {
+                            continue;
+                        }
+                        for (ContactRecord sighting : sightingsByMessageKey.get(messageKeys.get(i))) {
+                            deltas.merge(sighting.address(), sighting, ContactRecord::merge);
+                        }
+                    }
+                }
+
+                if (!deltas.isEmpty()) {
+                    try (PreparedStatement upsert = connection.prepareStatement(
+                            """
+                                    INSERT INTO email_contacts (address, display_name, frequency, last_seen_at, account_id)
+                                    VALUES (?, ?, ?, ?, ?)
+                                    ON CONFLICT(account_id, address) DO UPDATE SET
+                                        display_name = COALESCE(EXCLUDED.display_name, email_contacts.display_name),
+                                        frequency = email_contacts.frequency + EXCLUDED.frequency,
+                                        last_seen_at = CASE
+                                            WHEN email_contacts.last_seen_at IS NULL OR EXCLUDED.last_seen_at > email_contacts.last_seen_at
+                                                THEN EXCLUDED.last_seen_at
+                                            ELSE email_contacts.last_seen_at
+                                        END
+                                    """)) {
+                        for (ContactRecord delta : deltas.values()) {
+                            upsert.setString(1, delta.address());
+                            upsert.setString(2, delta.displayName());
+                            upsert.setLong(3, delta.frequency());
+                            if (delta.lastSeenAt() != null) {
+                                upsert.setTimestamp(4, Timestamp.from(delta.lastSeenAt().toInstant()));
+                            } else {
+                                upsert.setNull(4, java.sql.Types.TIMESTAMP);
+                            }
+                            upsert.setString(5, accountId);
+                            upsert.addBatch();
+                        }
+                        upsert.executeBatch();
+                    }
+                }
+
+                connection.commit();
+                log.debug("Recorded {} contact deltas from {} messages for account {}", deltas.size(), messageKeys.size(), accountId);
+                return List.copyOf(deltas.values());
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to record email contacts", ex);
+            return List.of();
+        }
+    }
+
+    private static OffsetDateTime toDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant().atZone(ZoneId.systemDefault()).toOffsetDateTime();
+    }
+
+    public record ContactRecord(String address,
+                                String displayName,
+                                long frequency,
+                                OffsetDateTime lastSeenAt) {
+
+        public ContactRecord {
+            Objects.requireNonNull(address, "address");
+        }
+
+        ContactRecord merge(ContactRecord other) {
+            OffsetDateTime latest = lastSeenAt;
+            String name = displayName;
+            if (other.lastSeenAt() != null && (latest == null || other.lastSeenAt().isAfter(latest))) {
+                latest = other.lastSeenAt();
+                name = other.displayName() != null ? other.displayName() : name;
+            } else if (name == null) {
+                name = other.displayName();
+            }
+            return new ContactRecord(address, name, frequency + other.frequency(), latest);
+        }
+    }
+}
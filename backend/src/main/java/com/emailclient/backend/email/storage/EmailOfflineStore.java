@@ -1,7 +1,19 @@
 package com.emailclient.backend.email.storage;
 
+import com.emailclient.backend.email.CallDeadline;
+import com.emailclient.backend.email.EmailAddresses;
+import com.emailclient.backend.email.dto.EmailFilter;
 import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.dto.MailboxDelta;
+import com.emailclient.backend.email.dto.MailboxMutation;
+import com.emailclient.backend.email.dto.PreviewFields;
+import com.emailclient.backend.email.dto.EmailThreadSummary;
+import com.emailclient.backend.email.dto.ThreadPage;
+import com.emailclient.backend.email.storage.ThreadIndexer.ThreadCandidate;
 import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.account.AccountContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,32 +22,58 @@ import org.springframework.stereotype.Component;
 import javax.sql.DataSource;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class EmailOfflineStore {
 
     private static final Logger log = LoggerFactory.getLogger(EmailOfflineStore.class);
+    private static final String STORED_EMAIL_COLUMNS =
+            "id, sender, subject, received_at, unread, raw, folder, has_attachments, message_id_header, in_reply_to, references_header, "
+                    + "snippet, size_bytes, starred";
 
     private final DataSource dataSource;
     private final int previewLimit;
+    private final ThreadIndexer threadIndexer = new ThreadIndexer();
+    private final MailboxVersions versions = new MailboxVersions();
+    private final PendingFlagChanges pendingFlags = new PendingFlagChanges();
+    private final MailboxMutations mutations = new MailboxMutations();
+    private final BodyCache bodies = new BodyCache();
+    private final Map<String, AtomicLong> committedVersions = new ConcurrentHashMap<>();
+    private final List<MailboxChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final QueryTimer queryTimer;
 
-    public EmailOfflineStore(DataSource dataSource, EmailClientProperties properties) {
+    public EmailOfflineStore(DataSource dataSource, EmailClientProperties properties, MeterRegistry meterRegistry,
+                             Tracer tracer) {
         this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
         Objects.requireNonNull(properties, "properties");
         this.previewLimit = properties.getStorage().getPreviewLimit();
+        this.queryTimer = new QueryTimer(Objects.requireNonNull(meterRegistry, "meterRegistry"),
+                Objects.requireNonNull(tracer, "tracer"));
     }
 
     @PostConstruct
@@ -45,31 +83,128 @@ public class EmailOfflineStore {
             
             statement.execute("""
                     CREATE TABLE IF NOT EXISTS email_messages (
-                        id VARCHAR(255) PRIMARY KEY,
+                        account_id VARCHAR(64) NOT NULL DEFAULT 'default',
+                        id VARCHAR(255) NOT NULL,
                         sender TEXT NOT NULL,
                         subject TEXT,
                         received_at TIMESTAMP WITH TIME ZONE,
                         unread BOOLEAN NOT NULL,
                         trashed BOOLEAN NOT NULL DEFAULT FALSE,
-                        raw BYTEA
+                        raw BYTEA,
+                        sender_email TEXT,
+                        folder VARCHAR(255) NOT NULL DEFAULT 'INBOX',
+                        has_attachments BOOLEAN NOT NULL DEFAULT FALSE,
+                        message_id_header TEXT,
+                        in_reply_to TEXT,
+                        references_header TEXT,
+                        thread_id VARCHAR(64),
+                        change_seq BIGINT NOT NULL DEFAULT 0,
+                        snippet TEXT,
+                        size_bytes BIGINT NOT NULL DEFAULT 0,
+                        starred BOOLEAN NOT NULL DEFAULT FALSE,
+                        raw_bytes BIGINT NOT NULL DEFAULT 0,
+                        raw_accessed_at BIGINT,
+                        PRIMARY KEY (account_id, id)
+                    )
+                    """);
+
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS email_threads (
+                        thread_id VARCHAR(64) PRIMARY KEY,
+                        account_id VARCHAR(64) NOT NULL DEFAULT 'default',
+                        subject TEXT,
+                        normalized_subject TEXT,
+                        latest_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                        participants TEXT,
+                        message_count INTEGER NOT NULL,
+                        unread_count INTEGER NOT NULL
                     )
                     """);
             
             ensureColumnExists(connection, "email_messages", "trashed",
                     "ALTER TABLE email_messages ADD COLUMN trashed BOOLEAN NOT NULL DEFAULT FALSE");
+            ensureColumnExists(connection, "email_messages", "sender_email",
+                    "ALTER TABLE email_messages ADD COLUMN sender_email TEXT");
+            ensureColumnExists(connection, "email_messages", "folder",
+                    "ALTER TABLE email_messages ADD COLUMN folder VARCHAR(255) NOT NULL DEFAULT 'INBOX'");
+            ensureColumnExists(connection, "email_messages", "has_attachments",
+                    "ALTER TABLE email_messages ADD COLUMN has_attachments BOOLEAN NOT NULL DEFAULT FALSE");
+            ensureColumnExists(connection, "email_messages", "message_id_header",
+                    "ALTER TABLE email_messages ADD COLUMN message_id_header TEXT");
+            ensureColumnExists(connection, "email_messages", "in_reply_to",
+                    "ALTER TABLE email_messages ADD COLUMN in_reply_to TEXT");
+            ensureColumnExists(connection, "email_messages", "references_header",
+                    "ALTER TABLE email_messages ADD COLUMN references_header TEXT");
+            ensureColumnExists(connection, "email_messages", "thread_id",
+                    "ALTER TABLE email_messages ADD COLUMN thread_id VARCHAR(64)");
+            ensureColumnExists(connection, "email_messages", "change_seq",
+                    "ALTER TABLE email_messages ADD COLUMN change_seq BIGINT NOT NULL DEFAULT 0");
+            // Rows cached before previews carried text get their snippet the next time they are synced or opened
+            ensureColumnExists(connection, "email_messages", "snippet",
+                    "ALTER TABLE email_messages ADD COLUMN snippet TEXT");
+            ensureColumnExists(connection, "email_messages", "size_bytes",
+                    "ALTER TABLE email_messages ADD COLUMN size_bytes BIGINT NOT NULL DEFAULT 0");
+            ensureColumnExists(connection, "email_messages", "starred",
+                    "ALTER TABLE email_messages ADD COLUMN starred BOOLEAN NOT NULL DEFAULT FALSE");
+            // Rows cached before accounts existed belong to the default account
+            ensureColumnExists(connection, "email_messages", "account_id",
+                    "ALTER TABLE email_messages ADD COLUMN account_id VARCHAR(64) NOT NULL DEFAULT 'default'");
+            ensureColumnExists(connection, "email_threads", "account_id",
+                    "ALTER TABLE email_threads ADD COLUMN account_id VARCHAR(64) NOT NULL DEFAULT 'default'");
+            // Bodies cached before retention existed are sized once and count as read at upgrade time
+            boolean bodiesTracked = SchemaSupport.columnExists(connection, "email_messages", "raw_bytes");
+            ensureColumnExists(connection, "email_messages", "raw_bytes",
+                    "ALTER TABLE email_messages ADD COLUMN raw_bytes BIGINT NOT NULL DEFAULT 0");
+            ensureColumnExists(connection, "email_messages", "raw_accessed_at",
+                    "ALTER TABLE email_messages ADD COLUMN raw_accessed_at BIGINT");
+            if (!bodiesTracked) {
+                int sized = bodies.backfill(connection, System.currentTimeMillis());
+                if (sized > 0) {
+                    log.info("Sized {} cached message bodies", sized);
+                }
+            }
+            SchemaSupport.ensurePrimaryKey(connection, "email_messages", "account_id", "id");
+            backfillSenderEmail(connection);
+            versions.initialize(connection);
+            pendingFlags.initialize(connection);
+            mutations.initialize(connection);
+            bodies.initialize(connection);
+            versions.currentVersions(connection).forEach((accountId, version) ->
+                    committedVersions.put(accountId, new AtomicLong(version)));
 
-            boolean isSqlite = isSqlite(connection);
-            String receivedAtIndexSql = isSqlite
-                    ? "CREATE INDEX IF NOT EXISTS idx_received_at ON email_messages(received_at DESC)"
-                    : "CREATE INDEX IF NOT EXISTS idx_received_at ON email_messages(received_at DESC NULLS LAST)";
-            
-            // Create index for faster queries
-            statement.execute(receivedAtIndexSql);
-            
-            statement.execute("""
-                    CREATE INDEX IF NOT EXISTS idx_trashed 
-                    ON email_messages(trashed)
-                    """);
+            boolean isSqlite = SchemaSupport.isSqlite(connection);
+
+            // Filter indexes for the listings: every filter shape in queryPreviews leads with account_id and trashed
+            // and ends with the received_at sort key, so each page is found by a range scan in the requested order
+            // and stops after its limit. They do not cover the selected columns; matching rows are read from the table.
+            String order = isSqlite ? "received_at DESC, id DESC" : "received_at DESC NULLS LAST, id DESC";
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_account_listing ON email_messages(account_id, trashed, " + order + ")");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_account_sender ON email_messages(account_id, sender_email, trashed, " + order + ")");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_account_folder ON email_messages(account_id, folder, trashed, " + order + ")");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_account_unread ON email_messages(account_id, trashed, " + order + ") WHERE unread = TRUE");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_account_attachments ON email_messages(account_id, trashed, " + order + ") WHERE has_attachments = TRUE");
+
+            // Threading lookups by header and per-thread batch loads
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_account_message_id ON email_messages(account_id, message_id_header)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_account_in_reply_to ON email_messages(account_id, in_reply_to)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_thread ON email_messages(thread_id, received_at)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_threads_account_latest ON email_threads(account_id, latest_at DESC, thread_id DESC)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_threads_account_subject ON email_threads(account_id, normalized_subject, latest_at DESC)");
+
+            // Delta listings scan only rows changed after the client's version
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_account_change_seq ON email_messages(account_id, change_seq)");
+
+            // Superseded by the account-leading indexes above
+            for (String legacyIndex : List.of("idx_trashed", "idx_received_at", "idx_messages_listing", "idx_messages_sender",
+                    "idx_messages_folder", "idx_messages_unread", "idx_messages_attachments", "idx_messages_message_id",
+                    "idx_messages_in_reply_to", "idx_threads_latest", "idx_threads_subject", "idx_messages_change_seq")) {
+                statement.execute("DROP INDEX IF EXISTS " + legacyIndex);
+            }
+            backfillThreads(connection);
+            int pruned = versions.pruneTombstones(connection);
+            if (pruned > 0) {
+                log.info("Pruned {} expired tombstones", pruned);
+            }
             
             log.info("Email messages table initialized");
         } catch (SQLException ex) {
@@ -77,47 +212,79 @@ public class EmailOfflineStore {
         }
     }
 
-    private boolean isSqlite(Connection connection) throws SQLException {
-        return "SQLite".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
-    }
-
-    private void ensureColumnExists(Connection connection, String tableName, String columnName, String alterStatement) throws SQLException {
-        if (columnExists(connection, tableName, columnName)) {
+    private void backfillSenderEmail(Connection connection) throws SQLException {
+        List<String[]> pending = new ArrayList<>();
+        try (Statement select = connection.createStatement();
+             ResultSet resultSet = select.executeQuery("SELECT account_id, id, sender FROM email_messages WHERE sender_email IS NULL")) {
+            while (resultSet.next()) {
+                pending.add(new String[]{resultSet.getString("account_id"), resultSet.getString("id"), resultSet.getString("sender")});
+            }
+        }
+        if (pending.isEmpty()) {
             return;
         }
 
-        try (Statement alter = connection.createStatement()) {
-            alter.execute(alterStatement);
-            log.info("Added missing column '{}' to table '{}'", columnName, tableName);
+        boolean autoCommit = connection.getAutoCommit();
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE email_messages SET sender_email = ? WHERE account_id = ? AND id = ?")) {
+            connection.setAutoCommit(false);
+            for (String[] row : pending) {
+                update.setString(1, EmailAddresses.normalize(row[2]));
+                update.setString(2, row[0]);
+                update.setString(3, row[1]);
+                update.addBatch();
+            }
+            update.executeBatch();
+            connection.commit();
+            log.info("Backfilled sender_email for {} cached messages", pending.size());
+        } finally {
+            connection.setAutoCommit(autoCommit);
         }
     }
 
-    private boolean columnExists(Connection connection, String tableName, String columnName) throws SQLException {
-        DatabaseMetaData metaData = connection.getMetaData();
-        String normalizedTable = tableName;
-        String normalizedColumn = columnName;
-
-        if ("SQLite".equalsIgnoreCase(metaData.getDatabaseProductName())) {
-            normalizedTable = tableName.toLowerCase(Locale.ROOT);
-            normalizedColumn = columnName.toLowerCase(Locale.ROOT);
+    private void backfillThreads(Connection connection) throws SQLException {
+        Map<String, List<ThreadCandidate>> pending = new HashMap<>();
+        try (Statement select = connection.createStatement();
+             ResultSet resultSet = select.executeQuery(
+                     "SELECT account_id, id, subject, received_at, message_id_header, in_reply_to, references_header "
+                             + "FROM email_messages WHERE thread_id IS NULL")) {
+            while (resultSet.next()) {
+                pending.computeIfAbsent(resultSet.getString("account_id"), accountId -> new ArrayList<>()).add(new ThreadCandidate(
+                        resultSet.getString("id"),
+                        resultSet.getString("subject"),
+                        toDateTime(resultSet.getTimestamp("received_at")),
+                        new ThreadHeaders(
+                                resultSet.getString("message_id_header"),
+                                resultSet.getString("in_reply_to"),
+                                resultSet.getString("references_header"))));
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
         }
 
-        try (ResultSet columns = metaData.getColumns(null, null, normalizedTable, normalizedColumn)) {
-            if (columns.next()) {
-                return true;
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            connection.setAutoCommit(false);
+            for (Map.Entry<String, List<ThreadCandidate>> account : pending.entrySet()) {
+                threadIndexer.index(connection, account.getKey(), account.getValue());
             }
+            connection.commit();
+            log.info("Assigned threads to cached messages of {} accounts", pending.size());
+        } finally {
+            connection.setAutoCommit(autoCommit);
         }
+    }
 
-        try (ResultSet columns = metaData.getColumns(null, null, tableName, null)) {
-            while (columns.next()) {
-                String existingColumn = columns.getString("COLUMN_NAME");
-                if (existingColumn != null && existingColumn.equalsIgnoreCase(columnName)) {
-                    return true;
-                }
-            }
+    private void ensureColumnExists(Connection connection, String tableName, String columnName, String alterStatement) throws SQLException {
+        if (SchemaSupport.columnExists(connection, tableName, columnName)) {
+            return;
         }
 
-        return false;
+        try (Statement alter = connection.createStatement()) {
+            alter.execute(alterStatement);
+            log.info("Added missing column '{}' to table '{}'", columnName, tableName);
+        }
     }
 
     public void upsertMessages(List<StoredEmail> messages) {
@@ -125,22 +292,59 @@ public class EmailOfflineStore {
             return;
         }
 
-        try (Connection connection = dataSource.getConnection();
+        String accountId = AccountContext.currentAccountId();
+        try (QueryTimer.Sample timing = queryTimer.start("upsert_messages");
+             Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
                      """
-                             INSERT INTO email_messages (id, sender, subject, received_at, unread, trashed, raw)
-                             VALUES (?, ?, ?, ?, ?, FALSE, ?)
-                             ON CONFLICT(id) DO UPDATE SET
+                             INSERT INTO email_messages (id, sender, subject, received_at, unread, trashed, raw,
+                                                         sender_email, folder, has_attachments,
+                                                         message_id_header, in_reply_to, references_header, change_seq,
+                                                         account_id, snippet, size_bytes, starred, raw_bytes,
+                                                         raw_accessed_at)
+                             VALUES (?, ?, ?, ?, ?, FALSE, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                             ON CONFLICT(account_id, id) DO UPDATE SET
+                                 change_seq = CASE
+                                     WHEN email_messages.sender IS DISTINCT FROM EXCLUDED.sender
+                                         OR email_messages.subject IS DISTINCT FROM EXCLUDED.subject
+                                         OR email_messages.received_at IS DISTINCT FROM EXCLUDED.received_at
+                                         OR (email_messages.unread IS DISTINCT FROM EXCLUDED.unread AND NOT %1$s)
+                                         OR (email_messages.starred IS DISTINCT FROM EXCLUDED.starred AND NOT %2$s)
+                                         OR email_messages.folder IS DISTINCT FROM EXCLUDED.folder
+                                         OR email_messages.has_attachments IS DISTINCT FROM EXCLUDED.has_attachments
+                                         OR (EXCLUDED.snippet IS NOT NULL AND email_messages.snippet IS DISTINCT FROM EXCLUDED.snippet)
+                                         OR (EXCLUDED.size_bytes > 0 AND email_messages.size_bytes <> EXCLUDED.size_bytes)
+                                     THEN EXCLUDED.change_seq
+                                     ELSE email_messages.change_seq
+                                 END,
                                  sender = EXCLUDED.sender,
                                  subject = EXCLUDED.subject,
                                  received_at = EXCLUDED.received_at,
-                                 unread = EXCLUDED.unread,
-                                 raw = EXCLUDED.raw
-                             """)) {
+                                 unread = CASE WHEN %1$s THEN email_messages.unread ELSE EXCLUDED.unread END,
+                                 starred = CASE WHEN %2$s THEN email_messages.starred ELSE EXCLUDED.starred END,
+                                 raw = COALESCE(EXCLUDED.raw, email_messages.raw),
+                                 raw_bytes = CASE WHEN EXCLUDED.raw IS NULL THEN email_messages.raw_bytes ELSE EXCLUDED.raw_bytes END,
+                                 raw_accessed_at = CASE WHEN EXCLUDED.raw IS NULL THEN email_messages.raw_accessed_at ELSE EXCLUDED.raw_accessed_at END,
+                                 sender_email = EXCLUDED.sender_email,
+                                 folder = EXCLUDED.folder,
+                                 has_attachments = EXCLUDED.has_attachments,
+                                 message_id_header = COALESCE(EXCLUDED.message_id_header, email_messages.message_id_header),
+                                 in_reply_to = COALESCE(EXCLUDED.in_reply_to, email_messages.in_reply_to),
+                                 references_header = COALESCE(EXCLUDED.references_header, email_messages.references_header),
+                                 snippet = COALESCE(EXCLUDED.snippet, email_messages.snippet),
+                                 size_bytes = CASE WHEN EXCLUDED.size_bytes > 0 THEN EXCLUDED.size_bytes ELSE email_messages.size_bytes END
+                             """.formatted(PendingFlagChanges.PENDING_SEEN, PendingFlagChanges.PENDING_FLAGGED))) {
 
             connection.setAutoCommit(false);
+            long now = System.currentTimeMillis();
+            long version = versions.allocate(connection, accountId);
+            // A message deleted locally stays gone while the server still has it, until the delete is replayed
+            Set<String> pendingDeletes = mutations.pendingDeletes(connection, accountId);
+            List<StoredEmail> upserted = messages.stream()
+                    .filter(message -> !pendingDeletes.contains(message.id()))
+                    .toList();
 
-            for (StoredEmail message : messages) {
+            for (StoredEmail message : upserted) {
                 statement.setString(1, message.id());
                 statement.setString(2, message.from());
                 statement.setString(3, message.subject());
@@ -155,118 +359,451 @@ public class EmailOfflineStore {
                 } else {
                     statement.setNull(6, java.sql.Types.BINARY);
                 }
+                statement.setString(7, EmailAddresses.normalize(message.from()));
+                statement.setString(8, message.folder());
+                statement.setBoolean(9, message.hasAttachments());
+                statement.setString(10, ThreadIndexer.firstMessageId(message.threadHeaders().messageId()));
+                statement.setString(11, ThreadIndexer.firstMessageId(message.threadHeaders().inReplyTo()));
+                statement.setString(12, message.threadHeaders().references());
+                statement.setLong(13, version);
+                statement.setString(14, accountId);
+                statement.setString(15, message.snippet());
+                statement.setLong(16, message.sizeBytes());
+                statement.setBoolean(17, message.starred());
+                // Sync passes no body: the one already cached, if any, stays along with its size and last read
+                if (message.rawMessage() != null) {
+                    statement.setLong(18, message.rawMessage().length);
+                    statement.setLong(19, now);
+                } else {
+                    statement.setLong(18, 0L);
+                    statement.setNull(19, java.sql.Types.BIGINT);
+                }
                 statement.addBatch();
             }
 
             statement.executeBatch();
+            // Re-syncing unchanged messages must not move the version, or every poll would look modified
+            boolean changed = isStamped(connection, accountId, version);
+            if (!changed) {
+                versions.release(connection, accountId, version);
+            }
+            threadIndexer.index(connection, accountId, upserted.stream()
+                    .map(message -> new ThreadCandidate(message.id(), message.subject(), message.receivedAt(), message.threadHeaders()))
+                    .toList());
+            if (changed) {
+                versions.announce(connection, accountId, version);
+            }
             connection.commit();
-            log.debug("Upserted {} email messages", messages.size());
+            if (changed) {
+                publish(accountId, version);
+            }
+            log.debug("Upserted {} email messages for account {}", messages.size(), accountId);
         } catch (SQLException ex) {
             log.error("Failed to persist offline email cache", ex);
         }
     }
 
+    /**
+     * Version of the last write committed through this store for the current account; lets callers validate
+     * cached listings without a database round trip.
+     */
+    public long currentVersion() {
+        return currentVersion(AccountContext.currentAccountId());
+    }
+
+    public long currentVersion(String accountId) {
+        AtomicLong version = committedVersions.get(accountId);
+        return version != null ? version.get() : 0L;
+    }
+
+    public void addChangeListener(MailboxChangeListener listener) {
+        changeListeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * Picks up a version committed by another replica sharing the database and notifies listeners if the current
+     * account's mailbox moved on since this store's last write.
+     */
+    public long reloadVersion() {
+        return reloadVersion(AccountContext.currentAccountId());
+    }
+
+    public long reloadVersion(String accountId) {
+        try (QueryTimer.Sample timing = queryTimer.start("reload_version");
+             Connection connection = dataSource.getConnection()) {
+            long version = versions.current(connection, accountId);
+            if (version > currentVersion(accountId)) {
+                publish(accountId, version);
+            }
+            return version;
+        } catch (SQLException ex) {
+            log.warn("Failed to reload mailbox version for account {}", accountId, ex);
+            return currentVersion(accountId);
+        }
+    }
+
+    /**
+     * Reloads the version of every account, for when this replica may have missed change notifications.
+     */
+    public void reloadAllVersions() {
+        try (QueryTimer.Sample timing = queryTimer.start("reload_all_versions");
+             Connection connection = dataSource.getConnection()) {
+            versions.currentVersions(connection).forEach((accountId, version) -> {
+                if (version > currentVersion(accountId)) {
+                    publish(accountId, version);
+                }
+            });
+        } catch (SQLException ex) {
+            log.warn("Failed to reload mailbox versions", ex);
+        }
+    }
+
+    /**
+     * Records a version another replica announced as committed and notifies listeners.
+     */
+    public void applyRemoteVersion(String accountId, long version) {
+        publish(accountId, version);
+    }
+
+    private void publish(String accountId, long version) {
+        committedVersions.computeIfAbsent(accountId, id -> new AtomicLong()).accumulateAndGet(version, Math::max);
+        for (MailboxChangeListener listener : changeListeners) {
+            try {
+                listener.onMailboxChanged(accountId, version);
+            } catch (RuntimeException ex) {
+                log.warn("Mailbox change listener failed for account {} version {}", accountId, version, ex);
+            }
+        }
+    }
+
+    private boolean isStamped(Connection connection, String accountId, long version) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM email_messages WHERE account_id = ? AND change_seq = ? LIMIT 1")) {
+            statement.setString(1, accountId);
+            statement.setLong(2, version);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
     public List<EmailPreview> loadPreviews() {
-        List<EmailPreview> results = new ArrayList<>();
+        return queryPreviews(false, EmailFilter.none(), null, 0L, PreviewFields.all());
+    }
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "SELECT id, sender, subject, received_at, unread FROM email_messages WHERE trashed = FALSE ORDER BY received_at DESC NULLS LAST, id DESC LIMIT ?")) {
+    /**
+     * Loads inbox previews matching {@code filter}, leaving out messages whose normalized sender equals
+     * {@code excludedSenderEmail} (typically the mailbox owner) so pages are not short after filtering.
+     */
+    public List<EmailPreview> loadPreviews(EmailFilter filter, String excludedSenderEmail) {
+        return loadPreviews(filter, excludedSenderEmail, PreviewFields.all());
+    }
 
-            statement.setInt(1, previewLimit);
+    /**
+     * Like {@link #loadPreviews(EmailFilter, String)}, selecting only the columns behind {@code fields}.
+     */
+    public List<EmailPreview> loadPreviews(EmailFilter filter, String excludedSenderEmail, PreviewFields fields) {
+        return queryPreviews(false, filter, excludedSenderEmail, 0L, fields);
+    }
+
+    /**
+     * Returns the inbox changes since {@code sinceVersion}: previews of rows changed after it that still match
+     * the view, and the IDs of rows that were deleted or no longer match. Falls back to a full listing when the
+     * client has no version, its version predates the retained tombstones, or the change set exceeds a page.
+     */
+    public MailboxDelta loadInboxChanges(EmailFilter filter, String excludedSenderEmail, long sinceVersion) {
+        return loadInboxChanges(filter, excludedSenderEmail, sinceVersion, PreviewFields.all());
+    }
 
+    public MailboxDelta loadInboxChanges(EmailFilter filter, String excludedSenderEmail, long sinceVersion,
+                                         PreviewFields fields) {
+        String accountId = AccountContext.currentAccountId();
+        long version;
+        long floor;
+        try (QueryTimer.Sample timing = queryTimer.start("mailbox_version");
+             Connection connection = dataSource.getConnection()) {
+            // Read before the rows: a write racing this call is then re-sent on the next poll instead of lost
+            version = versions.current(connection, accountId);
+            floor = versions.floor(connection, accountId);
+        } catch (SQLException ex) {
+            log.error("Failed to read mailbox version", ex);
+            return MailboxDelta.full(0L, loadPreviews(filter, excludedSenderEmail, fields));
+        }
+
+        if (sinceVersion <= 0 || sinceVersion < floor || sinceVersion > version) {
+            return MailboxDelta.full(version, loadPreviews(filter, excludedSenderEmail, fields));
+        }
+        if (sinceVersion == version) {
+            return MailboxDelta.notModified(version);
+        }
+
+        List<EmailPreview> changed = queryPreviews(false, filter, excludedSenderEmail, sinceVersion, fields);
+        Set<String> changedIds = new HashSet<>();
+        for (EmailPreview preview : changed) {
+            changedIds.add(preview.id());
+        }
+
+        List<String> removed = new ArrayList<>();
+        try (QueryTimer.Sample timing = queryTimer.start("load_inbox_removals");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT id FROM email_messages WHERE account_id = ? AND change_seq > ? LIMIT ?");
+             CallDeadline.Registration deadline = CallDeadline.bind(statement)) {
+
+            statement.setString(1, accountId);
+            statement.setLong(2, sinceVersion);
+            statement.setInt(3, previewLimit + 1);
+            int touched = 0;
             try (ResultSet resultSet = statement.executeQuery()) {
                 while (resultSet.next()) {
+                    touched++;
                     String id = resultSet.getString("id");
-                    String sender = resultSet.getString("sender");
-                    String subject = resultSet.getString("subject");
-                    Timestamp receivedAt = resultSet.getTimestamp("received_at");
-                    boolean unread = resultSet.getBoolean("unread");
-
-                    OffsetDateTime timestamp = null;
-                    if (receivedAt != null) {
-                        timestamp = receivedAt.toInstant().atZone(java.time.ZoneId.systemDefault()).toOffsetDateTime();
+                    if (!changedIds.contains(id)) {
+                        removed.add(id);
                     }
-
-                    results.add(new EmailPreview(id, sender, subject, timestamp, unread));
+                }
+            }
+            if (touched > previewLimit) {
+                return MailboxDelta.full(version, loadPreviews(filter, excludedSenderEmail, fields));
+            }
+            for (String id : versions.tombstonesSince(connection, accountId, sinceVersion)) {
+                if (!changedIds.contains(id)) {
+                    removed.add(id);
                 }
             }
         } catch (SQLException ex) {
-            log.error("Failed to read offline email cache", ex);
+            log.error("Failed to compute inbox changes since version {}", sinceVersion, ex);
+            return MailboxDelta.full(version, loadPreviews(filter, excludedSenderEmail, fields));
         }
 
-        return results;
+        return new MailboxDelta(version, false, changed, removed);
     }
 
     public List<EmailPreview> loadTrashPreviews() {
-        List<EmailPreview> results = new ArrayList<>();
+        return queryPreviews(true, EmailFilter.none(), null, 0L, PreviewFields.all());
+    }
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "SELECT id, sender, subject, received_at, unread FROM email_messages WHERE trashed = TRUE ORDER BY received_at DESC NULLS LAST, id DESC LIMIT ?")) {
+    public List<EmailPreview> loadTrashPreviews(EmailFilter filter) {
+        return loadTrashPreviews(filter, PreviewFields.all());
+    }
+
+    public List<EmailPreview> loadTrashPreviews(EmailFilter filter, PreviewFields fields) {
+        return queryPreviews(true, filter, null, 0L, fields);
+    }
+
+    private static String previewOperation(boolean trashed, long changedSince) {
+        if (changedSince > 0) {
+            return "load_inbox_changes";
+        }
+        return trashed ? "load_trash_previews" : "load_previews";
+    }
 
-            statement.setInt(1, previewLimit);
+    /**
+     * Column list for the preview fields a caller asked for; filtering and ordering do not need the columns to
+     * be selected, so a listing of ids and subjects never reads the sender or date.
+     */
+    private static String previewColumns(PreviewFields fields) {
+        StringBuilder columns = new StringBuilder("id");
+        if (fields.from()) {
+            columns.append(", sender");
+        }
+        if (fields.subject()) {
+            columns.append(", subject");
+        }
+        if (fields.receivedAt()) {
+            columns.append(", received_at");
+        }
+        if (fields.unread()) {
+            columns.append(", unread");
+        }
+        if (fields.snippet()) {
+            columns.append(", snippet");
+        }
+        if (fields.sizeBytes()) {
+            columns.append(", size_bytes");
+        }
+        if (fields.hasAttachments()) {
+            columns.append(", has_attachments");
+        }
+        if (fields.starred()) {
+            columns.append(", starred");
+        }
+        return columns.toString();
+    }
+
+    private static EmailPreview toPreview(ResultSet resultSet, PreviewFields fields) throws SQLException {
+        return new EmailPreview(
+                resultSet.getString("id"),
+                fields.from() ? resultSet.getString("sender") : null,
+                fields.subject() ? resultSet.getString("subject") : null,
+                fields.receivedAt() ? toDateTime(resultSet.getTimestamp("received_at")) : null,
+                fields.unread() && resultSet.getBoolean("unread"),
+                fields.snippet() ? resultSet.getString("snippet") : null,
+                fields.sizeBytes() ? resultSet.getLong("size_bytes") : 0L,
+                fields.hasAttachments() && resultSet.getBoolean("has_attachments"),
+                fields.starred() && resultSet.getBoolean("starred"));
+    }
+
+    private List<EmailPreview> queryPreviews(boolean trashed, EmailFilter filter, String excludedSenderEmail,
+                                             long changedSince, PreviewFields fields) {
+        EmailFilter effectiveFilter = filter != null ? filter : EmailFilter.none();
+        String excludedSender = EmailAddresses.normalize(excludedSenderEmail);
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(previewColumns(fields))
+                .append(" FROM email_messages WHERE account_id = ? AND trashed = ?");
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(AccountContext.currentAccountId());
+        parameters.add(trashed);
+
+        if (effectiveFilter.senderEmail() != null) {
+            sql.append(" AND sender_email = ?");
+            parameters.add(effectiveFilter.senderEmail());
+        }
+        if (effectiveFilter.folder() != null) {
+            sql.append(" AND folder = ?");
+            parameters.add(effectiveFilter.folder());
+        }
+        if (effectiveFilter.unreadOnly()) {
+            sql.append(" AND unread = TRUE");
+        }
+        if (effectiveFilter.hasAttachments()) {
+            sql.append(" AND has_attachments = TRUE");
+        }
+        if (effectiveFilter.receivedAfter() != null) {
+            sql.append(" AND received_at >= ?");
+            parameters.add(Timestamp.from(effectiveFilter.receivedAfter().toInstant()));
+        }
+        if (effectiveFilter.receivedBefore() != null) {
+            sql.append(" AND received_at < ?");
+            parameters.add(Timestamp.from(effectiveFilter.receivedBefore().toInstant()));
+        }
+        if (excludedSender != null) {
+            sql.append(" AND (sender_email IS NULL OR sender_email <> ?)");
+            parameters.add(excludedSender);
+        }
+        if (changedSince > 0) {
+            sql.append(" AND change_seq > ?");
+            parameters.add(changedSince);
+        }
+        sql.append(" ORDER BY received_at DESC NULLS LAST, id DESC LIMIT ?");
+        parameters.add(previewLimit);
+
+        List<EmailPreview> results = new ArrayList<>();
+        try (QueryTimer.Sample timing = queryTimer.start(previewOperation(trashed, changedSince));
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql.toString());
+             CallDeadline.Registration deadline = CallDeadline.bind(statement)) {
+
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
 
             try (ResultSet resultSet = statement.executeQuery()) {
                 while (resultSet.next()) {
-                    String id = resultSet.getString("id");
-                    String sender = resultSet.getString("sender");
-                    String subject = resultSet.getString("subject");
-                    Timestamp receivedAt = resultSet.getTimestamp("received_at");
-                    boolean unread = resultSet.getBoolean("unread");
-
-                    OffsetDateTime timestamp = null;
-                    if (receivedAt != null) {
-                        timestamp = receivedAt.toInstant().atZone(java.time.ZoneId.systemDefault()).toOffsetDateTime();
-                    }
-
-                    results.add(new EmailPreview(id, sender, subject, timestamp, unread));
+                    results.add(toPreview(resultSet, fields));
                 }
             }
         } catch (SQLException ex) {
-            log.error("Failed to read trash email cache", ex);
+            log.error("Failed to read {} email cache", trashed ? "trash" : "offline", ex);
         }
 
         return results;
     }
 
     public boolean markAsTrashed(String id) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "UPDATE email_messages SET trashed = TRUE WHERE id = ?")) {
+        return setTrashed(id, true, null);
+    }
 
-            statement.setString(1, id);
-            int rowsAffected = statement.executeUpdate();
-            log.debug("Marked email {} as trashed, rows affected: {}", id, rowsAffected);
-            return rowsAffected > 0;
-        } catch (SQLException ex) {
-            log.error("Failed to mark email as trashed: id={}", id, ex);
+    public boolean unmarkAsTrashed(String id) {
+        return setTrashed(id, false, null);
+    }
+
+    public boolean permanentlyDelete(String id) {
+        return delete(id, null);
+    }
+
+    /**
+     * Applies {@code operation} to the cached message and journals it for replay to IMAP, in one transaction.
+     * Returns {@code false}, journaling nothing, unless the message is cached under its IMAP UID: replay finds it
+     * on the server by that UID.
+     */
+    public boolean applyMutation(String id, MailboxMutation.Operation operation) {
+        if (!isImapUid(id)) {
+            log.debug("Not applying {} to email {}: not an IMAP UID", operation, id);
             return false;
         }
+        return switch (operation) {
+            case TRASH -> setTrashed(id, true, operation);
+            case RESTORE -> setTrashed(id, false, operation);
+            case DELETE, PURGE -> delete(id, operation);
+        };
     }
 
-    public boolean unmarkAsTrashed(String id) {
-        try (Connection connection = dataSource.getConnection();
+    private boolean setTrashed(String id, boolean trashed, MailboxMutation.Operation journaled) {
+        String accountId = AccountContext.currentAccountId();
+        try (QueryTimer.Sample timing = queryTimer.start(trashed ? "mark_as_trashed" : "unmark_as_trashed");
+             Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
-                     "UPDATE email_messages SET trashed = FALSE WHERE id = ?")) {
+                     "UPDATE email_messages SET trashed = ?, change_seq = ? WHERE account_id = ? AND id = ?")) {
 
-            statement.setString(1, id);
+            connection.setAutoCommit(false);
+            long version = versions.allocate(connection, accountId);
+            statement.setBoolean(1, trashed);
+            statement.setLong(2, version);
+            statement.setString(3, accountId);
+            statement.setString(4, id);
             int rowsAffected = statement.executeUpdate();
-            log.debug("Reverted trashed flag for email {}, rows affected: {}", id, rowsAffected);
+            if (rowsAffected == 0) {
+                versions.release(connection, accountId, version);
+            } else if (journaled != null) {
+                mutations.append(connection, accountId, id, journaled, System.currentTimeMillis());
+            }
+            threadIndexer.refresh(connection, accountId, threadIndexer.threadIdOf(connection, accountId, id));
+            if (rowsAffected > 0) {
+                versions.announce(connection, accountId, version);
+            }
+            connection.commit();
+            if (rowsAffected > 0) {
+                publish(accountId, version);
+            }
+            log.debug("Set trashed={} on email {}, rows affected: {}", trashed, id, rowsAffected);
             return rowsAffected > 0;
         } catch (SQLException ex) {
-            log.error("Failed to revert trashed flag for email: id={}", id, ex);
+            log.error("Failed to set trashed={} on email: id={}", trashed, id, ex);
             return false;
         }
     }
 
-    public boolean permanentlyDelete(String id) {
-        try (Connection connection = dataSource.getConnection();
+    private boolean delete(String id, MailboxMutation.Operation journaled) {
+        String accountId = AccountContext.currentAccountId();
+        try (QueryTimer.Sample timing = queryTimer.start("permanently_delete");
+             Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
-                     "DELETE FROM email_messages WHERE id = ?")) {
+                     "DELETE FROM email_messages WHERE account_id = ? AND id = ?")) {
 
-            statement.setString(1, id);
+            connection.setAutoCommit(false);
+            long version = versions.allocate(connection, accountId);
+            if (journaled != null) {
+                // Journals nothing when the message is not cached
+                mutations.append(connection, accountId, id, journaled, System.currentTimeMillis());
+            }
+            String threadId = threadIndexer.threadIdOf(connection, accountId, id);
+            statement.setString(1, accountId);
+            statement.setString(2, id);
             int rowsAffected = statement.executeUpdate();
+            if (rowsAffected > 0) {
+                versions.tombstone(connection, accountId, id, version);
+            } else {
+                versions.release(connection, accountId, version);
+            }
+            threadIndexer.refresh(connection, accountId, threadId);
+            if (rowsAffected > 0) {
+                versions.announce(connection, accountId, version);
+            }
+            connection.commit();
+            if (rowsAffected > 0) {
+                publish(accountId, version);
+            }
             log.debug("Permanently deleted email {}, rows affected: {}", id, rowsAffected);
             return rowsAffected > 0;
         } catch (SQLException ex) {
@@ -275,17 +812,64 @@ public class EmailOfflineStore {
         }
     }
 
+    /**
+     * Whether {@code id} can be an IMAP UID, which is what cached messages are keyed by.
+     */
+    public static boolean isImapUid(String id) {
+        if (id == null || id.isEmpty() || id.length() > 10) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) < '0' || id.charAt(i) > '9') {
+                return false;
+            }
+        }
+        long uid = Long.parseLong(id);
+        return uid > 0 && uid <= 0xFFFF_FFFFL;
+    }
+
     public boolean updateMessageId(String oldId, String newId) {
-        if (Objects.equals(oldId, newId)) {
+        return updateMessageId(oldId, newId, null);
+    }
+
+    /**
+     * Re-keys a cached message after IMAP moved it to {@code folder}, or left it where the store has it if
+     * {@code null}, under the new UID {@code newId}. Journaled actions on the message follow it, even once it is
+     * no longer cached.
+     */
+    public boolean updateMessageId(String oldId, String newId, String folder) {
+        if (Objects.equals(oldId, newId) && folder == null) {
             return true;
         }
-        try (Connection connection = dataSource.getConnection();
+        String accountId = AccountContext.currentAccountId();
+        try (QueryTimer.Sample timing = queryTimer.start("update_message_id");
+             Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
-                     "UPDATE email_messages SET id = ? WHERE id = ?")) {
+                     "UPDATE email_messages SET id = ?, folder = COALESCE(?, folder), change_seq = ? WHERE account_id = ? AND id = ?")) {
 
+            // The row moves to a new ID: clients see the old one removed and the new one added
+            connection.setAutoCommit(false);
+            long version = versions.allocate(connection, accountId);
             statement.setString(1, newId);
-            statement.setString(2, oldId);
+            statement.setString(2, folder);
+            statement.setLong(3, version);
+            statement.setString(4, accountId);
+            statement.setString(5, oldId);
             int rowsAffected = statement.executeUpdate();
+            if (rowsAffected > 0 && !Objects.equals(oldId, newId)) {
+                versions.tombstone(connection, accountId, oldId, version);
+            } else if (rowsAffected == 0) {
+                versions.release(connection, accountId, version);
+            }
+            // Entries of a message deleted locally before its move was replayed follow it too
+            mutations.rename(connection, accountId, oldId, newId, folder);
+            if (rowsAffected > 0) {
+                versions.announce(connection, accountId, version);
+            }
+            connection.commit();
+            if (rowsAffected > 0) {
+                publish(accountId, version);
+            }
             log.debug("Updated email id from {} to {}, rows affected: {}", oldId, newId, rowsAffected);
             return rowsAffected > 0;
         } catch (SQLException ex) {
@@ -295,26 +879,290 @@ public class EmailOfflineStore {
     }
 
     public boolean markAsRead(String id) {
-        try (Connection connection = dataSource.getConnection();
+        return updateFlags(id, true, null);
+    }
+
+    /**
+     * Sets the read and starred state of a cached message, either left {@code null} to keep it, and queues the
+     * change for {@link #loadPendingFlagChanges} to write to IMAP. Returns {@code false} if the message is not
+     * cached or already had those flags, in which case nothing is queued.
+     */
+    public boolean updateFlags(String id, Boolean read, Boolean starred) {
+        if (read == null && starred == null) {
+            return false;
+        }
+        List<String> assignments = new ArrayList<>();
+        List<String> differences = new ArrayList<>();
+        if (read != null) {
+            assignments.add("unread = ?");
+            differences.add("unread <> ?");
+        }
+        if (starred != null) {
+            assignments.add("starred = ?");
+            differences.add("starred <> ?");
+        }
+        String accountId = AccountContext.currentAccountId();
+        try (QueryTimer.Sample timing = queryTimer.start("update_flags");
+             Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
-                     "UPDATE email_messages SET unread = FALSE WHERE id = ?")) {
+                     "UPDATE email_messages SET " + String.join(", ", assignments) + ", change_seq = ? "
+                             + "WHERE account_id = ? AND id = ? AND (" + String.join(" OR ", differences) + ")")) {
 
-            statement.setString(1, id);
+            connection.setAutoCommit(false);
+            long version = versions.allocate(connection, accountId);
+            int index = bindFlags(statement, 1, read, starred);
+            statement.setLong(index++, version);
+            statement.setString(index++, accountId);
+            statement.setString(index++, id);
+            bindFlags(statement, index, read, starred);
             int rowsAffected = statement.executeUpdate();
-            log.debug("Marked email {} as read, rows affected: {}", id, rowsAffected);
+            if (rowsAffected > 0) {
+                pendingFlags.record(connection, accountId, id, read, starred, System.currentTimeMillis());
+                threadIndexer.refresh(connection, accountId, threadIndexer.threadIdOf(connection, accountId, id));
+                versions.announce(connection, accountId, version);
+            } else {
+                versions.release(connection, accountId, version);
+            }
+            connection.commit();
+            if (rowsAffected > 0) {
+                publish(accountId, version);
+            }
+            log.debug("Updated flags of email {} (read={}, starred={}), rows affected: {}", id, read, starred, rowsAffected);
             return rowsAffected > 0;
         } catch (SQLException ex) {
-            log.error("Failed to mark email as read: id={}", id, ex);
+            log.error("Failed to update flags of email: id={}", id, ex);
             return false;
         }
     }
 
+    private static int bindFlags(PreparedStatement statement, int index, Boolean read, Boolean starred) throws SQLException {
+        if (read != null) {
+            statement.setBoolean(index++, !read);
+        }
+        if (starred != null) {
+            statement.setBoolean(index++, starred);
+        }
+        return index;
+    }
+
+    /**
+     * Accounts with flag changes that have not been written to IMAP yet.
+     */
+    public List<String> accountsWithPendingFlagChanges() {
+        try (QueryTimer.Sample timing = queryTimer.start("accounts_with_pending_flags");
+             Connection connection = dataSource.getConnection()) {
+            return pendingFlags.accountsWithUnflushed(connection);
+        } catch (SQLException ex) {
+            log.error("Failed to list accounts with pending flag changes", ex);
+            return List.of();
+        }
+    }
+
+    /**
+     * The current account's oldest flag changes that have not been written to IMAP yet, at most {@code limit}.
+     */
+    public List<FlagChange> loadPendingFlagChanges(int limit) {
+        try (QueryTimer.Sample timing = queryTimer.start("load_pending_flags");
+             Connection connection = dataSource.getConnection()) {
+            return pendingFlags.loadUnflushed(connection, AccountContext.currentAccountId(), limit);
+        } catch (SQLException ex) {
+            log.error("Failed to load pending flag changes", ex);
+            return List.of();
+        }
+    }
+
+    /**
+     * Records {@code changes} as written to IMAP. A message whose flags changed again since its change was
+     * loaded stays pending with the newer values.
+     */
+    public int markFlagChangesFlushed(Collection<FlagChange> changes) {
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        try (QueryTimer.Sample timing = queryTimer.start("mark_flags_flushed");
+             Connection connection = dataSource.getConnection()) {
+            return pendingFlags.markFlushed(connection, AccountContext.currentAccountId(), changes, System.currentTimeMillis());
+        } catch (SQLException ex) {
+            log.error("Failed to mark flag changes as flushed", ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Forgets flag changes of every account that were flushed more than {@code retention} ago, after which a
+     * sync takes the server's flags again.
+     */
+    public int pruneFlushedFlagChanges(Duration retention) {
+        try (QueryTimer.Sample timing = queryTimer.start("prune_flushed_flags");
+             Connection connection = dataSource.getConnection()) {
+            return pendingFlags.pruneFlushed(connection, System.currentTimeMillis() - retention.toMillis());
+        } catch (SQLException ex) {
+            log.error("Failed to prune flushed flag changes", ex);
+            return 0;
+        }
+    }
+
+    public long countPendingFlagChanges() {
+        try (QueryTimer.Sample timing = queryTimer.start("count_pending_flags");
+             Connection connection = dataSource.getConnection()) {
+            return pendingFlags.countUnflushed(connection);
+        } catch (SQLException ex) {
+            log.error("Failed to count pending flag changes", ex);
+            return 0L;
+        }
+    }
+
+    /**
+     * Accounts with journaled mailbox actions due for replay to IMAP.
+     */
+    public List<String> accountsWithDueMutations() {
+        try (QueryTimer.Sample timing = queryTimer.start("accounts_with_due_mutations");
+             Connection connection = dataSource.getConnection()) {
+            return mutations.accountsWithDue(connection, System.currentTimeMillis());
+        } catch (SQLException ex) {
+            log.error("Failed to list accounts with pending mailbox mutations", ex);
+            return List.of();
+        }
+    }
+
+    /**
+     * The current account's oldest journaled actions still to be replayed, at most {@code limit}, in the order
+     * they were made.
+     */
+    public List<MailboxMutation> loadPendingMutations(int limit) {
+        try (QueryTimer.Sample timing = queryTimer.start("load_pending_mutations");
+             Connection connection = dataSource.getConnection()) {
+            return mutations.loadPending(connection, AccountContext.currentAccountId(), limit);
+        } catch (SQLException ex) {
+            log.error("Failed to load pending mailbox mutations", ex);
+            return List.of();
+        }
+    }
+
+    /**
+     * The current account's journaled actions that are pending, failed or in conflict with the server, at most
+     * {@code limit}, oldest first.
+     */
+    public List<MailboxMutation> loadMutations(int limit) {
+        try (QueryTimer.Sample timing = queryTimer.start("load_mutations");
+             Connection connection = dataSource.getConnection()) {
+            return mutations.loadAll(connection, AccountContext.currentAccountId(), limit);
+        } catch (SQLException ex) {
+            log.error("Failed to load mailbox mutations", ex);
+            return List.of();
+        }
+    }
+
+    /**
+     * Drops {@code mutation} from the journal once IMAP reflects it.
+     */
+    public void completeMutation(MailboxMutation mutation) {
+        try (QueryTimer.Sample timing = queryTimer.start("complete_mutation");
+             Connection connection = dataSource.getConnection()) {
+            mutations.remove(connection, AccountContext.currentAccountId(), mutation.seq());
+        } catch (SQLException ex) {
+            log.error("Failed to complete mailbox mutation {}", mutation.seq(), ex);
+        }
+    }
+
+    /**
+     * Records an unsuccessful replay of {@code mutation}: still {@link MailboxMutation.Status#PENDING} to be tried
+     * again at {@code retryAt}, or settled as failed or in conflict, in which case {@code retryAt} is when it
+     * settled.
+     */
+    public void recordMutationAttempt(MailboxMutation mutation, MailboxMutation.Status status, String error,
+                                      Instant retryAt) {
+        try (QueryTimer.Sample timing = queryTimer.start("record_mutation_attempt");
+             Connection connection = dataSource.getConnection()) {
+            mutations.recordAttempt(connection, AccountContext.currentAccountId(), mutation.seq(), status, error,
+                    retryAt.toEpochMilli());
+        } catch (SQLException ex) {
+            log.error("Failed to record attempt of mailbox mutation {}", mutation.seq(), ex);
+        }
+    }
+
+    /**
+     * Forgets failed and conflicting actions of every account settled more than {@code retention} ago.
+     */
+    public int pruneSettledMutations(Duration retention) {
+        try (QueryTimer.Sample timing = queryTimer.start("prune_settled_mutations");
+             Connection connection = dataSource.getConnection()) {
+            return mutations.pruneSettled(connection, System.currentTimeMillis() - retention.toMillis());
+        } catch (SQLException ex) {
+            log.error("Failed to prune settled mailbox mutations", ex);
+            return 0;
+        }
+    }
+
+    public long countPendingMutations() {
+        try (QueryTimer.Sample timing = queryTimer.start("count_pending_mutations");
+             Connection connection = dataSource.getConnection()) {
+            return mutations.countPending(connection);
+        } catch (SQLException ex) {
+            log.error("Failed to count pending mailbox mutations", ex);
+            return 0L;
+        }
+    }
+
+    /**
+     * Writes the body reads noted since the last call, which {@link #evictLeastRecentlyUsedBodies} orders by.
+     */
+    public int flushBodyAccesses() {
+        try (QueryTimer.Sample timing = queryTimer.start("flush_body_accesses");
+             Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            int flushed = bodies.flushAccesses(connection);
+            connection.commit();
+            return flushed;
+        } catch (SQLException ex) {
+            log.error("Failed to record message body reads", ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Bytes of raw message content cached across every account.
+     */
+    public long cachedBodyBytes() {
+        try (QueryTimer.Sample timing = queryTimer.start("cached_body_bytes");
+             Connection connection = dataSource.getConnection()) {
+            return bodies.cachedBytes(connection);
+        } catch (SQLException ex) {
+            log.error("Failed to measure cached message bodies", ex);
+            return 0L;
+        }
+    }
+
+    /**
+     * Drops the raw content of up to {@code limit} messages of any account, least recently read first, in one
+     * transaction. Their previews stay; opening one fetches its body from IMAP again.
+     */
+    public BodyEviction evictLeastRecentlyUsedBodies(int limit) {
+        try (QueryTimer.Sample timing = queryTimer.start("evict_bodies");
+             Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                BodyEviction eviction = bodies.evictOldest(connection, limit);
+                connection.commit();
+                return eviction;
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to evict cached message bodies", ex);
+            return new BodyEviction(0, 0L);
+        }
+    }
+
     public boolean isTrashed(String id) {
-        try (Connection connection = dataSource.getConnection();
+        try (QueryTimer.Sample timing = queryTimer.start("is_trashed");
+             Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
-                     "SELECT trashed FROM email_messages WHERE id = ?")) {
+                     "SELECT trashed FROM email_messages WHERE account_id = ? AND id = ?")) {
 
-            statement.setString(1, id);
+            statement.setString(1, AccountContext.currentAccountId());
+            statement.setString(2, id);
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (resultSet.next()) {
                     return resultSet.getBoolean("trashed");
@@ -326,27 +1174,75 @@ public class EmailOfflineStore {
         return false;
     }
 
-    public Optional<StoredEmail> loadEmailById(String id) {
-        try (Connection connection = dataSource.getConnection();
+    /**
+     * Returns which of {@code ids} already have a stored snippet, so a sync only reads text for the rest.
+     */
+    public Set<String> loadIdsWithSnippet(Collection<String> ids) {
+        Set<String> found = new HashSet<>();
+        if (ids == null || ids.isEmpty()) {
+            return found;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        try (QueryTimer.Sample timing = queryTimer.start("load_ids_with_snippet");
+             Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
-                     "SELECT id, sender, subject, received_at, unread, raw FROM email_messages WHERE id = ?")) {
+                     "SELECT id FROM email_messages WHERE account_id = ? AND snippet IS NOT NULL AND id IN (" + placeholders + ")");
+             CallDeadline.Registration deadline = CallDeadline.bind(statement)) {
 
-            statement.setString(1, id);
+            statement.setString(1, AccountContext.currentAccountId());
+            int index = 2;
+            for (String id : ids) {
+                statement.setString(index++, id);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    found.add(resultSet.getString("id"));
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to look up stored snippets", ex);
+        }
+        return found;
+    }
+
+    /**
+     * Reads the preview columns of one message without its raw content, or empty if it is not cached.
+     */
+    public Optional<EmailPreview> loadPreviewById(String id) {
+        try (QueryTimer.Sample timing = queryTimer.start("load_preview_by_id");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT " + previewColumns(PreviewFields.all()) + " FROM email_messages WHERE account_id = ? AND id = ?");
+             CallDeadline.Registration deadline = CallDeadline.bind(statement)) {
+
+            statement.setString(1, AccountContext.currentAccountId());
+            statement.setString(2, id);
 
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (resultSet.next()) {
-                    String sender = resultSet.getString("sender");
-                    String subject = resultSet.getString("subject");
-                    Timestamp receivedAt = resultSet.getTimestamp("received_at");
-                    boolean unread = resultSet.getBoolean("unread");
-                    byte[] raw = resultSet.getBytes("raw");
-
-                    OffsetDateTime timestamp = null;
-                    if (receivedAt != null) {
-                        timestamp = receivedAt.toInstant().atZone(java.time.ZoneId.systemDefault()).toOffsetDateTime();
-                    }
+                    return Optional.of(toPreview(resultSet, PreviewFields.all()));
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to load email preview by id={}", id, ex);
+        }
+
+        return Optional.empty();
+    }
 
-                    return Optional.of(new StoredEmail(id, sender, subject, timestamp, unread, raw));
+    public Optional<StoredEmail> loadEmailById(String id) {
+        try (QueryTimer.Sample timing = queryTimer.start("load_email_by_id");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT " + STORED_EMAIL_COLUMNS + " FROM email_messages WHERE account_id = ? AND id = ?");
+             CallDeadline.Registration deadline = CallDeadline.bind(statement)) {
+
+            statement.setString(1, AccountContext.currentAccountId());
+            statement.setString(2, id);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(noteRead(toStoredEmail(resultSet)));
                 }
             }
         } catch (SQLException ex) {
@@ -356,20 +1252,213 @@ public class EmailOfflineStore {
         return Optional.empty();
     }
 
+    public ThreadPage loadThreads(int pageSize, String pageToken) {
+        int limit = pageSize <= 0 ? previewLimit : Math.min(pageSize, previewLimit);
+        ThreadCursor cursor = ThreadCursor.decode(pageToken);
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT thread_id, subject, latest_at, participants, message_count, unread_count FROM email_threads WHERE account_id = ?");
+        if (cursor != null) {
+            sql.append(" AND (latest_at < ? OR (latest_at = ? AND thread_id < ?))");
+        }
+        sql.append(" ORDER BY latest_at DESC, thread_id DESC LIMIT ?");
+
+        List<EmailThreadSummary> threads = new ArrayList<>();
+        try (QueryTimer.Sample timing = queryTimer.start("load_threads");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql.toString());
+             CallDeadline.Registration deadline = CallDeadline.bind(statement)) {
+
+            int index = 1;
+            statement.setString(index++, AccountContext.currentAccountId());
+            if (cursor != null) {
+                statement.setTimestamp(index++, cursor.latestAt());
+                statement.setTimestamp(index++, cursor.latestAt());
+                statement.setString(index++, cursor.threadId());
+            }
+            // One extra row tells us whether another page exists
+            statement.setInt(index, limit + 1);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    threads.add(toThreadSummary(resultSet));
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to read thread index", ex);
+        }
+
+        String nextPageToken = "";
+        if (threads.size() > limit) {
+            threads = new ArrayList<>(threads.subList(0, limit));
+            EmailThreadSummary last = threads.get(limit - 1);
+            nextPageToken = new ThreadCursor(Timestamp.from(last.latestAt().toInstant()), last.threadId()).encode();
+        }
+        return new ThreadPage(threads, nextPageToken);
+    }
+
+    public Optional<EmailThreadSummary> loadThreadSummary(String threadId) {
+        try (QueryTimer.Sample timing = queryTimer.start("load_thread_summary");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT thread_id, subject, latest_at, participants, message_count, unread_count FROM email_threads WHERE account_id = ? AND thread_id = ?");
+             CallDeadline.Registration deadline = CallDeadline.bind(statement)) {
+
+            statement.setString(1, AccountContext.currentAccountId());
+            statement.setString(2, threadId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(toThreadSummary(resultSet));
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to load thread {}", threadId, ex);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Loads every visible message of a thread, raw content included, in a single query.
+     */
+    public List<StoredEmail> loadThreadMessages(String threadId) {
+        List<StoredEmail> results = new ArrayList<>();
+        try (QueryTimer.Sample timing = queryTimer.start("load_thread_messages");
+             Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT " + STORED_EMAIL_COLUMNS + " FROM email_messages WHERE thread_id = ? AND account_id = ? AND trashed = FALSE ORDER BY received_at ASC, id ASC");
+             CallDeadline.Registration deadline = CallDeadline.bind(statement)) {
+
+            statement.setString(1, threadId);
+            statement.setString(2, AccountContext.currentAccountId());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    results.add(noteRead(toStoredEmail(resultSet)));
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Failed to load messages for thread {}", threadId, ex);
+        }
+        return results;
+    }
+
+    private StoredEmail noteRead(StoredEmail email) {
+        if (email.rawMessage() != null) {
+            bodies.recordAccess(AccountContext.currentAccountId(), email.id(), System.currentTimeMillis());
+        }
+        return email;
+    }
+
+    private static StoredEmail toStoredEmail(ResultSet resultSet) throws SQLException {
+        return new StoredEmail(
+                resultSet.getString("id"),
+                resultSet.getString("sender"),
+                resultSet.getString("subject"),
+                toDateTime(resultSet.getTimestamp("received_at")),
+                resultSet.getBoolean("unread"),
+                resultSet.getBytes("raw"),
+                resultSet.getString("folder"),
+                resultSet.getBoolean("has_attachments"),
+                new ThreadHeaders(
+                        resultSet.getString("message_id_header"),
+                        resultSet.getString("in_reply_to"),
+                        resultSet.getString("references_header")),
+                resultSet.getString("snippet"),
+                resultSet.getLong("size_bytes"),
+                resultSet.getBoolean("starred"));
+    }
+
+    private static EmailThreadSummary toThreadSummary(ResultSet resultSet) throws SQLException {
+        String participants = resultSet.getString("participants");
+        return new EmailThreadSummary(
+                resultSet.getString("thread_id"),
+                resultSet.getString("subject"),
+                toDateTime(resultSet.getTimestamp("latest_at")),
+                participants == null || participants.isEmpty() ? List.of() : Arrays.asList(participants.split(",")),
+                resultSet.getInt("message_count"),
+                resultSet.getInt("unread_count"));
+    }
+
+    private static OffsetDateTime toDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant().atZone(java.time.ZoneId.systemDefault()).toOffsetDateTime();
+    }
+
+    private record ThreadCursor(Timestamp latestAt, String threadId) {
+
+        String encode() {
+            String value = latestAt.getTime() + ":" + threadId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static ThreadCursor decode(String token) {
+            if (token == null || token.isBlank()) {
+                return null;
+            }
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = value.indexOf(':');
+                return new ThreadCursor(new Timestamp(Long.parseLong(value.substring(0, separator))), value.substring(separator + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+                throw new IllegalArgumentException("Invalid thread page token", ex);
+            }
+        }
+    }
+
+    public record ThreadHeaders(String messageId,
+                                String inReplyTo,
+                                String references) {
+
+        public static final ThreadHeaders NONE = new ThreadHeaders(null, null, null);
+    }
+
+    /**
+     * A flag change waiting to be written to IMAP; {@code seen} and {@code flagged} are {@code null} when the
+     * change leaves that flag alone.
+     */
+    public record FlagChange(String id,
+                             String folder,
+                             Boolean seen,
+                             Boolean flagged,
+                             long revision) {
+    }
+
+    /**
+     * Raw bodies dropped by one eviction batch and the bytes of content they held.
+     */
+    public record BodyEviction(int bodies, long bytes) {
+    }
+
     public record StoredEmail(String id,
                               String from,
                               String subject,
                               OffsetDateTime receivedAt,
                               boolean unread,
-                              byte[] rawMessage) {
+                              byte[] rawMessage,
+                              String folder,
+                              boolean hasAttachments,
+                              ThreadHeaders threadHeaders,
+                              String snippet,
+                              long sizeBytes,
+                              boolean starred) {
 
         public StoredEmail {
             Objects.requireNonNull(id, "id");
             Objects.requireNonNull(from, "from");
+            Objects.requireNonNull(folder, "folder");
+            threadHeaders = threadHeaders != null ? threadHeaders : ThreadHeaders.NONE;
+        }
+
+        public StoredEmail withUnread(boolean unread) {
+            return new StoredEmail(id, from, subject, receivedAt, unread, rawMessage, folder, hasAttachments, threadHeaders,
+                    snippet, sizeBytes, starred);
+        }
+
+        public StoredEmail withSnippet(String snippet) {
+            return new StoredEmail(id, from, subject, receivedAt, unread, rawMessage, folder, hasAttachments, threadHeaders,
+                    snippet, sizeBytes, starred);
         }
 
         public EmailPreview toPreview() {
-            return new EmailPreview(id, from, subject, receivedAt, unread);
+            return new EmailPreview(id, from, subject, receivedAt, unread, snippet, sizeBytes, hasAttachments, starred);
         }
 
         public InputStream rawMessageStream() {
@@ -0,0 +1,148 @@
+package com.emailclient.backend.email.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Listens for versions committed by other replicas and feeds them into the local {@link EmailOfflineStore}, whose
+ * change listeners then drop their stale entries.
+ *
+ * <p>A notification exactly one version ahead is applied directly. One further ahead means this replica missed a
+ * notification, so the account's version is reloaded from the database instead; after a reconnect every account
+ * is reloaded, since anything committed while not listening was missed. The feed holds one pooled connection for
+ * as long as it runs and is disabled on SQLite.</p>
+ */
+@Component
+public class MailboxChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(MailboxChangeFeed.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    private final DataSource dataSource;
+    private final EmailOfflineStore offlineStore;
+    private final Counter applied;
+    private final Counter stale;
+    private final Counter gaps;
+    private volatile boolean running;
+    private Thread worker;
+
+    public MailboxChangeFeed(DataSource dataSource, EmailOfflineStore offlineStore, MeterRegistry meterRegistry) {
+        this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
+        this.offlineStore = Objects.requireNonNull(offlineStore, "offlineStore");
+        this.applied = notifications(meterRegistry, "applied");
+        this.stale = notifications(meterRegistry, "stale");
+        this.gaps = notifications(meterRegistry, "gap");
+    }
+
+    private static Counter notifications(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("email.mailbox.notifications")
+                .description("Mailbox change notifications received from other replicas")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (SchemaSupport.isSqlite(connection)) {
+                log.info("Mailbox change feed disabled: database has no notification channel");
+                return;
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to start mailbox change feed", ex);
+        }
+        running = true;
+        worker = Thread.ofPlatform().name("mailbox-change-feed").daemon().start(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.join(POLL_TIMEOUT.multipliedBy(2).toMillis());
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + MailboxVersions.CHANGE_CHANNEL);
+                }
+                log.info("Listening for mailbox changes on channel {}", MailboxVersions.CHANGE_CHANNEL);
+                offlineStore.reloadAllVersions();
+
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] received = notifications.getNotifications((int) POLL_TIMEOUT.toMillis());
+                    if (received == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : received) {
+                        handle(notification.getParameter());
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Mailbox change feed lost its connection, reconnecting in {}", RECONNECT_DELAY, ex);
+                try {
+                    Thread.sleep(RECONNECT_DELAY);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies one {@code accountId:version} notification.
+     */
+    void handle(String payload) {
+        int separator = payload == null ? -1 : payload.lastIndexOf(':');
+        if (separator <= 0) {
+            log.warn("Ignoring malformed mailbox notification '{}'", payload);
+            return;
+        }
+        String accountId = payload.substring(0, separator);
+        long version;
+        try {
+            version = Long.parseLong(payload.substring(separator + 1));
+        } catch (NumberFormatException ex) {
+            log.warn("Ignoring malformed mailbox notification '{}'", payload);
+            return;
+        }
+
+        long known = offlineStore.currentVersion(accountId);
+        if (version <= known) {
+            // Our own write, or already caught up by a reload
+            stale.increment();
+        } else if (version == known + 1) {
+            applied.increment();
+            offlineStore.applyRemoteVersion(accountId, version);
+        } else {
+            gaps.increment();
+            log.info("Missed mailbox notifications for account {} between versions {} and {}, reloading",
+                    accountId, known, version);
+            offlineStore.reloadVersion(accountId);
+        }
+    }
+}
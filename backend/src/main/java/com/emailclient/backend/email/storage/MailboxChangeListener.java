@@ -0,0 +1,10 @@
+package com.emailclient.backend.email.storage;
+
+/**
+ * Notified after a write to the offline store commits a new version of an account's mailbox.
+ */
+@FunctionalInterface
+public interface MailboxChangeListener {
+
+    void onMailboxChanged(String accountId, long version);
+}
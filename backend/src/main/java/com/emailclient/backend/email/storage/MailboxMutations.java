@@ -0,0 +1,224 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.dto.MailboxMutation;
+import com.emailclient.backend.email.dto.MailboxMutation.Operation;
+import com.emailclient.backend.email.dto.MailboxMutation.Status;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Journal of mailbox actions (trash, restore, delete) applied locally and not yet replayed to IMAP. Each entry is
+ * written in the transaction that applied its action, numbered per account in the order they were made; the
+ * account's version row is locked by then, so two writers never draw the same number. Replayed entries are
+ * deleted; entries that failed for good stay, visible to the client, until they are older than the retention.
+ *
+ * <p>An entry remembers the folder the message was in and its Message-ID header at the time of the action: UIDs
+ * are only unique within a folder, so replay looks the UID up in that folder alone and confirms the header, and
+ * finds the message again by the header after a move. Entries follow the message when a replayed move gives it a
+ * new UID and folder, even if the message is no longer cached.</p>
+ */
+final class MailboxMutations {
+
+    private static final String COLUMNS =
+            "seq, email_id, operation, message_id_header, folder, status, attempts, last_error, created_at, next_attempt_at";
+
+    void initialize(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS mailbox_mutations (
+                        account_id VARCHAR(64) NOT NULL,
+                        seq BIGINT NOT NULL,
+                        email_id VARCHAR(255) NOT NULL,
+                        operation VARCHAR(16) NOT NULL,
+                        message_id_header TEXT,
+                        folder VARCHAR(255),
+                        status VARCHAR(16) NOT NULL,
+                        attempts INTEGER NOT NULL DEFAULT 0,
+                        last_error TEXT,
+                        created_at BIGINT NOT NULL,
+                        next_attempt_at BIGINT NOT NULL,
+                        PRIMARY KEY (account_id, seq)
+                    )
+                    """);
+            if (!SchemaSupport.columnExists(connection, "mailbox_mutations", "folder")) {
+                statement.execute("ALTER TABLE mailbox_mutations ADD COLUMN folder VARCHAR(255)");
+            }
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_mailbox_mutations_due ON mailbox_mutations(status, next_attempt_at, account_id)");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_mailbox_mutations_email ON mailbox_mutations(account_id, email_id)");
+        }
+    }
+
+    /**
+     * Journals {@code operation} on cached message {@code id}, and nothing if it is not cached. Must run before a
+     * delete removes the message's row, which the folder and Message-ID header are read from.
+     */
+    boolean append(Connection connection, String accountId, String id, Operation operation, long now) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("""
+                INSERT INTO mailbox_mutations (account_id, seq, email_id, operation, message_id_header, folder,
+                                               status, attempts, created_at, next_attempt_at)
+                SELECT account_id,
+                       (SELECT COALESCE(MAX(seq), 0) + 1 FROM mailbox_mutations WHERE account_id = ?),
+                       id, ?, message_id_header, folder, 'PENDING', 0, ?, ?
+                FROM email_messages WHERE account_id = ? AND id = ?
+                """)) {
+            statement.setString(1, accountId);
+            statement.setString(2, operation.name());
+            statement.setLong(3, now);
+            statement.setLong(4, now);
+            statement.setString(5, accountId);
+            statement.setString(6, id);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Points the entries of a message at its new UID, and at {@code folder} unless that is {@code null}, after a
+     * replayed move.
+     */
+    void rename(Connection connection, String accountId, String oldId, String newId, String folder) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE mailbox_mutations SET email_id = ?, folder = COALESCE(?, folder) WHERE account_id = ? AND email_id = ?")) {
+            statement.setString(1, newId);
+            statement.setString(2, folder);
+            statement.setString(3, accountId);
+            statement.setString(4, oldId);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Messages with a pending delete, which a sync must not bring back from a server that still has them.
+     */
+    Set<String> pendingDeletes(Connection connection, String accountId) throws SQLException {
+        Set<String> ids = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement("""
+                SELECT email_id FROM mailbox_mutations
+                WHERE account_id = ? AND status = 'PENDING' AND operation IN ('DELETE', 'PURGE')
+                """)) {
+            statement.setString(1, accountId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getString("email_id"));
+                }
+            }
+        }
+        return ids;
+    }
+
+    List<String> accountsWithDue(Connection connection, long now) throws SQLException {
+        List<String> accountIds = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT DISTINCT account_id FROM mailbox_mutations WHERE status = 'PENDING' AND next_attempt_at <= ?")) {
+            statement.setLong(1, now);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    accountIds.add(resultSet.getString("account_id"));
+                }
+            }
+        }
+        return accountIds;
+    }
+
+    /**
+     * The account's {@code limit} oldest pending entries, due or not: an entry waiting for its retry holds back
+     * the later entries of the same message.
+     */
+    List<MailboxMutation> loadPending(Connection connection, String accountId, int limit) throws SQLException {
+        return load(connection, "SELECT " + COLUMNS + " FROM mailbox_mutations "
+                + "WHERE account_id = ? AND status = 'PENDING' ORDER BY seq LIMIT ?", accountId, limit);
+    }
+
+    /**
+     * Every entry of the account, pending or settled without success, oldest first.
+     */
+    List<MailboxMutation> loadAll(Connection connection, String accountId, int limit) throws SQLException {
+        return load(connection, "SELECT " + COLUMNS + " FROM mailbox_mutations "
+                + "WHERE account_id = ? ORDER BY seq LIMIT ?", accountId, limit);
+    }
+
+    private List<MailboxMutation> load(Connection connection, String sql, String accountId, int limit) throws SQLException {
+        List<MailboxMutation> mutations = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, accountId);
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    mutations.add(new MailboxMutation(
+                            resultSet.getLong("seq"),
+                            resultSet.getString("email_id"),
+                            Operation.valueOf(resultSet.getString("operation")),
+                            resultSet.getString("message_id_header"),
+                            resultSet.getString("folder"),
+                            Status.valueOf(resultSet.getString("status")),
+                            resultSet.getInt("attempts"),
+                            resultSet.getString("last_error"),
+                            toDateTime(resultSet.getLong("created_at")),
+                            toDateTime(resultSet.getLong("next_attempt_at"))));
+                }
+            }
+        }
+        return mutations;
+    }
+
+    void remove(Connection connection, String accountId, long seq) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM mailbox_mutations WHERE account_id = ? AND seq = ?")) {
+            statement.setString(1, accountId);
+            statement.setLong(2, seq);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Counts a failed attempt against entry {@code seq} and moves it to {@code status}, to be tried again at
+     * {@code nextAttemptAt} if that is still {@link Status#PENDING}.
+     */
+    void recordAttempt(Connection connection, String accountId, long seq, Status status, String error,
+                       long nextAttemptAt) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("""
+                UPDATE mailbox_mutations SET status = ?, attempts = attempts + 1, last_error = ?, next_attempt_at = ?
+                WHERE account_id = ? AND seq = ?
+                """)) {
+            statement.setString(1, status.name());
+            statement.setString(2, error);
+            statement.setLong(3, nextAttemptAt);
+            statement.setString(4, accountId);
+            statement.setLong(5, seq);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Forgets failed and conflicting entries last tried before {@code settledBefore}.
+     */
+    int pruneSettled(Connection connection, long settledBefore) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM mailbox_mutations WHERE status <> 'PENDING' AND next_attempt_at < ?")) {
+            statement.setLong(1, settledBefore);
+            return statement.executeUpdate();
+        }
+    }
+
+    long countPending(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT COUNT(*) FROM mailbox_mutations WHERE status = 'PENDING'")) {
+            return resultSet.next() ? resultSet.getLong(1) : 0L;
+        }
+    }
+
+    private static OffsetDateTime toDateTime(long millis) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+}
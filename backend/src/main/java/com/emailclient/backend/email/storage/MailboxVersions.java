@@ -0,0 +1,215 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.account.AccountContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Monotonic change sequence per account mailbox plus tombstones for removed messages.
+ *
+ * <p>Every write transaction allocates the next version up front, which row-locks the account's counter so
+ * concurrent writers commit in version order, and stamps it on the rows it touches. A transaction that turns out
+ * to have changed nothing hands its version back, so re-syncing an unchanged mailbox leaves the version alone and
+ * polling clients see "not modified".</p>
+ *
+ * <p>On PostgreSQL each committed version is also announced on the {@value #CHANGE_CHANNEL} channel from inside
+ * the writing transaction, so other replicas hear about it exactly when it becomes visible. Because versions
+ * commit in order, a replica that sees a version more than one ahead of the last it knew has missed a
+ * notification.</p>
+ */
+final class MailboxVersions {
+
+    private static final Logger log = LoggerFactory.getLogger(MailboxVersions.class);
+    private static final Duration TOMBSTONE_RETENTION = Duration.ofDays(30);
+    static final String CHANGE_CHANNEL = "mailbox_changes";
+
+    private boolean announceChanges;
+
+    void initialize(Connection connection) throws SQLException {
+        announceChanges = !SchemaSupport.isSqlite(connection);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS mailbox_versions (
+                        mailbox_id VARCHAR(64) PRIMARY KEY,
+                        version BIGINT NOT NULL,
+                        floor_version BIGINT NOT NULL DEFAULT 0
+                    )
+                    """);
+            if (!SchemaSupport.columnExists(connection, "email_tombstones", "account_id")) {
+                // Tombstones from before accounts cannot be attributed; dropping them and raising every floor
+                // sends each client one full listing instead of a delta that could miss removals
+                statement.execute("DROP TABLE IF EXISTS email_tombstones");
+                statement.execute("UPDATE mailbox_versions SET floor_version = version");
+            }
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS email_tombstones (
+                        account_id VARCHAR(64) NOT NULL,
+                        id VARCHAR(255) NOT NULL,
+                        change_seq BIGINT NOT NULL,
+                        removed_at TIMESTAMP WITH TIME ZONE NOT NULL,
+                        PRIMARY KEY (account_id, id)
+                    )
+                    """);
+            statement.execute("DROP INDEX IF EXISTS idx_tombstones_change_seq");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_tombstones_account_change_seq ON email_tombstones(account_id, change_seq)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO mailbox_versions (mailbox_id, version, floor_version) VALUES (?, 0, 0) ON CONFLICT(mailbox_id) DO NOTHING")) {
+            insert.setString(1, AccountContext.DEFAULT_ACCOUNT_ID);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Queues a change notification for {@code version}; PostgreSQL delivers it when the transaction commits and
+     * drops it on rollback. A no-op on SQLite, which has no notification channel.
+     */
+    void announce(Connection connection, String accountId, long version) throws SQLException {
+        if (!announceChanges) {
+            return;
+        }
+        try (PreparedStatement notify = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            notify.setString(1, CHANGE_CHANNEL);
+            notify.setString(2, accountId + ":" + version);
+            notify.execute();
+        }
+    }
+
+    /**
+     * Claims the next version of {@code accountId} for the current transaction, creating its counter on first use.
+     */
+    long allocate(Connection connection, String accountId) throws SQLException {
+        try (PreparedStatement upsert = connection.prepareStatement("""
+                INSERT INTO mailbox_versions (mailbox_id, version, floor_version) VALUES (?, 1, 0)
+                ON CONFLICT(mailbox_id) DO UPDATE SET version = mailbox_versions.version + 1
+                """)) {
+            upsert.setString(1, accountId);
+            upsert.executeUpdate();
+        }
+        return current(connection, accountId);
+    }
+
+    /**
+     * Returns a version claimed by {@link #allocate} that ended up stamped on nothing. Safe because the counter
+     * row stays locked by this transaction until commit.
+     */
+    void release(Connection connection, String accountId, long version) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE mailbox_versions SET version = version - 1 WHERE mailbox_id = ? AND version = ?")) {
+            update.setString(1, accountId);
+            update.setLong(2, version);
+            update.executeUpdate();
+        }
+    }
+
+    long current(Connection connection, String accountId) throws SQLException {
+        return readColumn(connection, accountId, "version");
+    }
+
+    /**
+     * Oldest version a delta can still be computed from; tombstones at or below it have been pruned.
+     */
+    long floor(Connection connection, String accountId) throws SQLException {
+        return readColumn(connection, accountId, "floor_version");
+    }
+
+    Map<String, Long> currentVersions(Connection connection) throws SQLException {
+        Map<String, Long> versions = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT mailbox_id, version FROM mailbox_versions")) {
+            while (resultSet.next()) {
+                versions.put(resultSet.getString("mailbox_id"), resultSet.getLong("version"));
+            }
+        }
+        return versions;
+    }
+
+    void tombstone(Connection connection, String accountId, String id, long version) throws SQLException {
+        try (PreparedStatement upsert = connection.prepareStatement("""
+                INSERT INTO email_tombstones (account_id, id, change_seq, removed_at) VALUES (?, ?, ?, ?)
+                ON CONFLICT(account_id, id) DO UPDATE SET change_seq = EXCLUDED.change_seq, removed_at = EXCLUDED.removed_at
+                """)) {
+            upsert.setString(1, accountId);
+            upsert.setString(2, id);
+            upsert.setLong(3, version);
+            upsert.setTimestamp(4, Timestamp.from(Instant.now()));
+            upsert.executeUpdate();
+        }
+    }
+
+    List<String> tombstonesSince(Connection connection, String accountId, long sinceVersion) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id FROM email_tombstones WHERE account_id = ? AND change_seq > ?")) {
+            statement.setString(1, accountId);
+            statement.setLong(2, sinceVersion);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getString("id"));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Drops tombstones past the retention window and raises each account's floor so older clients get a full
+     * listing.
+     */
+    int pruneTombstones(Connection connection) throws SQLException {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(TOMBSTONE_RETENTION));
+        Map<String, Long> prunedUpTo = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT account_id, MAX(change_seq) FROM email_tombstones WHERE removed_at < ? GROUP BY account_id")) {
+            statement.setTimestamp(1, cutoff);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    prunedUpTo.put(resultSet.getString(1), resultSet.getLong(2));
+                }
+            }
+        }
+
+        int pruned = 0;
+        try (PreparedStatement raise = connection.prepareStatement(
+                "UPDATE mailbox_versions SET floor_version = ? WHERE mailbox_id = ? AND floor_version < ?");
+             PreparedStatement delete = connection.prepareStatement(
+                     "DELETE FROM email_tombstones WHERE account_id = ? AND change_seq <= ?")) {
+            for (Map.Entry<String, Long> entry : prunedUpTo.entrySet()) {
+                raise.setLong(1, entry.getValue());
+                raise.setString(2, entry.getKey());
+                raise.setLong(3, entry.getValue());
+                raise.executeUpdate();
+                delete.setString(1, entry.getKey());
+                delete.setLong(2, entry.getValue());
+                pruned += delete.executeUpdate();
+            }
+        }
+        if (pruned > 0) {
+            log.debug("Pruned tombstones for {} accounts", prunedUpTo.size());
+        }
+        return pruned;
+    }
+
+    private long readColumn(Connection connection, String accountId, String column) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT " + column + " FROM mailbox_versions WHERE mailbox_id = ?")) {
+            statement.setString(1, accountId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0L;
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.storage.EmailOfflineStore.FlagChange;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Write-behind journal of flag changes made locally and not yet confirmed on the IMAP server, one row per
+ * message. A new change to a message folds into its row: a flag it leaves alone keeps the value already queued,
+ * and the row's revision moves on so a flush that read the older value does not mark the newer one as sent.
+ *
+ * <p>Flushed rows stay until they are older than the retention window. A sync that read the server's flags just
+ * before a flush landed would otherwise write the old value back, so while a row exists the flags it names keep
+ * their local value on re-sync.</p>
+ */
+final class PendingFlagChanges {
+
+    /**
+     * Matches an {@code email_messages} row with a queued or recently flushed change to {@code unread}.
+     */
+    static final String PENDING_SEEN = """
+            EXISTS (SELECT 1 FROM pending_flag_changes p
+                    WHERE p.account_id = email_messages.account_id AND p.id = email_messages.id AND p.seen IS NOT NULL)""";
+
+    /**
+     * Matches an {@code email_messages} row with a queued or recently flushed change to {@code starred}.
+     */
+    static final String PENDING_FLAGGED = """
+            EXISTS (SELECT 1 FROM pending_flag_changes p
+                    WHERE p.account_id = email_messages.account_id AND p.id = email_messages.id AND p.flagged IS NOT NULL)""";
+
+    void initialize(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS pending_flag_changes (
+                        account_id VARCHAR(64) NOT NULL,
+                        id VARCHAR(255) NOT NULL,
+                        folder VARCHAR(255) NOT NULL,
+                        seen BOOLEAN,
+                        flagged BOOLEAN,
+                        revision BIGINT NOT NULL,
+                        updated_at BIGINT NOT NULL,
+                        flushed_at BIGINT,
+                        PRIMARY KEY (account_id, id)
+                    )
+                    """);
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_pending_flags_flushed ON pending_flag_changes(flushed_at, account_id)");
+        }
+    }
+
+    /**
+     * Queues {@code seen} and {@code flagged} for message {@code id}, either left {@code null} to keep what is
+     * already queued, against the folder the store currently has the message in.
+     */
+    void record(Connection connection, String accountId, String id, Boolean seen, Boolean flagged, long now)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("""
+                INSERT INTO pending_flag_changes (account_id, id, folder, seen, flagged, revision, updated_at)
+                SELECT account_id, id, folder, ?, ?, 1, ? FROM email_messages WHERE account_id = ? AND id = ?
+                ON CONFLICT(account_id, id) DO UPDATE SET
+                    folder = EXCLUDED.folder,
+                    seen = COALESCE(EXCLUDED.seen, pending_flag_changes.seen),
+                    flagged = COALESCE(EXCLUDED.flagged, pending_flag_changes.flagged),
+                    revision = pending_flag_changes.revision + 1,
+                    updated_at = EXCLUDED.updated_at,
+                    flushed_at = NULL
+                """)) {
+            setFlag(statement, 1, seen);
+            setFlag(statement, 2, flagged);
+            statement.setLong(3, now);
+            statement.setString(4, accountId);
+            statement.setString(5, id);
+            statement.executeUpdate();
+        }
+    }
+
+    List<String> accountsWithUnflushed(Connection connection) throws SQLException {
+        List<String> accountIds = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT DISTINCT account_id FROM pending_flag_changes WHERE flushed_at IS NULL")) {
+            while (resultSet.next()) {
+                accountIds.add(resultSet.getString("account_id"));
+            }
+        }
+        return accountIds;
+    }
+
+    /**
+     * The account's {@code limit} oldest unflushed changes.
+     */
+    List<FlagChange> loadUnflushed(Connection connection, String accountId, int limit) throws SQLException {
+        List<FlagChange> changes = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("""
+                SELECT id, folder, seen, flagged, revision FROM pending_flag_changes
+                WHERE account_id = ? AND flushed_at IS NULL
+                ORDER BY updated_at, id
+                LIMIT ?
+                """)) {
+            statement.setString(1, accountId);
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    changes.add(new FlagChange(
+                            resultSet.getString("id"),
+                            resultSet.getString("folder"),
+                            getFlag(resultSet, "seen"),
+                            getFlag(resultSet, "flagged"),
+                            resultSet.getLong("revision")));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Marks {@code changes} as flushed unless the message changed again since they were loaded, in which case
+     * the newer revision stays queued. Returns how many were marked.
+     */
+    int markFlushed(Connection connection, String accountId, Collection<FlagChange> changes, long now)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE pending_flag_changes SET flushed_at = ? WHERE account_id = ? AND id = ? AND revision = ?")) {
+            for (FlagChange change : changes) {
+                statement.setLong(1, now);
+                statement.setString(2, accountId);
+                statement.setString(3, change.id());
+                statement.setLong(4, change.revision());
+                statement.addBatch();
+            }
+            int marked = 0;
+            for (int count : statement.executeBatch()) {
+                marked += Math.max(count, 0);
+            }
+            return marked;
+        }
+    }
+
+    int pruneFlushed(Connection connection, long flushedBefore) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM pending_flag_changes WHERE flushed_at IS NOT NULL AND flushed_at < ?")) {
+            statement.setLong(1, flushedBefore);
+            return statement.executeUpdate();
+        }
+    }
+
+    long countUnflushed(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT COUNT(*) FROM pending_flag_changes WHERE flushed_at IS NULL")) {
+            return resultSet.next() ? resultSet.getLong(1) : 0L;
+        }
+    }
+
+    private static void setFlag(PreparedStatement statement, int index, Boolean value) throws SQLException {
+        if (value != null) {
+            statement.setBoolean(index, value);
+        } else {
+            statement.setNull(index, Types.BOOLEAN);
+        }
+    }
+
+    private static Boolean getFlag(ResultSet resultSet, String column) throws SQLException {
+        boolean value = resultSet.getBoolean(column);
+        return resultSet.wasNull() ? null : value;
+    }
+}
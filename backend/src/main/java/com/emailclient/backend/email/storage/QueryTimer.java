@@ -0,0 +1,53 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.StepSpan;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Tracer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times store operations as {@code email.store.query{operation}}, covering the wait for a pooled connection as
+ * well as the statements themselves, as a {@code store <operation>} span when the caller is being traced, and
+ * as a {@link StoreQueryEvent} for Flight Recorder. Meant to be the first resource of the operation's try block so it closes after the connection has gone back
+ * to the pool.
+ */
+final class QueryTimer {
+
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    QueryTimer(MeterRegistry meterRegistry, Tracer tracer) {
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+    }
+
+    Sample start(String operation) {
+        Timer timer = timers.computeIfAbsent(operation, key -> Timer.builder("email.store.query")
+                .description("Time spent in one offline store operation")
+                .tag("operation", key)
+                .register(meterRegistry));
+        StoreQueryEvent event = new StoreQueryEvent();
+        event.begin();
+        return new Sample(operation, timer, StepSpan.start(tracer, "store " + operation), event, System.nanoTime());
+    }
+
+    record Sample(String operation, Timer timer, StepSpan span, StoreQueryEvent event, long startedNanos)
+            implements AutoCloseable {
+
+        @Override
+        public void close() {
+            span.close();
+            timer.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.emailclient.backend.email.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Schema checks shared by the stores, written to work against both PostgreSQL and the SQLite test databases.
+ */
+final class SchemaSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaSupport.class);
+
+    private SchemaSupport() {
+    }
+
+    static boolean isSqlite(Connection connection) throws SQLException {
+        return "SQLite".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+
+    static boolean columnExists(Connection connection, String tableName, String columnName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String normalizedTable = tableName;
+        String normalizedColumn = columnName;
+
+        if ("SQLite".equalsIgnoreCase(metaData.getDatabaseProductName())) {
+            normalizedTable = tableName.toLowerCase(Locale.ROOT);
+            normalizedColumn = columnName.toLowerCase(Locale.ROOT);
+        }
+
+        try (ResultSet columns = metaData.getColumns(null, null, normalizedTable, normalizedColumn)) {
+            if (columns.next()) {
+                return true;
+            }
+        }
+
+        try (ResultSet columns = metaData.getColumns(null, null, tableName, null)) {
+            while (columns.next()) {
+                String existingColumn = columns.getString("COLUMN_NAME");
+                if (existingColumn != null && existingColumn.equalsIgnoreCase(columnName)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Widens a legacy primary key to {@code columns}. PostgreSQL swaps the constraint in place; SQLite cannot alter
+     * a primary key, so it gets a unique index on {@code columns} instead, which is enough for the
+     * {@code ON CONFLICT} targets the stores use.
+     */
+    static void ensurePrimaryKey(Connection connection, String tableName, String... columns) throws SQLException {
+        List<String> existing = new ArrayList<>();
+        String constraintName = null;
+        try (ResultSet keys = connection.getMetaData().getPrimaryKeys(null, null, tableName)) {
+            while (keys.next()) {
+                existing.add(keys.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                constraintName = keys.getString("PK_NAME");
+            }
+        }
+        if (existing.size() == columns.length && existing.containsAll(List.of(columns))) {
+            return;
+        }
+
+        String columnList = String.join(", ", columns);
+        try (Statement statement = connection.createStatement()) {
+            if (isSqlite(connection)) {
+                statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS uq_" + tableName + "_key ON " + tableName + "(" + columnList + ")");
+                log.warn("Legacy SQLite table '{}' keeps its primary key; added a unique index on ({})", tableName, columnList);
+                return;
+            }
+            String dropConstraint = constraintName != null ? "DROP CONSTRAINT " + constraintName + ", " : "";
+            statement.execute("ALTER TABLE " + tableName + " " + dropConstraint + "ADD PRIMARY KEY (" + columnList + ")");
+            log.info("Changed primary key of table '{}' to ({})", tableName, columnList);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.emailclient.backend.email.storage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One {@link EmailOfflineStore} operation, from borrowing a connection to returning it.
+ */
+@Name("com.emailclient.StoreQuery")
+@Label("Offline Store Query")
+@Category({"Email Client", "Offline Store"})
+@Description("One offline store operation, including the wait for a pooled connection")
+@StackTrace(false)
+final class StoreQueryEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+}
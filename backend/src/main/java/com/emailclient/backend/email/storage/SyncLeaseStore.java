@@ -0,0 +1,134 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which replica syncs an account's folder from IMAP. Ownership is a row in {@code sync_leases} that
+ * expires {@code email-client.cluster.sync-lease-ttl} after the owner's last sync; the owner renews it each time
+ * it syncs, and any replica may take over an expired lease, so a failed node hands over within one TTL.
+ *
+ * <p>A lease row rather than a PostgreSQL advisory lock: advisory locks belong to a database session, which a
+ * pooled connection does not keep between syncs, and the row works the same on the SQLite test databases. The
+ * expiry is compared against each replica's clock, so the TTL must also cover the clock skew between them.</p>
+ */
+@Component
+public class SyncLeaseStore {
+
+    /**
+     * Lease on writing an account's local changes (flags, mailbox actions) back to IMAP; stands in for a folder,
+     * so that one replica at a time works through the account's shared queues.
+     */
+    public static final String WRITE_BACK_LEASE = "write-back";
+
+    private static final Logger log = LoggerFactory.getLogger(SyncLeaseStore.class);
+
+    private final DataSource dataSource;
+    private final String nodeId;
+    private final long ttlMillis;
+    private final Set<String> owned = ConcurrentHashMap.newKeySet();
+
+    public SyncLeaseStore(DataSource dataSource, EmailClientProperties properties) {
+        this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
+        Objects.requireNonNull(properties, "properties");
+        String configuredNodeId = properties.getCluster().getNodeId();
+        this.nodeId = configuredNodeId == null || configuredNodeId.isBlank()
+                ? UUID.randomUUID().toString()
+                : configuredNodeId;
+        this.ttlMillis = properties.getCluster().getSyncLeaseTtl().toMillis();
+    }
+
+    @PostConstruct
+    public void initialize() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS sync_leases (
+                        account_id VARCHAR(64) NOT NULL,
+                        folder VARCHAR(255) NOT NULL,
+                        owner_id VARCHAR(255) NOT NULL,
+                        expires_at BIGINT NOT NULL,
+                        PRIMARY KEY (account_id, folder)
+                    )
+                    """);
+            log.info("Sync lease table initialized for node {}", nodeId);
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to initialize sync lease table", ex);
+        }
+    }
+
+    /**
+     * Takes or renews this node's lease on {@code folder} of {@code accountId}. Returns {@code false} while
+     * another replica holds an unexpired lease, in which case the caller should serve the shared store instead
+     * of syncing.
+     */
+    public boolean tryAcquire(String accountId, String folder) {
+        long now = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     """
+                             INSERT INTO sync_leases (account_id, folder, owner_id, expires_at)
+                             VALUES (?, ?, ?, ?)
+                             ON CONFLICT(account_id, folder) DO UPDATE SET
+                                 owner_id = EXCLUDED.owner_id,
+                                 expires_at = EXCLUDED.expires_at
+                             WHERE sync_leases.owner_id = EXCLUDED.owner_id OR sync_leases.expires_at < ?
+                             """)) {
+
+            statement.setString(1, accountId);
+            statement.setString(2, folder);
+            statement.setString(3, nodeId);
+            statement.setLong(4, now + ttlMillis);
+            statement.setLong(5, now);
+            boolean acquired = statement.executeUpdate() > 0;
+
+            String key = accountId + ":" + folder;
+            if (acquired && owned.add(key)) {
+                log.info("Node {} now owns sync of {}", nodeId, key);
+            } else if (!acquired && owned.remove(key)) {
+                log.info("Node {} lost sync of {} to another replica", nodeId, key);
+            }
+            return acquired;
+        } catch (SQLException ex) {
+            // Syncing without coordination only costs duplicate IMAP work; refusing would stall the mailbox
+            log.warn("Failed to acquire sync lease for {}:{}, syncing anyway", accountId, folder, ex);
+            return true;
+        }
+    }
+
+    /**
+     * Gives up every lease this node holds so other replicas take over without waiting for expiry.
+     */
+    @PreDestroy
+    public void releaseAll() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "DELETE FROM sync_leases WHERE owner_id = ?")) {
+
+            statement.setString(1, nodeId);
+            int released = statement.executeUpdate();
+            owned.clear();
+            log.info("Node {} released {} sync leases", nodeId, released);
+        } catch (SQLException ex) {
+            log.warn("Failed to release sync leases of node {}", nodeId, ex);
+        }
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+}
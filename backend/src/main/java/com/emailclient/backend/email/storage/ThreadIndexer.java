@@ -0,0 +1,285 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.storage.EmailOfflineStore.ThreadHeaders;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Assigns conversation threads to cached messages and keeps the per-thread aggregates in {@code email_threads}
+ * current. Runs on the caller's connection so threading commits atomically with the message writes.
+ *
+ * <p>Parents are resolved from References and In-Reply-To first, then from messages that already reply to the
+ * new one, and finally by normalized subject for replies whose headers were stripped. Aggregates are recomputed
+ * only for the threads touched by a write, so the cost is proportional to thread size rather than mailbox size.
+ * Every lookup is confined to one account, so the same message delivered to two mailboxes threads separately.</p>
+ */
+final class ThreadIndexer {
+
+    private static final Pattern MESSAGE_ID = Pattern.compile("<[^<>\\s]+>");
+    private static final Pattern REPLY_PREFIX = Pattern.compile(
+            "^\\s*((re|fw|fwd|aw|sv|wg)(\\[\\d+])?\\s*:\\s*)+", Pattern.CASE_INSENSITIVE);
+    private static final Duration SUBJECT_FALLBACK_WINDOW = Duration.ofDays(30);
+    private static final int MAX_REFERENCES = 20;
+    private static final int MAX_PARTICIPANTS = 20;
+    private static final OffsetDateTime UNDATED = Instant.EPOCH.atOffset(java.time.ZoneOffset.UTC);
+
+    void index(Connection connection, String accountId, Collection<ThreadCandidate> candidates) throws SQLException {
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> existingThreads = loadThreadIds(connection, accountId, candidates);
+        List<ThreadCandidate> ordered = new ArrayList<>(candidates);
+        ordered.sort(Comparator.comparing(ThreadCandidate::receivedAt, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        Set<String> touched = new LinkedHashSet<>();
+        try (PreparedStatement assign = connection.prepareStatement(
+                "UPDATE email_messages SET thread_id = ? WHERE account_id = ? AND id = ?")) {
+            for (ThreadCandidate candidate : ordered) {
+                String threadId = existingThreads.get(candidate.id());
+                if (threadId == null) {
+                    threadId = resolveThread(connection, accountId, candidate);
+                    assign.setString(1, threadId);
+                    assign.setString(2, accountId);
+                    assign.setString(3, candidate.id());
+                    // Executed immediately so later candidates in the same batch can thread onto this one
+                    assign.executeUpdate();
+                }
+                touched.add(threadId);
+            }
+        }
+
+        for (String threadId : touched) {
+            refresh(connection, accountId, threadId);
+        }
+    }
+
+    /**
+     * Recomputes the aggregates of {@code threadId}, removing the thread once it has no visible messages.
+     */
+    void refresh(Connection connection, String accountId, String threadId) throws SQLException {
+        if (threadId == null) {
+            return;
+        }
+
+        int messageCount = 0;
+        int unreadCount = 0;
+        String subject = null;
+        OffsetDateTime latestAt = UNDATED;
+        Set<String> participants = new LinkedHashSet<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT subject, sender_email, received_at, unread FROM email_messages "
+                        + "WHERE thread_id = ? AND trashed = FALSE ORDER BY received_at ASC")) {
+            statement.setString(1, threadId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    messageCount++;
+                    if (resultSet.getBoolean("unread")) {
+                        unreadCount++;
+                    }
+                    if (subject == null) {
+                        subject = resultSet.getString("subject");
+                    }
+                    String sender = resultSet.getString("sender_email");
+                    if (sender != null && participants.size() < MAX_PARTICIPANTS) {
+                        participants.add(sender);
+                    }
+                    Timestamp receivedAt = resultSet.getTimestamp("received_at");
+                    if (receivedAt != null) {
+                        OffsetDateTime timestamp = receivedAt.toInstant().atOffset(java.time.ZoneOffset.UTC);
+                        if (timestamp.isAfter(latestAt)) {
+                            latestAt = timestamp;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (messageCount == 0) {
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM email_threads WHERE thread_id = ?")) {
+                delete.setString(1, threadId);
+                delete.executeUpdate();
+            }
+            return;
+        }
+
+        try (PreparedStatement upsert = connection.prepareStatement(
+                """
+                        INSERT INTO email_threads (thread_id, account_id, subject, normalized_subject, latest_at, participants, message_count, unread_count)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                        ON CONFLICT(thread_id) DO UPDATE SET
+                            subject = EXCLUDED.subject,
+                            normalized_subject = EXCLUDED.normalized_subject,
+                            latest_at = EXCLUDED.latest_at,
+                            participants = EXCLUDED.participants,
+                            message_count = EXCLUDED.message_count,
+                            unread_count = EXCLUDED.unread_count
+                        """)) {
+            upsert.setString(1, threadId);
+            upsert.setString(2, accountId);
+            upsert.setString(3, subject);
+            upsert.setString(4, normalizeSubject(subject));
+            upsert.setTimestamp(5, Timestamp.from(latestAt.toInstant()));
+            upsert.setString(6, String.join(",", participants));
+            upsert.setInt(7, messageCount);
+            upsert.setInt(8, unreadCount);
+            upsert.executeUpdate();
+        }
+    }
+
+    String threadIdOf(Connection connection, String accountId, String messageId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT thread_id FROM email_messages WHERE account_id = ? AND id = ?")) {
+            statement.setString(1, accountId);
+            statement.setString(2, messageId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString("thread_id") : null;
+            }
+        }
+    }
+
+    private Map<String, String> loadThreadIds(Connection connection, String accountId, Collection<ThreadCandidate> candidates)
+            throws SQLException {
+        Map<String, String> threadIds = new HashMap<>();
+        List<String> ids = candidates.stream().map(ThreadCandidate::id).distinct().toList();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, thread_id FROM email_messages WHERE account_id = ? AND thread_id IS NOT NULL AND id IN ("
+                        + placeholders(ids.size()) + ")")) {
+            statement.setString(1, accountId);
+            for (int i = 0; i < ids.size(); i++) {
+                statement.setString(i + 2, ids.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    threadIds.put(resultSet.getString("id"), resultSet.getString("thread_id"));
+                }
+            }
+        }
+        return threadIds;
+    }
+
+    private String resolveThread(Connection connection, String accountId, ThreadCandidate candidate) throws SQLException {
+        ThreadHeaders headers = candidate.headers();
+
+        List<String> parents = new ArrayList<>(messageIds(headers.references()));
+        String inReplyTo = firstMessageId(headers.inReplyTo());
+        if (inReplyTo != null && !parents.contains(inReplyTo)) {
+            parents.add(inReplyTo);
+        }
+        if (parents.size() > MAX_REFERENCES) {
+            parents = parents.subList(parents.size() - MAX_REFERENCES, parents.size());
+        }
+        if (!parents.isEmpty()) {
+            String threadId = querySingle(connection, accountId,
+                    "SELECT thread_id FROM email_messages WHERE account_id = ? AND thread_id IS NOT NULL AND message_id_header IN ("
+                            + placeholders(parents.size()) + ")",
+                    parents);
+            if (threadId != null) {
+                return threadId;
+            }
+        }
+
+        String ownMessageId = firstMessageId(headers.messageId());
+        if (ownMessageId != null) {
+            String threadId = querySingle(connection, accountId,
+                    "SELECT thread_id FROM email_messages WHERE account_id = ? AND thread_id IS NOT NULL AND in_reply_to = ?",
+                    List.of(ownMessageId));
+            if (threadId != null) {
+                return threadId;
+            }
+        }
+
+        String subject = candidate.subject();
+        if (subject != null && REPLY_PREFIX.matcher(subject).find()) {
+            String normalized = normalizeSubject(subject);
+            if (!normalized.isEmpty()) {
+                OffsetDateTime anchor = candidate.receivedAt() != null ? candidate.receivedAt() : OffsetDateTime.now();
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT thread_id FROM email_threads WHERE account_id = ? AND normalized_subject = ? AND latest_at >= ? "
+                                + "ORDER BY latest_at DESC LIMIT 1")) {
+                    statement.setString(1, accountId);
+                    statement.setString(2, normalized);
+                    statement.setTimestamp(3, Timestamp.from(anchor.minus(SUBJECT_FALLBACK_WINDOW).toInstant()));
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        if (resultSet.next()) {
+                            return resultSet.getString("thread_id");
+                        }
+                    }
+                }
+            }
+        }
+
+        return UUID.randomUUID().toString();
+    }
+
+    private String querySingle(Connection connection, String accountId, String sql, List<String> parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql + " LIMIT 1")) {
+            statement.setString(1, accountId);
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setString(i + 2, parameters.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    static String firstMessageId(String headerValue) {
+        if (headerValue == null) {
+            return null;
+        }
+        Matcher matcher = MESSAGE_ID.matcher(headerValue);
+        return matcher.find() ? matcher.group() : null;
+    }
+
+    static String normalizeSubject(String subject) {
+        if (subject == null) {
+            return "";
+        }
+        String stripped = REPLY_PREFIX.matcher(subject).replaceFirst("");
+        return stripped.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> messageIds(String headerValue) {
+        if (headerValue == null) {
+            return List.of();
+        }
+        List<String> ids = new ArrayList<>();
+        Matcher matcher = MESSAGE_ID.matcher(headerValue);
+        while (matcher.find()) {
+            ids.add(matcher.group());
+        }
+        return ids;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", java.util.Collections.nCopies(count, "?"));
+    }
+
+    record ThreadCandidate(String id, String subject, OffsetDateTime receivedAt, ThreadHeaders headers) {
+
+        ThreadCandidate {
+            headers = headers != null ? headers : ThreadHeaders.NONE;
+        }
+    }
+}
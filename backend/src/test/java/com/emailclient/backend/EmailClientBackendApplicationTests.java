@@ -15,7 +15,8 @@ import org.springframework.boot.test.context.SpringBootTest;
         "spring.mail.password=test-smtp-password",
         "spring.datasource.url=jdbc:postgresql://localhost:5432/emailclient",
         "spring.datasource.username=emailclient",
-        "spring.datasource.password=test-database-password"
+        "spring.datasource.password=test-database-password",
+        "email-client.auth.clients[0].token-sha256=9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08"
 })
 class EmailClientBackendApplicationTests {
 
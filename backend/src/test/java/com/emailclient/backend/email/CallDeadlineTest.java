@@ -0,0 +1,57 @@
+package com.emailclient.backend.email;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CallDeadlineTest {
+
+    @Test
+    void abandoningTheCallInterruptsGuardedWorkAndClosingClearsTheInterrupt() throws Exception {
+        Context.CancellableContext call = Context.current().withCancellation();
+        CountDownLatch guarded = new CountDownLatch(1);
+
+        try (ExecutorService worker = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Boolean> result = worker.submit(() -> call.call(() -> {
+                boolean interrupted = false;
+                try (CallDeadline.Registration registration = CallDeadline.interruptOnAbandon()) {
+                    guarded.countDown();
+                    Thread.sleep(Duration.ofSeconds(10));
+                } catch (InterruptedException ex) {
+                    interrupted = CallDeadline.isAbandoned();
+                }
+                return interrupted && !Thread.currentThread().isInterrupted();
+            }));
+            assertThat(guarded.await(5, TimeUnit.SECONDS)).isTrue();
+
+            call.cancel(null);
+
+            assertThat(result.get(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void remainingTimeFollowsTheCallDeadline() throws Exception {
+        assertThat(CallDeadline.remaining()).isEmpty();
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try (Context.CancellableContext call = Context.current()
+                .withDeadline(Deadline.after(2, TimeUnit.SECONDS), scheduler)) {
+            Duration remaining = call.call(() -> CallDeadline.remaining().orElseThrow());
+            assertThat(remaining).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(2));
+            assertThat(call.call(CallDeadline::isAbandoned)).isFalse();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.ImapCircuitBreaker.State;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImapCircuitBreakerTest {
+
+    private static final Duration PROBE_INTERVAL = Duration.ofMillis(100);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImapCircuitBreaker breaker = breaker(meterRegistry);
+
+    @Test
+    void opensAfterRepeatedConnectFailuresAndClosesAfterASuccessfulProbe() throws Exception {
+        breaker.onFailure("default", unreachable());
+        assertThat(breaker.state("default")).isEqualTo(State.CLOSED);
+        breaker.onFailure("default", unreachable());
+
+        assertThat(breaker.state("default")).isEqualTo(State.OPEN);
+        assertThat(breaker.allowsCalls("default")).isFalse();
+        assertThat(breaker.allowsCalls("other")).isTrue();
+        assertThatThrownBy(() -> breaker.acquirePermission("default")).isInstanceOf(ImapUnavailableException.class);
+
+        LockSupport.parkNanos(PROBE_INTERVAL.multipliedBy(2).toNanos());
+        assertThat(breaker.allowsCalls("default")).isTrue();
+        breaker.acquirePermission("default");
+        assertThat(breaker.state("default")).isEqualTo(State.HALF_OPEN);
+        assertThatThrownBy(() -> breaker.acquirePermission("default")).isInstanceOf(ImapUnavailableException.class);
+
+        breaker.onSuccess("default");
+        assertThat(breaker.state("default")).isEqualTo(State.CLOSED);
+        assertThat(transitions("open")).isEqualTo(1.0);
+        assertThat(transitions("half_open")).isEqualTo(1.0);
+        assertThat(transitions("closed")).isEqualTo(1.0);
+    }
+
+    @Test
+    void failedProbeReopensAndAnsweringServerCountsAsReachable() throws Exception {
+        breaker.onFailure("default", unreachable());
+        breaker.onFailure("default", unreachable());
+        LockSupport.parkNanos(PROBE_INTERVAL.multipliedBy(2).toNanos());
+        breaker.acquirePermission("default");
+
+        breaker.onFailure("default", unreachable());
+        assertThat(breaker.state("default")).isEqualTo(State.OPEN);
+        assertThat(breaker.allowsCalls("default")).isFalse();
+
+        LockSupport.parkNanos(PROBE_INTERVAL.multipliedBy(2).toNanos());
+        breaker.acquirePermission("default");
+        breaker.onFailure("default", new AuthenticationFailedException("Invalid credentials"));
+        assertThat(breaker.state("default")).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void probeFailingWithAnUncheckedExceptionIsSettled() throws Exception {
+        breaker.onFailure("default", unreachable());
+        breaker.onFailure("default", unreachable());
+        LockSupport.parkNanos(PROBE_INTERVAL.multipliedBy(2).toNanos());
+        breaker.acquirePermission("default");
+
+        breaker.onFailure("default", new IllegalStateException("connect failed", new ConnectException("Connection reset")));
+        assertThat(breaker.state("default")).isEqualTo(State.OPEN);
+
+        LockSupport.parkNanos(PROBE_INTERVAL.multipliedBy(2).toNanos());
+        breaker.acquirePermission("default");
+        breaker.onFailure("default", new IllegalStateException("This service is already connected"));
+        assertThat(breaker.state("default")).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void abandonedProbeLetsTheNextCallProbeAgain() throws Exception {
+        breaker.onFailure("default", unreachable());
+        breaker.onFailure("default", unreachable());
+        LockSupport.parkNanos(PROBE_INTERVAL.multipliedBy(2).toNanos());
+        breaker.acquirePermission("default");
+
+        breaker.onAbandoned("default");
+        assertThat(breaker.state("default")).isEqualTo(State.OPEN);
+        assertThat(breaker.allowsCalls("default")).isTrue();
+
+        breaker.acquirePermission("default");
+        assertThat(breaker.state("default")).isEqualTo(State.HALF_OPEN);
+        breaker.onSuccess("default");
+        assertThat(breaker.state("default")).isEqualTo(State.CLOSED);
+
+        breaker.onAbandoned("default");
+        assertThat(breaker.state("default")).isEqualTo(State.CLOSED);
+    }
+
+    private double transitions(String state) {
+        return meterRegistry.get("email.imap.circuit.transitions").tag("state", state).counter().count();
+    }
+
+    private static MessagingException unreachable() {
+        return new MessagingException("Couldn't connect to host", new ConnectException("Connection refused"));
+    }
+
+    private static ImapCircuitBreaker breaker(SimpleMeterRegistry meterRegistry) {
+        EmailClientProperties properties = new EmailClientProperties();
+        properties.getExecution().setImapCircuitFailureThreshold(2);
+        properties.getExecution().setImapCircuitProbeInterval(PROBE_INTERVAL);
+        return new ImapCircuitBreaker(properties, meterRegistry);
+    }
+}
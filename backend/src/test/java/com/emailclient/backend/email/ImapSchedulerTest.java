@@ -0,0 +1,91 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.ImapScheduler.Lane;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImapSchedulerTest {
+
+    @Test
+    void interactiveCallsUseTheReserveThatBackgroundSyncsLeave() throws Exception {
+        ImapScheduler scheduler = scheduler(0.5, Duration.ofSeconds(20));
+
+        assertThat(scheduler.run("default", Lane.BACKGROUND, () -> "sync")).isEqualTo("sync");
+        CompletableFuture<String> blockedSync = CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.run("default", Lane.BACKGROUND, () -> "second sync");
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        long started = System.nanoTime();
+        assertThat(scheduler.run("default", Lane.INTERACTIVE, () -> "click")).isEqualTo("click");
+        assertThat(System.nanoTime() - started).isLessThan(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(scheduler.run("other", Lane.BACKGROUND, () -> "other account")).isEqualTo("other account");
+        assertThat(blockedSync).isNotDone();
+        blockedSync.cancel(true);
+    }
+
+    @Test
+    void throttlingHalvesTheRateAndNormalCallsRecoverIt() throws Exception {
+        ImapScheduler scheduler = scheduler(100, Duration.ofSeconds(20));
+
+        assertThatThrownBy(() -> scheduler.run("default", Lane.BACKGROUND, () -> {
+            throw new MessagingException("A3 NO [THROTTLED] Account exceeded command or bandwidth limits");
+        })).isInstanceOf(MessagingException.class);
+        assertThat(scheduler.currentRate("default")).isEqualTo(50.0);
+
+        scheduler.reportFailure("default", new MessagingException("folder not found"));
+        assertThat(scheduler.currentRate("default")).isEqualTo(50.0);
+
+        scheduler.commandCompleted("default", TimeUnit.MILLISECONDS.toNanos(5), true);
+        assertThat(scheduler.currentRate("default")).isEqualTo(55.0);
+        assertThat(scheduler.currentRate("other")).isEqualTo(100.0);
+    }
+
+    @Test
+    void slowCommandsCountAsThrottling() {
+        ImapScheduler scheduler = scheduler(100, Duration.ofMillis(10));
+
+        scheduler.commandCompleted("default", TimeUnit.MILLISECONDS.toNanos(50), false);
+        assertThat(scheduler.currentRate("default")).isEqualTo(50.0);
+
+        scheduler.commandCompleted("default", TimeUnit.MILLISECONDS.toNanos(5), false);
+        assertThat(scheduler.currentRate("default")).isEqualTo(50.0);
+    }
+
+    @Test
+    void aLongBulkSyncOfFastCommandsIsNotSlow() throws Exception {
+        ImapScheduler scheduler = scheduler(100, Duration.ofMillis(10));
+        scheduler.reportFailure("default", new MessagingException("[THROTTLED]"));
+
+        scheduler.run("default", Lane.BACKGROUND, () -> {
+            for (int i = 0; i < 5; i++) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+                scheduler.commandCompleted("default", TimeUnit.MILLISECONDS.toNanos(5), true);
+            }
+            return null;
+        });
+
+        assertThat(scheduler.currentRate("default")).isEqualTo(75.0);
+    }
+
+    private static ImapScheduler scheduler(double ratePerSecond, Duration slowCallThreshold) {
+        EmailClientProperties properties = new EmailClientProperties();
+        properties.getExecution().setImapRatePerSecond(ratePerSecond);
+        properties.getExecution().setImapBurst(2);
+        properties.getExecution().setImapInteractiveReserve(1);
+        properties.getExecution().setImapSlowCallThreshold(slowCallThreshold);
+        return new ImapScheduler(properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,84 @@
+package com.emailclient.backend.email;
+
+import com.emailclient.backend.email.dto.EmailDetail;
+import com.emailclient.backend.email.storage.EmailOfflineStore.StoredEmail;
+import jakarta.mail.Message;
+import jakarta.mail.Part;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageConverterTest {
+
+    private final MessageConverter converter = new MessageConverter();
+    private final Session session = Session.getInstance(new Properties());
+
+    @Test
+    void convertsANestedMultipartMessage() throws Exception {
+        byte[] raw = nestedMultipart();
+        MimeMessage message = new MimeMessage(session, new ByteArrayInputStream(raw));
+
+        StoredEmail stored = converter.toStoredEmail("7", "INBOX", message, raw);
+        assertThat(stored.from()).isEqualTo("Alice <alice@example.com>");
+        assertThat(stored.hasAttachments()).isTrue();
+        assertThat(stored.threadHeaders().messageId()).isEqualTo("<reply@example.com>");
+        assertThat(stored.threadHeaders().inReplyTo()).isEqualTo("<root@example.com>");
+        assertThat(stored.snippet()).isEqualTo("Plain text wins");
+        assertThat(stored.sizeBytes()).isEqualTo(raw.length);
+
+        EmailDetail detail = converter.parseEmailDetail(stored);
+        assertThat(detail.body()).isEqualTo("Plain text wins");
+        assertThat(detail.to()).containsExactly("bob@example.com");
+        assertThat(detail.cc()).isEmpty();
+    }
+
+    @Test
+    void snippetStripsHtmlAndStopsAtAWordBoundary() throws Exception {
+        MimeMessage message = new MimeMessage(session);
+        message.setContent("<html><head><style>p { color: red; }</style></head><body><p>Fish &amp; chips</p>"
+                + "<p>\n\n  at&nbsp;noon &#8211; " + "lorem ipsum ".repeat(40) + "</p></body></html>",
+                "text/html; charset=UTF-8");
+        message.saveChanges();
+
+        String snippet = converter.snippet(message);
+        assertThat(snippet).startsWith("Fish & chips at noon \u2013 lorem ipsum");
+        assertThat(snippet.length()).isLessThanOrEqualTo(MessageConverter.SNIPPET_LENGTH);
+        assertThat(snippet).endsWith(" lorem");
+    }
+
+    private byte[] nestedMultipart() throws Exception {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom("Alice <alice@example.com>");
+        message.setRecipients(Message.RecipientType.TO, "bob@example.com");
+        message.setSubject("Notes");
+        message.setHeader("In-Reply-To", "<root@example.com>");
+
+        MimeBodyPart html = new MimeBodyPart();
+        html.setContent("<p>HTML loses</p>", "text/html; charset=UTF-8");
+        MimeBodyPart plain = new MimeBodyPart();
+        plain.setText("Plain text wins", "UTF-8");
+        MimeMultipart alternative = new MimeMultipart("alternative", html, plain);
+        MimeBodyPart body = new MimeBodyPart();
+        body.setContent(alternative);
+        MimeBodyPart attachment = new MimeBodyPart();
+        attachment.setContent("a,b\n1,2\n", "text/csv");
+        attachment.setFileName("data.csv");
+        attachment.setDisposition(Part.ATTACHMENT);
+        message.setContent(new MimeMultipart("mixed", body, attachment));
+        message.saveChanges();
+        // saveChanges assigns a fresh Message-ID
+        message.setHeader("Message-ID", "<reply@example.com>");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        message.writeTo(out);
+        return out.toByteArray();
+    }
+}
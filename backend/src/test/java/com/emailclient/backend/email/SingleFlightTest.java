@@ -0,0 +1,116 @@
+package com.emailclient.backend.email;
+
+import io.grpc.Context;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 5;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("folder_sync", meterRegistry);
+
+    @Test
+    void concurrentCallersShareOneExecution() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = callers.submit(() -> singleFlight.execute("INBOX", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                await(release);
+                return "synced";
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 1; i < CALLERS; i++) {
+                followers.add(callers.submit(() -> singleFlight.execute("INBOX", () -> {
+                    runs.incrementAndGet();
+                    return "duplicate";
+                })));
+            }
+            while (coalesced() < CALLERS - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("synced");
+            for (Future<String> follower : followers) {
+                assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("synced");
+            }
+        }
+
+        assertThat(runs).hasValue(1);
+        assertThat(singleFlight.execute("INBOX", () -> "next")).isEqualTo("next");
+        assertThat(executed()).isEqualTo(2.0);
+    }
+
+    @Test
+    void failedCallIsNotRemembered() throws Exception {
+        assertThatThrownBy(() -> singleFlight.execute("INBOX", () -> {
+            throw new MessagingException("connection reset");
+        })).isInstanceOf(MessagingException.class).hasMessage("connection reset");
+
+        assertThat(singleFlight.execute("INBOX", () -> "recovered")).isEqualTo("recovered");
+    }
+
+    @Test
+    void callersStillWaitingRetryWhenTheLeadersCallIsAbandoned() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Context.CancellableContext leaderCall = Context.current().withCancellation();
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = callers.submit(() -> leaderCall.call(() -> singleFlight.execute("INBOX", () -> {
+                started.countDown();
+                await(release);
+                throw new CallAbandonedException("inbox_sync");
+            })));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> follower = callers.submit(() -> singleFlight.execute("INBOX", () -> "synced by follower"));
+            while (coalesced() < 1) {
+                Thread.sleep(5);
+            }
+
+            leaderCall.cancel(null);
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(CallAbandonedException.class);
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("synced by follower");
+        }
+        assertThat(executed()).isEqualTo(2.0);
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("email.imap.singleflight.calls").tag("result", "coalesced").counter().count();
+    }
+
+    private double executed() {
+        return meterRegistry.get("email.imap.singleflight.calls").tag("result", "executed").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.emailclient.backend.email;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.test.simple.SimpleSpan;
+import io.micrometer.tracing.test.simple.SimpleTracer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StepSpanTest {
+
+    private final SimpleTracer tracer = new SimpleTracer();
+
+    @Test
+    void stepsNestUnderTheRequestSpanAndRecordFailures() {
+        Span request = tracer.nextSpan().name("grpc").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(request)) {
+            try (StepSpan step = StepSpan.start(tracer, "locate_message").tag("email.id", "42")) {
+                try (StepSpan command = StepSpan.start(tracer, "imap select")) {
+                    command.fail(new IllegalStateException("folder gone"));
+                }
+            }
+        } finally {
+            request.end();
+        }
+
+        Map<String, SimpleSpan> spans = tracer.getSpans().stream()
+                .collect(Collectors.toMap(SimpleSpan::getName, Function.identity()));
+        assertThat(spans).containsOnlyKeys("grpc", "locate_message", "imap select");
+        assertThat(spans.get("locate_message").getParentId()).isEqualTo(spans.get("grpc").getSpanId());
+        assertThat(spans.get("locate_message").getTags()).containsEntry("email.id", "42");
+        assertThat(spans.get("imap select").getParentId()).isEqualTo(spans.get("locate_message").getSpanId());
+        assertThat(spans.get("imap select").getError()).hasMessage("folder gone");
+    }
+
+    @Test
+    void workOutsideATraceStartsNoSpans() {
+        try (StepSpan step = StepSpan.start(tracer, "inbox_sync")) {
+            step.tag("folder", "INBOX");
+        }
+
+        assertThat(tracer.getSpans()).isEmpty();
+    }
+}
@@ -0,0 +1,112 @@
+package com.emailclient.backend.email.contacts;
+
+import com.emailclient.backend.email.dto.RecipientSuggestion;
+import com.emailclient.backend.email.storage.EmailContactStore;
+import com.emailclient.backend.email.storage.EmailContactStore.ContactRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipientIndexTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.of(2024, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    private Path tempDb;
+    private EmailContactStore contactStore;
+    private RecipientIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tempDb = Files.createTempFile("email-client-contacts-test", ".db");
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDb.toAbsolutePath());
+
+        contactStore = new EmailContactStore(dataSource);
+        contactStore.initialize();
+        index = new RecipientIndex(contactStore);
+        index.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(tempDb);
+    }
+
+    @Test
+    void matchesAddressDomainAndDisplayNameWords() {
+        index.record(Map.of("INBOX:1", List.of(contact("jane.doe@example.com", "Jane Doe", NOW))));
+
+        assertThat(addresses(index.suggest("jan", 5))).containsExactly("jane.doe@example.com");
+        assertThat(addresses(index.suggest("DOE", 5))).containsExactly("jane.doe@example.com");
+        assertThat(addresses(index.suggest("example", 5))).containsExactly("jane.doe@example.com");
+        assertThat(index.suggest("zzz", 5)).isEmpty();
+    }
+
+    @Test
+    void resyncingTheSameMessageDoesNotInflateFrequency() {
+        index.record(Map.of("INBOX:1", List.of(contact("often@example.com", null, NOW.minusDays(1)))));
+        index.record(Map.of("INBOX:2", List.of(contact("often@example.com", null, NOW.minusDays(1)))));
+        for (int i = 0; i < 5; i++) {
+            index.record(Map.of("INBOX:3", List.of(contact("once@example.com", null, NOW.minusDays(1)))));
+        }
+
+        assertThat(addresses(index.suggest("o", 5))).containsExactly("often@example.com", "once@example.com");
+    }
+
+    @Test
+    void rebuildRestoresPersistedRanking() {
+        index.record(Map.of("INBOX:1", List.of(contact("old@example.com", null, NOW.minusDays(120)))));
+        index.record(Map.of("INBOX:2", List.of(contact("recent@example.com", "Recent Person", NOW))));
+
+        RecipientIndex reloaded = new RecipientIndex(contactStore);
+        reloaded.rebuild();
+
+        assertThat(reloaded.size()).isEqualTo(2);
+        assertThat(reloaded.suggest("re", 5))
+                .containsExactly(new RecipientSuggestion("recent@example.com", "Recent Person"));
+        assertThat(addresses(reloaded.suggest("example.com", 5))).containsExactly("recent@example.com", "old@example.com");
+    }
+
+    @Test
+    void answersKeystrokesQuicklyForFiftyThousandContacts() {
+        Map<String, List<ContactRecord>> sightings = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            sightings.put("INBOX:" + i, List.of(contact("user" + i + "@domain" + (i % 97) + ".example", "User " + i, NOW.minusMinutes(i))));
+        }
+        index.record(sightings);
+        assertThat(index.size()).isEqualTo(50_000);
+
+        String[] prefixes = {"u", "us", "use", "user", "user1", "user12", "user123", "d", "domain4"};
+        for (String prefix : prefixes) {
+            index.suggest(prefix, 10);
+        }
+        int rounds = 200;
+        long started = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (String prefix : prefixes) {
+                assertThat(index.suggest(prefix, 10)).isNotEmpty();
+            }
+        }
+        long averageNanos = (System.nanoTime() - started) / ((long) rounds * prefixes.length);
+        assertThat(averageNanos).isLessThan(1_000_000L);
+    }
+
+    private static ContactRecord contact(String address, String displayName, OffsetDateTime seenAt) {
+        return new ContactRecord(address, displayName, 1, seenAt);
+    }
+
+    private static List<String> addresses(List<RecipientSuggestion> suggestions) {
+        return suggestions.stream().map(RecipientSuggestion::address).toList();
+    }
+}
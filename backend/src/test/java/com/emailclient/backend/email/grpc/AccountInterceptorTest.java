@@ -0,0 +1,149 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.account.AccountContext;
+import com.emailclient.backend.email.account.AccountRegistry;
+import com.emailclient.backend.email.account.ApiClients;
+import com.emailclient.backend.email.crypto.SecretCrypto;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccountInterceptorTest {
+
+    private static final String WEB_TOKEN = "web-token";
+    private static final String ADMIN_TOKEN = "admin-token";
+
+    private final AtomicReference<String> servedAccount = new AtomicReference<>();
+    private Path tempDb;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tempDb = Files.createTempFile("email-client-account-interceptor-test", ".db");
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDb.toAbsolutePath());
+
+        EmailClientProperties properties = new EmailClientProperties();
+        properties.getImap().setHost("imap.example.com");
+        properties.getImap().setUsername("user@example.com");
+        properties.getAuth().setClients(List.of(
+                client("web", WEB_TOKEN, AccountContext.DEFAULT_ACCOUNT_ID),
+                client("admin", ADMIN_TOKEN, "*")));
+        AccountRegistry accountRegistry = new AccountRegistry(dataSource, properties, new SecretCrypto(properties));
+        accountRegistry.initialize();
+        AccountInterceptor interceptor = new AccountInterceptor(new ApiClients(properties), accountRegistry);
+
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .addService(ServerInterceptors.intercept(new AccountEchoService(), interceptor))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        channel.shutdownNow();
+        server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        Files.deleteIfExists(tempDb);
+    }
+
+    @Test
+    void bindsTheCallToTheClientsOnlyAccountWhenNoneIsNamed() {
+        call(WEB_TOKEN, null);
+
+        assertThat(servedAccount.get()).isEqualTo(AccountContext.DEFAULT_ACCOUNT_ID);
+    }
+
+    @Test
+    void rejectsCallsWithoutAValidToken() {
+        assertThat(status(null, null)).isEqualTo(Status.Code.UNAUTHENTICATED);
+        assertThat(status("guessed", AccountContext.DEFAULT_ACCOUNT_ID)).isEqualTo(Status.Code.UNAUTHENTICATED);
+        assertThat(servedAccount.get()).isNull();
+    }
+
+    @Test
+    void keepsClientsToTheirOwnAccounts() {
+        // Whether the account exists is not revealed to a client that may not use it
+        assertThat(status(WEB_TOKEN, "other")).isEqualTo(Status.Code.PERMISSION_DENIED);
+        assertThat(status(ADMIN_TOKEN, "other")).isEqualTo(Status.Code.NOT_FOUND);
+        assertThat(status(ADMIN_TOKEN, null)).isEqualTo(Status.Code.INVALID_ARGUMENT);
+
+        call(ADMIN_TOKEN, AccountContext.DEFAULT_ACCOUNT_ID);
+        assertThat(servedAccount.get()).isEqualTo(AccountContext.DEFAULT_ACCOUNT_ID);
+    }
+
+    @Test
+    void refusesToStartWithoutAClientThatCanAuthenticate() {
+        EmailClientProperties properties = new EmailClientProperties();
+        EmailClientProperties.Auth.Client unhashed = client("web", WEB_TOKEN, AccountContext.DEFAULT_ACCOUNT_ID);
+        unhashed.setTokenSha256(" ");
+        properties.getAuth().setClients(List.of(unhashed));
+
+        assertThatThrownBy(() -> new ApiClients(properties))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("token-sha256");
+    }
+
+    private Status.Code status(String token, String accountId) {
+        try {
+            call(token, accountId);
+            return Status.Code.OK;
+        } catch (StatusRuntimeException ex) {
+            return ex.getStatus().getCode();
+        }
+    }
+
+    private void call(String token, String accountId) {
+        Metadata headers = new Metadata();
+        if (token != null) {
+            headers.put(AccountInterceptor.AUTHORIZATION, "Bearer " + token);
+        }
+        if (accountId != null) {
+            headers.put(AccountInterceptor.ACCOUNT_ID, accountId);
+        }
+        EmailServiceGrpc.newBlockingStub(channel)
+                .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers))
+                .listSent(ListSentRequest.getDefaultInstance());
+    }
+
+    private static EmailClientProperties.Auth.Client client(String name, String token, String account) {
+        EmailClientProperties.Auth.Client client = new EmailClientProperties.Auth.Client();
+        client.setName(name);
+        client.setTokenSha256(ApiClients.sha256(token));
+        client.setAccounts(List.of(account));
+        return client;
+    }
+
+    private final class AccountEchoService extends EmailServiceGrpc.EmailServiceImplBase {
+
+        @Override
+        public void listSent(ListSentRequest request, StreamObserver<ListSentResponse> responseObserver) {
+            servedAccount.set(AccountContext.currentAccountId());
+            responseObserver.onNext(ListSentResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.grpc.ConcurrencyLimitInterceptor.Tier;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitInterceptorTest {
+
+    private final CountDownLatch releaseSends = new CountDownLatch(1);
+    private final CountDownLatch sendStarted = new CountDownLatch(1);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        EmailClientProperties properties = new EmailClientProperties();
+        properties.getGrpc().getMethodConcurrencyLimits().put("SendEmail", 1);
+        ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(properties, meterRegistry);
+
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .addService(ServerInterceptors.intercept(new HoldingService(), interceptor))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        releaseSends.countDown();
+        channel.shutdownNow();
+        server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void callsOverAMethodBudgetAreShedWithARetryHint() throws Exception {
+        EmailServiceGrpc.EmailServiceFutureStub stub = EmailServiceGrpc.newFutureStub(channel);
+        ListenableFuture<SendEmailResponse> first = stub.sendEmail(SendEmailRequestMessage.getDefaultInstance());
+        assertThat(sendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> stub.sendEmail(SendEmailRequestMessage.getDefaultInstance()).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOfSatisfying(StatusRuntimeException.class, ex -> {
+                    assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+                    assertThat(ex.getTrailers().get(ConcurrencyLimitInterceptor.RETRY_PUSHBACK)).isNotNull();
+                });
+        // Other methods are not held back by SendEmail's budget
+        assertThat(stub.listTrash(ListTrashRequest.getDefaultInstance()).get(5, TimeUnit.SECONDS)).isNotNull();
+
+        releaseSends.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(stub.sendEmail(SendEmailRequestMessage.getDefaultInstance()).get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(meterRegistry.get("email.grpc.rejected").tag("method", "SendEmail").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void listingsAndMailboxCallsHaveSeparateTiers() {
+        assertThat(ConcurrencyLimitInterceptor.tierOf(EmailServiceGrpc.getListThreadsMethod().getFullMethodName()))
+                .isEqualTo(Tier.CACHED_READ);
+        assertThat(ConcurrencyLimitInterceptor.tierOf(EmailServiceGrpc.getGetEmailMethod().getFullMethodName()))
+                .isEqualTo(Tier.REMOTE);
+    }
+
+    @Test
+    void limitGrowsUnderSteadyLatencyAndShrinksWhenLatencyClimbs() {
+        GradientLimit limit = new GradientLimit(10, 2, 100);
+        long steady = Duration.ofMillis(10).toNanos();
+
+        for (int i = 0; i < 50; i++) {
+            saturateAndComplete(limit, steady);
+        }
+        int grown = limit.limit();
+        assertThat(grown).isGreaterThan(10);
+
+        saturateAndComplete(limit, steady * 10);
+        assertThat(limit.limit()).isLessThan(grown / 2);
+        assertThat(limit.inFlight()).isZero();
+    }
+
+    @Test
+    void limitDoesNotGrowWhileMostlyIdle() {
+        GradientLimit limit = new GradientLimit(10, 2, 100);
+        for (int i = 0; i < 50; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+            limit.release(Duration.ofMillis(10).toNanos(), false);
+        }
+        assertThat(limit.limit()).isEqualTo(10);
+    }
+
+    private static void saturateAndComplete(GradientLimit limit, long rttNanos) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limit.release(rttNanos, false);
+        }
+    }
+
+    private final class HoldingService extends EmailServiceGrpc.EmailServiceImplBase {
+
+        @Override
+        public void sendEmail(SendEmailRequestMessage request, StreamObserver<SendEmailResponse> responseObserver) {
+            sendStarted.countDown();
+            try {
+                releaseSends.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            responseObserver.onNext(SendEmailResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void listTrash(ListTrashRequest request, StreamObserver<ListTrashResponse> responseObserver) {
+            responseObserver.onNext(ListTrashResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.AsyncEmailService;
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.EmailService.MoveToTrashResult;
+import com.emailclient.backend.email.dto.EmailDetail;
+import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.dto.MailboxDelta;
+import com.emailclient.backend.email.dto.PreviewFields;
+import com.emailclient.backend.email.storage.EmailOfflineStore;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.FieldMask;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the service on a single call thread: a handler that blocked on its result would serialise the calls,
+ * while callback completion lets every call be outstanding at once.
+ */
+class EmailGrpcServiceAsyncTest {
+
+    private static final int CONCURRENT_CALLS = 8;
+
+    private Path tempDb;
+    private ExecutorService callExecutor;
+    private Server server;
+    private ManagedChannel channel;
+    private final AsyncEmailService emailService = mock(AsyncEmailService.class);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tempDb = Files.createTempFile("email-client-grpc-async-test", ".db");
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDb.toAbsolutePath());
+        EmailClientProperties properties = new EmailClientProperties();
+        EmailOfflineStore store = new EmailOfflineStore(dataSource, properties, new SimpleMeterRegistry(), Tracer.NOOP);
+        store.initialize();
+        ListingResponseCache cache = new ListingResponseCache(properties, store, new SimpleMeterRegistry());
+        cache.initialize();
+
+        String name = InProcessServerBuilder.generateName();
+        callExecutor = Executors.newSingleThreadExecutor();
+        server = InProcessServerBuilder.forName(name)
+                .executor(callExecutor)
+                .addService(new EmailGrpcService(emailService, cache))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        channel.shutdownNow();
+        server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        callExecutor.shutdownNow();
+        Files.deleteIfExists(tempDb);
+    }
+
+    @Test
+    void handlersReturnBeforeTheOperationCompletes() throws Exception {
+        List<CompletableFuture<MoveToTrashResult>> pending = new ArrayList<>();
+        when(emailService.moveToTrash(anyString())).thenAnswer(invocation -> {
+            CompletableFuture<MoveToTrashResult> result = new CompletableFuture<>();
+            synchronized (pending) {
+                pending.add(result);
+            }
+            return result;
+        });
+
+        EmailServiceGrpc.EmailServiceFutureStub stub = EmailServiceGrpc.newFutureStub(channel);
+        List<ListenableFuture<MoveToTrashResponse>> calls = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            calls.add(stub.moveToTrash(MoveToTrashRequest.newBuilder().setId(Integer.toString(i)).build()));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pendingCount(pending) < CONCURRENT_CALLS && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(pendingCount(pending)).isEqualTo(CONCURRENT_CALLS);
+
+        synchronized (pending) {
+            pending.forEach(result -> result.complete(new MoveToTrashResult(true, "42")));
+        }
+        for (ListenableFuture<MoveToTrashResponse> call : calls) {
+            MoveToTrashResponse response = call.get(10, TimeUnit.SECONDS);
+            assertThat(response.getSuccess()).isTrue();
+            assertThat(response.getNewId()).isEqualTo("42");
+        }
+    }
+
+    @Test
+    void mapsFailedAndEmptyResultsToStatuses() {
+        when(emailService.getThread(anyString())).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(emailService.listThreads(0, "bogus"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalArgumentException("Invalid page token")));
+        when(emailService.deleteEmail(anyString()))
+                .thenReturn(CompletableFuture.supplyAsync(() -> {
+                    throw new IllegalStateException("IMAP down");
+                }));
+
+        EmailServiceGrpc.EmailServiceBlockingStub stub = EmailServiceGrpc.newBlockingStub(channel);
+        assertThatThrownBy(() -> stub.getThread(GetThreadRequest.newBuilder().setThreadId("t").build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class,
+                        ex -> assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND));
+        assertThatThrownBy(() -> stub.listThreads(ListThreadsRequest.newBuilder().setPageToken("bogus").build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class,
+                        ex -> assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT));
+        assertThatThrownBy(() -> stub.deleteEmail(DeleteEmailRequest.newBuilder().setId("1").build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class, ex -> {
+                    assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.INTERNAL);
+                    assertThat(ex.getStatus().getDescription()).isEqualTo("Unable to delete email");
+                });
+    }
+
+    @Test
+    void readMaskSkipsContentAndUnrequestedFields() {
+        when(emailService.getEmailDetail("7", false)).thenReturn(CompletableFuture.completedFuture(Optional.of(
+                new EmailDetail("7", "alice@example.com", "Notes", null, null, true, List.of(), List.of()))));
+        when(emailService.listTrash(any(), eq(new PreviewFields(false, true, false, false, false, false, false, false))))
+                .thenReturn(CompletableFuture.completedFuture(List.of(
+                        new EmailPreview("3", null, "Old", null, false, null, 0L, false, false))));
+        when(emailService.imapAvailable()).thenReturn(true);
+
+        EmailServiceGrpc.EmailServiceBlockingStub stub = EmailServiceGrpc.newBlockingStub(channel);
+        EmailDetailMessage email = stub.getEmail(GetEmailRequest.newBuilder()
+                .setId("7")
+                .setReadMask(FieldMask.newBuilder().addPaths("subject").addPaths("unread"))
+                .build()).getEmail();
+        assertThat(email).isEqualTo(EmailDetailMessage.newBuilder().setId("7").setSubject("Notes").setUnread(true).build());
+
+        ListTrashResponse trash = stub.listTrash(ListTrashRequest.newBuilder()
+                .setReadMask(FieldMask.newBuilder().addPaths("subject"))
+                .build());
+        assertThat(trash.getEmailsList()).containsExactly(EmailPreviewMessage.newBuilder().setId("3").setSubject("Old").build());
+
+        assertThatThrownBy(() -> stub.listTrash(ListTrashRequest.newBuilder()
+                .setReadMask(FieldMask.newBuilder().addPaths("body"))
+                .build()))
+                .isInstanceOfSatisfying(StatusRuntimeException.class,
+                        ex -> assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT));
+    }
+
+    @Test
+    void recentlySyncedInboxIsListedWithoutRefreshingAndACacheHitIsNotRebuilt() {
+        when(emailService.inboxStale()).thenReturn(true, false);
+        when(emailService.refreshInbox()).thenReturn(CompletableFuture.completedFuture(true));
+        when(emailService.imapAvailable()).thenReturn(true);
+        when(emailService.mailboxVersion()).thenReturn(5L);
+        when(emailService.listInboxChanges(any(), eq(0L), any())).thenReturn(CompletableFuture.completedFuture(
+                MailboxDelta.full(5, List.of(new EmailPreview("1", "alice@example.com", "Hi", null, true, null, 0L, false, false)))));
+
+        EmailServiceGrpc.EmailServiceBlockingStub stub = EmailServiceGrpc.newBlockingStub(channel);
+        ListInboxResponse first = stub.listInbox(ListInboxRequest.getDefaultInstance());
+        ListInboxResponse second = stub.listInbox(ListInboxRequest.getDefaultInstance());
+
+        assertThat(second).isEqualTo(first);
+        assertThat(second.getDegraded()).isFalse();
+        verify(emailService, times(1)).refreshInbox();
+        verify(emailService, times(1)).listInboxChanges(any(), eq(0L), any());
+    }
+
+    private static int pendingCount(List<?> pending) {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GrpcServerConfigurationTest {
+
+    private static final int CONCURRENT_CALLS = 200;
+
+    private final GrpcServerConfiguration configuration = new GrpcServerConfiguration();
+
+    @Test
+    void runsEveryBlockedCallOnItsOwnVirtualThread() throws Exception {
+        Set<Thread> handlerThreads = serve(new EmailClientProperties(), CONCURRENT_CALLS);
+
+        // Every call was parked in its handler at once, none queued behind a pool
+        assertThat(handlerThreads).hasSize(CONCURRENT_CALLS)
+                .allSatisfy(thread -> {
+                    assertThat(thread.isVirtual()).isTrue();
+                    assertThat(thread.getName()).startsWith("grpc-call-");
+                });
+    }
+
+    @Test
+    void fallsBackToPlatformThreadsWhenVirtualThreadsAreOff() throws Exception {
+        EmailClientProperties properties = new EmailClientProperties();
+        properties.getExecution().setVirtualThreads(false);
+
+        assertThat(serve(properties, 1)).singleElement()
+                .satisfies(thread -> assertThat(thread.isVirtual()).isFalse());
+    }
+
+    /**
+     * Serves {@code calls} concurrent calls on a server set up the way the application configures it, each of
+     * which blocks until all of them have reached their handler, and returns the threads they ran on.
+     */
+    private Set<Thread> serve(EmailClientProperties properties, int calls) throws Exception {
+        Set<Thread> handlerThreads = ConcurrentHashMap.newKeySet();
+        CountDownLatch allInFlight = new CountDownLatch(calls);
+        String name = InProcessServerBuilder.generateName();
+
+        try (ExecutorService executor = configuration.grpcCallExecutor(properties)) {
+            InProcessServerBuilder serverBuilder = InProcessServerBuilder.forName(name);
+            configuration.grpcExecutorConfigurer(executor).accept(serverBuilder);
+            Server server = serverBuilder
+                    .addService(new BlockingService(handlerThreads, allInFlight))
+                    .build()
+                    .start();
+            ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+            try {
+                EmailServiceGrpc.EmailServiceFutureStub stub = EmailServiceGrpc.newFutureStub(channel);
+                List<ListenableFuture<ListSentResponse>> pending = new ArrayList<>();
+                for (int i = 0; i < calls; i++) {
+                    pending.add(stub.listSent(ListSentRequest.getDefaultInstance()));
+                }
+                for (ListenableFuture<ListSentResponse> call : pending) {
+                    call.get(30, TimeUnit.SECONDS);
+                }
+            } finally {
+                channel.shutdownNow();
+                server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+            }
+        }
+        return handlerThreads;
+    }
+
+    private static final class BlockingService extends EmailServiceGrpc.EmailServiceImplBase {
+
+        private final Set<Thread> handlerThreads;
+        private final CountDownLatch allInFlight;
+
+        private BlockingService(Set<Thread> handlerThreads, CountDownLatch allInFlight) {
+            this.handlerThreads = handlerThreads;
+            this.allInFlight = allInFlight;
+        }
+
+        @Override
+        public void listSent(ListSentRequest request, StreamObserver<ListSentResponse> responseObserver) {
+            handlerThreads.add(Thread.currentThread());
+            allInFlight.countDown();
+            try {
+                if (!allInFlight.await(20, TimeUnit.SECONDS)) {
+                    responseObserver.onError(new IllegalStateException("Calls were not all in flight at once"));
+                    return;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            responseObserver.onNext(ListSentResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+    }
+}
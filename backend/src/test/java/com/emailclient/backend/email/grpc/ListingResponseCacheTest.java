@@ -0,0 +1,99 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.storage.EmailOfflineStore;
+import com.emailclient.backend.email.storage.EmailOfflineStore.StoredEmail;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ListingResponseCacheTest {
+
+    private Path tempDb;
+    private EmailOfflineStore store;
+    private SimpleMeterRegistry meterRegistry;
+    private ListingResponseCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tempDb = Files.createTempFile("email-client-cache-test", ".db");
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDb.toAbsolutePath());
+
+        EmailClientProperties properties = new EmailClientProperties();
+        store = new EmailOfflineStore(dataSource, properties, new SimpleMeterRegistry(), Tracer.NOOP);
+        store.initialize();
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ListingResponseCache(properties, store, meterRegistry);
+        cache.initialize();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(tempDb);
+    }
+
+    @Test
+    void servesSameInstanceUntilTheStoreCommitsANewVersion() {
+        AtomicInteger loads = new AtomicInteger();
+        ListInboxRequest request = ListInboxRequest.getDefaultInstance();
+
+        ListInboxResponse first = cache.get("ListInbox", request, store.currentVersion(), () -> load(loads));
+        ListInboxResponse second = cache.get("ListInbox", request, store.currentVersion(), () -> load(loads));
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+
+        store.upsertMessages(List.of(new StoredEmail("1", "a@example.com", "Hi", OffsetDateTime.now(ZoneOffset.UTC),
+                true, null, "INBOX", false, null, null, 0L, false)));
+        ListInboxResponse third = cache.get("ListInbox", request, store.currentVersion(), () -> load(loads));
+        assertThat(third).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+
+        assertThat(meterRegistry.get("email.grpc.response.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("email.grpc.response.cache.bytes.saved").counter().count())
+                .isEqualTo(first.getSerializedSize());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void boundMarshallerWritesCachedBytes() throws Exception {
+        ServerServiceDefinition bound = cache.bind(new EmailGrpcServiceStub().bindService(), EmailServiceGrpc.getListInboxMethod());
+        MethodDescriptor<ListInboxRequest, ListInboxResponse> method = (MethodDescriptor<ListInboxRequest, ListInboxResponse>)
+                bound.getMethod(EmailServiceGrpc.getListInboxMethod().getFullMethodName()).getMethodDescriptor();
+
+        ListInboxResponse cached = cache.get("ListInbox", ListInboxRequest.getDefaultInstance(), 0L, () -> load(new AtomicInteger()));
+        ListInboxResponse uncached = cached.toBuilder().build();
+
+        try (InputStream hit = method.streamResponse(cached); InputStream miss = method.streamResponse(uncached)) {
+            assertThat(hit.getClass().getSimpleName()).isEqualTo("EncodedStream");
+            assertThat(miss.getClass().getSimpleName()).isNotEqualTo("EncodedStream");
+            assertThat(ListInboxResponse.parseFrom(hit)).isEqualTo(cached);
+        }
+    }
+
+    private static ListInboxResponse load(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return ListInboxResponse.newBuilder()
+                .setVersion(loads.get())
+                .addEmails(EmailPreviewMessage.newBuilder().setId("1").setSubject("Hi"))
+                .build();
+    }
+
+    private static final class EmailGrpcServiceStub extends EmailServiceGrpc.EmailServiceImplBase {
+    }
+}
@@ -0,0 +1,67 @@
+package com.emailclient.backend.email.grpc;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCompressionInterceptorTest {
+
+    private static final Metadata.Key<String> ENCODING = Metadata.Key.of("grpc-encoding", Metadata.ASCII_STRING_MARSHALLER);
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        channel.shutdownNow();
+        server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void negotiatesGzipUnlessDisabled() throws Exception {
+        assertThat(responseEncoding(true)).isEqualTo("gzip");
+        tearDown();
+        assertThat(responseEncoding(false)).isNotEqualTo("gzip");
+    }
+
+    private String responseEncoding(boolean enabled) throws Exception {
+        EmailClientProperties properties = new EmailClientProperties();
+        properties.getGrpc().setResponseCompressionEnabled(enabled);
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .compressorRegistry(ResponseCompressionInterceptor.compressorRegistry(properties.getGrpc().getCompressionLevel()))
+                .addService(ServerInterceptors.intercept(new TrashService(), new ResponseCompressionInterceptor(properties)))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+
+        AtomicReference<Metadata> headers = new AtomicReference<>();
+        AtomicReference<Metadata> trailers = new AtomicReference<>();
+        EmailServiceGrpc.newBlockingStub(channel)
+                .withInterceptors(MetadataUtils.newCaptureMetadataInterceptor(headers, trailers))
+                .listTrash(ListTrashRequest.getDefaultInstance());
+        return headers.get().get(ENCODING);
+    }
+
+    private static final class TrashService extends EmailServiceGrpc.EmailServiceImplBase {
+
+        @Override
+        public void listTrash(ListTrashRequest request, StreamObserver<ListTrashResponse> responseObserver) {
+            responseObserver.onNext(ListTrashResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.account.AccountContext;
+import com.emailclient.backend.email.dto.EmailFilter;
+import com.emailclient.backend.email.dto.EmailPreview;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.email;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailOfflineStoreAccountTest {
+
+    private static final String OTHER = "team-support";
+
+    private OfflineStoreFixture fixture;
+    private EmailOfflineStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fixture = new OfflineStoreFixture();
+        store = fixture.newStore();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    void sameUidInTwoAccountsStaysSeparate() throws Exception {
+        store.upsertMessages(List.of(email("1").subject("Default mailbox").messageId("<a@example.com>").build()));
+        AccountContext.runAs(OTHER, () -> {
+            store.upsertMessages(List.of(email("1").subject("Support mailbox").messageId("<a@example.com>").build()));
+            store.upsertMessages(List.of(email("2").subject("Support reply").messageId("<b@example.com>").build()));
+            store.markAsRead("1");
+        });
+
+        assertThat(subjects()).containsExactly("Default mailbox");
+        assertThat(store.loadPreviews().getFirst().unread()).isTrue();
+        assertThat(store.currentVersion()).isEqualTo(1);
+        assertThat(store.loadThreads(10, null).threads()).hasSize(1);
+
+        assertThat(AccountContext.callAs(OTHER, this::subjects)).containsExactly("Support reply", "Support mailbox");
+        assertThat(AccountContext.callAs(OTHER, () -> store.currentVersion())).isEqualTo(3);
+        assertThat(AccountContext.callAs(OTHER, () -> store.loadThreads(10, null).threads())).hasSize(2);
+    }
+
+    private List<String> subjects() {
+        return store.loadPreviews(EmailFilter.none(), null).stream().map(EmailPreview::subject).toList();
+    }
+}
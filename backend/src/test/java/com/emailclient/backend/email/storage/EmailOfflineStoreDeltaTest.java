@@ -0,0 +1,82 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.dto.EmailFilter;
+import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.dto.MailboxDelta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.email;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailOfflineStoreDeltaTest {
+
+    private OfflineStoreFixture fixture;
+    private EmailOfflineStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fixture = new OfflineStoreFixture();
+        store = fixture.newStore();
+        store.upsertMessages(List.of(email("1").build(), email("2").build()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    void resyncingUnchangedMessagesIsNotModified() {
+        MailboxDelta initial = changesSince(0);
+        assertThat(initial.full()).isTrue();
+        assertThat(ids(initial)).containsExactly("2", "1");
+
+        store.upsertMessages(List.of(email("1").build(), email("2").build()));
+
+        MailboxDelta poll = changesSince(initial.version());
+        assertThat(poll.notModified()).isTrue();
+        assertThat(poll.version()).isEqualTo(initial.version());
+    }
+
+    @Test
+    void reportsChangedAndRemovedIds() {
+        long version = changesSince(0).version();
+
+        store.markAsRead("1");
+        store.upsertMessages(List.of(email("3").build()));
+        store.markAsTrashed("2");
+
+        MailboxDelta delta = changesSince(version);
+        assertThat(delta.full()).isFalse();
+        assertThat(ids(delta)).containsExactly("3", "1");
+        assertThat(delta.removedIds()).containsExactly("2");
+        assertThat(delta.version()).isEqualTo(version + 3);
+
+        store.permanentlyDelete("2");
+        store.updateMessageId("3", "30");
+
+        MailboxDelta next = changesSince(delta.version());
+        assertThat(ids(next)).containsExactly("30");
+        assertThat(next.removedIds()).containsExactlyInAnyOrder("2", "3");
+    }
+
+    @Test
+    void unknownVersionFallsBackToFullListing() {
+        MailboxDelta delta = changesSince(changesSince(0).version() + 100);
+
+        assertThat(delta.full()).isTrue();
+        assertThat(ids(delta)).containsExactly("2", "1");
+    }
+
+    private MailboxDelta changesSince(long version) {
+        return store.loadInboxChanges(EmailFilter.none(), null, version);
+    }
+
+    private static List<String> ids(MailboxDelta delta) {
+        return delta.changed().stream().map(EmailPreview::id).toList();
+    }
+}
@@ -0,0 +1,81 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.storage.EmailOfflineStore.FlagChange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.email;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailOfflineStoreFlagTest {
+
+    private OfflineStoreFixture fixture;
+    private EmailOfflineStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fixture = new OfflineStoreFixture();
+        store = fixture.newStore();
+        store.upsertMessages(List.of(email("1").build(), email("2").build()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    void coalescesRepeatedChangesIntoOnePendingChange() {
+        assertThat(store.updateFlags("1", true, null)).isTrue();
+        assertThat(store.updateFlags("1", null, true)).isTrue();
+        assertThat(store.updateFlags("1", false, null)).isTrue();
+        // Already in that state: nothing to send
+        assertThat(store.updateFlags("2", false, false)).isFalse();
+
+        assertThat(store.loadPendingFlagChanges(10)).containsExactly(new FlagChange("1", "INBOX", false, true, 3));
+        assertThat(preview("1").unread()).isTrue();
+        assertThat(preview("1").starred()).isTrue();
+    }
+
+    @Test
+    void syncKeepsLocalFlagsUntilTheChangeIsFlushedAndForgotten() {
+        store.updateFlags("1", true, true);
+        long version = store.currentVersion();
+
+        // The server has not seen the change yet
+        store.upsertMessages(List.of(email("1").build()));
+        assertThat(store.currentVersion()).isEqualTo(version);
+        assertThat(preview("1").unread()).isFalse();
+        assertThat(preview("1").starred()).isTrue();
+
+        assertThat(store.markFlagChangesFlushed(store.loadPendingFlagChanges(10))).isEqualTo(1);
+        assertThat(store.loadPendingFlagChanges(10)).isEmpty();
+        store.upsertMessages(List.of(email("1").build()));
+        assertThat(preview("1").unread()).isFalse();
+
+        store.pruneFlushedFlagChanges(Duration.ofMillis(-1));
+        store.upsertMessages(List.of(email("1").build()));
+        assertThat(preview("1").unread()).isTrue();
+        assertThat(preview("1").starred()).isFalse();
+    }
+
+    @Test
+    void aChangeMadeDuringAFlushStaysPending() {
+        store.updateFlags("1", true, null);
+        List<FlagChange> inFlight = store.loadPendingFlagChanges(10);
+        store.updateFlags("1", false, null);
+
+        assertThat(store.markFlagChangesFlushed(inFlight)).isZero();
+        assertThat(store.loadPendingFlagChanges(10)).containsExactly(new FlagChange("1", "INBOX", false, null, 2));
+        assertThat(store.countPendingFlagChanges()).isEqualTo(1);
+    }
+
+    private EmailPreview preview(String id) {
+        return store.loadPreviewById(id).orElseThrow();
+    }
+}
@@ -0,0 +1,128 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.dto.MailboxMutation;
+import com.emailclient.backend.email.dto.MailboxMutation.Operation;
+import com.emailclient.backend.email.dto.MailboxMutation.Status;
+import com.emailclient.backend.email.storage.EmailOfflineStore.StoredEmail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.email;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class EmailOfflineStoreMutationTest {
+
+    private OfflineStoreFixture fixture;
+    private EmailOfflineStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fixture = new OfflineStoreFixture();
+        store = fixture.newStore();
+        store.upsertMessages(List.of(cached("1"), cached("2")));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    void journalsActionsInOrderAndFollowsTheMessageToItsNewUid() {
+        assertThat(store.applyMutation("1", Operation.TRASH)).isTrue();
+        assertThat(store.isTrashed("1")).isTrue();
+        // Not cached: nothing to trash
+        assertThat(store.applyMutation("9", Operation.TRASH)).isFalse();
+
+        List<MailboxMutation> pending = store.loadPendingMutations(10);
+        assertThat(pending).singleElement().satisfies(mutation -> {
+            assertThat(mutation.emailId()).isEqualTo("1");
+            assertThat(mutation.operation()).isEqualTo(Operation.TRASH);
+            assertThat(mutation.messageIdHeader()).isEqualTo("<1@example.com>");
+            assertThat(mutation.folder()).isEqualTo("INBOX");
+            assertThat(mutation.status()).isEqualTo(Status.PENDING);
+        });
+
+        // Restored before the trash was replayed: the restore waits behind it
+        assertThat(store.applyMutation("1", Operation.RESTORE)).isTrue();
+        store.completeMutation(pending.get(0));
+        assertThat(store.updateMessageId("1", "40", "Trash")).isTrue();
+
+        assertThat(store.loadPendingMutations(10))
+                .extracting(MailboxMutation::seq, MailboxMutation::emailId, MailboxMutation::operation)
+                .containsExactly(tuple(2L, "40", Operation.RESTORE));
+        assertThat(store.loadPreviewById("40")).isPresent();
+    }
+
+    @Test
+    void syncDoesNotBringBackAMessageWhoseDeleteIsPending() {
+        assertThat(store.applyMutation("2", Operation.DELETE)).isTrue();
+        assertThat(store.loadPreviewById("2")).isEmpty();
+
+        store.upsertMessages(List.of(cached("2")));
+        assertThat(store.loadPreviewById("2")).isEmpty();
+
+        MailboxMutation delete = store.loadPendingMutations(10).get(0);
+        store.recordMutationAttempt(delete, Status.FAILED, "connection reset", Instant.now());
+        store.upsertMessages(List.of(cached("2")));
+        assertThat(store.loadPreviewById("2")).isPresent();
+    }
+
+    @Test
+    void deleteMadeBeforeItsTrashWasReplayedFollowsTheMessageToTheTrash() {
+        assertThat(store.applyMutation("1", Operation.TRASH)).isTrue();
+        assertThat(store.applyMutation("1", Operation.DELETE)).isTrue();
+        assertThat(store.loadPreviewById("1")).isEmpty();
+
+        store.completeMutation(store.loadPendingMutations(10).get(0));
+        // The row is gone, so there is nothing to re-key, but the delete still has to find the message
+        assertThat(store.updateMessageId("1", "40", "[Gmail]/Trash")).isFalse();
+
+        assertThat(store.loadPendingMutations(10))
+                .extracting(MailboxMutation::emailId, MailboxMutation::operation, MailboxMutation::folder)
+                .containsExactly(tuple("40", Operation.DELETE, "[Gmail]/Trash"));
+    }
+
+    @Test
+    void unknownOrMalformedIdsAreNotJournaled() {
+        assertThat(store.applyMutation("7", Operation.DELETE)).isFalse();
+        assertThat(store.applyMutation("not-a-uid", Operation.DELETE)).isFalse();
+        assertThat(store.applyMutation("-1", Operation.TRASH)).isFalse();
+
+        assertThat(store.loadMutations(10)).isEmpty();
+        assertThat(store.countPendingMutations()).isZero();
+    }
+
+    @Test
+    void failedAttemptsWaitForTheirRetryAndSettledEntriesArePruned() {
+        store.applyMutation("1", Operation.TRASH);
+        store.applyMutation("2", Operation.TRASH);
+        List<MailboxMutation> pending = store.loadPendingMutations(10);
+        assertThat(store.accountsWithDueMutations()).containsExactly("default");
+
+        store.recordMutationAttempt(pending.get(0), Status.PENDING, "timeout", Instant.now().plusSeconds(60));
+        store.recordMutationAttempt(pending.get(1), Status.CONFLICT, "gone", Instant.now());
+        assertThat(store.accountsWithDueMutations()).isEmpty();
+        assertThat(store.countPendingMutations()).isEqualTo(1);
+        assertThat(store.loadMutations(10))
+                .extracting(MailboxMutation::status, MailboxMutation::attempts, MailboxMutation::lastError)
+                .containsExactly(
+                        tuple(Status.PENDING, 1, "timeout"),
+                        tuple(Status.CONFLICT, 1, "gone"));
+
+        assertThat(store.pruneSettledMutations(Duration.ofMillis(-1))).isEqualTo(1);
+        assertThat(store.loadMutations(10)).extracting(MailboxMutation::emailId).containsExactly("1");
+        // The local change stays whatever became of its replay
+        assertThat(store.isTrashed("2")).isTrue();
+    }
+
+    private static StoredEmail cached(String id) {
+        return email(id).messageId("<" + id + "@example.com>").build();
+    }
+}
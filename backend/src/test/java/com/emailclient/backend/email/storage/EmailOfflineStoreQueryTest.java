@@ -0,0 +1,136 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.dto.EmailFilter;
+import com.emailclient.backend.email.dto.EmailPreview;
+import com.emailclient.backend.email.dto.PreviewFields;
+import com.emailclient.backend.email.storage.EmailOfflineStore.StoredEmail;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.BASE;
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.email;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailOfflineStoreQueryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OfflineStoreFixture fixture;
+    private EmailOfflineStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fixture = new OfflineStoreFixture();
+        store = fixture.newStore(new EmailClientProperties(), meterRegistry);
+        store.upsertMessages(List.of(
+                alice(),
+                email("2").from("bob@example.com").receivedAt(BASE.plusDays(1)).unread(false).hasAttachments(true).build(),
+                email("3").from("Me <me@example.com>").receivedAt(BASE.plusDays(2)).unread(false).build(),
+                email("4").from("alice@example.com").receivedAt(BASE.plusDays(3)).unread(false)
+                        .folder("[Gmail]/All Mail").hasAttachments(true).build()
+        ));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    void excludesOwnMessagesInSql() {
+        assertThat(ids(store.loadPreviews(EmailFilter.none(), "ME@example.com"))).containsExactly("4", "2", "1");
+    }
+
+    @Test
+    void filtersOnNormalizedSenderAndFolder() {
+        assertThat(ids(store.loadPreviews(new EmailFilter("ALICE@example.com", null, null, false, false, null), null)))
+                .containsExactly("4", "1");
+        assertThat(ids(store.loadPreviews(new EmailFilter("alice@example.com", null, null, false, false, "INBOX"), null)))
+                .containsExactly("1");
+    }
+
+    @Test
+    void combinesUnreadAttachmentAndDateRange() {
+        assertThat(ids(store.loadPreviews(new EmailFilter(null, null, null, true, false, null), null)))
+                .containsExactly("1");
+        assertThat(ids(store.loadPreviews(new EmailFilter(null, null, null, false, true, null), null)))
+                .containsExactly("4", "2");
+        assertThat(ids(store.loadPreviews(new EmailFilter(null, BASE.plusDays(1), BASE.plusDays(3), false, false, null), null)))
+                .containsExactly("3", "2");
+    }
+
+    @Test
+    void recordsATimerPerStoreOperation() {
+        store.loadPreviews();
+        store.loadTrashPreviews();
+
+        assertThat(meterRegistry.get("email.store.query").tag("operation", "upsert_messages").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("email.store.query").tag("operation", "load_previews").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("email.store.query").tag("operation", "load_trash_previews").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void recordsAFlightRecorderEventPerStoreOperation() throws Exception {
+        Path dump = Files.createTempFile("email-client-store", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.emailclient.StoreQuery").withThreshold(Duration.ZERO);
+            recording.start();
+            store.loadPreviews();
+            recording.stop();
+            recording.dump(dump);
+
+            assertThat(RecordingFile.readAllEvents(dump))
+                    .extracting(event -> event.getString("operation"))
+                    .contains("load_previews");
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    @Test
+    void trashListingHonoursFilter() {
+        store.markAsTrashed("2");
+        store.markAsTrashed("3");
+
+        assertThat(ids(store.loadTrashPreviews(new EmailFilter(null, null, null, false, true, null))))
+                .containsExactly("2");
+        assertThat(ids(store.loadPreviews(EmailFilter.none(), null))).containsExactly("4", "1");
+    }
+
+    @Test
+    void loadsOnlyTheRequestedPreviewFields() {
+        List<EmailPreview> previews = store.loadPreviews(EmailFilter.none(), "me@example.com",
+                new PreviewFields(false, true, false, false, false, false, false, false));
+
+        assertThat(previews).extracting(EmailPreview::id).containsExactly("4", "2", "1");
+        assertThat(previews.getLast()).isEqualTo(new EmailPreview("1", null, "Subject 1", null, false, null, 0L, false, false));
+    }
+
+    @Test
+    void keepsTheSnippetWhenASyncCarriesNone() {
+        store.upsertMessages(List.of(alice().withSnippet("See you at noon")));
+        long version = store.currentVersion();
+        store.upsertMessages(List.of(alice()));
+
+        assertThat(store.currentVersion()).isEqualTo(version);
+        assertThat(store.loadPreviews(EmailFilter.none(), null).getLast().snippet()).isEqualTo("See you at noon");
+        assertThat(store.loadIdsWithSnippet(List.of("1", "2"))).containsExactly("1");
+    }
+
+    private static StoredEmail alice() {
+        return email("1").from("Alice <Alice@Example.com>").receivedAt(BASE).build();
+    }
+
+    private static List<String> ids(List<EmailPreview> previews) {
+        return previews.stream().map(EmailPreview::id).toList();
+    }
+}
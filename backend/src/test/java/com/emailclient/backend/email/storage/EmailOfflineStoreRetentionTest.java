@@ -0,0 +1,101 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.storage.EmailOfflineStore.BodyEviction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.email;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailOfflineStoreRetentionTest {
+
+    private static final int BODY_BYTES = 100;
+
+    private OfflineStoreFixture fixture;
+    private EmailClientProperties properties;
+    private EmailOfflineStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fixture = new OfflineStoreFixture();
+        properties = new EmailClientProperties();
+        store = fixture.newStore(properties, new SimpleMeterRegistry());
+        store.upsertMessages(List.of(
+                email("1").raw(body('a')).build(), email("2").raw(body('b')).build(), email("3").raw(body('c')).build()));
+        // Reads noted from here on are later than the downloads
+        Thread.sleep(5);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    void resyncWithoutABodyKeepsTheCachedOne() {
+        store.upsertMessages(List.of(email("1").build()));
+
+        assertThat(store.loadEmailById("1").orElseThrow().rawMessage()).isEqualTo(body('a'));
+        assertThat(store.cachedBodyBytes()).isEqualTo(3L * BODY_BYTES);
+    }
+
+    @Test
+    void evictsLeastRecentlyReadBodiesAndKeepsTheirRows() {
+        store.loadEmailById("1");
+        store.flushBodyAccesses();
+
+        assertThat(store.evictLeastRecentlyUsedBodies(2)).isEqualTo(new BodyEviction(2, 2L * BODY_BYTES));
+        assertThat(store.cachedBodyBytes()).isEqualTo(BODY_BYTES);
+        assertThat(store.loadEmailById("1").orElseThrow().rawMessage()).isEqualTo(body('a'));
+        assertThat(store.loadEmailById("2").orElseThrow().rawMessage()).isNull();
+        assertThat(store.loadPreviewById("3")).isPresent();
+
+        // Opening an evicted message caches its body again
+        store.upsertMessages(List.of(email("2").raw(body('b')).build()));
+        assertThat(store.cachedBodyBytes()).isEqualTo(2L * BODY_BYTES);
+    }
+
+    @Test
+    void aReadNotYetFlushedProtectsItsBody() {
+        String threadId = store.loadThreads(10, null).threads().stream()
+                .filter(thread -> thread.subject().equals("Subject 2"))
+                .findFirst().orElseThrow().threadId();
+        assertThat(store.loadThreadMessages(threadId)).hasSize(1);
+
+        assertThat(store.evictLeastRecentlyUsedBodies(10).bodies()).isEqualTo(2);
+        assertThat(store.loadEmailById("2").orElseThrow().rawMessage()).isNotNull();
+    }
+
+    @Test
+    void aBatchReadsPastBodiesProtectedByUnflushedReads() {
+        store.loadEmailById("1");
+        store.loadEmailById("2");
+
+        assertThat(store.evictLeastRecentlyUsedBodies(2)).isEqualTo(new BodyEviction(1, BODY_BYTES));
+        assertThat(store.loadEmailById("3").orElseThrow().rawMessage()).isNull();
+        assertThat(store.loadEmailById("1").orElseThrow().rawMessage()).isEqualTo(body('a'));
+    }
+
+    @Test
+    void retentionEvictsDownToNinetyPercentOfTheBudget() {
+        properties.getStorage().setBodyCacheBudget(DataSize.ofBytes(2L * BODY_BYTES));
+        properties.getStorage().setBodyEvictionBatchSize(1);
+        BodyCacheRetention retention = new BodyCacheRetention(store, properties, new SimpleMeterRegistry());
+        store.loadEmailById("3");
+
+        assertThat(retention.enforce()).isEqualTo(2L * BODY_BYTES);
+        assertThat(store.loadEmailById("3").orElseThrow().rawMessage()).isNotNull();
+        assertThat(retention.enforce()).isZero();
+    }
+
+    private static byte[] body(char fill) {
+        return String.valueOf(fill).repeat(BODY_BYTES).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -1,6 +1,8 @@
 package com.emailclient.backend.email.storage;
 
 import com.emailclient.backend.email.EmailClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
 import org.junit.jupiter.api.Test;
 import org.sqlite.SQLiteDataSource;
 
@@ -22,7 +24,7 @@ class EmailOfflineStoreSchemaTest {
             DataSource dataSource = createLegacyDatabase(tempDb);
 
             EmailClientProperties properties = new EmailClientProperties();
-            EmailOfflineStore store = new EmailOfflineStore(dataSource, properties);
+            EmailOfflineStore store = new EmailOfflineStore(dataSource, properties, new SimpleMeterRegistry(), Tracer.NOOP);
 
             store.initialize();
 
@@ -0,0 +1,108 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.dto.EmailThreadSummary;
+import com.emailclient.backend.email.dto.ThreadPage;
+import com.emailclient.backend.email.storage.EmailOfflineStore.StoredEmail;
+import com.emailclient.backend.email.storage.EmailOfflineStore.ThreadHeaders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.BASE;
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.email;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailOfflineStoreThreadTest {
+
+    private OfflineStoreFixture fixture;
+    private EmailOfflineStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fixture = new OfflineStoreFixture();
+        store = fixture.newStore();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    void groupsRepliesByReferencesAndSubject() {
+        store.upsertMessages(List.of(
+                email("1").from("alice@example.com").subject("Launch plan").receivedAt(BASE)
+                        .messageId("<a@x>").build(),
+                email("2").from("bob@example.com").subject("Re: Launch plan").receivedAt(BASE.plusHours(1))
+                        .threadHeaders(new ThreadHeaders("<b@x>", "<a@x>", "<a@x>")).build(),
+                email("3").from("carol@example.com").subject("Lunch?").receivedAt(BASE.plusHours(2))
+                        .messageId("<c@x>").build()
+        ));
+        // Reply arriving in a later sync with its headers stripped, threaded by subject
+        store.upsertMessages(List.of(
+                email("4").from("dave@example.com").subject("RE: launch  plan").receivedAt(BASE.plusHours(3)).build()
+        ));
+
+        ThreadPage page = store.loadThreads(10, null);
+        assertThat(page.threads()).hasSize(2);
+        EmailThreadSummary launch = page.threads().get(0);
+        assertThat(launch.subject()).isEqualTo("Launch plan");
+        assertThat(launch.messageCount()).isEqualTo(3);
+        assertThat(launch.unreadCount()).isEqualTo(3);
+        assertThat(launch.participants()).containsExactly("alice@example.com", "bob@example.com", "dave@example.com");
+        assertThat(store.loadThreadMessages(launch.threadId())).extracting(StoredEmail::id).containsExactly("1", "2", "4");
+    }
+
+    @Test
+    void parentArrivingAfterReplyJoinsTheSameThread() {
+        store.upsertMessages(List.of(
+                email("2").from("bob@example.com").subject("Re: Budget").receivedAt(BASE.plusHours(1))
+                        .threadHeaders(new ThreadHeaders("<b@x>", "<a@x>", null)).build()));
+        store.upsertMessages(List.of(
+                email("1").from("alice@example.com").subject("Budget").receivedAt(BASE)
+                        .messageId("<a@x>").build()));
+
+        assertThat(store.loadThreads(10, null).threads()).singleElement()
+                .extracting(EmailThreadSummary::messageCount).isEqualTo(2);
+    }
+
+    @Test
+    void aggregatesFollowReadAndTrashChanges() {
+        store.upsertMessages(List.of(
+                email("1").from("alice@example.com").subject("Status").receivedAt(BASE)
+                        .messageId("<a@x>").build(),
+                email("2").from("bob@example.com").subject("Re: Status").receivedAt(BASE.plusHours(1))
+                        .threadHeaders(new ThreadHeaders("<b@x>", "<a@x>", null)).build()
+        ));
+        String threadId = store.loadThreads(10, null).threads().get(0).threadId();
+
+        store.markAsRead("1");
+        store.markAsTrashed("2");
+        EmailThreadSummary summary = store.loadThreadSummary(threadId).orElseThrow();
+        assertThat(summary.messageCount()).isEqualTo(1);
+        assertThat(summary.unreadCount()).isZero();
+        assertThat(summary.latestAt().toInstant()).isEqualTo(BASE.toInstant());
+
+        store.permanentlyDelete("1");
+        assertThat(store.loadThreadSummary(threadId)).isEmpty();
+    }
+
+    @Test
+    void pagesThroughThreadsWithKeysetTokens() {
+        for (int i = 0; i < 5; i++) {
+            store.upsertMessages(List.of(email(Integer.toString(i)).from("user" + i + "@example.com").subject("Topic " + i)
+                    .receivedAt(BASE.plusHours(i)).messageId("<" + i + "@x>").build()));
+        }
+
+        ThreadPage first = store.loadThreads(2, null);
+        ThreadPage second = store.loadThreads(2, first.nextPageToken());
+        ThreadPage third = store.loadThreads(2, second.nextPageToken());
+
+        assertThat(first.threads()).extracting(EmailThreadSummary::subject).containsExactly("Topic 4", "Topic 3");
+        assertThat(second.threads()).extracting(EmailThreadSummary::subject).containsExactly("Topic 2", "Topic 1");
+        assertThat(third.threads()).extracting(EmailThreadSummary::subject).containsExactly("Topic 0");
+        assertThat(third.nextPageToken()).isEmpty();
+    }
+}
@@ -0,0 +1,60 @@
+package com.emailclient.backend.email.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.email;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MailboxChangeFeedTest {
+
+    private OfflineStoreFixture fixture;
+    private EmailOfflineStore writer;
+    private EmailOfflineStore replica;
+    private SimpleMeterRegistry meterRegistry;
+    private MailboxChangeFeed feed;
+    private final List<Long> published = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fixture = new OfflineStoreFixture();
+        writer = fixture.newStore();
+        replica = fixture.newStore();
+        replica.addChangeListener((accountId, version) -> published.add(version));
+        meterRegistry = new SimpleMeterRegistry();
+        feed = new MailboxChangeFeed(fixture.dataSource(), replica, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    void appliesConsecutiveVersionsAndReloadsAfterAGap() {
+        write("1");
+        feed.handle("default:1");
+        feed.handle("default:1");
+        assertThat(published).containsExactly(1L);
+
+        write("2");
+        write("3");
+        feed.handle("default:3");
+        assertThat(replica.currentVersion("default")).isEqualTo(3);
+        assertThat(published).containsExactly(1L, 3L);
+
+        feed.handle("not-a-notification");
+        assertThat(meterRegistry.get("email.mailbox.notifications").tag("result", "applied").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("email.mailbox.notifications").tag("result", "stale").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("email.mailbox.notifications").tag("result", "gap").counter().count()).isEqualTo(1.0);
+    }
+
+    private void write(String id) {
+        writer.upsertMessages(List.of(email(id).build()));
+    }
+}
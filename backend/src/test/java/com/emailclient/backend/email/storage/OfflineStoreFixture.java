@@ -0,0 +1,134 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import com.emailclient.backend.email.storage.EmailOfflineStore.StoredEmail;
+import com.emailclient.backend.email.storage.EmailOfflineStore.ThreadHeaders;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * A SQLite database in a temporary file for storage tests, with the offline stores opened on it and a builder for
+ * the messages they store. Every store opened by one fixture shares its database, like replicas sharing Postgres.
+ */
+final class OfflineStoreFixture implements AutoCloseable {
+
+    static final OffsetDateTime BASE = OffsetDateTime.of(2024, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    private final Path database;
+    private final SQLiteDataSource dataSource;
+
+    OfflineStoreFixture() throws IOException {
+        this.database = Files.createTempFile("email-client-store-test", ".db");
+        this.dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + database.toAbsolutePath());
+    }
+
+    SQLiteDataSource dataSource() {
+        return dataSource;
+    }
+
+    EmailOfflineStore newStore() {
+        return newStore(new EmailClientProperties(), new SimpleMeterRegistry());
+    }
+
+    EmailOfflineStore newStore(EmailClientProperties properties, MeterRegistry meterRegistry) {
+        EmailOfflineStore store = new EmailOfflineStore(dataSource, properties, meterRegistry, Tracer.NOOP);
+        store.initialize();
+        return store;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(database);
+    }
+
+    /**
+     * An unread INBOX message from {@code sender@example.com} with subject {@code "Subject <id>"}, received
+     * {@code id} minutes after {@link #BASE} and without body, headers or snippet.
+     */
+    static EmailBuilder email(String id) {
+        return new EmailBuilder(id);
+    }
+
+    static final class EmailBuilder {
+
+        private final String id;
+        private String from = "sender@example.com";
+        private String subject;
+        private OffsetDateTime receivedAt;
+        private boolean unread = true;
+        private byte[] raw;
+        private String folder = "INBOX";
+        private boolean hasAttachments;
+        private ThreadHeaders threadHeaders;
+        private boolean starred;
+
+        private EmailBuilder(String id) {
+            this.id = id;
+            this.subject = "Subject " + id;
+            this.receivedAt = BASE.plusMinutes(Long.parseLong(id));
+        }
+
+        EmailBuilder from(String from) {
+            this.from = from;
+            return this;
+        }
+
+        EmailBuilder subject(String subject) {
+            this.subject = subject;
+            return this;
+        }
+
+        EmailBuilder receivedAt(OffsetDateTime receivedAt) {
+            this.receivedAt = receivedAt;
+            return this;
+        }
+
+        EmailBuilder unread(boolean unread) {
+            this.unread = unread;
+            return this;
+        }
+
+        EmailBuilder raw(byte[] raw) {
+            this.raw = raw;
+            return this;
+        }
+
+        EmailBuilder folder(String folder) {
+            this.folder = folder;
+            return this;
+        }
+
+        EmailBuilder hasAttachments(boolean hasAttachments) {
+            this.hasAttachments = hasAttachments;
+            return this;
+        }
+
+        EmailBuilder messageId(String messageId) {
+            return threadHeaders(new ThreadHeaders(messageId, null, null));
+        }
+
+        EmailBuilder threadHeaders(ThreadHeaders threadHeaders) {
+            this.threadHeaders = threadHeaders;
+            return this;
+        }
+
+        EmailBuilder starred(boolean starred) {
+            this.starred = starred;
+            return this;
+        }
+
+        StoredEmail build() {
+            return new StoredEmail(id, from, subject, receivedAt, unread, raw, folder, hasAttachments, threadHeaders,
+                    null, 0L, starred);
+        }
+    }
+}
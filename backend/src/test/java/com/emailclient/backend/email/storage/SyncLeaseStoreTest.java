@@ -0,0 +1,76 @@
+package com.emailclient.backend.email.storage;
+
+import com.emailclient.backend.email.EmailClientProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.emailclient.backend.email.storage.OfflineStoreFixture.email;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyncLeaseStoreTest {
+
+    private static final Duration TTL = Duration.ofMillis(200);
+
+    private OfflineStoreFixture fixture;
+    private SyncLeaseStore nodeA;
+    private SyncLeaseStore nodeB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fixture = new OfflineStoreFixture();
+        nodeA = new SyncLeaseStore(fixture.dataSource(), properties("node-a"));
+        nodeA.initialize();
+        nodeB = new SyncLeaseStore(fixture.dataSource(), properties("node-b"));
+        nodeB.initialize();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    void oneNodeOwnsAFolderUntilItsLeaseExpires() throws Exception {
+        assertThat(nodeA.tryAcquire("default", "INBOX")).isTrue();
+        assertThat(nodeB.tryAcquire("default", "INBOX")).isFalse();
+        assertThat(nodeB.tryAcquire("other", "INBOX")).isTrue();
+        assertThat(nodeA.tryAcquire("default", "INBOX")).isTrue();
+
+        Thread.sleep(TTL.multipliedBy(2).toMillis());
+
+        assertThat(nodeB.tryAcquire("default", "INBOX")).isTrue();
+        assertThat(nodeA.tryAcquire("default", "INBOX")).isFalse();
+    }
+
+    @Test
+    void releasedLeasesAreTakenOverImmediately() {
+        assertThat(nodeA.tryAcquire("default", "INBOX")).isTrue();
+
+        nodeA.releaseAll();
+
+        assertThat(nodeB.tryAcquire("default", "INBOX")).isTrue();
+    }
+
+    @Test
+    void nonOwnerPicksUpVersionsCommittedByTheOwner() {
+        EmailOfflineStore owner = fixture.newStore();
+        EmailOfflineStore reader = fixture.newStore();
+
+        owner.upsertMessages(List.of(email("1").build()));
+
+        assertThat(reader.currentVersion()).isZero();
+        assertThat(reader.reloadVersion()).isEqualTo(owner.currentVersion());
+        assertThat(reader.currentVersion()).isEqualTo(owner.currentVersion());
+    }
+
+    private static EmailClientProperties properties(String nodeId) {
+        EmailClientProperties properties = new EmailClientProperties();
+        properties.getCluster().setNodeId(nodeId);
+        properties.getCluster().setSyncLeaseTtl(TTL);
+        return properties;
+    }
+}
@@ -24,10 +24,20 @@ import type {
 const baseUrl =
   import.meta.env.VITE_GRPC_BASE_URL?.trim() || 'http://localhost:8080';
 
+const accountId = import.meta.env.VITE_ACCOUNT_ID?.trim();
+
+// Envoy attaches the bearer token, so no secret ships in the bundle; without an account id the backend uses the
+// token's only account
+const meta: Record<string, string> = {};
+if (accountId) {
+  meta['x-account-id'] = accountId;
+}
+
 // Create transport that points to Envoy proxy (defaults to port 8080)
 const transport = new GrpcWebFetchTransport({
   baseUrl,
   timeout: 30000, // 30 second timeout for slower operations like fetching email content
+  meta,
 });
 
 // Create the gRPC-Web client
@@ -60,6 +60,14 @@ export POSTGRES_DB=$(bw_field "POSTGRES_DB" 2>/dev/null || echo "emailclient")
 export EMAIL_CLIENT_MASTER_KEY=$(bw_field "MASTER_KEY" 2>/dev/null || echo "C1pW0G/jHMoCsJ8nGZ4PlgseL2b7Ls0Y4MXq2Qg2cqk=")
 export EMAIL_CLIENT_CRYPTO_SALT=$(bw_field "CRYPTO_SALT" 2>/dev/null || echo "bm90LXMtby1zYWx0")
 
+# API token Envoy attaches as the web frontend's bearer token; a random one per session when none is stored
+EMAIL_CLIENT_WEB_TOKEN=$(bw_field "API_TOKEN" 2>/dev/null || true)
+if [[ -z "${EMAIL_CLIENT_WEB_TOKEN}" || "${EMAIL_CLIENT_WEB_TOKEN}" == "null" ]]; then
+  EMAIL_CLIENT_WEB_TOKEN=$(openssl rand -hex 32)
+fi
+export EMAIL_CLIENT_WEB_TOKEN
+export EMAIL_CLIENT_WEB_TOKEN_SHA256=$(printf '%s' "$EMAIL_CLIENT_WEB_TOKEN" | openssl dgst -sha256 -r | cut -d' ' -f1)
+
 # Legacy fields (optional)
 export EMAIL_CLIENT_SMTP_PASSWORD_ENC=$(bw_field "SMTP_PASSWORD_ENC" 2>/dev/null || echo "")
 export EMAIL_CLIENT_SMTP_PASSWORD_IV=$(bw_field "SMTP_PASSWORD_IV" 2>/dev/null || echo "")